@@ -18,6 +18,8 @@
  */
 package org.structr.agent;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -151,4 +153,9 @@ public class AbstractTask<T> implements Task<T> {
 	public int getRetryCount() {
 		return retryCount;
 	}
+
+	@Override
+	public Object getDeduplicationKey() {
+		return Arrays.asList(getClass().getName(), type, user, new ArrayList<>(objects));
+	}
 }
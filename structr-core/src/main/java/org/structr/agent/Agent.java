@@ -18,29 +18,25 @@
  */
 package org.structr.agent;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import static org.structr.agent.ReturnValue.Retry;
 import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.Tx;
 
 /**
  * Abstract base class for all agents.
+ *
+ * Agents are run by the worker threads of the AgentService, each worker
+ * thread has its own agent instance.
  */
-public abstract class Agent<T> extends Thread implements StatusInfo {
+public abstract class Agent<T> implements StatusInfo {
 
 	public static final String AVERAGE_EXECUTION_TIME = "average_execution_time";
 	public static final String EXECUTION_STATUS       = "execution_status";
 	public static final String MAX_QUEUE_SIZE         = "max_queue_size";
 	private static final Logger logger                = LoggerFactory.getLogger(Agent.class.getName());
 
-	private final AtomicBoolean suspended      = new AtomicBoolean(false);
-	private final Queue<Task<T>> taskQueue     = new ConcurrentLinkedQueue<>();
-	private final AtomicBoolean acceptingTasks = new AtomicBoolean(true);
 	private AgentService agentService          = null;
 	private long averageExecutionTime          = 0;
 	private int maxAgents                      = 10;
@@ -53,133 +49,55 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 	public abstract ReturnValue processTask(final Task<T> task) throws Throwable;
 	public abstract Class getSupportedTaskType();
 
-	@Override
-	public final void run() {
-
-		agentService.notifyAgentStart(this);
-
-		do {
-
-			while (suspended.get()) {
-
-				Thread.yield();
-
-			}
-
-			final Task<T> currentTask;
-
-			synchronized (taskQueue) {
-
-				currentTask = taskQueue.poll();
-
-			}
-
-			if (currentTask != null) {
-
-				ReturnValue ret = null;
-
-				// only execute process if Service layer is ready
-				// (and not shutting down right now)
-				if (Services.getInstance().isInitialized()) {
-
-					if (createEnclosingTransaction()) {
-
-						try (final Tx tx = StructrApp.getInstance().tx()) {
-
-							ret = processTask(currentTask);
-							tx.success();
-
-						} catch (Throwable t) {
-
-							// task processing failed..
-							logger.error("Processing task {} failed: {}", currentTask.getType(), t.getMessage());
-						}
-
-					} else {
-
-						try {
+	/**
+	 * Processes the given task, in a transaction if the agent requires
+	 * one. Exceptions are logged and result in a null return value.
+	 *
+	 * @param task
+	 *
+	 * @return the return value of processTask, or null
+	 */
+	public final ReturnValue execute(final Task<T> task) {
 
-							ret = processTask(currentTask);
+		final long startTime = System.currentTimeMillis();
+		ReturnValue ret      = null;
 
-						} catch (Throwable t) {
+		// only execute process if Service layer is ready
+		// (and not shutting down right now)
+		if (Services.getInstance().isInitialized()) {
 
-							// task processing failed..
-							logger.error("Processing task {} failed: {}", currentTask.getType(), t.getMessage());
-						}
-					}
-				}
+			if (createEnclosingTransaction()) {
 
-				if (ret != null && Retry.equals(ret) && currentTask.getRetryCount() < 2) {
+				try (final Tx tx = StructrApp.getInstance().tx()) {
 
-					// wait some time
-					try { Thread.sleep(2000); } catch (InterruptedException ex) {}
+					ret = processTask(task);
+					tx.success();
 
-					synchronized (taskQueue) {
+				} catch (Throwable t) {
 
-						currentTask.incrementRetryCount();
-						taskQueue.add(currentTask);
-					}
+					// task processing failed..
+					logger.error("Processing task {} failed: {}", task.getType(), t.getMessage());
 				}
 
-				long endTime = System.nanoTime();
-
-				// calc. average execution time
-				averageExecutionTime += endTime;
-				averageExecutionTime /= 2;
-
 			} else {
 
-				// queue is empty, quit.
-				acceptingTasks.set(false);
-			}
-
-		} while (acceptingTasks.get());
+				try {
 
-		// call beforeShutdown to allow agents to clean up
-		beforeShutdown();
-		agentService.notifyAgentStop(this);
-	}
+					ret = processTask(task);
 
-	public final boolean assignTask(final Task<T> task) {
+				} catch (Throwable t) {
 
-		// TODO: do type check here
-		if (canHandleMore() && acceptingTasks.get()) {
-
-			synchronized (taskQueue) {
-
-				taskQueue.add(task);
+					// task processing failed..
+					logger.error("Processing task {} failed: {}", task.getType(), t.getMessage());
+				}
 			}
-
-			return (true);
 		}
 
-		return (false);
-	}
-
-	public final void killAgent() {
-
-		// stop accepting tasks
-		acceptingTasks.set(false);
-
-		// clear queue
-		taskQueue.clear();
+		// calc. average execution time
+		averageExecutionTime += System.currentTimeMillis() - startTime;
+		averageExecutionTime /= 2;
 
-		// interrupt running process..
-		// not sure if this works... see Thread.interrupt()'s description!
-		// may not work if the processTask method itself catches the interrupt..
-		this.interrupt();
-	}
-
-	public final void suspendAgent() {
-
-		acceptingTasks.set(false);
-		suspended.set(true);
-	}
-
-	public final void resumeAgent() {
-
-		acceptingTasks.set(true);
-		suspended.set(false);
+		return ret;
 	}
 
 	protected void beforeShutdown() {
@@ -187,26 +105,6 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 		// override me
 	}
 
-	private boolean canHandleMore() {
-
-		int size = 0;
-
-		synchronized (taskQueue) {
-
-			// FIXME: size may not be a constant time operation! slow?
-			size = taskQueue.size();
-		}
-
-		// queue is empty, assume new agent
-		if (size == 0) {
-
-			return true;
-
-		}
-
-		return size < maxQueueSize;
-	}
-
 	public boolean createEnclosingTransaction() {
 		return true;
 	}
@@ -220,9 +118,6 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 	}
 
 	public final void setAgentService(AgentService service) {
-
-		this.setDaemon(true);
-
 		this.agentService = service;
 	}
 
@@ -253,12 +148,4 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 	protected AgentService getBlackboardService() {
 		return agentService;
 	}
-
-	public final boolean isSuspended() {
-		return suspended.get();
-	}
-
-	public final boolean isAcceptingTasks() {
-		return acceptingTasks.get();
-	}
 }
@@ -20,17 +20,20 @@ package org.structr.agent;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.api.service.Command;
 import org.structr.api.service.RunnableService;
 import org.structr.api.service.StructrServices;
@@ -40,16 +43,18 @@ import org.structr.schema.ConfigurationProvider;
 /**
  * The agent service main class.
  *
- *
+ * Tasks are handed to a pool of worker threads for the agent class that
+ * supports the task type. The number of workers can be configured per
+ * agent class, identical tasks that are already queued are ignored.
  */
 public class AgentService extends Thread implements RunnableService {
 
 	private static final Logger logger = LoggerFactory.getLogger(AgentService.class.getName());
 
-	private final int maxAgents                          = 10;    // TODO: make configurable
 	private final Map<String, List<Agent>> runningAgents = new ConcurrentHashMap<>(10, 0.9f, 8);
 	private final Map<String, Class> agentClassCache     = new ConcurrentHashMap<>(10, 0.9f, 8);
-	private final Queue<Task> taskQueue                  = new ConcurrentLinkedQueue<>();
+	private final Map<String, AgentWorkerPool> pools     = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private ScheduledExecutorService delayed             = null;
 	private Set<Class> supportedCommands                 = null;
 	private boolean run                                  = false;
 
@@ -62,49 +67,28 @@ public class AgentService extends Thread implements RunnableService {
 		super.setDaemon(true);
 	}
 
-	public void processTask(Task task) {
+	public void processTask(final Task task) {
 
-		synchronized (taskQueue) {
+		if (!run) {
 
-			taskQueue.add(task);
-			logger.debug("Task {} added to task queue", task);
+			logger.warn("AgentService not running, ignoring task {}", task);
+			return;
 		}
-	}
-
-	@Override
-	public void run() {
-
-		logger.info("AgentService started");
-
-		while (run) {
-
-			Task nextTask = taskQueue.poll();
-			if (nextTask != null) {
 
-				assignNextAgentForTask(nextTask);
-			}
+		final long delay = task.getDelay(TimeUnit.MILLISECONDS);
+		if (delay > 0) {
 
-			// let others act
-			try { Thread.sleep(10); } catch(Throwable ignore) {}
-		}
-	}
+			delayed.schedule(() -> submit(task), delay, TimeUnit.MILLISECONDS);
 
-	public void notifyAgentStart(Agent agent) {
-
-		List<Agent> agents = getRunningAgentsForTask(agent.getSupportedTaskType());
+		} else {
 
-		synchronized (agents) {
-			agents.add(agent);
+			submit(task);
 		}
 	}
 
-	public void notifyAgentStop(Agent agent) {
-
-		List<Agent> agents = getRunningAgentsForTask(agent.getSupportedTaskType());
-
-		synchronized (agents) {
-			agents.remove(agent);
-		}
+	@Override
+	public void run() {
+		logger.info("AgentService started");
 	}
 
 	public Map<String, Class<? extends Agent>> getAgents() {
@@ -137,13 +121,33 @@ public class AgentService extends Thread implements RunnableService {
 	@Override
 	public void startService() throws Exception {
 
+		delayed = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+
+			final Thread thread = new Thread(r, "AgentService-Scheduler");
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
 		run = true;
 		this.start();
 	}
 
 	@Override
 	public void stopService() {
+
 		run = false;
+
+		if (delayed != null) {
+			delayed.shutdownNow();
+		}
+
+		for (final AgentWorkerPool pool : pools.values()) {
+			pool.shutdown();
+		}
+
+		pools.clear();
 	}
 
 	@Override
@@ -151,90 +155,73 @@ public class AgentService extends Thread implements RunnableService {
 		return true;
 	}
 
-	private void assignNextAgentForTask(Task nextTask) {
-
-		Class taskClass    = nextTask.getClass();
-		List<Agent> agents = getRunningAgentsForTask(taskClass);
-
-		// need to synchronize on agents
-		synchronized (agents) {
-
-			// find next free agent (agents should be sorted by load, so one
-			// of the first should do..
-			for (Agent agent : agents) {
-
-				if (agent.assignTask(nextTask)) {
+	/**
+	 * Returns the queue size and the number of processed, deduplicated
+	 * and failed tasks for each agent class.
+	 *
+	 * @return a map with the statistics of each agent class
+	 */
+	public Map<String, Object> getStatistics() {
 
-					// ok, task is assigned
-					logger.debug("Task assigned to agent {}", agent.getName());
+		final Map<String, Object> statistics = new LinkedHashMap<>();
 
-					return;
-				}
-			}
+		for (final Entry<String, AgentWorkerPool> entry : pools.entrySet()) {
+			statistics.put(entry.getKey(), entry.getValue().getStatistics());
 		}
 
-		// FIXME: find better solution for hard limit here!
-		if (agents.size() < maxAgents) {
+		return statistics;
+	}
 
-			// if we get here, task was not assigned to any agent, need to
-			// create a new one.
-			Agent agent = createAgent(nextTask);
+	// ----- private methods -----
+	private void submit(final Task task) {
 
-			if ((agent != null) && agent.assignTask(nextTask)) {
-				agent.start();
-			} else {
+		final Class<? extends Agent> agentClass = lookupAgentClass(task);
+		if (agentClass != null) {
 
-				// re-add task..
-				synchronized (taskQueue) {
-					taskQueue.add(nextTask);
-				}
-			}
-		} else {
+			getPool(agentClass, task.getClass()).submit(task);
 
-			logger.debug("Overall agents limit reached, re-queueing task");
+		} else {
 
-			// re-add task..
-			synchronized (taskQueue) {
-				taskQueue.add(nextTask);
-			}
+			logger.warn("No agent found for task {}, ignoring", task.getClass().getName());
 		}
 	}
 
-	/**
-	 * Creates a new agent for the given Task. Note that the agent must be
-	 * started manually after creation.
-	 *
-	 * @param forTask
-	 * @return a new agent for the given task
-	 */
-	private Agent createAgent(Task forTask) {
+	private AgentWorkerPool getPool(final Class<? extends Agent> agentClass, final Class taskClass) {
 
-		Agent agent = null;
+		return pools.computeIfAbsent(agentClass.getName(), k -> {
 
-		try {
+			final int workers = getNumberOfWorkers(agentClass);
 
-			agent = lookupAgent(forTask);
+			logger.info("Starting {} worker(s) for agent {}", workers, agentClass.getSimpleName());
 
-			if (agent != null) {
+			return new AgentWorkerPool(this, agentClass, workers, getRunningAgentsForTask(taskClass), delayed);
+		});
+	}
 
-				// register us in agent..
-				agent.setAgentService(this);
-			}
+	private int getNumberOfWorkers(final Class<? extends Agent> agentClass) {
+
+		// format: AgentName:count[,AgentName:count...]
+		for (final String entry : Settings.AgentWorkersPerAgent.getValue().split("[, ]+")) {
+
+			final String[] parts = entry.split(":");
+			if (parts.length == 2 && parts[0].trim().equals(agentClass.getSimpleName())) {
 
-		} catch (Exception ex) {
+				try {
+					return Math.max(1, Integer.parseInt(parts[1].trim()));
 
-			// TODO: handle exception etc..
+				} catch (NumberFormatException nex) {
+					logger.warn("Invalid number of workers for agent {}: {}", parts[0], parts[1]);
+				}
+			}
 		}
 
-		return (agent);
+		return Math.max(1, Settings.AgentWorkers.getValue());
 	}
 
-	private Agent lookupAgent(Task task) {
+	private Class<? extends Agent> lookupAgentClass(final Task task) {
 
-		// FIXME: superuser security context
-		Class taskClass  = task.getClass();
-		Agent agent      = null;
-		Class agentClass = agentClassCache.get(taskClass.getName());
+		final Class taskClass = task.getClass();
+		Class agentClass      = agentClassCache.get(taskClass.getName());
 
 		// cache miss
 		if (agentClass == null) {
@@ -263,15 +250,7 @@ public class AgentService extends Thread implements RunnableService {
 			}
 		}
 
-		if (agentClass != null) {
-
-			try {
-				agent = (Agent) agentClass.newInstance();
-
-			} catch (Throwable ignore) {}
-		}
-
-		return (agent);
+		return agentClass;
 	}
 
 	/**
@@ -279,7 +258,14 @@ public class AgentService extends Thread implements RunnableService {
 	 * @return tasks
 	 */
 	public Collection<Task> getTaskQueue() {
-		return (taskQueue);
+
+		final List<Task> tasks = new LinkedList<>();
+
+		for (final AgentWorkerPool pool : pools.values()) {
+			tasks.addAll(pool.getQueuedTasks());
+		}
+
+		return tasks;
 	}
 
 	/**
@@ -291,18 +277,7 @@ public class AgentService extends Thread implements RunnableService {
 	}
 
 	private List<Agent> getRunningAgentsForTask(Class taskClass) {
-
-		List<Agent> agents = runningAgents.get(taskClass.getName());
-
-		if (agents == null) {
-
-			agents = Collections.synchronizedList(new LinkedList<>());
-
-			// Hashtable is synchronized
-			runningAgents.put(taskClass.getName(), agents);
-		}
-
-		return (agents);
+		return runningAgents.computeIfAbsent(taskClass.getName(), k -> Collections.synchronizedList(new LinkedList<>()));
 	}
 
 	@Override
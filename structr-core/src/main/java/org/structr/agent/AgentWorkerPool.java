@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.agent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.structr.agent.ReturnValue.Retry;
+
+/**
+ * A pool of worker threads that process the tasks of one agent class.
+ * Each worker thread has its own agent instance, tasks are handed to the
+ * workers through a blocking queue.
+ */
+class AgentWorkerPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(AgentWorkerPool.class.getName());
+	private static final int MAX_RETRIES = 2;
+
+	private final Set<Object> queuedKeys     = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger maxQueueSize = new AtomicInteger();
+	private final AtomicInteger threadCount  = new AtomicInteger();
+	private final LongAdder submitted        = new LongAdder();
+	private final LongAdder processed        = new LongAdder();
+	private final LongAdder deduplicated     = new LongAdder();
+	private final LongAdder retried          = new LongAdder();
+	private final LongAdder failed           = new LongAdder();
+	private final LongAdder processingTime   = new LongAdder();
+	private ScheduledExecutorService delayed = null;
+	private ThreadLocal<Agent> agents        = null;
+	private ThreadPoolExecutor executor      = null;
+	private List<Agent> runningAgents        = null;
+	private String name                      = null;
+	private int workers                      = 1;
+
+	public AgentWorkerPool(final AgentService agentService, final Class<? extends Agent> agentClass, final int workers, final List<Agent> runningAgents, final ScheduledExecutorService delayed) {
+
+		this.runningAgents = runningAgents;
+		this.delayed       = delayed;
+		this.workers       = workers;
+		this.name          = agentClass.getSimpleName();
+
+		this.agents = ThreadLocal.withInitial(() -> {
+
+			try {
+
+				final Agent agent = agentClass.newInstance();
+
+				agent.setAgentService(agentService);
+				runningAgents.add(agent);
+
+				return agent;
+
+			} catch (Throwable t) {
+
+				logger.warn("Unable to create agent {}: {}", name, t.getMessage());
+			}
+
+			return null;
+		});
+
+		this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), (Runnable r) -> {
+
+			final Thread thread = new Thread(r, name + "-" + threadCount.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+	}
+
+	/**
+	 * Queues the given task unless an identical task is already waiting.
+	 *
+	 * @param task
+	 */
+	public void submit(final Task task) {
+
+		final Object key = task.getDeduplicationKey();
+
+		if (key != null && !queuedKeys.add(key)) {
+
+			deduplicated.increment();
+			logger.debug("Identical task {} already queued, ignoring", task);
+			return;
+		}
+
+		submitted.increment();
+
+		try {
+
+			executor.execute(new TaskRunner(task, key));
+
+			maxQueueSize.accumulateAndGet(executor.getQueue().size(), Math::max);
+
+		} catch (Throwable t) {
+
+			// executor was shut down
+			queuedKeys.remove(key);
+		}
+	}
+
+	public List<Task> getQueuedTasks() {
+		return executor.getQueue().stream().map(r -> ((TaskRunner)r).task).collect(Collectors.toList());
+	}
+
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		final long count                     = processed.sum();
+
+		statistics.put("workers",           workers);
+		statistics.put("activeWorkers",     executor.getActiveCount());
+		statistics.put("queueSize",         executor.getQueue().size());
+		statistics.put("maxQueueSize",      maxQueueSize.get());
+		statistics.put("submitted",         submitted.sum());
+		statistics.put("processed",         count);
+		statistics.put("deduplicated",      deduplicated.sum());
+		statistics.put("retried",           retried.sum());
+		statistics.put("failed",            failed.sum());
+		statistics.put("avgProcessingTime", count > 0 ? processingTime.sum() / count : 0L);
+
+		return statistics;
+	}
+
+	public void shutdown() {
+
+		executor.shutdownNow();
+
+		try { executor.awaitTermination(10, TimeUnit.SECONDS); } catch (InterruptedException ignore) {}
+
+		synchronized (runningAgents) {
+
+			// call beforeShutdown to allow agents to clean up
+			for (final Agent agent : runningAgents) {
+				agent.beforeShutdown();
+			}
+
+			runningAgents.clear();
+		}
+	}
+
+	// ----- nested classes -----
+	private class TaskRunner implements Runnable {
+
+		private Task task  = null;
+		private Object key = null;
+
+		public TaskRunner(final Task task, final Object key) {
+
+			this.task = task;
+			this.key  = key;
+		}
+
+		@Override
+		public void run() {
+
+			// an identical task that arrives from now on must be processed again
+			if (key != null) {
+				queuedKeys.remove(key);
+			}
+
+			final Agent agent = agents.get();
+			if (agent == null) {
+
+				failed.increment();
+				return;
+			}
+
+			final long startTime  = System.currentTimeMillis();
+			final ReturnValue ret = agent.execute(task);
+
+			processingTime.add(System.currentTimeMillis() - startTime);
+			processed.increment();
+
+			if (ret == null) {
+
+				failed.increment();
+
+			} else if (Retry.equals(ret) && task.getRetryCount() < MAX_RETRIES) {
+
+				retried.increment();
+				task.incrementRetryCount();
+
+				// wait some time without blocking the worker
+				delayed.schedule(() -> submit(task), 2, TimeUnit.SECONDS);
+			}
+		}
+	}
+}
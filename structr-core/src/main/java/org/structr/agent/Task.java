@@ -83,4 +83,14 @@ public interface Task<T> extends Delayed, StatusInfo {
 	 * @return the retry count
 	 */
 	int getRetryCount();
+
+	/**
+	 * Returns a key that identifies this task. A task is not queued again
+	 * as long as a task with the same key is waiting to be processed.
+	 *
+	 * @return the key, or null if this task must always be queued
+	 */
+	default Object getDeduplicationKey() {
+		return null;
+	}
 }
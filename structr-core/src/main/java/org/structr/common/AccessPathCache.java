@@ -18,7 +18,6 @@
  */
 package org.structr.common;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,13 +27,15 @@ import org.structr.api.graph.Relationship;
 import org.structr.core.graph.NodeInterface;
 
 /**
- *
+ * Caches the permission resolution mask of access paths between two nodes.
+ * Entries are indexed by the UUIDs and relationship types they depend on,
+ * so that invalidation only touches the affected entries.
  */
 public class AccessPathCache {
 
-	private static final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-	private static final Set<String> allRelTypes       = new HashSet<>();
-	private static final Set<String> allUuids          = new HashSet<>();
+	private static final Map<String, CacheEntry> cache         = new ConcurrentHashMap<>();
+	private static final Map<String, Set<String>> relTypeIndex = new ConcurrentHashMap<>();
+	private static final Map<String, Set<String>> uuidIndex    = new ConcurrentHashMap<>();
 
 	public static PermissionResolutionMask get(final NodeInterface startNode, final NodeInterface endNode) {
 
@@ -53,8 +54,8 @@ public class AccessPathCache {
 		final CacheEntry entry = getOrCreateCacheEntry(startNode, endNode);
 
 		// remember UUIDs
-		allUuids.add(startNode.getUuid());
-		allUuids.add(endNode.getUuid());
+		addUuid(entry, startNode.getUuid());
+		addUuid(entry, endNode.getUuid());
 
 		entry.mask = mask;
 	}
@@ -66,8 +67,7 @@ public class AccessPathCache {
 
 		if (uuid != null) {
 
-			entry.uuids.add(uuid);
-			allUuids.add(uuid);
+			addUuid(entry, uuid);
 		}
 	}
 
@@ -78,51 +78,41 @@ public class AccessPathCache {
 
 		if (uuid != null) {
 
-			final String relType   = rel.getType().name();
+			final String relType = rel.getType().name();
 
-			entry.uuids.add(uuid);
-			allUuids.add(uuid);
+			addUuid(entry, uuid);
 
 			entry.relTypes.add(relType);
-			allRelTypes.add(relType);
-
+			relTypeIndex.computeIfAbsent(relType, k -> ConcurrentHashMap.newKeySet()).add(entry.key);
 		}
 	}
 
 	public static void invalidateForId(final String uuid) {
 
-		if (allUuids.contains(uuid)) {
-
-			for (final CacheEntry entry : cache.values()) {
+		final Set<String> keys = uuidIndex.remove(uuid);
+		if (keys != null) {
 
-				if (entry.uuids.contains(uuid)) {
-					cache.remove(entry.key);
-				}
+			for (final String key : keys) {
+				remove(key);
 			}
-
-			allUuids.remove(uuid);
 		}
 	}
 
 	public static void invalidateForRelType(final String relType) {
 
-		if (allRelTypes.contains(relType)) {
-
-			for (final CacheEntry entry : cache.values()) {
+		final Set<String> keys = relTypeIndex.remove(relType);
+		if (keys != null) {
 
-				if (entry.relTypes.contains(relType)) {
-					cache.remove(entry.key);
-				}
+			for (final String key : keys) {
+				remove(key);
 			}
-
-			allRelTypes.remove(relType);
 		}
 	}
 
 	public static void invalidate() {
 
-		allRelTypes.clear();
-		allUuids.clear();
+		relTypeIndex.clear();
+		uuidIndex.clear();
 		cache.clear();
 	}
 
@@ -130,17 +120,40 @@ public class AccessPathCache {
 	private static CacheEntry getOrCreateCacheEntry(final NodeInterface startNode, final NodeInterface endNode) {
 
 		final String cacheKey = cacheKey(startNode, endNode);
-		CacheEntry entry      = cache.get(cacheKey);
 
-		if (entry == null) {
+		return cache.computeIfAbsent(cacheKey, CacheEntry::new);
+	}
+
+	private static void addUuid(final CacheEntry entry, final String uuid) {
 
-			entry = new CacheEntry();
-			entry.key = cacheKey;
+		entry.uuids.add(uuid);
+		uuidIndex.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(entry.key);
+	}
 
-			cache.put(cacheKey, entry);
+	private static void remove(final String key) {
+
+		final CacheEntry entry = cache.remove(key);
+		if (entry != null) {
+
+			// remove stale references from the other index entries
+			for (final String uuid : entry.uuids) {
+				removeFromIndex(uuidIndex, uuid, key);
+			}
+
+			for (final String relType : entry.relTypes) {
+				removeFromIndex(relTypeIndex, relType, key);
+			}
 		}
+	}
 
-		return entry;
+	private static void removeFromIndex(final Map<String, Set<String>> index, final String indexKey, final String key) {
+
+		index.computeIfPresent(indexKey, (k, keys) -> {
+
+			keys.remove(key);
+
+			return keys.isEmpty() ? null : keys;
+		});
 	}
 
 	private static String cacheKey(final NodeInterface startNode, final NodeInterface endNode) {
@@ -159,9 +172,13 @@ public class AccessPathCache {
 	// ----- nested classes -----
 	private static class CacheEntry {
 
-		protected Set<String> uuids             = new HashSet<>();
-		protected Set<String> relTypes          = new HashSet<>();
-		protected PermissionResolutionMask mask = null;
-		protected String key                    = null;
+		protected final Set<String> uuids                = ConcurrentHashMap.newKeySet();
+		protected final Set<String> relTypes             = ConcurrentHashMap.newKeySet();
+		protected volatile PermissionResolutionMask mask = null;
+		protected String key                             = null;
+
+		public CacheEntry(final String key) {
+			this.key = key;
+		}
 	}
 }
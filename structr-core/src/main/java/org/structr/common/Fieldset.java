@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A sparse fieldset that limits the properties of a view to the given
+ * names. Dotted paths (e.g. "owner.name") restrict the properties of
+ * nested objects, a plain name renders the nested objects in the view.
+ *
+ *
+ */
+public class Fieldset {
+
+	private final Map<String, Fieldset> fields = new LinkedHashMap<>();
+
+	/**
+	 * Parses a comma-separated list of (dotted) property names.
+	 *
+	 * @param source
+	 * @return the fieldset, or null if the source contains no names
+	 */
+	public static Fieldset parse(final String source) {
+
+		if (StringUtils.isNotBlank(source)) {
+
+			final Fieldset fieldset = new Fieldset();
+
+			for (final String part : source.split("[,]+")) {
+
+				final String path = part.trim();
+				if (path.length() > 0) {
+
+					fieldset.add(path.split("[.]+"), 0);
+				}
+			}
+
+			if (!fieldset.fields.isEmpty()) {
+				return fieldset;
+			}
+		}
+
+		return null;
+	}
+
+	public boolean contains(final String name) {
+		return fields.containsKey(name);
+	}
+
+	/**
+	 * Returns the fieldset for nested objects of the given property, or
+	 * null if the nested objects are not restricted.
+	 *
+	 * @param name
+	 * @return the nested fieldset or null
+	 */
+	public Fieldset get(final String name) {
+		return fields.get(name);
+	}
+
+	public Set<String> getNames() {
+		return fields.keySet();
+	}
+
+	// ----- private methods -----
+	private void add(final String[] path, final int index) {
+
+		final String name = path[index].trim();
+		if (name.isEmpty()) {
+			return;
+		}
+
+		if (index == path.length - 1) {
+
+			// a plain name always wins over nested paths
+			fields.put(name, null);
+
+		} else {
+
+			if (!fields.containsKey(name)) {
+				fields.put(name, new Fieldset());
+			}
+
+			final Fieldset nested = fields.get(name);
+			if (nested != null) {
+
+				nested.add(path, index + 1);
+			}
+		}
+	}
+}
@@ -123,11 +123,16 @@ public class PagingHelper {
 
 		if (pageSize > 0 && pageSize < Integer.MAX_VALUE) {
 
-			int pageCount = getPageCount(result.getRawResultCount(), pageSize);
+			// the result count of lazy results is not known yet
+			final Integer resultCount = result.getRawResultCount();
+			if (resultCount != null) {
 
-			if (pageCount > 0) {
+				int pageCount = getPageCount(resultCount, pageSize);
 
-				result.setPageCount(pageCount);
+				if (pageCount > 0) {
+
+					result.setPageCount(pageCount);
+				}
 			}
 
 			result.setPage(page);
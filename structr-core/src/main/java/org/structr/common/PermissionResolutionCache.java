@@ -0,0 +1,706 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, concurrent cache for the results of permission resolution,
+ * keyed by node id and principal id.
+ *
+ * The cache is split into a fixed number of segments, each of which is
+ * an open-addressing hash table made of primitive arrays that are
+ * allocated once, so that lookups do not create garbage. The result for
+ * all four permissions is packed into a single byte: the lower four bits
+ * encode the permissions that were resolved, the upper four bits encode
+ * the permissions that were granted.
+ *
+ * When there is no free slot in the probe window of a key, one of the
+ * slots in the window is overwritten, so the cache never grows beyond
+ * its initial capacity.
+ *
+ * The results of a permission resolution are stored together with the
+ * UUIDs of the nodes and principals and the names of the relationship
+ * types that were visited, see {@link Resolution}. Reverse indexes from
+ * these UUIDs and relationship types to the resolutions allow to remove
+ * exactly the affected results when an object or a relationship type
+ * changes. A resolution is dropped from the reverse indexes when all of
+ * its results were evicted, so the indexes never hold more resolutions
+ * than the cache has slots.
+ */
+public class PermissionResolutionCache {
+
+	private static final int SEGMENT_COUNT  = 16;
+	private static final int PROBE_LENGTH   = 8;
+	private static final int STAMP_COUNT    = 4096;
+	private static final int READ           = 0x01;
+	private static final int WRITE          = 0x02;
+	private static final int DELETE         = 0x04;
+	private static final int ACCESS_CONTROL = 0x08;
+
+	private final Map<String, Set<Resolution>> relTypeIndex = new HashMap<>();
+	private final Map<String, Set<Resolution>> uuidIndex    = new HashMap<>();
+	private final Segment[] segments                        = new Segment[SEGMENT_COUNT];
+	private final long[] stamps                             = new long[STAMP_COUNT];
+	private final AtomicLong version                        = new AtomicLong();
+	private final LongAdder invalidations                   = new LongAdder();
+	private final LongAdder evictions                       = new LongAdder();
+	private final LongAdder discarded                       = new LongAdder();
+	private final LongAdder misses                          = new LongAdder();
+	private final LongAdder hits                            = new LongAdder();
+	private long clearedAt                                  = 0L;
+
+	public PermissionResolutionCache(final int maxSize) {
+
+		final int segmentSize = Integer.highestOneBit(Math.max(PROBE_LENGTH, maxSize / SEGMENT_COUNT) * 2 - 1);
+
+		for (int i=0; i<SEGMENT_COUNT; i++) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * Returns the cached result for the given permission, or null if the
+	 * permission was not resolved for the given node and principal yet.
+	 *
+	 * @param nodeId
+	 * @param principalId
+	 * @param permission
+	 *
+	 * @return the cached result or null
+	 */
+	public Boolean get(final long nodeId, final long principalId, final Permission permission) {
+
+		final int bit = bit(permission);
+		if (bit != 0) {
+
+			final long hash  = hash(nodeId, principalId);
+			final int  value = segment(hash).get(hash, nodeId, principalId);
+
+			if ((value & bit) != 0) {
+
+				hits.increment();
+
+				return (value & (bit << 4)) != 0;
+			}
+		}
+
+		misses.increment();
+
+		return null;
+	}
+
+	/**
+	 * Returns the cached result for the given permission like {@link #get},
+	 * and records a hit in the given resolution, so that the results of the
+	 * resolution also depend on everything the cached result depends on.
+	 *
+	 * @param nodeId
+	 * @param principalId
+	 * @param permission
+	 * @param resolution
+	 *
+	 * @return the cached result or null
+	 */
+	public Boolean get(final long nodeId, final long principalId, final Permission permission, final Resolution resolution) {
+
+		final Boolean value = get(nodeId, principalId, permission);
+		if (value != null) {
+
+			resolution.consumed.add(new long[] { nodeId, principalId });
+		}
+
+		return value;
+	}
+
+	/**
+	 * Stores the result of a permission resolution without dependencies,
+	 * so it is only removed by eviction or {@link #clear}. A positive
+	 * result is never overwritten by a negative one.
+	 *
+	 * @param nodeId
+	 * @param principalId
+	 * @param permission
+	 * @param value
+	 */
+	public synchronized void put(final long nodeId, final long principalId, final Permission permission, final boolean value) {
+
+		final int bit = bit(permission);
+		if (bit != 0) {
+
+			store(nodeId, principalId, value ? bit | (bit << 4) : bit, null);
+		}
+	}
+
+	/**
+	 * Starts a new permission resolution. The results are stored with
+	 * {@link #commit} when the resolution is finished.
+	 *
+	 * @return the new resolution
+	 */
+	public Resolution begin() {
+		return new Resolution(version.get());
+	}
+
+	/**
+	 * Stores the results of the given resolution. The results are discarded
+	 * if one of the objects they depend on was invalidated after the
+	 * resolution started, or if a cached result that was used by the
+	 * resolution is not present any more.
+	 *
+	 * @param resolution
+	 */
+	public synchronized void commit(final Resolution resolution) {
+
+		if (resolution.entries.isEmpty()) {
+			return;
+		}
+
+		if (isStale(resolution)) {
+
+			discarded.increment();
+			return;
+		}
+
+		// inherit the dependencies of the cached results that were used
+		for (final long[] key : resolution.consumed) {
+
+			final Segment segment = segment(hash(key[0], key[1]));
+			final int slot        = segment.find(hash(key[0], key[1]), key[0], key[1]);
+
+			if (slot < 0) {
+
+				discarded.increment();
+				return;
+			}
+
+			resolution.inherit(segment.owners[slot]);
+		}
+
+		// the slots of the results keep the bits of other resolutions
+		for (final long[] entry : resolution.entries) {
+
+			final Segment segment = segment(hash(entry[0], entry[1]));
+			final int slot        = segment.find(hash(entry[0], entry[1]), entry[0], entry[1]);
+
+			if (slot >= 0) {
+				resolution.inherit(segment.owners[slot]);
+			}
+		}
+
+		register(resolution);
+
+		for (final long[] entry : resolution.entries) {
+			store(entry[0], entry[1], (int)entry[2], resolution);
+		}
+
+		if (resolution.owned == 0) {
+			unregister(resolution);
+		}
+	}
+
+	/**
+	 * Removes all results that depend on the object with the given UUID.
+	 *
+	 * @param uuid
+	 */
+	public synchronized void invalidateForId(final String uuid) {
+
+		if (uuid != null) {
+
+			stamps[stamp(uuid, 0)] = version.incrementAndGet();
+
+			remove(uuidIndex.get(uuid));
+		}
+	}
+
+	/**
+	 * Removes all results that depend on a relationship of the given type.
+	 *
+	 * @param relType the simple class name of the relationship type
+	 */
+	public synchronized void invalidateForRelType(final String relType) {
+
+		if (relType != null) {
+
+			stamps[stamp(relType, 1)] = version.incrementAndGet();
+
+			remove(relTypeIndex.get(relType));
+		}
+	}
+
+	/**
+	 * Removes all negative results, which is needed when new ways to grant
+	 * a permission are added, e.g. a new permission propagating type.
+	 */
+	public synchronized void invalidateDenied() {
+
+		clearedAt = version.incrementAndGet();
+
+		for (final Segment segment : segments) {
+
+			synchronized (segment) {
+
+				for (int slot=0; slot<segment.masks.length; slot++) {
+
+					final int mask = segment.masks[slot];
+					if (mask != 0) {
+
+						final int granted = (mask >>> 4) & 0x0F;
+
+						segment.masks[slot] = (byte)(granted | (granted << 4));
+
+						if (granted == 0) {
+
+							release(segment.owners[slot]);
+
+							segment.owners[slot] = null;
+							segment.size--;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	public synchronized void clear() {
+
+		clearedAt = version.incrementAndGet();
+
+		for (final Segment segment : segments) {
+			segment.clear();
+		}
+
+		relTypeIndex.clear();
+		uuidIndex.clear();
+	}
+
+	public int size() {
+
+		int size = 0;
+
+		for (final Segment segment : segments) {
+			size += segment.size();
+		}
+
+		return size;
+	}
+
+	public int capacity() {
+		return segments[0].capacity() * SEGMENT_COUNT;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public long getInvalidations() {
+		return invalidations.sum();
+	}
+
+	/**
+	 * Returns the size, hit, miss, eviction and invalidation statistics
+	 * of this cache.
+	 *
+	 * @return a map with the statistics
+	 */
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+
+		statistics.put("size",          size());
+		statistics.put("capacity",      capacity());
+		statistics.put("hits",          getHits());
+		statistics.put("misses",        getMisses());
+		statistics.put("evictions",     getEvictions());
+		statistics.put("invalidations", getInvalidations());
+		statistics.put("discarded",     discarded.sum());
+
+		synchronized (this) {
+			statistics.put("indexedUuids", uuidIndex.size());
+		}
+
+		return statistics;
+	}
+
+	@Override
+	public String toString() {
+		return "PermissionResolutionCache(size: " + size() + ", hits: " + getHits() + ", misses: " + getMisses() + ", evictions: " + getEvictions() + ")";
+	}
+
+	// ----- private methods -----
+	private Segment segment(final long hash) {
+		return segments[(int)(hash >>> 60) & (SEGMENT_COUNT - 1)];
+	}
+
+	private void store(final long nodeId, final long principalId, final int mask, final Resolution owner) {
+
+		final long hash       = hash(nodeId, principalId);
+		final Segment segment = segment(hash);
+
+		if (segment.put(hash, nodeId, principalId, mask, owner)) {
+			evictions.increment();
+		}
+
+		if (segment.displaced != null) {
+
+			release(segment.displaced);
+			segment.displaced = null;
+		}
+	}
+
+	private boolean isStale(final Resolution resolution) {
+
+		if (clearedAt > resolution.version) {
+			return true;
+		}
+
+		for (final String uuid : resolution.uuids) {
+
+			if (stamps[stamp(uuid, 0)] > resolution.version) {
+				return true;
+			}
+		}
+
+		for (final String relType : resolution.relTypes) {
+
+			if (stamps[stamp(relType, 1)] > resolution.version) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void register(final Resolution resolution) {
+
+		for (final String uuid : resolution.uuids) {
+			uuidIndex.computeIfAbsent(uuid, k -> new HashSet<>()).add(resolution);
+		}
+
+		for (final String relType : resolution.relTypes) {
+			relTypeIndex.computeIfAbsent(relType, k -> new HashSet<>()).add(resolution);
+		}
+	}
+
+	private void unregister(final Resolution resolution) {
+
+		for (final String uuid : resolution.uuids) {
+
+			final Set<Resolution> set = uuidIndex.get(uuid);
+			if (set != null && set.remove(resolution) && set.isEmpty()) {
+
+				uuidIndex.remove(uuid);
+			}
+		}
+
+		for (final String relType : resolution.relTypes) {
+
+			final Set<Resolution> set = relTypeIndex.get(relType);
+			if (set != null && set.remove(resolution) && set.isEmpty()) {
+
+				relTypeIndex.remove(relType);
+			}
+		}
+	}
+
+	private void remove(final Set<Resolution> resolutions) {
+
+		if (resolutions != null) {
+
+			for (final Resolution resolution : new ArrayList<>(resolutions)) {
+
+				unregister(resolution);
+
+				for (final long[] entry : resolution.entries) {
+
+					final long hash = hash(entry[0], entry[1]);
+
+					if (segment(hash).remove(hash, entry[0], entry[1], resolution)) {
+						invalidations.increment();
+					}
+				}
+
+				resolution.owned = 0;
+			}
+		}
+	}
+
+	private void release(final Resolution resolution) {
+
+		if (resolution != null && --resolution.owned == 0) {
+			unregister(resolution);
+		}
+	}
+
+	private static int stamp(final String key, final int salt) {
+		return (key.hashCode() * 31 + salt) & (STAMP_COUNT - 1);
+	}
+
+	private static long hash(final long nodeId, final long principalId) {
+
+		// 64-bit finalizer from MurmurHash3
+		long h = nodeId * 0x9E3779B97F4A7C15L + principalId;
+
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+
+		return h;
+	}
+
+	private static int bit(final Permission permission) {
+
+		if (Permission.read.equals(permission)) {
+			return READ;
+		}
+
+		if (Permission.write.equals(permission)) {
+			return WRITE;
+		}
+
+		if (Permission.delete.equals(permission)) {
+			return DELETE;
+		}
+
+		if (Permission.accessControl.equals(permission)) {
+			return ACCESS_CONTROL;
+		}
+
+		return 0;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * The results and dependencies of a single permission resolution. The
+	 * UUIDs of all nodes and principals that were visited and the names of
+	 * all relationship types that were followed must be added, the results
+	 * are stored when the resolution is committed.
+	 */
+	public static class Resolution {
+
+		private final List<long[]> consumed = new ArrayList<>();
+		private final List<long[]> entries  = new ArrayList<>();
+		private final Set<String> relTypes  = new HashSet<>();
+		private final Set<String> uuids     = new HashSet<>();
+		private long version                = 0L;
+		private int owned                   = 0;
+
+		private Resolution(final long version) {
+			this.version = version;
+		}
+
+		public void addUuid(final String uuid) {
+
+			if (uuid != null) {
+				uuids.add(uuid);
+			}
+		}
+
+		public void addRelType(final String relType) {
+
+			if (relType != null) {
+				relTypes.add(relType);
+			}
+		}
+
+		public void put(final long nodeId, final long principalId, final Permission permission, final boolean value) {
+
+			final int bit = bit(permission);
+			if (bit != 0) {
+
+				entries.add(new long[] { nodeId, principalId, value ? bit | (bit << 4) : bit });
+			}
+		}
+
+		private void inherit(final Resolution other) {
+
+			if (other != null && other != this) {
+
+				uuids.addAll(other.uuids);
+				relTypes.addAll(other.relTypes);
+			}
+		}
+	}
+
+	private static class Segment {
+
+		private Resolution[] owners = null;	// the resolution that stored a slot, or null
+		private Resolution displaced = null;	// the previous owner of the slot changed by the last put
+		private long[] principalIds  = null;
+		private long[] nodeIds       = null;
+		private byte[] masks         = null;	// a mask of 0 marks an empty slot
+		private int clock            = 0;
+		private int size             = 0;
+
+		public Segment(final int capacity) {
+
+			this.owners       = new Resolution[capacity];
+			this.principalIds = new long[capacity];
+			this.nodeIds      = new long[capacity];
+			this.masks        = new byte[capacity];
+		}
+
+		public synchronized int get(final long hash, final long nodeId, final long principalId) {
+
+			final int slot = find(hash, nodeId, principalId);
+			if (slot >= 0) {
+
+				return masks[slot];
+			}
+
+			return 0;
+		}
+
+		public synchronized int find(final long hash, final long nodeId, final long principalId) {
+
+			final int length = masks.length;
+			final int start  = (int)hash & (length - 1);
+
+			for (int i=0; i<PROBE_LENGTH; i++) {
+
+				final int slot = (start + i) & (length - 1);
+
+				if (masks[slot] != 0 && nodeIds[slot] == nodeId && principalIds[slot] == principalId) {
+					return slot;
+				}
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Merges the given mask into the slot for the given key and
+		 * returns whether another entry had to be evicted. The previous
+		 * owner of the slot is stored in displaced if it changed, results
+		 * without owner do not take over a slot of another resolution.
+		 */
+		public synchronized boolean put(final long hash, final long nodeId, final long principalId, final int mask, final Resolution owner) {
+
+			final int length = masks.length;
+			final int start  = (int)hash & (length - 1);
+			int free         = -1;
+
+			for (int i=0; i<PROBE_LENGTH; i++) {
+
+				final int slot = (start + i) & (length - 1);
+
+				if (masks[slot] == 0) {
+
+					if (free < 0) {
+						free = slot;
+					}
+
+				} else if (nodeIds[slot] == nodeId && principalIds[slot] == principalId) {
+
+					masks[slot] |= mask;
+
+					if (owner != null && owners[slot] != owner) {
+
+						displaced    = owners[slot];
+						owners[slot] = owner;
+
+						owner.owned++;
+					}
+
+					return false;
+				}
+			}
+
+			boolean evicted = false;
+
+			if (free < 0) {
+
+				// no free slot in the probe window, overwrite one of the slots in round-robin order
+				free      = (start + (clock++ & (PROBE_LENGTH - 1))) & (length - 1);
+				displaced = owners[free];
+				evicted   = true;
+
+			} else {
+
+				size++;
+			}
+
+			owners[free]       = owner;
+			principalIds[free] = principalId;
+			nodeIds[free]      = nodeId;
+			masks[free]        = (byte)mask;
+
+			if (owner != null) {
+				owner.owned++;
+			}
+
+			return evicted;
+		}
+
+		/**
+		 * Removes the slot for the given key if it is owned by the given
+		 * resolution.
+		 */
+		public synchronized boolean remove(final long hash, final long nodeId, final long principalId, final Resolution owner) {
+
+			final int slot = find(hash, nodeId, principalId);
+			if (slot >= 0 && owners[slot] == owner) {
+
+				owners[slot] = null;
+				masks[slot]  = 0;
+
+				size--;
+
+				return true;
+			}
+
+			return false;
+		}
+
+		public synchronized void clear() {
+
+			Arrays.fill(owners, null);
+			Arrays.fill(masks, (byte)0);
+			size = 0;
+		}
+
+		public synchronized int size() {
+			return size;
+		}
+
+		public int capacity() {
+			return masks.length;
+		}
+	}
+}
@@ -61,6 +61,7 @@ public class SecurityContext {
 	private boolean doTransactionNotifications           = true;
 	private boolean modifyAccessTime                     = true;
 	private boolean ignoreResultCount                    = false;
+	private boolean streamResults                        = false;
 	private boolean ensureCardinality                    = true;
 	private int serializationDepth                       = -1;
 
@@ -73,6 +74,8 @@ public class SecurityContext {
 	private HttpServletRequest request           = null;
 	private HttpServletResponse response         = null;
 	private Set<String> customView               = null;
+	private Fieldset fieldset                    = null;
+	private String propertyView                  = null;
 	private String cachedUserName                = null;
 	private String cachedUserId                  = null;
 	private String sessionId                     = null;
@@ -659,6 +662,39 @@ public class SecurityContext {
 		return customView;
 	}
 
+	/**
+	 * Sets the name of the view in which the results of the current
+	 * request will be rendered. Result factories use this information
+	 * to prefetch the relationships that are needed for the view.
+	 *
+	 * @param propertyView
+	 */
+	public void setPropertyView(final String propertyView) {
+		this.propertyView = propertyView;
+	}
+
+	public String getPropertyView() {
+		return propertyView;
+	}
+
+	/**
+	 * Sets the sparse fieldset that limits the properties in which the
+	 * results of the current request will be rendered.
+	 *
+	 * @param fieldset
+	 */
+	public void setFieldset(final Fieldset fieldset) {
+		this.fieldset = fieldset;
+	}
+
+	public Fieldset getFieldset() {
+		return fieldset;
+	}
+
+	public boolean hasFieldset() {
+		return fieldset != null;
+	}
+
 	public QueryRange getRange(final String key) {
 		return ranges.get(key);
 	}
@@ -791,6 +827,20 @@ public class SecurityContext {
 		return ignoreResultCount;
 	}
 
+	public void streamResults(final boolean doStream) {
+		this.streamResults = doStream;
+	}
+
+	/**
+	 * Indicates whether the result of the request is serialized while
+	 * it is read from the database.
+	 *
+	 * @return whether results should be streamed
+	 */
+	public boolean streamResults() {
+		return streamResults;
+	}
+
 	public boolean doEnsureCardinality() {
 		return ensureCardinality;
 	}
@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.structr.api.config.Settings;
+import org.structr.common.error.FrameworkException;
+import org.structr.common.error.UnlicensedException;
+
+/**
+ * A bounded, concurrent cache for the values of the cache() builtin
+ * function, keyed by the name given in the script.
+ *
+ * Each entry expires after its own timeout (plus a few seconds of random
+ * jitter so that entries created together do not expire together). When
+ * the cache grows beyond its maximum size, expired entries are removed
+ * first, then the entries that expire soonest.
+ *
+ * Loading is single-flight: when an entry is missing or expired, only one
+ * thread evaluates the value, other threads either get the expired value
+ * (if there is one) or wait for the loading thread to finish.
+ */
+public class ValueCache {
+
+	private static final ValueCache instance = new ValueCache("cache", Settings.ValueCacheSize.getValue());
+
+	private final Map<String, Load> loading      = new ConcurrentHashMap<>();
+	private final Map<String, Entry> entries     = new ConcurrentHashMap<>();
+	private final LongAdder loadTime             = new LongAdder();
+	private final LongAdder evictions            = new LongAdder();
+	private final LongAdder misses               = new LongAdder();
+	private final LongAdder loads                = new LongAdder();
+	private final LongAdder hits                 = new LongAdder();
+	private String name                          = null;
+	private int maxSize                          = 0;
+
+	public ValueCache(final String name, final int maxSize) {
+
+		this.maxSize = Math.max(1, maxSize);
+		this.name    = name;
+	}
+
+	public static ValueCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the cached value for the given key, or calls the given
+	 * loader and caches its result for the given number of seconds if
+	 * the value is missing or expired.
+	 *
+	 * @param key
+	 * @param timeoutSeconds
+	 * @param loader
+	 *
+	 * @return the cached or loaded value
+	 *
+	 * @throws FrameworkException
+	 */
+	public Object get(final String key, final long timeoutSeconds, final Loader loader) throws FrameworkException {
+
+		final Entry entry = entries.get(key);
+		if (entry != null && !entry.isExpired()) {
+
+			hits.increment();
+
+			return entry.value;
+		}
+
+		misses.increment();
+
+		final Load future = new Load();
+		final Load other  = loading.putIfAbsent(key, future);
+
+		if (other != null) {
+
+			// the value expression refers to its own key, don't wait for ourselves
+			if (other.thread == future.thread) {
+				return loader.load();
+			}
+
+			// another thread is already loading this value
+			if (entry != null) {
+				return entry.value;
+			}
+
+			return await(other);
+		}
+
+		try {
+
+			final long t0    = System.nanoTime();
+			final Object value = loader.load();
+
+			loadTime.add(System.nanoTime() - t0);
+			loads.increment();
+
+			entries.put(key, new Entry(value, timeoutSeconds));
+			future.complete(value);
+
+			if (entries.size() > maxSize) {
+				evict();
+			}
+
+			return value;
+
+		} catch (Throwable t) {
+
+			future.completeExceptionally(t);
+			throw t;
+
+		} finally {
+
+			loading.remove(key, future);
+		}
+	}
+
+	public void invalidate(final String key) {
+		entries.remove(key);
+	}
+
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the hit, miss and load time statistics of this cache.
+	 *
+	 * @return a map with the statistics of this cache
+	 */
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		final long loadCount                 = loads.sum();
+
+		statistics.put("name",        name);
+		statistics.put("size",        entries.size());
+		statistics.put("maxSize",     maxSize);
+		statistics.put("hits",        hits.sum());
+		statistics.put("misses",      misses.sum());
+		statistics.put("loads",       loadCount);
+		statistics.put("evictions",   evictions.sum());
+		statistics.put("loadTime",    loadTime.sum() / 1_000_000L);
+		statistics.put("avgLoadTime", loadCount > 0 ? (loadTime.sum() / loadCount) / 1_000_000.0 : 0.0);
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private Object await(final Load future) throws FrameworkException {
+
+		try {
+
+			return future.get();
+
+		} catch (InterruptedException iex) {
+
+			Thread.currentThread().interrupt();
+			throw new FrameworkException(500, "Interrupted while waiting for cached value");
+
+		} catch (ExecutionException eex) {
+
+			final Throwable cause = eex.getCause();
+
+			if (cause instanceof FrameworkException) {
+				throw (FrameworkException)cause;
+			}
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+
+			throw new FrameworkException(500, cause.getMessage());
+		}
+	}
+
+	private synchronized void evict() {
+
+		if (entries.size() <= maxSize) {
+			return;
+		}
+
+		// remove expired entries first
+		entries.entrySet().removeIf(e -> {
+
+			if (e.getValue().isExpired()) {
+
+				evictions.increment();
+				return true;
+			}
+
+			return false;
+		});
+
+		// evict down to 90% so that not every insertion triggers eviction
+		final int target = maxSize - (maxSize / 10);
+		if (entries.size() > target) {
+
+			final List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+
+			candidates.sort(Comparator.comparingLong(e -> e.getValue().expires));
+
+			for (int i=0; i<candidates.size() && entries.size() > target; i++) {
+
+				if (entries.remove(candidates.get(i).getKey()) != null) {
+					evictions.increment();
+				}
+			}
+		}
+	}
+
+	// ----- nested classes -----
+	@FunctionalInterface
+	public interface Loader {
+
+		Object load() throws FrameworkException, UnlicensedException;
+	}
+
+	private static final class Load extends CompletableFuture<Object> {
+
+		private final Thread thread = Thread.currentThread();
+	}
+
+	private static final class Entry {
+
+		private Object value = null;
+		private long expires = 0L;
+
+		public Entry(final Object value, final long timeoutSeconds) {
+
+			this.expires = System.currentTimeMillis() + ((timeoutSeconds + ThreadLocalRandom.current().nextInt(10)) * 1000);
+			this.value   = value;
+		}
+
+		public boolean isExpired() {
+			return System.currentTimeMillis() > expires;
+		}
+	}
+}
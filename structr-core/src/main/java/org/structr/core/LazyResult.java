@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A result whose elements are read from the database and instantiated
+ * while it is iterated, so that large results can be streamed without
+ * loading them into memory first. The source can only be iterated once,
+ * methods that need the whole list load the remaining elements into
+ * memory.
+ *
+ * The result count is not known before the source is iterated. The
+ * source sets it when it is exhausted, if counting is enabled.
+ */
+public class LazyResult<T extends GraphObject> extends Result<T> {
+
+	private Iterable<T> source  = null;
+	private List<T> results     = null;
+	private Integer resultCount = null;
+
+	public LazyResult(final Iterable<T> source, final boolean isCollection) {
+
+		super((List<T>)null, null, isCollection, false);
+
+		this.source = source;
+	}
+
+	@Override
+	public String toString() {
+		return "LazyResult(" + (results != null ? results.size() : "?") + ")";
+	}
+
+	@Override
+	public T get(final int i) {
+		return getResults().get(i);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return getResults().isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return getResults().size();
+	}
+
+	@Override
+	public List<T> getResults() {
+
+		if (results == null) {
+
+			results = new ArrayList<>();
+
+			for (final T obj : getIterable()) {
+				results.add(obj);
+			}
+		}
+
+		return results;
+	}
+
+	@Override
+	public Iterable<T> getIterable() {
+
+		if (results != null) {
+			return results;
+		}
+
+		if (source != null) {
+
+			final Iterable<T> iterable = source;
+
+			// the source can only be iterated once
+			source = null;
+
+			return iterable;
+		}
+
+		return Collections.emptyList();
+	}
+
+	@Override
+	public boolean isLazy() {
+		return results == null;
+	}
+
+	@Override
+	public Integer getRawResultCount() {
+		return resultCount;
+	}
+
+	@Override
+	public void setRawResultCount(final Integer resultCount) {
+		this.resultCount = resultCount;
+	}
+
+	@Override
+	public Integer getPageCount() {
+
+		final Integer pageCount = super.getPageCount();
+		final Integer pageSize  = getPageSize();
+
+		if (pageCount == null && resultCount != null && pageSize != null && pageSize > 0) {
+
+			return (int)Math.ceil((double)resultCount / (double)pageSize);
+		}
+
+		return pageCount;
+	}
+}
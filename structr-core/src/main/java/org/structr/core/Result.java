@@ -40,6 +40,7 @@ public class Result<T extends GraphObject> {
 	private List<T> results           = null;
 
 	private String searchString       = null;
+	private String nextCursor         = null;
 	private String queryTime          = null;
 	private String sortOrder          = null;
 	private String sortKey            = null;
@@ -101,6 +102,26 @@ public class Result<T extends GraphObject> {
 		return results;
 	}
 
+	/**
+	 * Returns the results for a single iteration. Lazy results are
+	 * not loaded into memory when they are iterated this way.
+	 *
+	 * @return the results
+	 */
+	public Iterable<T> getIterable() {
+		return results != null ? results : Collections.emptyList();
+	}
+
+	/**
+	 * Indicates whether the results of this result are read from the
+	 * database while they are iterated.
+	 *
+	 * @return whether this result is lazy
+	 */
+	public boolean isLazy() {
+		return false;
+	}
+
 	public void setQueryTime(final String queryTime) {
 		this.queryTime = queryTime;
 	}
@@ -117,6 +138,14 @@ public class Result<T extends GraphObject> {
 		this.searchString = searchString;
 	}
 
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(final String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
 	public String getSortKey() {
 		return sortKey;
 	}
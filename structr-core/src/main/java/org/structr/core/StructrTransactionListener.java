@@ -30,6 +30,10 @@ import org.structr.core.graph.ModificationEvent;
  *
  * In order to use this interface, you must register your implementation in SchemaHelper.
  *
+ * The afterCommit method is called on the committing thread, unless the
+ * listener declares itself asynchronous. Asynchronous listeners are called
+ * on a separate thread with detached copies of the modification events.
+ *
  *
  */
 public interface StructrTransactionListener {
@@ -37,6 +41,18 @@ public interface StructrTransactionListener {
 	public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) throws FrameworkException;
 	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source);
 
+	/**
+	 * Indicates whether afterCommit must be called on the committing
+	 * thread instead of being queued for the listener thread. Only
+	 * listeners that do not depend on the state of the committing
+	 * thread should return false.
+	 *
+	 * @return whether this listener must be notified synchronously
+	 */
+	default public boolean isSynchronous() {
+		return true;
+	}
+
 	default public void simpleBroadcast(final String messageName, final Map<String, Object> data) {
 		simpleBroadcast(messageName, data, null);
 	};
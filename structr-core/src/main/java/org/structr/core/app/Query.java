@@ -47,6 +47,8 @@ public interface Query<T extends GraphObject> extends Iterable<T> {
 	public Query<T> order(final boolean descending);
 	public Query<T> pageSize(final int pageSize);
 	public Query<T> page(final int page);
+	public Query<T> cursor(final String cursor);
+	public Query<T> streaming(final boolean streaming);
 	public Query<T> publicOnly();
 	public Query<T> includeDeletedAndHidden();
 	public Query<T> publicOnly(final boolean publicOnly);
@@ -69,6 +69,8 @@ import org.structr.common.GraphObjectComparator;
 import org.structr.common.IdSorter;
 import org.structr.common.Permission;
 import org.structr.common.PermissionPropagation;
+import org.structr.common.PermissionResolutionCache;
+import org.structr.common.PermissionResolutionCache.Resolution;
 import org.structr.common.PermissionResolutionMask;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
@@ -97,6 +99,7 @@ import org.structr.core.property.FunctionProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 import org.structr.core.script.Scripting;
+import org.structr.schema.SchemaService;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Function;
 
@@ -105,10 +108,10 @@ import org.structr.schema.action.Function;
  */
 public abstract class AbstractNode implements NodeInterface, AccessControllable, CMISInfo, CMISItemInfo {
 
-	private static final int permissionResolutionMaxLevel                                                 = Settings.ResolutionDepth.getValue();
-	private static final Logger logger                                                                    = LoggerFactory.getLogger(AbstractNode.class.getName());
-	private static final FixedSizeCache<String, Object> relationshipTemplateInstanceCache                 = new FixedSizeCache<>(1000);
-	private static final Map<Long, Map<Long, PermissionResolutionResult>> globalPermissionResolutionCache = new HashMap<>();
+	private static final int permissionResolutionMaxLevel                                 = Settings.ResolutionDepth.getValue();
+	private static final Logger logger                                                    = LoggerFactory.getLogger(AbstractNode.class.getName());
+	private static final FixedSizeCache<String, Object> relationshipTemplateInstanceCache = new FixedSizeCache<>(1000);
+	private static final PermissionResolutionCache globalPermissionResolutionCache        = new PermissionResolutionCache(Settings.PermissionCacheSize.getValue());
 
 	public static final View defaultView = new View(AbstractNode.class, PropertyView.Public, id, type);
 
@@ -839,6 +842,10 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 		if (accessingUser != null) {
 
+			// the cached results depend on all nodes and principals that are visited
+			alreadyTraversed.resolution.addUuid(getUuid());
+			alreadyTraversed.resolution.addUuid(accessingUser.getUuid());
+
 			// owner is always allowed to do anything with its nodes
 			if (hasOwner && accessingUser.equals(_owner)) {
 				return true;
@@ -885,8 +892,10 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			// Check permissions from domain relationships
 			if (resolvePermissions) {
 
+				final Resolution resolution     = alreadyTraversed.resolution;
 				final Queue<BFSInfo> bfsNodes   = new LinkedList<>();
 				final BFSInfo root              = new BFSInfo(null, this);
+				boolean granted                 = false;
 
 				// add initial element
 				bfsNodes.add(root);
@@ -896,16 +905,17 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 					final BFSInfo info = bfsNodes.poll();
 					if (info != null && info.level < permissionResolutionMaxLevel) {
 
-						final Boolean value = info.node.getPermissionResolutionResult(accessingUser.getId(), permission);
+						final Boolean value = info.node.getPermissionResolutionResult(accessingUser.getId(), permission, resolution);
 						if (value != null) {
 
 							// returning immediately
 							if (Boolean.TRUE.equals(value)) {
 
 								// do backtracking
-								backtrack(info, accessingUser.getId(), permission, true, 0, doLog);
+								backtrack(info, accessingUser.getId(), permission, true, 0, resolution, doLog);
 
-								return true;
+								granted = true;
+								break;
 							}
 
 						} else {
@@ -913,17 +923,28 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 							if (info.node.hasEffectivePermissions(info, accessingUser, permission, mask, level, alreadyTraversed, bfsNodes, doLog)) {
 
 								// do backtracking
-								backtrack(info, accessingUser.getId(), permission, true, 0, doLog);
+								backtrack(info, accessingUser.getId(), permission, true, 0, resolution, doLog);
 
-								return true;
+								granted = true;
+								break;
 							}
 						}
 					}
 
 				} while (!bfsNodes.isEmpty());
 
-				// do backtracking
-				backtrack(root, accessingUser.getId(), permission, false, 0, doLog);
+				if (!granted) {
+
+					// do backtracking
+					backtrack(root, accessingUser.getId(), permission, false, 0, resolution, doLog);
+				}
+
+				// store results together with the objects they depend on
+				globalPermissionResolutionCache.commit(resolution);
+
+				if (granted) {
+					return true;
+				}
 			}
 
 			// Last: recursively check possible parent principals
@@ -938,7 +959,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		return false;
 	}
 
-	private void backtrack(final BFSInfo info, final long principalId, final Permission permission, final boolean value, final int level, final boolean doLog) {
+	private void backtrack(final BFSInfo info, final long principalId, final Permission permission, final boolean value, final int level, final Resolution resolution, final boolean doLog) {
 
 		if (doLog) {
 
@@ -957,12 +978,12 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			System.out.print(info.node.getType() + " (" + info.node.getUuid() + ") --> ");
 		}
 
-		info.node.storePermissionResolutionResult(principalId, permission, value);
+		info.node.storePermissionResolutionResult(principalId, permission, value, resolution);
 
 		// go to parent(s)
 		if (info.parent != null) {
 
-			backtrack(info.parent, principalId, permission, value, level+1, doLog);
+			backtrack(info.parent, principalId, permission, value, level+1, resolution, doLog);
 		}
 
 		if (doLog && level == 0) {
@@ -988,6 +1009,8 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 				continue;
 			}
 
+			alreadyTraversed.resolution.addRelType(propagatingType.getSimpleName());
+
 			// iterate over list of relationships
 			final Iterable<Relation> iterable = getRelationshipsAsSuperUser(propagatingType);
 			for (final Relation source : iterable) {
@@ -1008,7 +1031,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 							if (otherNode.isGranted(permission, principal, mask, level+1, alreadyTraversed, false, doLog)) {
 
-								otherNode.storePermissionResolutionResult(principal.getId(), permission, true);
+								otherNode.storePermissionResolutionResult(principal.getId(), permission, true, alreadyTraversed.resolution);
 
 								// break early
 								return true;
@@ -1149,69 +1172,12 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		mask.handleProperties(rel.getDeltaProperties());
 	}
 
-	private Boolean getPermissionResolutionResult(final long principalId, final Permission permission) {
-
-		Map<Long, PermissionResolutionResult> permissionResolutionCache = globalPermissionResolutionCache.get(getId());
-		if (permissionResolutionCache == null) {
-
-			permissionResolutionCache = new HashMap<>();
-			globalPermissionResolutionCache.put(getId(), permissionResolutionCache);
-		}
-
-		PermissionResolutionResult result = permissionResolutionCache.get(principalId);
-		if (result != null) {
-
-			if (permission.equals(Permission.read)) {
-				return result.read;
-			}
-
-			if (permission.equals(Permission.write)) {
-				return result.write;
-			}
-
-			if (permission.equals(Permission.delete)) {
-				return result.delete;
-			}
-
-			if (permission.equals(Permission.accessControl)) {
-				return result.accessControl;
-			}
-		}
-
-		return null;
+	private Boolean getPermissionResolutionResult(final long principalId, final Permission permission, final Resolution resolution) {
+		return globalPermissionResolutionCache.get(getId(), principalId, permission, resolution);
 	}
 
-	private void storePermissionResolutionResult(final long principalId, final Permission permission, final boolean value) {
-
-		Map<Long, PermissionResolutionResult> permissionResolutionCache = globalPermissionResolutionCache.get(getId());
-		if (permissionResolutionCache == null) {
-
-			permissionResolutionCache = new HashMap<>();
-			globalPermissionResolutionCache.put(getId(), permissionResolutionCache);
-		}
-
-		PermissionResolutionResult result = permissionResolutionCache.get(principalId);
-		if (result == null) {
-
-			result = new PermissionResolutionResult();
-			permissionResolutionCache.put(principalId, result);
-		}
-
-		if (permission.equals(Permission.read) && (result.read == null || result.read == false)) {
-			result.read = value;
-		}
-
-		if (permission.equals(Permission.write) && (result.write == null || result.write == false)) {
-			result.write = value;
-		}
-
-		if (permission.equals(Permission.delete) && (result.delete == null || result.delete == false)) {
-			result.delete = value;
-		}
-
-		if (permission.equals(Permission.accessControl) && (result.accessControl == null || result.accessControl == false)) {
-			result.accessControl = value;
-		}
+	private void storePermissionResolutionResult(final long principalId, final Permission permission, final boolean value, final Resolution resolution) {
+		resolution.put(getId(), principalId, permission, value);
 	}
 
 	/**
@@ -1251,12 +1217,12 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	@Override
 	public void onModification(SecurityContext securityContext, ErrorBuffer errorBuffer, final ModificationQueue modificationQueue) throws FrameworkException {
-		clearPermissionResolutionCache();
+		globalPermissionResolutionCache.invalidateForId(getUuid());
 	}
 
 	@Override
 	public void onDeletion(SecurityContext securityContext, ErrorBuffer errorBuffer, PropertyMap properties) throws FrameworkException {
-		clearPermissionResolutionCache();
+		globalPermissionResolutionCache.invalidateForId(getUuid());
 	}
 
 	@Override
@@ -1273,22 +1239,22 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	@Override
 	public void ownerModified(SecurityContext securityContext) {
-		clearPermissionResolutionCache();
+		globalPermissionResolutionCache.invalidateForId(getUuid());
 	}
 
 	@Override
 	public void securityModified(SecurityContext securityContext) {
-		clearPermissionResolutionCache();
+		globalPermissionResolutionCache.invalidateForId(getUuid());
 	}
 
 	@Override
 	public void locationModified(SecurityContext securityContext) {
-		clearPermissionResolutionCache();
+		globalPermissionResolutionCache.invalidateForId(getUuid());
 	}
 
 	@Override
 	public void propagatedModification(SecurityContext securityContext) {
-		clearPermissionResolutionCache();
+		globalPermissionResolutionCache.invalidateForId(getUuid());
 	}
 
 	@Override
@@ -1498,6 +1464,36 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 		removeFromIndex();
 		addToIndex();
+		updateTrigrams(StructrApp.getConfiguration().getPropertySet(entityType, PropertyView.All));
+	}
+
+	/**
+	 * Updates the trigram index entries of all trigram indexed keys in
+	 * the given set with the current values of this node. The trigram
+	 * index is marked incomplete if the entries cannot be written.
+	 *
+	 * @param keys the keys to update
+	 */
+	public final void updateTrigrams(final Iterable<PropertyKey> keys) {
+
+		final Index<Node> index = Services.getInstance().getService(NodeService.class).getNodeIndex();
+
+		for (final PropertyKey key : keys) {
+
+			if (key.isTrigramIndexed()) {
+
+				try {
+
+					index.updateTrigrams(dbNode, key.dbName(), getProperty(key));
+
+				} catch (Throwable t) {
+
+					logger.warn("Unable to update trigram index of property {} on {}: {}", key.dbName(), getUuid(), t.getMessage());
+
+					SchemaService.invalidateTrigramIndex(key.dbName());
+				}
+			}
+		}
 	}
 
 	@Override
@@ -1533,6 +1529,10 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		globalPermissionResolutionCache.clear();
 	}
 
+	public static PermissionResolutionCache getPermissionResolutionCache() {
+		return globalPermissionResolutionCache;
+	}
+
 	public static <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> R getRelationshipForType(final Class<R> type) {
 
 		R instance = (R) relationshipTemplateInstanceCache.get(type.getName());
@@ -2073,6 +2073,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	private static class AlreadyTraversed {
 
+		private final Resolution resolution = globalPermissionResolutionCache.begin();
 		private Map<String, Set<Long>> sets = new LinkedHashMap<>();
 
 		public boolean contains(final String key, final Long id) {
@@ -2115,12 +2116,4 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			}
 		}
 	}
-
-	private static class PermissionResolutionResult {
-
-		Boolean read          = false;
-		Boolean write         = false;
-		Boolean delete        = false;
-		Boolean accessControl = false;
-	}
 }
@@ -76,6 +76,7 @@ public class SchemaProperty extends SchemaReloadingNode implements PropertyDefin
 	public static final Property<Boolean>            compound              = new BooleanProperty("compound");
 	public static final Property<Boolean>            unique                = new BooleanProperty("unique");
 	public static final Property<Boolean>            indexed               = new BooleanProperty("indexed");
+	public static final Property<Boolean>            trigramIndexed        = new BooleanProperty("trigramIndexed");
 	public static final Property<Boolean>            readOnly              = new BooleanProperty("readOnly");
 	public static final Property<Boolean>            isDynamic             = new BooleanProperty("isDynamic");
 	public static final Property<Boolean>            isBuiltinProperty     = new BooleanProperty("isBuiltinProperty");
@@ -89,19 +90,19 @@ public class SchemaProperty extends SchemaReloadingNode implements PropertyDefin
 	public static final Property<String[]>           transformers          = new ArrayProperty("transformers", String.class);
 
 	public static final View defaultView = new View(SchemaProperty.class, PropertyView.Public,
-		name, dbName, schemaNode, schemaViews, propertyType, contentType, format, hint, category, notNull, compound, unique, indexed, readOnly, defaultValue, isBuiltinProperty, declaringClass, isDynamic, readFunction, writeFunction, validators, transformers
+		name, dbName, schemaNode, schemaViews, propertyType, contentType, format, hint, category, notNull, compound, unique, indexed, trigramIndexed, readOnly, defaultValue, isBuiltinProperty, declaringClass, isDynamic, readFunction, writeFunction, validators, transformers
 	);
 
 	public static final View uiView = new View(SchemaProperty.class, PropertyView.Ui,
-		name, dbName, schemaNode, schemaViews, propertyType, contentType, format, hint, category, notNull, compound, unique, indexed, readOnly, defaultValue, isBuiltinProperty, declaringClass, isDynamic, readFunction, writeFunction, validators, transformers
+		name, dbName, schemaNode, schemaViews, propertyType, contentType, format, hint, category, notNull, compound, unique, indexed, trigramIndexed, readOnly, defaultValue, isBuiltinProperty, declaringClass, isDynamic, readFunction, writeFunction, validators, transformers
 	);
 
 	public static final View schemaView = new View(SchemaProperty.class, "schema",
-		id, type, name, dbName, schemaNode, schemaViews, propertyType, contentType, format, hint, category, notNull, compound, unique, indexed, readOnly, defaultValue, isBuiltinProperty, isDefaultInUi, isDefaultInPublic, declaringClass, isDynamic, readFunction, writeFunction, validators, transformers
+		id, type, name, dbName, schemaNode, schemaViews, propertyType, contentType, format, hint, category, notNull, compound, unique, indexed, trigramIndexed, readOnly, defaultValue, isBuiltinProperty, isDefaultInUi, isDefaultInPublic, declaringClass, isDynamic, readFunction, writeFunction, validators, transformers
 	);
 
 	public static final View exportView = new View(SchemaProperty.class, "export",
-		id, type, name, schemaNode, schemaViews, dbName, propertyType, contentType, format, hint, category, notNull, compound, unique, indexed, readOnly, defaultValue, isBuiltinProperty, isDefaultInUi, isDefaultInPublic, declaringClass, isDynamic, readFunction, writeFunction, validators, transformers
+		id, type, name, schemaNode, schemaViews, dbName, propertyType, contentType, format, hint, category, notNull, compound, unique, indexed, trigramIndexed, readOnly, defaultValue, isBuiltinProperty, isDefaultInUi, isDefaultInPublic, declaringClass, isDynamic, readFunction, writeFunction, validators, transformers
 	);
 
 	private NotionPropertyParser notionPropertyParser           = null;
@@ -192,6 +193,18 @@ public class SchemaProperty extends SchemaReloadingNode implements PropertyDefin
 		return false;
 	}
 
+	@Override
+	public boolean isTrigramIndexed() {
+
+		final Boolean isTrigramIndexed = getProperty(trigramIndexed);
+		if (isTrigramIndexed != null && isTrigramIndexed) {
+
+			return true;
+		}
+
+		return false;
+	}
+
 	@Override
 	public boolean isReadOnly() {
 
@@ -284,6 +297,7 @@ public class SchemaProperty extends SchemaReloadingNode implements PropertyDefin
 		_contentHash = addContentHash(notNull,           _contentHash);
 		_contentHash = addContentHash(unique,            _contentHash);
 		_contentHash = addContentHash(indexed,           _contentHash);
+		_contentHash = addContentHash(trigramIndexed,    _contentHash);
 		_contentHash = addContentHash(readOnly,          _contentHash);
 		_contentHash = addContentHash(isDynamic,         _contentHash);
 		_contentHash = addContentHash(isBuiltinProperty, _contentHash);
@@ -38,6 +38,7 @@ import org.structr.core.GraphObjectMap;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
+import org.structr.core.graph.ChangelogStore;
 import org.structr.core.property.EndNodeProperty;
 import org.structr.core.property.Property;
 import org.structr.core.property.StringProperty;
@@ -83,39 +84,54 @@ public class ChangelogFunction extends Function<Object, Object> {
 
 			if (sources[0] instanceof GraphObject) {
 
-				final String changelog = ((GraphObject) sources[0]).getProperty(GraphObject.structrChangeLog);
+				final ChangelogFilter changelogFilter = new ChangelogFilter();
+				final GraphObject obj                 = (GraphObject) sources[0];
 
-				if (changelog != null && !("".equals(changelog))) {
+				if (sources.length >= 3 && sources[2] != null) {
 
-					final ChangelogFilter changelogFilter = new ChangelogFilter();
+					if (sources[2] instanceof NativeObject) {
 
-					if (sources.length >= 3 && sources[2] != null) {
+						changelogFilter.processJavaScriptConfigurationObject((NativeObject) sources[2]);
 
-						if (sources[2] instanceof NativeObject) {
+					} else {
 
-							changelogFilter.processJavaScriptConfigurationObject((NativeObject) sources[2]);
+						final int maxLength = sources.length;
 
-						} else {
+						for (int i = 2; (i + 2) <= maxLength; i += 2) {
 
-							final int maxLength = sources.length;
+							if (sources[i] != null && sources[i+1] != null) {
+								changelogFilter.addFilterEntry(sources[i].toString(), sources[i+1]);
+							}
 
-							for (int i = 2; (i + 2) <= maxLength; i += 2) {
+						}
 
-								if (sources[i] != null && sources[i+1] != null) {
-									changelogFilter.addFilterEntry(sources[i].toString(), sources[i+1]);
-								}
+						if (maxLength % 2 == 1 && sources[maxLength-1] != null) {
+							logger.warn("Ignoring dangling filterKey: {}", sources[maxLength-1]);
+						}
+					}
+				}
 
-							}
+				if (sources.length >= 2 && Boolean.TRUE.equals(sources[1])) {
+					changelogFilter.setResolveTargets(true);
+				}
 
-							if (maxLength % 2 == 1 && sources[maxLength-1] != null) {
-								logger.warn("Ignoring dangling filterKey: {}", sources[maxLength-1]);
-							}
+				final String legacyChangelog = obj.getProperty(GraphObject.structrChangeLog);
+				final List<String> changelog = new ArrayList<>();
+
+				// entries written before the changelog store was introduced and not migrated yet
+				if (legacyChangelog != null) {
+
+					for (final String entry : legacyChangelog.split("\n")) {
+
+						if (!entry.isEmpty()) {
+							changelog.add(entry);
 						}
 					}
+				}
 
-					if (sources.length >= 2 && Boolean.TRUE.equals(sources[1])) {
-						changelogFilter.setResolveTargets(true);
-					}
+				changelog.addAll(ChangelogStore.getInstance().read(obj.getUuid(), changelogFilter.getTimeFrom()));
+
+				if (!changelog.isEmpty()) {
 
 					return changelogFilter.getFilteredChangelog(changelog);
 				}
@@ -250,7 +266,11 @@ public class ChangelogFunction extends Function<Object, Object> {
 			_resolveTargets = resolve;
 		}
 
-		public List getFilteredChangelog (final String changelog) throws FrameworkException {
+		public long getTimeFrom() {
+			return _filterTimeFrom != null ? _filterTimeFrom : Long.MIN_VALUE;
+		}
+
+		public List getFilteredChangelog (final List<String> changelog) throws FrameworkException {
 
 			final List list = new ArrayList();
 
@@ -259,7 +279,7 @@ public class ChangelogFunction extends Function<Object, Object> {
 					_filterUserName.isEmpty() && _filterRelType.isEmpty() && _filterRelDir == null && _filterTarget.isEmpty() && _filterKey.isEmpty()
 			);
 
-			for (final String entry : changelog.split("\n")) {
+			for (final String entry : changelog) {
 
 				final JsonObject jsonObj = _jsonParser.parse(entry).getAsJsonObject();
 				final String verb = jsonObj.get("verb").getAsString();
@@ -29,6 +29,8 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
+import org.structr.api.config.Settings;
+import org.structr.api.util.LoadingCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.UnlicensedException;
 import org.structr.core.GraphObject;
@@ -60,8 +62,9 @@ import org.structr.schema.action.Function;
  */
 public class Functions {
 
-	private static final Map<String, Function<Object, Object>> functions = new LinkedHashMap<>();
-	public static final String NULL_STRING                               = "___NULL___";
+	private static final Map<String, Function<Object, Object>> functions  = new LinkedHashMap<>();
+	private static final LoadingCache<String, Expression> expressionCache = new LoadingCache<>(Settings.ExpressionCacheSize.getValue());
+	public static final String NULL_STRING                                = "___NULL___";
 
 	public static void put(final boolean licensed, final int edition, final String name, final Function<Object, Object> function) {
 
@@ -73,6 +76,9 @@ public class Functions {
 
 			functions.put(name, new UnlicensedFunction(name, edition));
 		}
+
+		// cached expressions may refer to the previous function
+		expressionCache.clear();
 	}
 
 	public static Set<String> getNames() {
@@ -89,6 +95,34 @@ public class Functions {
 
 	public static Object evaluate(final ActionContext actionContext, final GraphObject entity, final String expression) throws FrameworkException, UnlicensedException {
 
+		Expression root = expressionCache.get(expression);
+		if (root == null) {
+
+			root = parse(expression);
+
+			// only successfully parsed expressions are cached
+			expressionCache.put(expression, root);
+		}
+
+		return root.evaluate(actionContext, entity);
+	}
+
+	public static void clearExpressionCache() {
+		expressionCache.clear();
+	}
+
+	/**
+	 * Parses the given StructrScript expression into a tree of expressions.
+	 * The resulting tree does not hold any evaluation state, so it can be
+	 * cached and evaluated concurrently with different contexts.
+	 *
+	 * @param expression
+	 * @return the root of the expression tree
+	 *
+	 * @throws FrameworkException
+	 */
+	public static Expression parse(final String expression) throws FrameworkException {
+
 		final String expressionWithoutNewlines = expression.replace('\n', ' ').replace('\r', ' ');
 		final StreamTokenizer tokenizer = new StreamTokenizer(new StringReader(expressionWithoutNewlines));
 		tokenizer.eolIsSignificant(true);
@@ -214,7 +248,7 @@ public class Functions {
 			throw new FrameworkException(422, "Invalid expression: mismatched closing bracket after " + lastToken);
 		}
 
-		return root.evaluate(actionContext, entity);
+		return root;
 	}
 
 	public static String cleanString(final Object input) {
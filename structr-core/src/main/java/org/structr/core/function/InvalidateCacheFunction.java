@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.function;
+
+import org.structr.common.ValueCache;
+import org.structr.common.error.FrameworkException;
+import org.structr.schema.action.ActionContext;
+import org.structr.schema.action.Function;
+
+/**
+ *
+ */
+public class InvalidateCacheFunction extends Function<Object, Object> {
+
+	public static final String ERROR_MESSAGE_INVALIDATE_CACHE    = "Usage: ${invalidate_cache(key)}. Example: ${invalidate_cache('value')}";
+	public static final String ERROR_MESSAGE_INVALIDATE_CACHE_JS = "Usage: ${{Structr.invalidate_cache(key)}}. Example: ${{Structr.invalidate_cache('value')}}";
+
+	@Override
+	public String getName() {
+		return "invalidate_cache()";
+	}
+
+	@Override
+	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) throws FrameworkException {
+
+		try {
+
+			if (!arrayHasLengthAndAllElementsNotNull(sources, 1)) {
+
+				logParameterError(caller, sources, ctx.isJavaScriptContext());
+				return usage(ctx.isJavaScriptContext());
+			}
+
+			ValueCache.getInstance().invalidate(sources[0].toString());
+
+			return "";
+
+		} catch (final IllegalArgumentException e) {
+
+			logParameterError(caller, sources, ctx.isJavaScriptContext());
+
+			return usage(ctx.isJavaScriptContext());
+		}
+	}
+
+	@Override
+	public String usage(boolean inJavaScriptContext) {
+		return (inJavaScriptContext ? ERROR_MESSAGE_INVALIDATE_CACHE_JS : ERROR_MESSAGE_INVALIDATE_CACHE);
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Removes the value with the given key from the cache of the cache() function";
+	}
+}
@@ -46,6 +46,8 @@ public class BulkCreateLabelsCommand extends NodeServiceCommand implements Maint
 		final boolean removeUnused                = !attributes.containsKey("removeUnused");
 		final Iterator<AbstractNode> nodeIterator = Iterables.map(nodeFactory, Iterables.filter(new StructrAndSpatialPredicate(true, false, false), graphDb.getNodesByTypeProperty(entityType))).iterator();
 
+		setThreadCount(attributes);
+
 		if (entityType == null) {
 
 			info("Node type not set or no entity class found. Starting creation of labels for all nodes.");
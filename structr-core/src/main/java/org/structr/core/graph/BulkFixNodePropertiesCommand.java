@@ -51,6 +51,8 @@ public class BulkFixNodePropertiesCommand extends NodeServiceCommand implements
 		final String propertyName   = (String)attributes.get("name");
 		final String entityTypeName = (String)attributes.get("type");
 
+		setThreadCount(attributes);
+
 		if (entityTypeName != null) {
 
 			final Class type = SchemaHelper.getEntityClassForRawType(entityTypeName);
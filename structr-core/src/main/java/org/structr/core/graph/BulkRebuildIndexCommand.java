@@ -21,6 +21,7 @@ package org.structr.core.graph;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
@@ -44,6 +45,8 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 
 	private static final Logger logger = LoggerFactory.getLogger(BulkRebuildIndexCommand.class.getName());
 
+	private final AtomicLong failures = new AtomicLong(0L);
+
 	//~--- methods --------------------------------------------------------
 	@Override
 	public void execute(Map<String, Object> attributes) {
@@ -52,6 +55,8 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 		final String entityType = (String) attributes.get("type");
 		final String relType    = (String) attributes.get("relType");
 
+		setThreadCount(attributes);
+
 		if (mode == null || "nodesOnly".equals(mode)) {
 			rebuildNodeIndex(entityType);
 		}
@@ -61,6 +66,16 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 		}
 	}
 
+	/**
+	 * Returns the number of objects and transactions that could not be
+	 * indexed by this command.
+	 *
+	 * @return the number of failures
+	 */
+	public long getFailureCount() {
+		return failures.get();
+	}
+
 	// ----- interface TransactionPostProcess -----
 	@Override
 	public boolean execute(SecurityContext securityContext, ErrorBuffer errorBuffer) throws FrameworkException {
@@ -108,11 +123,13 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 			@Override
 			public void handleThrowable(SecurityContext securityContext, Throwable t, AbstractNode node) {
 				logger.warn("Unable to index node {}: {}", new Object[]{node, t.getMessage()});
+				failures.incrementAndGet();
 			}
 
 			@Override
 			public void handleTransactionFailure(SecurityContext securityContext, Throwable t) {
 				logger.warn("Unable to index node: {}", t.getMessage());
+				failures.incrementAndGet();
 			}
 		});
 
@@ -145,11 +162,13 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 			@Override
 			public void handleThrowable(SecurityContext securityContext, Throwable t, AbstractRelationship rel) {
 				logger.warn("Unable to index relationship {}: {}", new Object[]{rel, t.getMessage()});
+				failures.incrementAndGet();
 			}
 
 			@Override
 			public void handleTransactionFailure(SecurityContext securityContext, Throwable t) {
 				logger.warn("Unable to index relationship: {}", t.getMessage());
+				failures.incrementAndGet();
 			}
 		});
 
@@ -54,6 +54,8 @@ public class BulkSetUuidCommand extends NodeServiceCommand implements Maintenanc
 		final Boolean allRels         = (Boolean) attributes.get("allRels");
 		final DatabaseService graphDb = (DatabaseService) arguments.get("graphDb");
 
+		setThreadCount(attributes);
+
 		final SecurityContext superUserContext = SecurityContext.getSuperUserInstance();
 		final NodeFactory nodeFactory          = new NodeFactory(superUserContext);
 		final RelationshipFactory relFactory   = new RelationshipFactory(superUserContext);
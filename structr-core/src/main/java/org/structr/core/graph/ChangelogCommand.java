@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseService;
+import org.structr.api.util.Iterables;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+
+/**
+ * Maintenance operations for the changelog store. Mode "migrate" moves the
+ * changelog of all graph objects from the structrChangeLog property into the
+ * changelog store, ahead of newer entries and without duplicating entries
+ * that were migrated before. Mode "compact" removes the entries of deleted
+ * objects from the changelog store.
+ */
+public class ChangelogCommand extends NodeServiceCommand implements MaintenanceCommand {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChangelogCommand.class.getName());
+
+	@Override
+	public void execute(final Map<String, Object> attributes) throws FrameworkException {
+
+		final String mode = (String) attributes.get("mode");
+
+		setThreadCount(attributes);
+
+		if ("migrate".equals(mode)) {
+
+			migrate();
+
+		} else if ("compact".equals(mode)) {
+
+			compact();
+
+		} else {
+
+			warn("Unknown mode {}, please use one of migrate or compact.", mode);
+		}
+	}
+
+	@Override
+	public boolean requiresEnclosingTransaction() {
+		return false;
+	}
+
+	@Override
+	public boolean requiresFlushingOfCaches() {
+		return false;
+	}
+
+	// ----- private methods -----
+	private void migrate() {
+
+		final DatabaseService graphDb          = (DatabaseService) arguments.get("graphDb");
+		final SecurityContext superUserContext = SecurityContext.getSuperUserInstance();
+		final NodeFactory nodeFactory          = new NodeFactory(superUserContext);
+		final RelationshipFactory relFactory   = new RelationshipFactory(superUserContext);
+
+		info("Start migrating changelog of all nodes");
+
+		final long nodeCount = migrate(Iterables.map(nodeFactory, graphDb.getAllNodes()).iterator(), "MigrateNodeChangelog");
+
+		info("Done with migrating changelog of {} nodes", nodeCount);
+		info("Start migrating changelog of all relationships");
+
+		final long relCount = migrate(Iterables.map(relFactory, graphDb.getAllRelationships()).iterator(), "MigrateRelationshipChangelog");
+
+		info("Done with migrating changelog of {} relationships", relCount);
+	}
+
+	private <T extends GraphObject> long migrate(final Iterator<T> iterator, final String description) {
+
+		return bulkGraphOperation(securityContext, iterator, 1000, description, new BulkGraphOperation<T>() {
+
+			@Override
+			public void handleGraphObject(final SecurityContext securityContext, final T obj) {
+
+				final String changelog = obj.getProperty(GraphObject.structrChangeLog);
+				if (changelog != null) {
+
+					try {
+
+						// written to the changelog store once the transaction of this partition is committed
+						TransactionCommand.changelogMigrated(obj.getUuid(), changelog);
+
+						obj.unlockSystemPropertiesOnce();
+						obj.setProperty(GraphObject.structrChangeLog, null);
+
+					} catch (FrameworkException fex) {
+
+						logger.warn("Unable to migrate changelog of {}: {}", obj, fex.getMessage());
+					}
+				}
+			}
+
+			@Override
+			public void handleThrowable(final SecurityContext securityContext, final Throwable t, final T obj) {
+				logger.warn("Unable to migrate changelog of {}: {}", obj, t.getMessage());
+			}
+
+			@Override
+			public void handleTransactionFailure(final SecurityContext securityContext, final Throwable t) {
+				logger.warn("Unable to migrate changelog: {}", t.getMessage());
+			}
+
+			@Override
+			public boolean doValidation() {
+				return false;
+			}
+		});
+	}
+
+	private void compact() {
+
+		final ChangelogStore store = ChangelogStore.getInstance();
+		final List<String> uuids   = store.getUuids();
+		final Set<String> deleted  = new HashSet<>();
+		final App app              = StructrApp.getInstance();
+
+		info("Start looking up {} objects in changelog", uuids.size());
+
+		for (int i=0; i<uuids.size(); i+=1000) {
+
+			try (final Tx tx = app.tx(false, false, false)) {
+
+				for (final String uuid : uuids.subList(i, Math.min(uuids.size(), i + 1000))) {
+
+					if (app.getNodeById(uuid) == null && app.getRelationshipById(uuid) == null) {
+						deleted.add(uuid);
+					}
+				}
+
+				tx.success();
+
+			} catch (FrameworkException fex) {
+
+				logger.warn("Unable to look up objects in changelog: {}", fex.getMessage());
+				return;
+			}
+		}
+
+		info("Start compacting changelog, {} deleted objects", deleted.size());
+
+		final long removed = store.compact(uuid -> !deleted.contains(uuid));
+
+		info("Done with compacting changelog, {} entries removed", removed);
+	}
+}
@@ -0,0 +1,755 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Append-only storage for the changelog entries of graph objects.
+ *
+ * The entries are written to segment files in the changelog directory below
+ * the base path. Each line of a segment contains the time at which the line
+ * was appended, the UUID of the object and the JSON changelog entry. An in-
+ * memory index maps each UUID to the positions of its entries, and the time
+ * range of each segment is known, so that reading the changelog of an object
+ * does not need to scan the segments.
+ *
+ * Segments are never modified once they are full, compaction rewrites them
+ * without the entries of objects that do not exist any more. The rewritten
+ * segments are moved into place before the remaining old segments are
+ * deleted, and a manifest that is written before the first move allows an
+ * interrupted compaction to be completed when the store is opened again.
+ *
+ * The index is held in memory completely. It needs roughly 200 bytes per
+ * object (map entry, UUID string and position arrays) plus 12 to 24 bytes
+ * per entry, depending on the growth of the position arrays, so one million
+ * objects with ten entries each need about 400 MB of heap. The index is
+ * built when the store is opened, which happens when the node service is
+ * started if the changelog is enabled.
+ */
+public class ChangelogStore {
+
+	private static final Logger logger              = LoggerFactory.getLogger(ChangelogStore.class.getName());
+	private static final String SEGMENT_PREFIX      = "segment-";
+	private static final String SEGMENT_SUFFIX      = ".log";
+	private static final String COMPACTION_SUFFIX   = ".compact";
+	private static final String MANIFEST            = "compaction.manifest";
+	private static volatile ChangelogStore instance = null;
+
+	private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+	private final Map<String, Positions> index       = new HashMap<>();
+	private File directory                           = null;
+	private Segment current                          = null;
+	private Writer writer                            = null;
+	private long maxSegmentSize                      = 0L;
+
+	public ChangelogStore(final String path, final long maxSegmentSize) {
+
+		this.directory      = new File(path);
+		this.maxSegmentSize = maxSegmentSize;
+
+		directory.mkdirs();
+
+		open();
+	}
+
+	/**
+	 * Returns the changelog store in the changelog directory below the
+	 * current base path.
+	 *
+	 * @return the changelog store
+	 */
+	public static ChangelogStore getInstance() {
+
+		final String path          = new File(Settings.getBasePath() + "changelog").getPath();
+		final ChangelogStore store = instance;
+
+		if (store != null && store.directory.getPath().equals(path)) {
+			return store;
+		}
+
+		return getInstance(path);
+	}
+
+	private static synchronized ChangelogStore getInstance(final String path) {
+
+		if (instance == null || !instance.directory.getPath().equals(path)) {
+
+			if (instance != null) {
+				instance.close();
+			}
+
+			instance = new ChangelogStore(path, Settings.ChangelogSegmentSize.getValue() * 1024L * 1024L);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Appends the given changelog entries, separated by newlines, to the
+	 * changelog of the object with the given UUID. The entries are written
+	 * to the operating system when flush() is called.
+	 *
+	 * @param uuid
+	 * @param entries
+	 */
+	public synchronized void append(final String uuid, final String entries) {
+
+		if (uuid == null || entries == null) {
+			return;
+		}
+
+		final long time = System.currentTimeMillis();
+
+		try {
+
+			for (final String entry : entries.split("\n")) {
+
+				if (!entry.isEmpty()) {
+
+					write(uuid, entry, time);
+				}
+			}
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to append changelog of {}: {}", uuid, ioex.getMessage());
+		}
+	}
+
+	/**
+	 * Appends the changelogs of the given objects and writes them to the
+	 * operating system, so that the lock is only acquired once for all
+	 * objects of a transaction.
+	 *
+	 * @param changelogs the changelog entries, separated by newlines, by UUID
+	 */
+	public synchronized void append(final Map<String, String> changelogs) {
+
+		for (final Map.Entry<String, String> entry : changelogs.entrySet()) {
+			append(entry.getKey(), entry.getValue());
+		}
+
+		flush();
+	}
+
+	/**
+	 * Inserts the changelogs that were migrated from the structrChangeLog
+	 * property of the given objects. Each entry is written with its own
+	 * modification time, so that it is read ahead of the entries that were
+	 * appended later, and entries that are already stored are skipped, so
+	 * that the migration can be repeated.
+	 *
+	 * @param changelogs the changelog entries, separated by newlines, by UUID
+	 */
+	public synchronized void insert(final Map<String, String> changelogs) {
+
+		for (final Map.Entry<String, String> changelog : changelogs.entrySet()) {
+
+			final String uuid          = changelog.getKey();
+			final Set<String> existing = new HashSet<>(read(uuid));
+
+			try {
+
+				for (final String entry : changelog.getValue().split("\n")) {
+
+					if (!entry.isEmpty() && existing.add(entry)) {
+
+						write(uuid, entry, getTime(entry));
+					}
+				}
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to insert changelog of {}: {}", uuid, ioex.getMessage());
+			}
+		}
+
+		flush();
+	}
+
+	public synchronized void flush() {
+
+		try {
+
+			if (writer != null) {
+				writer.flush();
+			}
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to flush changelog: {}", ioex.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the changelog entries of the object with the given UUID,
+	 * oldest first.
+	 *
+	 * @param uuid
+	 *
+	 * @return the JSON changelog entries
+	 */
+	public List<String> read(final String uuid) {
+		return read(uuid, Long.MIN_VALUE);
+	}
+
+	/**
+	 * Returns the changelog entries of the object with the given UUID,
+	 * ordered by time and skipping the segments that were completed before
+	 * the given time. Entries are written at or after their modification
+	 * time, so no entry that was made at or after the given time is skipped.
+	 *
+	 * @param uuid
+	 * @param since
+	 *
+	 * @return the JSON changelog entries
+	 */
+	public synchronized List<String> read(final String uuid, final long since) {
+
+		final List<Map.Entry<Long, String>> lines = new ArrayList<>();
+		final List<String> entries                = new ArrayList<>();
+		final Positions positions                 = index.get(uuid);
+
+		if (positions == null) {
+			return entries;
+		}
+
+		flush();
+
+		RandomAccessFile file = null;
+		int fileSegment       = -1;
+
+		try {
+
+			for (int i=0; i<positions.size; i++) {
+
+				final int segmentId   = (int)(positions.positions[i] >>> 40);
+				final long offset     = positions.positions[i] & 0xFFFFFFFFFFL;
+				final Segment segment = segments.get(segmentId);
+
+				if (segment == null || segment.maxTime < since) {
+					continue;
+				}
+
+				if (segmentId != fileSegment) {
+
+					if (file != null) {
+						file.close();
+					}
+
+					file        = new RandomAccessFile(segment.file, "r");
+					fileSegment = segmentId;
+				}
+
+				final byte[] buf = new byte[positions.lengths[i]];
+
+				file.seek(offset);
+				file.readFully(buf);
+
+				final String line = new String(buf, 0, buf.length - 1, StandardCharsets.UTF_8);
+				final int first   = line.indexOf('\t');
+
+				lines.add(new AbstractMap.SimpleEntry<>(Long.parseLong(line.substring(0, first)), line.substring(line.indexOf('\t', first + 1) + 1)));
+			}
+
+			// migrated entries are inserted after newer ones, the sort is stable
+			lines.sort(Map.Entry.comparingByKey());
+
+			for (final Map.Entry<Long, String> line : lines) {
+				entries.add(line.getValue());
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to read changelog of {}: {}", uuid, ioex.getMessage());
+
+		} finally {
+
+			if (file != null) {
+
+				try { file.close(); } catch (IOException ignore) {}
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Returns the UUIDs of all objects that have changelog entries.
+	 *
+	 * @return the UUIDs
+	 */
+	public synchronized List<String> getUuids() {
+		return new ArrayList<>(index.keySet());
+	}
+
+	/**
+	 * Rewrites all full segments without the entries of the objects that
+	 * are not accepted by the given predicate. Appending continues in a
+	 * new segment while the full segments are rewritten.
+	 *
+	 * @param keep the predicate that decides which objects are kept
+	 *
+	 * @return the number of removed entries
+	 */
+	public long compact(final Predicate<String> keep) {
+
+		final List<Segment> sealed = new ArrayList<>();
+		final List<File> compacted = new ArrayList<>();
+		boolean committed          = false;
+		long removed               = 0L;
+
+		synchronized (this) {
+
+			try {
+
+				roll();
+
+			} catch (IOException ioex) {
+
+				logger.warn("Unable to compact changelog: {}", ioex.getMessage());
+				return 0L;
+			}
+
+			sealed.addAll(segments.headMap(current.id).values());
+		}
+
+		if (sealed.isEmpty()) {
+			return 0L;
+		}
+
+		// rewrite the sealed segments into as many new files as needed, the
+		// segments are not modified any more so no lock is required here
+		Writer out  = null;
+		long size   = 0L;
+
+		try {
+
+			for (final Segment segment : sealed) {
+
+				try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(segment.file), StandardCharsets.UTF_8))) {
+
+					String line = reader.readLine();
+					while (line != null) {
+
+						final String[] parts = line.split("\t", 3);
+						if (parts.length == 3 && keep.test(parts[1])) {
+
+							if (out == null || (size >= maxSegmentSize && compacted.size() < sealed.size())) {
+
+								if (out != null) {
+									out.close();
+								}
+
+								final File file = new File(directory, SEGMENT_PREFIX + sealed.get(compacted.size()).id + COMPACTION_SUFFIX);
+
+								compacted.add(file);
+
+								out  = openWriter(file, 0L);
+								size = 0L;
+							}
+
+							out.write(line);
+							out.write("\n");
+
+							size += line.getBytes(StandardCharsets.UTF_8).length + 1;
+
+						} else {
+
+							removed++;
+						}
+
+						line = reader.readLine();
+					}
+				}
+			}
+
+			if (out != null) {
+				out.close();
+			}
+
+			// the manifest lists the segments that are not replaced by a compacted
+			// file, from here on the compaction is completed even after a crash
+			final StringBuilder manifest = new StringBuilder();
+			for (int i=compacted.size(); i<sealed.size(); i++) {
+
+				manifest.append(sealed.get(i).id);
+				manifest.append("\n");
+			}
+
+			final File tmp = new File(directory, MANIFEST + ".tmp");
+
+			Files.write(tmp.toPath(), manifest.toString().getBytes(StandardCharsets.UTF_8));
+			Files.move(tmp.toPath(), new File(directory, MANIFEST).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			committed = true;
+
+			synchronized (this) {
+
+				try {
+
+					finishCompaction();
+
+				} finally {
+
+					// the positions of all segments before the current one have changed
+					rebuildIndex();
+				}
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to compact changelog: {}", ioex.getMessage());
+
+			// the compacted files of a committed compaction are moved into place when the store is opened again
+			if (!committed) {
+
+				for (final File file : compacted) {
+					file.delete();
+				}
+			}
+		}
+
+		return removed;
+	}
+
+	public synchronized void close() {
+
+		try {
+
+			if (writer != null) {
+
+				writer.close();
+				writer = null;
+			}
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to close changelog: {}", ioex.getMessage());
+		}
+	}
+
+	// ----- private methods -----
+	private void open() {
+
+		// complete a compaction that was interrupted after its manifest was written
+		if (new File(directory, MANIFEST).exists()) {
+
+			try {
+
+				finishCompaction();
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to complete compaction of changelog in {}: {}", directory, ioex.getMessage());
+			}
+		}
+
+		// remove leftovers of a compaction that was interrupted before
+		final File[] leftovers = directory.listFiles((dir, name) -> name.endsWith(COMPACTION_SUFFIX) || name.equals(MANIFEST + ".tmp"));
+		if (leftovers != null) {
+
+			for (final File file : leftovers) {
+				file.delete();
+			}
+		}
+
+		rebuildIndex();
+
+		try {
+
+			if (segments.isEmpty()) {
+
+				roll();
+
+			} else {
+
+				current = segments.lastEntry().getValue();
+				writer  = openWriter(current.file, current.size);
+			}
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to open changelog in {}: {}", directory, ioex.getMessage());
+		}
+	}
+
+	/**
+	 * Moves the compacted files over the segments they replace and deletes
+	 * the segments listed in the manifest. Each step can be repeated, so
+	 * that a compaction that was interrupted in between can be completed
+	 * when the store is opened.
+	 */
+	private void finishCompaction() throws IOException {
+
+		final File manifest = new File(directory, MANIFEST);
+		final File[] files  = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(COMPACTION_SUFFIX));
+
+		if (files != null) {
+
+			for (final File file : files) {
+
+				final String name = file.getName();
+				final File target = new File(directory, name.substring(0, name.length() - COMPACTION_SUFFIX.length()) + SEGMENT_SUFFIX);
+
+				Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+		}
+
+		// the segments that were not replaced by a compacted file are not needed any more
+		for (final String id : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+
+			if (!id.isEmpty()) {
+
+				Files.deleteIfExists(new File(directory, SEGMENT_PREFIX + id + SEGMENT_SUFFIX).toPath());
+			}
+		}
+
+		Files.delete(manifest.toPath());
+	}
+
+	private void rebuildIndex() {
+
+		final File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		final boolean open = current != null;
+
+		segments.clear();
+		index.clear();
+
+		if (files == null) {
+			return;
+		}
+
+		flush();
+
+		for (final File file : files) {
+
+			final String name = file.getName();
+			final int id      = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+
+			segments.put(id, new Segment(id, file));
+		}
+
+		// scan the segments in order so that the positions of each object are sorted
+		for (final Segment seg : segments.values()) {
+
+			final File file = seg.file;
+			final int id    = seg.id;
+
+			try (final InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+
+				final byte[] buf = new byte[8192];
+				long lineStart   = 0L;
+				long position    = 0L;
+				int read         = 0;
+
+				final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+				while ((read = is.read(buf)) > 0) {
+
+					for (int i=0; i<read; i++) {
+
+						position++;
+
+						if (buf[i] == '\n') {
+
+							final String[] parts = new String(line.toByteArray(), StandardCharsets.UTF_8).split("\t", 3);
+							final int length     = (int)(position - lineStart);
+
+							if (parts.length == 3) {
+
+								addPosition(parts[1], id, lineStart, length);
+								seg.update(Long.parseLong(parts[0]), length);
+
+							} else {
+
+								seg.size += length;
+							}
+
+							line.reset();
+							lineStart = position;
+
+						} else {
+
+							line.write(buf[i]);
+						}
+					}
+				}
+
+				// an incomplete last line is ignored and overwritten by the next append
+				seg.size = lineStart;
+
+			} catch (IOException | NumberFormatException ex) {
+				logger.warn("Unable to read changelog segment {}: {}", file, ex.getMessage());
+			}
+		}
+
+		if (open && !segments.isEmpty()) {
+			current = segments.lastEntry().getValue();
+		}
+	}
+
+	private void roll() throws IOException {
+
+		if (writer != null) {
+			writer.close();
+		}
+
+		final int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+
+		current = new Segment(id, new File(directory, SEGMENT_PREFIX + id + SEGMENT_SUFFIX));
+		writer  = openWriter(current.file, 0L);
+
+		segments.put(id, current);
+	}
+
+	private void write(final String uuid, final String entry, final long time) throws IOException {
+
+		if (current.size >= maxSegmentSize) {
+			roll();
+		}
+
+		final String line = time + "\t" + uuid + "\t" + entry + "\n";
+		final int length  = line.getBytes(StandardCharsets.UTF_8).length;
+
+		writer.write(line);
+
+		addPosition(uuid, current.id, current.size, length);
+		current.update(time, length);
+	}
+
+	/**
+	 * Returns the modification time of the given JSON changelog entry, or 0
+	 * if the entry has none, so that such entries are read first.
+	 */
+	private long getTime(final String entry) {
+
+		try {
+
+			final JsonElement time = new JsonParser().parse(entry).getAsJsonObject().get("time");
+			if (time != null) {
+
+				return time.getAsLong();
+			}
+
+		} catch (RuntimeException ex) {
+			logger.warn("Unable to read time of changelog entry {}: {}", entry, ex.getMessage());
+		}
+
+		return 0L;
+	}
+
+	private Writer openWriter(final File file, final long length) throws IOException {
+
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+		// cut off an incomplete last line
+		if (raf.length() > length) {
+			raf.setLength(length);
+		}
+
+		raf.seek(raf.length());
+
+		final OutputStream os = new FileOutputStream(raf.getFD());
+
+		return new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
+
+			@Override
+			public void close() throws IOException {
+
+				super.close();
+				raf.close();
+			}
+		};
+	}
+
+	private void addPosition(final String uuid, final int segment, final long offset, final int length) {
+		index.computeIfAbsent(uuid, k -> new Positions()).add(((long)segment << 40) | offset, length);
+	}
+
+	// ----- nested classes -----
+	private static class Segment {
+
+		private File file    = null;
+		private long minTime = Long.MAX_VALUE;
+		private long maxTime = Long.MIN_VALUE;
+		private long size    = 0L;
+		private int id       = 0;
+
+		public Segment(final int id, final File file) {
+
+			this.file = file;
+			this.id   = id;
+		}
+
+		public void update(final long time, final int length) {
+
+			minTime  = Math.min(minTime, time);
+			maxTime  = Math.max(maxTime, time);
+			size    += length;
+		}
+	}
+
+	private static class Positions {
+
+		private long[] positions = new long[2];
+		private int[] lengths    = new int[2];
+		private int size         = 0;
+
+		public void add(final long position, final int length) {
+
+			if (size == positions.length) {
+
+				positions = Arrays.copyOf(positions, size * 2);
+				lengths   = Arrays.copyOf(lengths, size * 2);
+			}
+
+			positions[size] = position;
+			lengths[size]   = length;
+
+			size++;
+		}
+	}
+}
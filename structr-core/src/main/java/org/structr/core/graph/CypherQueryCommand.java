@@ -24,6 +24,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
@@ -34,6 +35,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.GraphObjectMap;
 import org.structr.core.property.GenericProperty;
+import org.structr.schema.SchemaService;
 
 //~--- classes ----------------------------------------------------------------
 
@@ -45,7 +47,8 @@ import org.structr.core.property.GenericProperty;
  */
 public class CypherQueryCommand extends NodeServiceCommand {
 
-	private static final Logger logger = LoggerFactory.getLogger(CypherQueryCommand.class.getName());
+	private static final Logger logger       = LoggerFactory.getLogger(CypherQueryCommand.class.getName());
+	private static final Pattern cypherWrite = Pattern.compile("\\b(CREATE|MERGE|SET|REMOVE|DELETE)\\b", Pattern.CASE_INSENSITIVE);
 
 	//protected static final ThreadLocalExecutionEngine engine = new ThreadLocalExecutionEngine();
 
@@ -73,6 +76,15 @@ public class CypherQueryCommand extends NodeServiceCommand {
 		// graphdb can be null..
 		if (graphDb != null) {
 
+			if (isWriteStatement(query)) {
+
+				// writes in Cypher do not update the trigram index
+				SchemaService.checkTrigramIndexes(query, parameters);
+
+				// and are not recorded in the modification queue
+				TransactionCommand.untrackedModification();
+			}
+
 			try (final NativeResult result = graphDb.execute(query, parameters != null ? parameters : Collections.emptyMap())) {
 
 				while (result.hasNext()) {
@@ -128,6 +140,16 @@ public class CypherQueryCommand extends NodeServiceCommand {
 		return resultList;
 	}
 
+	/**
+	 * Indicates whether the given Cypher statement can modify the database.
+	 *
+	 * @param statement the Cypher statement
+	 * @return whether the statement contains a writing clause
+	 */
+	public static boolean isWriteStatement(final String statement) {
+		return statement != null && cypherWrite.matcher(statement).find();
+	}
+
 	final Object handleObject(final NodeFactory nodeFactory, final RelationshipFactory relFactory, final String key, final Object value, boolean includeHiddenAndDeleted, boolean publicOnly, int level) throws FrameworkException {
 
 		GraphObject graphObject = null;
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.graph.RelationshipType;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.property.PropertyMap;
+
+/**
+ * A copy of a modification event that can be handed to another thread.
+ *
+ * The state of the event is copied when the snapshot is created. The graph
+ * object is loaded again in the transaction of the thread that reads it,
+ * except for deleted objects, which cannot be loaded any more.
+ */
+public class DetachedModificationEvent implements ModificationEvent {
+
+	private static final Logger logger = LoggerFactory.getLogger(DetachedModificationEvent.class.getName());
+
+	private final PropertyMap modifiedProperties = new PropertyMap();
+	private final PropertyMap removedProperties  = new PropertyMap();
+	private final PropertyMap newProperties      = new PropertyMap();
+	private RelationshipType relType             = null;
+	private Class<? extends GraphObject> type    = null;
+	private GraphObject deletedObject            = null;
+	private GraphObject object                   = null;
+	private boolean isNode                       = false;
+	private String callbackId                    = null;
+	private String changeLog                     = null;
+	private String uuid                          = null;
+	private int status                           = 0;
+
+	public DetachedModificationEvent(final ModificationEvent source) {
+
+		final GraphObject graphObject = source.getGraphObject();
+
+		this.modifiedProperties.putAll(source.getModifiedProperties());
+		this.removedProperties.putAll(source.getRemovedProperties());
+		this.newProperties.putAll(source.getNewProperties());
+
+		this.relType    = source.getRelationshipType();
+		this.type       = graphObject != null ? graphObject.getClass() : null;
+		this.isNode     = source.isNode();
+		this.callbackId = source.getCallbackId();
+		this.changeLog  = source.getChangeLog();
+		this.uuid       = source.getUuid();
+		this.status     = source.getStatus();
+
+		if (source.isDeleted()) {
+			this.deletedObject = graphObject;
+		}
+	}
+
+	@Override
+	public boolean isNode() {
+		return isNode;
+	}
+
+	@Override
+	public int getStatus() {
+		return status;
+	}
+
+	@Override
+	public String getChangeLog() {
+		return changeLog;
+	}
+
+	@Override
+	public String getCallbackId() {
+		return callbackId;
+	}
+
+	@Override
+	public boolean isDeleted() {
+		return (status & GraphObjectModificationState.STATE_DELETED) == GraphObjectModificationState.STATE_DELETED;
+	}
+
+	@Override
+	public boolean isModified() {
+		return (status & GraphObjectModificationState.STATE_MODIFIED) == GraphObjectModificationState.STATE_MODIFIED;
+	}
+
+	@Override
+	public boolean isCreated() {
+		return (status & GraphObjectModificationState.STATE_CREATED) == GraphObjectModificationState.STATE_CREATED;
+	}
+
+	@Override
+	public GraphObject getGraphObject() {
+
+		if (deletedObject != null) {
+			return deletedObject;
+		}
+
+		if (object == null && uuid != null) {
+
+			final App app = StructrApp.getInstance();
+
+			try {
+
+				object = isNode ? app.getNodeById(uuid) : app.getRelationshipById(uuid);
+
+			} catch (FrameworkException fex) {
+				logger.warn("Unable to load {} for modification event: {}", uuid, fex.getMessage());
+			}
+		}
+
+		return object;
+	}
+
+	@Override
+	public RelationshipType getRelationshipType() {
+		return relType;
+	}
+
+	@Override
+	public String getUuid() {
+		return uuid;
+	}
+
+	@Override
+	public PropertyMap getNewProperties() {
+		return newProperties;
+	}
+
+	@Override
+	public PropertyMap getModifiedProperties() {
+		return modifiedProperties;
+	}
+
+	@Override
+	public PropertyMap getRemovedProperties() {
+		return removedProperties;
+	}
+
+	@Override
+	public Map<String, Object> getData(final SecurityContext securityContext) throws FrameworkException {
+		return PropertyMap.javaTypeToInputType(securityContext, type, modifiedProperties);
+	}
+}
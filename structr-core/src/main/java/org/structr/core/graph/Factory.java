@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
@@ -35,6 +36,7 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Adapter;
 import org.structr.core.GraphObject;
+import org.structr.core.LazyResult;
 import org.structr.core.Result;
 import org.structr.core.app.StructrApp;
 import org.structr.schema.SchemaHelper;
@@ -56,6 +58,11 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	protected FactoryDefinition factoryDefinition = StructrApp.getConfiguration().getFactoryDefinition();
 	protected FactoryProfile factoryProfile       = null;
 	protected boolean disablePaging               = false;
+	protected boolean ignoreResultCount           = false;
+	protected boolean skipReadPermissionCheck     = false;
+	protected boolean pagedByDatabase             = false;
+	protected boolean streaming                   = false;
+	protected Integer databaseResultCount         = null;
 
 	public Factory(final SecurityContext securityContext) {
 
@@ -134,13 +141,21 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 					nodes.add(instantiate(n));
 				}
 
+				prefetch(nodes);
+
 				// We've run completely through the iterator,
 				// so the overall count from here is accurate.
 				return new Result(nodes, size, true, false);
 
 			} else {
 
-				fromIndex = pageSize == Integer.MAX_VALUE ? 0 : (page - 1) * pageSize;
+				fromIndex = pageSize == Integer.MAX_VALUE || pagedByDatabase ? 0 : (page - 1) * pageSize;
+
+				if (streaming && !disablePaging) {
+
+					// instantiate while the result is serialized
+					return stream(input, fromIndex, pageSize);
+				}
 
 				// The overall count may be inaccurate
 				return page(input, fromIndex, pageSize);
@@ -192,6 +207,49 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 		this.disablePaging = true;
 	}
 
+	public void ignoreResultCount() {
+		this.ignoreResultCount = true;
+	}
+
+	/**
+	 * Returns a lazy result that reads and instantiates its elements
+	 * while it is iterated, instead of a list of all elements. This
+	 * only applies to queries with a positive page number.
+	 */
+	public void enableStreaming() {
+		this.streaming = true;
+	}
+
+	/**
+	 * Skips the read permission check of instantiated objects, because
+	 * the input contains readable objects only.
+	 */
+	public void skipReadPermissionCheck() {
+		this.skipReadPermissionCheck = true;
+	}
+
+	/**
+	 * Indicates that the input contains the requested page only, because
+	 * the database applied SKIP and LIMIT to the query.
+	 *
+	 * @param resultCount the overall count of the query, or null if it was not counted
+	 */
+	public void pagedByDatabase(final Integer resultCount) {
+
+		this.pagedByDatabase     = true;
+		this.databaseResultCount = resultCount;
+	}
+
+	/**
+	 * Called with the objects of a result page before the page is
+	 * returned. Subclasses can override this method to load data
+	 * that is needed to render the result in advance.
+	 *
+	 * @param objects
+	 */
+	protected void prefetch(final List<T> objects) {
+	}
+
 	protected Class<T> getClassForName(final String rawType) {
 		return SchemaHelper.getEntityClassForRawType(rawType);
 	}
@@ -213,7 +271,7 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	protected Result page(final QueryResult<S> input, final int offset, final int pageSize) throws FrameworkException {
 
 		final SecurityContext securityContext = factoryProfile.getSecurityContext();
-		final boolean dontCheckCount          = securityContext.ignoreResultCount();
+		final boolean dontCheckCount          = securityContext.ignoreResultCount() || ignoreResultCount;
 		final List<T> nodes                   = new ArrayList<>();
 		int overallCount                      = 0;
 		int position                          = 0;
@@ -223,6 +281,14 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 			for (final S item : tmp) {
 
+				// readable elements outside of the requested page are counted without instantiation
+				if (skipReadPermissionCheck && !disablePaging && !pagedByDatabase && (position < offset || position >= offset + pageSize)) {
+
+					overallCount++;
+					position++;
+					continue;
+				}
+
 				final T n = instantiate(item);
 				if (n != null) {
 
@@ -245,12 +311,159 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 			throw new FrameworkException(503, nex.getMessage());
 		}
 
+		// paging is done by the caller if disabled
+		if (!disablePaging) {
+			prefetch(nodes);
+		}
+
 		// The overall count may be inaccurate
-		return new Result(nodes, overallCount, true, false);
+		return new Result(nodes, pagedByDatabase ? databaseResultCount : overallCount, true, false);
 	}
 
 
+	protected Result stream(final QueryResult<S> input, final int offset, final int pageSize) {
+
+		final SecurityContext securityContext = factoryProfile.getSecurityContext();
+		final boolean dontCheckCount          = securityContext.ignoreResultCount() || ignoreResultCount;
+		final StreamingIterable iterable      = new StreamingIterable(input, offset, pageSize, dontCheckCount);
+		final LazyResult<T> result            = new LazyResult<>(iterable, true);
+
+		iterable.result = result;
+
+		return result;
+	}
+
 	// ----- nested classes -----
+	/**
+	 * Instantiates the elements of a page while they are iterated, in
+	 * chunks that are passed to {@link #prefetch(java.util.List)}, and
+	 * counts the remaining elements when the page is complete.
+	 */
+	private class StreamingIterable implements Iterable<T>, Iterator<T> {
+
+		private static final int CHUNK_SIZE = 1000;
+
+		private final List<T> chunk     = new ArrayList<>();
+		private QueryResult<S> input    = null;
+		private Iterator<S> source      = null;
+		private LazyResult<T> result    = null;
+		private boolean dontCheckCount  = false;
+		private int overallCount        = 0;
+		private int position            = 0;
+		private int pageSize            = 0;
+		private int offset              = 0;
+		private int index               = 0;
+
+		public StreamingIterable(final QueryResult<S> input, final int offset, final int pageSize, final boolean dontCheckCount) {
+
+			this.dontCheckCount = dontCheckCount;
+			this.pageSize       = pageSize;
+			this.offset         = offset;
+			this.input          = input;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+
+			if (source == null && input != null) {
+				source = input.iterator();
+			}
+
+			return this;
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			if (index < chunk.size()) {
+				return true;
+			}
+
+			chunk.clear();
+			index = 0;
+
+			if (source != null) {
+
+				try {
+
+					fillChunk();
+
+				} catch (NetworkException nex) {
+
+					finish();
+					throw new IllegalStateException(nex.getMessage(), nex);
+				}
+
+				if (chunk.isEmpty()) {
+
+					finish();
+
+				} else {
+
+					prefetch(chunk);
+				}
+			}
+
+			return index < chunk.size();
+		}
+
+		@Override
+		public T next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			return chunk.get(index++);
+		}
+
+		// ----- private methods -----
+		private void fillChunk() {
+
+			while (chunk.size() < CHUNK_SIZE && source.hasNext()) {
+
+				// stop if we got enough nodes and the count is not needed
+				if (position >= offset + pageSize && dontCheckCount) {
+					return;
+				}
+
+				final S item = source.next();
+
+				// readable elements outside of the requested page are counted without instantiation
+				if (skipReadPermissionCheck && (position < offset || position >= offset + pageSize)) {
+
+					overallCount++;
+					position++;
+					continue;
+				}
+
+				final T n = instantiate(item);
+				if (n != null) {
+
+					overallCount++;
+					position++;
+
+					if (position > offset && position <= offset + pageSize) {
+						chunk.add(n);
+					}
+				}
+			}
+		}
+
+		private void finish() {
+
+			if (source != null) {
+
+				source = null;
+				input.close();
+
+				if (!dontCheckCount && result != null) {
+					result.setRawResultCount(overallCount);
+				}
+			}
+		}
+	}
+
 	protected class FactoryProfile {
 
 		private boolean includeDeletedAndHidden = true;
@@ -27,6 +27,7 @@ import org.structr.common.AccessPathCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
 
 public class FlushCachesCommand extends NodeServiceCommand implements MaintenanceCommand {
 
@@ -47,6 +48,10 @@ public class FlushCachesCommand extends NodeServiceCommand implements Maintenanc
 		RelationshipWrapper.clearCache();
 		AccessPathCache.invalidate();
 
+		// callers change the database without modification events (and node ids can be reused),
+		// so the permission results cannot be invalidated selectively here
+		AbstractNode.clearPermissionResolutionCache();
+
 		App app = StructrApp.getInstance();
 
 		app.invalidateCache();
@@ -27,20 +27,28 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.NotFoundException;
 import org.structr.api.config.Settings;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
+import org.structr.common.PropertyView;
 import org.structr.common.RelType;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
+import org.structr.core.entity.Relation;
 import org.structr.core.property.PropertyKey;
+import org.structr.core.property.TypeProperty;
 
 /**
  *
@@ -49,21 +57,67 @@ import org.structr.core.property.PropertyKey;
 
 public class ModificationQueue {
 
-	private static final Logger logger = LoggerFactory.getLogger(ModificationQueue.class.getName());
+	private static final Logger logger                         = LoggerFactory.getLogger(ModificationQueue.class.getName());
+	private static final Map<String, AtomicLong> changeCounters = new ConcurrentHashMap<>();
+	private static final AtomicLong untrackedChangeCounter      = new AtomicLong();
+	private static final AtomicLong securityChangeCounter       = new AtomicLong();
+	private static final long changeCounterEpoch                = System.currentTimeMillis();
 
 	private final ConcurrentSkipListMap<String, GraphObjectModificationState> modifications = new ConcurrentSkipListMap<>();
 	private final Collection<ModificationEvent> modificationEvents                          = new ArrayDeque<>(1000);
 	private final Map<String, TransactionPostProcess> postProcesses                         = new LinkedHashMap<>();
 	private final Set<String> alreadyPropagated                                             = new LinkedHashSet<>();
+	private final Map<GraphObject, Set<PropertyKey>> uniqueProperties                       = new LinkedHashMap<>();
 	private final Set<String> synchronizationKeys                                           = new TreeSet<>();
+	private final Map<String, String> migratedChangelogs                                    = new LinkedHashMap<>();
+	private boolean changelogWritten                                                        = false;
+	private boolean committed                                                               = false;
+	private boolean untracked                                                               = false;
 
 	/**
-	 * Returns a set containing the different entity types of
-	 * nodes modified in this queue.
+	 * Returns a set containing the unique properties and values that
+	 * were modified in this queue.
 	 *
-	 * @return the types
+	 * Unique properties are synchronized per value, so that transactions
+	 * only wait for each other if they write the same value. The values
+	 * are read when this method is called, so that the key contains the
+	 * value that is validated. Compound properties are synchronized for
+	 * all values, because a collision can be caused by two transactions
+	 * that modify different properties.
+	 *
+	 * @return the synchronization keys
 	 */
 	public Set<String> getSynchronizationKeys() {
+
+		for (final Entry<GraphObject, Set<PropertyKey>> entry : uniqueProperties.entrySet()) {
+
+			final GraphObject obj = entry.getKey();
+
+			for (final PropertyKey key : entry.getValue()) {
+
+				try {
+
+					final Object value = obj.getProperty(key);
+					if (value != null) {
+
+						if (value.getClass().isArray()) {
+
+							synchronizationKeys.add(key.getSynchronizationKey());
+
+						} else {
+
+							synchronizationKeys.add(key.getSynchronizationKey() + "=" + value);
+						}
+					}
+
+				} catch (NotFoundException nfex) {
+					// object was deleted in this transaction, no need to validate it
+				}
+			}
+		}
+
+		uniqueProperties.clear();
+
 		return synchronizationKeys;
 	}
 
@@ -158,34 +212,76 @@ public class ModificationQueue {
 		}
 	}
 
+	/**
+	 * Marks the transaction of this queue as committed, the changelog is
+	 * only written for committed transactions.
+	 */
+	public void setCommitted() {
+		this.committed = true;
+	}
+
+	/**
+	 * Writes the changelog entries of this queue to the changelog store.
+	 * The entries are written only once per queue, so that a retry of the
+	 * outer callbacks does not append them again.
+	 */
 	public void updateChangelog() {
 
+		if (!committed || changelogWritten) {
+			return;
+		}
+
+		changelogWritten = true;
+
+		updateMigratedChangelogs();
+
 		if (Settings.ChangelogEnabled.getValue() && !modificationEvents.isEmpty()) {
 
+			final Map<String, String> changelogs = new LinkedHashMap<>();
+
 			for (final ModificationEvent ev: modificationEvents) {
 
 				if (!ev.isDeleted()) {
 
-					try {
-						final GraphObject obj = ev.getGraphObject();
-						if (obj != null) {
+					changelogs.put(ev.getUuid(), ev.getChangeLog());
+				}
+			}
 
-							final String existingLog = obj.getProperty(GraphObject.structrChangeLog);
-							final String newLog      = ev.getChangeLog();
-							final String newValue    = existingLog != null ? existingLog + newLog : newLog;
+			try {
 
-							obj.unlockSystemPropertiesOnce();
-							obj.setProperty(GraphObject.structrChangeLog, newValue);
-						}
+				ChangelogStore.getInstance().append(changelogs);
 
-					} catch (Throwable t) {
-						logger.warn("", t);
-					}
-				}
+			} catch (Throwable t) {
+				logger.warn("", t);
 			}
 		}
 	}
 
+	/**
+	 * Writes the changelogs that were migrated in the transaction of this
+	 * queue to the changelog store, once the transaction was committed.
+	 */
+	public void updateMigratedChangelogs() {
+
+		if (!committed || migratedChangelogs.isEmpty()) {
+			return;
+		}
+
+		try {
+
+			ChangelogStore.getInstance().insert(migratedChangelogs);
+
+		} catch (Throwable t) {
+			logger.warn("", t);
+		}
+
+		migratedChangelogs.clear();
+	}
+
+	public void addMigratedChangelog(final String uuid, final String changelog) {
+		migratedChangelogs.put(uuid, changelog);
+	}
+
 	public void clear() {
 
 		// clear collections afterwards
@@ -240,8 +336,8 @@ public class ModificationQueue {
 	public void modify(final Principal user, final NodeInterface node, final PropertyKey key, final Object previousValue, final Object newValue) {
 		getState(node).modify(user, key, previousValue, newValue);
 
-		if (key != null&& key.requiresSynchronization()) {
-			synchronizationKeys.add(key.getSynchronizationKey());
+		if (key != null && key.requiresSynchronization()) {
+			addSynchronizationKey(node, key);
 		}
 	}
 
@@ -249,7 +345,7 @@ public class ModificationQueue {
 		getState(relationship).modify(user, key, previousValue, newValue);
 
 		if (key != null && key.requiresSynchronization()) {
-			synchronizationKeys.add(key.getSynchronizationKey());
+			addSynchronizationKey(relationship, key);
 		}
 	}
 
@@ -407,7 +503,234 @@ public class ModificationQueue {
 
 	}
 
+	/**
+	 * Returns the type labels of all nodes that were created, deleted or
+	 * had their properties modified in this transaction, including the
+	 * labels of the previous type of nodes whose type was changed.
+	 *
+	 * @return the type labels of the modified nodes
+	 */
+	public Set<String> getModifiedTypeLabels() {
+
+		final Set<String> labels = new LinkedHashSet<>();
+
+		for (final GraphObjectModificationState state : modifications.values()) {
+
+			// relationship changes only mark their end nodes as modified
+			if (state.isNode() && (state.isCreated() || state.isDeleted() || !state.getRemovedProperties().isEmpty())) {
+
+				addTypeLabels(labels, state);
+			}
+		}
+
+		return labels;
+	}
+
+	/**
+	 * Updates the trigram index entries of all trigram indexed keys of
+	 * nodes that were created or modified in this queue. Properties that
+	 * are set in bulk (see GraphObject.setProperties) are not indexed by
+	 * their property key, so the trigram index is maintained here for
+	 * every change. This method must be called before the transaction
+	 * is committed.
+	 */
+	public void updateTrigrams() {
+
+		for (final GraphObjectModificationState state : modifications.values()) {
+
+			if (state.isNode() && !state.isDeleted() && state.getGraphObject() instanceof AbstractNode) {
+
+				final AbstractNode node = (AbstractNode)state.getGraphObject();
+
+				if (state.isCreated()) {
+
+					node.updateTrigrams(StructrApp.getConfiguration().getPropertySet(node.getClass(), PropertyView.All));
+
+				} else if (!state.getRemovedProperties().isEmpty()) {
+
+					node.updateTrigrams(state.getRemovedProperties().keySet());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Increments the change counters of the types of all nodes and
+	 * relationships that were modified in this queue, and the security
+	 * change counter if group memberships, ownerships or security
+	 * relationships were modified. This method must be called after the
+	 * transaction was committed, so that a reader that sees the new
+	 * counter value also sees the modifications.
+	 */
+	public void updateChangeCounters() {
+
+		final Set<String> labels = new LinkedHashSet<>();
+		boolean security         = false;
+
+		for (final GraphObjectModificationState state : modifications.values()) {
+
+			addTypeLabels(labels, state);
+
+			security |= isSecurityRelevant(state);
+		}
+
+		for (final String label : labels) {
+
+			changeCounters.computeIfAbsent(label, k -> new AtomicLong()).incrementAndGet();
+		}
+
+		if (security) {
+			securityChangeCounter.incrementAndGet();
+		}
+
+		if (untracked) {
+			untrackedChangeCounter.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Marks this queue as belonging to a transaction that contains writes
+	 * which are not recorded in the queue.
+	 */
+	public void untrackedModification() {
+		untracked = true;
+	}
+
+	/**
+	 * Invalidates all change counters. Writes that bypass the modification
+	 * queue (Cypher statements, bulk maintenance commands) must call this
+	 * method after they were committed, because the types they modified
+	 * are not known. Writes inside of a transaction should use
+	 * {@link TransactionCommand#untrackedModification()} instead. Writes
+	 * that use the database driver directly are not covered.
+	 */
+	public static void invalidateChangeCounters() {
+		untrackedChangeCounter.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of committed transactions that modified objects
+	 * of the given type (or one of its subtypes) since the start of this
+	 * instance.
+	 *
+	 * @param typeLabel the simple name of the type
+	 * @return the change counter of the given type
+	 */
+	public static long getChangeCounter(final String typeLabel) {
+
+		final AtomicLong counter = changeCounters.get(typeLabel);
+		if (counter != null) {
+
+			return counter.get();
+		}
+
+		return 0L;
+	}
+
+	/**
+	 * Returns the number of committed transactions that modified group
+	 * memberships, ownerships or security relationships, which change
+	 * the visibility of objects of all types.
+	 *
+	 * @return the security change counter
+	 */
+	public static long getSecurityChangeCounter() {
+		return securityChangeCounter.get();
+	}
+
+	/**
+	 * Returns the number of writes that bypassed the modification queue
+	 * and can have modified objects of any type.
+	 *
+	 * @return the untracked change counter
+	 */
+	public static long getUntrackedChangeCounter() {
+		return untrackedChangeCounter.get();
+	}
+
+	/**
+	 * Returns the start time of the change counters, so that counter
+	 * values from before a restart can be told apart.
+	 *
+	 * @return the epoch of the change counters
+	 */
+	public static long getChangeCounterEpoch() {
+		return changeCounterEpoch;
+	}
+
 	// ----- private methods -----
+	private void addSynchronizationKey(final GraphObject obj, final PropertyKey key) {
+
+		if (key.isCompound()) {
+
+			synchronizationKeys.add(key.getSynchronizationKey());
+
+		} else {
+
+			uniqueProperties.computeIfAbsent(obj, k -> new LinkedHashSet<>()).add(key);
+		}
+	}
+
+	private void addTypeLabels(final Set<String> labels, final GraphObjectModificationState state) {
+
+		labels.addAll(TypeProperty.getLabelsForType(state.getGraphObject().getClass()));
+
+		// a type change affects the labels of the previous and the new type
+		if (state.getRemovedProperties().containsKey(GraphObject.type)) {
+
+			addLabelsForType(labels, state.getRemovedProperties().get(GraphObject.type));
+			addLabelsForType(labels, state.getModifiedProperties().get(GraphObject.type));
+			addLabelsForType(labels, state.getNewProperties().get(GraphObject.type));
+		}
+	}
+
+	private boolean isSecurityRelevant(final GraphObjectModificationState state) {
+
+		if (state.isNode()) {
+
+			// admin flags change the visibility of all objects for a principal
+			if (state.getGraphObject() instanceof Principal) {
+
+				for (final PropertyKey key : state.getRemovedProperties().keySet()) {
+
+					if ("isAdmin".equals(key.jsonName())) {
+						return true;
+					}
+				}
+			}
+
+			return false;
+		}
+
+		final RelationshipType relType = state.getRelationshipType();
+		if (RelType.OWNS.equals(relType) || RelType.SECURITY.equals(relType)) {
+			return true;
+		}
+
+		// group memberships connect two principals
+		final GraphObject obj = state.getGraphObject();
+		if (obj instanceof Relation) {
+
+			final Relation relation = (Relation)obj;
+
+			return Principal.class.isAssignableFrom(relation.getSourceType()) && Principal.class.isAssignableFrom(relation.getTargetType());
+		}
+
+		return false;
+	}
+
+	private void addLabelsForType(final Set<String> labels, final Object typeName) {
+
+		if (typeName instanceof String) {
+
+			final Class type = StructrApp.getConfiguration().getNodeEntityClass((String)typeName);
+			if (type != null) {
+
+				labels.addAll(TypeProperty.getLabelsForType(type));
+			}
+		}
+	}
+
 	private void modifyEndNodes(final Principal user, final NodeInterface startNode, final NodeInterface endNode, final RelationshipType relType) {
 
 		// only modify if nodes are accessible
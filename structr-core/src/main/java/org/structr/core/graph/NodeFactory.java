@@ -19,9 +19,12 @@
 package org.structr.core.graph;
 
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.graph.Node;
@@ -31,6 +34,9 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.relationship.NodeHasLocation;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.RelationProperty;
+import org.structr.schema.ConfigurationProvider;
 
 //~--- classes ----------------------------------------------------------------
 
@@ -108,7 +114,7 @@ public class NodeFactory<T extends NodeInterface & AccessControllable> extends F
 		newNode.onNodeInstantiation(isCreation);
 
 		// check access
-		if (isCreation || securityContext.isReadable(newNode, factoryProfile.includeDeletedAndHidden(), factoryProfile.publicOnly())) {
+		if (isCreation || skipReadPermissionCheck || securityContext.isReadable(newNode, factoryProfile.includeDeletedAndHidden(), factoryProfile.publicOnly())) {
 
 			return newNode;
 		}
@@ -150,6 +156,57 @@ public class NodeFactory<T extends NodeInterface & AccessControllable> extends F
 
 	}
 
+	/**
+	 * Loads the relationships of all relation properties in the current
+	 * property view for the given nodes with a single query, so that the
+	 * serialization of the result doesn't need one query per node and
+	 * property.
+	 *
+	 * @param nodes
+	 */
+	@Override
+	protected void prefetch(final List<T> nodes) {
+
+		final SecurityContext securityContext = factoryProfile.getSecurityContext();
+		final String view                     = securityContext.getPropertyView();
+
+		if (view == null || nodes.isEmpty()) {
+			return;
+		}
+
+		final ConfigurationProvider config   = StructrApp.getConfiguration();
+		final Set<String> relationshipTypes  = new LinkedHashSet<>();
+		final Set<Class> types               = new LinkedHashSet<>();
+		final List<Long> nodeIds             = new ArrayList<>(nodes.size());
+
+		for (final T node : nodes) {
+
+			if (node != null) {
+
+				types.add(node.getClass());
+				nodeIds.add(node.getNode().getId());
+			}
+		}
+
+		for (final Class type : types) {
+
+			for (final PropertyKey key : config.getPropertySet(type, view)) {
+
+				final String name = key.jsonName();
+
+				if (key instanceof RelationProperty && (!securityContext.hasCustomView() || securityContext.getCustomView().contains(name)) && (!securityContext.hasFieldset() || securityContext.getFieldset().contains(name))) {
+
+					relationshipTypes.add(((RelationProperty)key).getRelation().name());
+				}
+			}
+		}
+
+		if (!relationshipTypes.isEmpty()) {
+
+			StructrApp.getInstance(securityContext).getDatabaseService().prefetchRelationships(nodeIds, relationshipTypes);
+		}
+	}
+
 	/**
 	 * Return all nodes which are connected by an incoming IS_AT relationships
 	 *
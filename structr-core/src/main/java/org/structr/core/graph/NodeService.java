@@ -125,6 +125,11 @@ public class NodeService implements SingletonService {
 		}
 
 		importSeedFile(basePath);
+
+		// build the changelog index now instead of in the first transaction
+		if (Settings.ChangelogEnabled.getValue()) {
+			ChangelogStore.getInstance();
+		}
 	}
 
 	@Override
@@ -19,9 +19,17 @@
 package org.structr.core.graph;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -44,9 +52,11 @@ public abstract class NodeServiceCommand extends Command {
 
 	private static final Logger logger                        = LoggerFactory.getLogger(NodeServiceCommand.class.getName());
 	private static final ArrayBlockingQueue<String> uuidQueue = new ArrayBlockingQueue<>(100000);
+	private static final int MAX_BATCH_RETRIES                = 3;
 
 	protected SecurityContext securityContext = null;
 	private Writable logWritable              = null;
+	private int threadCount                   = 1;
 
 	@Override
 	public Class getServiceClass()	{
@@ -86,6 +96,10 @@ public abstract class NodeServiceCommand extends Command {
 	 */
 	public <T> long bulkGraphOperation(final SecurityContext securityContext, final Iterator<T> iterator, final long commitCount, String description, final BulkGraphOperation<T> operation, boolean validation) {
 
+		if (threadCount > 1) {
+			return parallelBulkGraphOperation(securityContext, iterator, commitCount, description, operation);
+		}
+
 		final Predicate<Long> condition = operation.getCondition();
 		final App app                   = StructrApp.getInstance(securityContext);
 		final boolean doValidation      = operation.doValidation();
@@ -136,6 +150,147 @@ public abstract class NodeServiceCommand extends Command {
 		return objectCount;
 	}
 
+	/**
+	 * Executes the given operation on all nodes in the given list, using
+	 * the configured number of worker threads. The source is split into
+	 * consecutive partitions of commitCount objects that are read in the
+	 * calling thread and processed in a separate transaction each. Failed
+	 * partitions are retried up to MAX_BATCH_RETRIES times before the
+	 * failure is reported.
+	 *
+	 * @param <T>
+	 * @param securityContext
+	 * @param iterator the iterator that provides the nodes to operate on
+	 * @param commitCount
+	 * @param description
+	 * @param operation the operation to execute
+	 * @return the number of nodes processed
+	 */
+	private <T> long parallelBulkGraphOperation(final SecurityContext securityContext, final Iterator<T> iterator, final long commitCount, final String description, final BulkGraphOperation<T> operation) {
+
+		final Predicate<Long> condition  = operation.getCondition();
+		final App app                    = StructrApp.getInstance(securityContext);
+		final AtomicInteger threadNumber = new AtomicInteger();
+		final ExecutorService executor   = Executors.newFixedThreadPool(threadCount, r -> new Thread(r, "BulkGraphOperation-" + threadNumber.incrementAndGet()));
+		final Semaphore pending          = new Semaphore(threadCount * 2);
+		final AtomicLong processed       = new AtomicLong();
+		long objectCount                 = 0L;
+		int partition                    = 0;
+
+		if (description != null) {
+			info("{}: using {} threads", description, threadCount);
+		}
+
+		try {
+
+			while (true) {
+
+				final List<T> objects = new ArrayList<>((int)Math.min(commitCount, 10000));
+
+				// read the next partition in a transaction of its own
+				try (final Tx tx = app.tx(false, false, false)) {
+
+					while (objects.size() < commitCount && iterator.hasNext() && (condition == null || condition.accept(objectCount))) {
+
+						objects.add(iterator.next());
+						objectCount++;
+					}
+
+					tx.success();
+
+				} catch (Throwable t) {
+
+					operation.handleTransactionFailure(securityContext, t);
+					break;
+				}
+
+				if (objects.isEmpty()) {
+					break;
+				}
+
+				// limit the number of partitions that are held in memory
+				pending.acquireUninterruptibly();
+
+				final int number = ++partition;
+
+				executor.submit(() -> {
+
+					try {
+
+						processPartition(securityContext, app, objects, number, description, operation);
+
+						final long count = processed.addAndGet(objects.size());
+						if (description != null) {
+							info("{}: partition {} done, {} objects processed", description, number, count);
+						}
+
+					} finally {
+
+						pending.release();
+					}
+				});
+			}
+
+		} finally {
+
+			executor.shutdown();
+
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+			} catch (InterruptedException iex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		return objectCount;
+	}
+
+	private <T> void processPartition(final SecurityContext securityContext, final App app, final List<T> objects, final int partition, final String description, final BulkGraphOperation<T> operation) {
+
+		final boolean doValidation    = operation.doValidation();
+		final boolean doCallbacks     = operation.doCallbacks();
+		final boolean doNotifications = operation.doNotifications();
+		int attempt                   = 0;
+
+		while (true) {
+
+			try (final Tx tx = app.tx(doValidation, doCallbacks, doNotifications)) {
+
+				for (final T object : objects) {
+
+					try {
+
+						operation.handleGraphObject(securityContext, object);
+
+					} catch (Throwable t) {
+
+						operation.handleThrowable(securityContext, t, object);
+					}
+				}
+
+				// bulk operations can modify objects without modification events
+				TransactionCommand.untrackedModification();
+
+				tx.success();
+
+				return;
+
+			} catch (Throwable t) {
+
+				// the initial attempt is followed by up to MAX_BATCH_RETRIES retries
+				if (attempt++ >= MAX_BATCH_RETRIES) {
+
+					// bulk transaction failed, what to do?
+					operation.handleTransactionFailure(securityContext, t);
+					return;
+				}
+
+				warn("{}: partition {} failed, retrying ({}/{}): {}", description, partition, attempt, MAX_BATCH_RETRIES, t.getMessage());
+			}
+		}
+	}
+
 	/**
 	 * Executes the given transaction until the stop condition evaluates to
 	 * <b>true</b>.
@@ -190,6 +345,33 @@ public abstract class NodeServiceCommand extends Command {
 		this.logWritable = writable;
 	}
 
+	/**
+	 * Sets the number of threads that bulk graph operations of this
+	 * command use, from the optional "threads" parameter of a
+	 * maintenance call.
+	 *
+	 * @param attributes the parameters of the maintenance call
+	 */
+	public void setThreadCount(final Map<String, Object> attributes) {
+
+		final Object value = attributes.get("threads");
+		if (value instanceof Number) {
+
+			this.threadCount = Math.max(1, ((Number)value).intValue());
+
+		} else if (value != null) {
+
+			try {
+
+				this.threadCount = Math.max(1, Integer.parseInt(value.toString()));
+
+			} catch (NumberFormatException nex) {
+
+				warn("Invalid value for parameter threads: {}", value);
+			}
+		}
+	}
+
 	// ----- protected methods -----
 	protected void info(final String msg, final Object... data) {
 
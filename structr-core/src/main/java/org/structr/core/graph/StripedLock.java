@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that synchronization keys are mapped to by their
+ * hash code, so that the number of locks does not grow with the number
+ * of keys.
+ *
+ * Locks are always acquired in ascending order, so that two threads that
+ * acquire overlapping sets of keys cannot deadlock.
+ */
+public class StripedLock {
+
+	private ReentrantLock[] stripes = null;
+
+	public StripedLock(final int count) {
+
+		this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, count) * 2 - 1)];
+
+		for (int i=0; i<stripes.length; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Acquires the locks for the given keys and returns the indexes of
+	 * the acquired locks, which must be passed to release().
+	 *
+	 * @param keys
+	 *
+	 * @return the indexes of the acquired locks, or null if no locks were acquired
+	 *
+	 * @throws InterruptedException
+	 */
+	public int[] acquire(final Set<String> keys) throws InterruptedException {
+
+		if (keys == null || keys.isEmpty()) {
+			return null;
+		}
+
+		final int[] indexes = keys.stream().mapToInt(this::stripe).distinct().sorted().toArray();
+		int locked          = 0;
+
+		try {
+
+			for (final int index : indexes) {
+
+				stripes[index].lockInterruptibly();
+				locked++;
+			}
+
+		} catch (InterruptedException iex) {
+
+			for (int i=locked-1; i>=0; i--) {
+				stripes[indexes[i]].unlock();
+			}
+
+			throw iex;
+		}
+
+		return indexes;
+	}
+
+	public void release(final int[] indexes) {
+
+		if (indexes != null) {
+
+			for (int i=indexes.length-1; i>=0; i--) {
+				stripes[indexes[i]].unlock();
+			}
+		}
+	}
+
+	// ----- private methods -----
+	private int stripe(final String key) {
+
+		final int hash = key.hashCode();
+
+		return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+	}
+}
@@ -25,6 +25,8 @@ import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.ConstraintViolationException;
+import org.structr.api.DataFormatException;
 import org.structr.api.DatabaseService;
 import org.structr.api.NetworkException;
 import org.structr.api.NotInTransactionException;
@@ -53,7 +55,8 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 	private static final ThreadLocal<ErrorBuffer> buffers               = new ThreadLocal<>();
 	private static final ThreadLocal<TransactionCommand> currentCommand = new ThreadLocal<>();
 	private static final ThreadLocal<TransactionReference> transactions = new ThreadLocal<>();
-	private static final MultiSemaphore                    semaphore    = new MultiSemaphore();
+	private static final ThreadLocal<int[]> lockedStripes               = new ThreadLocal<>();
+	private static final StripedLock locks                              = new StripedLock(1024);
 
 	public TransactionCommand beginTx() throws FrameworkException {
 
@@ -109,15 +112,21 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 				throw new FrameworkException(422, "Unable to commit transaction, validation failed", errorBuffer);
 			}
 
-			// 2. fetch all types of entities modified in this tx
+			// 2. fetch the unique keys and values modified in this tx
 			Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
 
+			// write pending changes before entering the protected section so
+			// that database locks are not acquired while holding a lock
+			tx.flush();
+
 			// we need to protect the validation and indexing part of every transaction
 			// from being entered multiple times in the presence of validators
-			// 3. acquire semaphores for each modified type
-			try { semaphore.acquire(synchronizationKeys); } catch (InterruptedException iex) { return; }
+			// 3. acquire locks for each modified unique key and value
+			if (lockedStripes.get() == null) {
+				try { lockedStripes.set(locks.acquire(synchronizationKeys)); } catch (InterruptedException iex) { return; }
+			}
 
-			// do validation under the protection of the semaphores for each type
+			// do validation under the protection of the locks
 			if (doValidation && !modificationQueue.doValidation(securityContext, errorBuffer, doValidation)) {
 
 				tx.failure();
@@ -133,9 +142,30 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 				throw new FrameworkException(422, "Unable to commit transaction, transaction post processing failed", errorBuffer);
 			}
 
+			// the trigram index is not updated when properties are set in bulk
+			modificationQueue.updateTrigrams();
+
 			try {
 				tx.success();
 
+			} catch (DataFormatException dex) {
+
+				// pending property changes are written when the transaction is
+				// marked successful, so a constraint violation can occur here
+				tx.failure();
+				throw new FrameworkException(422, dex.getMessage());
+
+			} catch (ConstraintViolationException cex) {
+
+				tx.failure();
+				throw new FrameworkException(422, cex.getMessage());
+
+			} catch (RuntimeException rex) {
+
+				// retry and network exceptions must reach the caller
+				tx.failure();
+				throw rex;
+
 			} catch (Throwable t) {
 				logger.error("Unable to commit transaction", t);
 			}
@@ -153,21 +183,39 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 				modificationQueue = queues.get();
 
-				final Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
+				final int[] stripes = lockedStripes.get();
 
 				// cleanup
 				queues.remove();
 				buffers.remove();
 				currentCommand.remove();
 				transactions.remove();
+				lockedStripes.remove();
 
 				try {
 					tx.close();
 
 				} finally {
 
-					// release semaphores as the transaction is now finished
-					semaphore.release(synchronizationKeys);	// careful: this can be null
+					// release locks as the transaction is now finished
+					locks.release(stripes);
+				}
+
+				// cached query results for the modified types are no longer valid
+				final DatabaseService graphDb = (DatabaseService)arguments.get("graphDb");
+				if (graphDb != null) {
+
+					final Set<String> modifiedTypeLabels = modificationQueue.getModifiedTypeLabels();
+					if (!modifiedTypeLabels.isEmpty()) {
+
+						graphDb.invalidateQueryCache(modifiedTypeLabels);
+					}
+				}
+
+				// conditional REST requests compare the change counters of the modified types
+				if (tx.isSuccessful()) {
+					modificationQueue.setCommitted();
+					modificationQueue.updateChangeCounters();
 				}
 
 			} else {
@@ -236,6 +284,62 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 	}
 
+	/**
+	 * Marks the current transaction as containing writes that bypass the
+	 * modification queue, e.g. Cypher statements, so that all change
+	 * counters are invalidated when the transaction was committed.
+	 */
+	public static void untrackedModification() {
+
+		TransactionCommand command = currentCommand.get();
+		if (command != null) {
+
+			ModificationQueue modificationQueue = command.getModificationQueue();
+			if (modificationQueue != null) {
+
+				modificationQueue.untrackedModification();
+
+			} else {
+
+				logger.error("Got empty changeSet from command!");
+			}
+
+		} else {
+
+			// no enclosing transaction, the write is committed already
+			ModificationQueue.invalidateChangeCounters();
+		}
+	}
+
+	/**
+	 * Registers the given changelog that was migrated from the structrChangeLog
+	 * property, it is written to the changelog store after the current
+	 * transaction was committed.
+	 *
+	 * @param uuid
+	 * @param changelog
+	 */
+	public static void changelogMigrated(final String uuid, final String changelog) {
+
+		TransactionCommand command = currentCommand.get();
+		if (command != null) {
+
+			ModificationQueue modificationQueue = command.getModificationQueue();
+			if (modificationQueue != null) {
+
+				modificationQueue.addMigratedChangelog(uuid, changelog);
+
+			} else {
+
+				logger.error("Got empty changeSet from command!");
+			}
+
+		} else {
+
+			logger.error("Changelog migrated while outside of transaction!");
+		}
+	}
+
 	public static void nodeCreated(final Principal user, final NodeInterface node) {
 
 		TransactionCommand command = currentCommand.get();
@@ -368,6 +472,7 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 	public static void removeTransactionListener(final StructrTransactionListener listener) {
 		listeners.remove(listener);
+		TransactionEventDispatcher.getInstance().remove(listener);
 	}
 
 	public static Set<StructrTransactionListener> getTransactionListeners() {
@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.common.SecurityContext;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.TransactionSource;
+import org.structr.core.app.StructrApp;
+
+/**
+ * Hands the modification events of committed transactions to transaction
+ * listeners on dedicated threads, so that the committing thread does not
+ * wait for the listeners.
+ *
+ * Every listener has its own bounded queue and a single worker thread,
+ * so the events are delivered to each listener in commit order. When the
+ * queue of a listener is full, the overflow policy decides whether the
+ * committing thread waits ("block"), the new batch is dropped ("drop")
+ * or the oldest batch in the queue is dropped ("drop_oldest").
+ */
+public class TransactionEventDispatcher {
+
+	private static final Logger logger                        = LoggerFactory.getLogger(TransactionEventDispatcher.class.getName());
+	private static final TransactionEventDispatcher instance  = new TransactionEventDispatcher(Settings.ListenerQueueSize.getValue(), Settings.ListenerOverflow.getValue());
+
+	private final Map<StructrTransactionListener, Channel> channels = new ConcurrentHashMap<>();
+	private String policy                                           = null;
+	private int capacity                                            = 0;
+
+	public TransactionEventDispatcher(final int capacity, final String policy) {
+
+		this.capacity = Math.max(1, capacity);
+		this.policy   = policy;
+	}
+
+	public static TransactionEventDispatcher getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Queues the given modification events for the given listener.
+	 *
+	 * @param listener
+	 * @param securityContext
+	 * @param modificationEvents
+	 * @param source
+	 */
+	public void dispatch(final StructrTransactionListener listener, final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+		channels.computeIfAbsent(listener, Channel::new).offer(new Batch(securityContext, modificationEvents, source));
+	}
+
+	/**
+	 * Stops the worker thread of the given listener. Queued events that
+	 * were not delivered yet are discarded.
+	 *
+	 * @param listener
+	 */
+	public void remove(final StructrTransactionListener listener) {
+
+		final Channel channel = channels.remove(listener);
+		if (channel != null) {
+
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the queue depth and the number of delivered and dropped
+	 * batches for each listener.
+	 *
+	 * @return a map with the statistics of each listener
+	 */
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+
+		for (final Channel channel : channels.values()) {
+			statistics.put(channel.name, channel.getStatistics());
+		}
+
+		return statistics;
+	}
+
+	/**
+	 * Returns a security context for the user of the given context that
+	 * can be used by a listener thread without affecting the committing
+	 * thread. The request and the session id are kept, the session id is
+	 * resolved now because the session of a finished request can not be
+	 * looked up any more.
+	 *
+	 * @param securityContext
+	 *
+	 * @return a new security context
+	 */
+	public static SecurityContext detach(final SecurityContext securityContext) {
+
+		if (securityContext == null) {
+			return null;
+		}
+
+		final HttpServletRequest request = securityContext.getRequest();
+		final SecurityContext detached;
+
+		if (securityContext.isSuperUser()) {
+
+			detached = SecurityContext.getSuperUserInstance(request);
+
+		} else {
+
+			detached = SecurityContext.getInstance(securityContext.getCachedUser(), request, securityContext.getAccessMode());
+		}
+
+		detached.setSessionId(securityContext.getSessionId());
+
+		return detached;
+	}
+
+	/**
+	 * Returns snapshots of the given modification events that can be read
+	 * by a listener thread after the committing transaction is finished.
+	 *
+	 * @param modificationEvents
+	 *
+	 * @return the detached modification events
+	 */
+	public static Collection<ModificationEvent> detach(final Collection<ModificationEvent> modificationEvents) {
+
+		final List<ModificationEvent> detached = new ArrayList<>(modificationEvents.size());
+
+		for (final ModificationEvent event : modificationEvents) {
+			detached.add(new DetachedModificationEvent(event));
+		}
+
+		return Collections.unmodifiableList(detached);
+	}
+
+	// ----- nested classes -----
+	private static class Batch {
+
+		private Collection<ModificationEvent> modificationEvents = null;
+		private SecurityContext securityContext                  = null;
+		private TransactionSource source                         = null;
+
+		public Batch(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+			this.modificationEvents = modificationEvents;
+			this.securityContext    = securityContext;
+			this.source             = source;
+		}
+	}
+
+	private class Channel implements Runnable {
+
+		private final AtomicInteger maxQueueSize        = new AtomicInteger();
+		private final LongAdder dispatched              = new LongAdder();
+		private final LongAdder dropped                 = new LongAdder();
+		private ArrayBlockingQueue<Batch> queue         = null;
+		private StructrTransactionListener listener     = null;
+		private Thread thread                           = null;
+		private String name                             = null;
+		private volatile boolean running                = true;
+
+		public Channel(final StructrTransactionListener listener) {
+
+			this.queue    = new ArrayBlockingQueue<>(capacity);
+			this.name     = listener.getClass().getName().substring(listener.getClass().getName().lastIndexOf('.') + 1);
+			this.listener = listener;
+			this.thread   = new Thread(this, "TransactionListener-" + name);
+
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		public void offer(final Batch batch) {
+
+			switch (policy) {
+
+				case "drop":
+					if (!queue.offer(batch)) {
+						dropped.increment();
+					}
+					break;
+
+				case "drop_oldest":
+					while (!queue.offer(batch)) {
+
+						if (queue.poll() != null) {
+							dropped.increment();
+						}
+					}
+					break;
+
+				default:
+					try {
+						queue.put(batch);
+
+					} catch (InterruptedException iex) {
+
+						dropped.increment();
+						Thread.currentThread().interrupt();
+					}
+					break;
+			}
+
+			maxQueueSize.accumulateAndGet(queue.size(), Math::max);
+		}
+
+		public void close() {
+
+			// the worker thread notices this within a second, interrupting it could break a running transaction
+			running = false;
+		}
+
+		public Map<String, Object> getStatistics() {
+
+			final Map<String, Object> statistics = new LinkedHashMap<>();
+
+			statistics.put("queueSize",    queue.size());
+			statistics.put("maxQueueSize", maxQueueSize.get());
+			statistics.put("capacity",     capacity);
+			statistics.put("policy",       policy);
+			statistics.put("dispatched",   dispatched.sum());
+			statistics.put("dropped",      dropped.sum());
+
+			return statistics;
+		}
+
+		@Override
+		public void run() {
+
+			while (running) {
+
+				try {
+
+					final Batch batch = queue.poll(1, TimeUnit.SECONDS);
+					if (batch == null) {
+
+						continue;
+					}
+
+					// listeners read the modified objects, so they need a transaction
+					try (final Tx tx = StructrApp.getInstance().tx(true, false, false)) {
+
+						listener.afterCommit(batch.securityContext, batch.modificationEvents, batch.source);
+
+						tx.success();
+
+					} catch (Throwable t) {
+
+						logger.warn("Exception in transaction listener {}: {}", name, t.getMessage());
+					}
+
+					dispatched.increment();
+
+				} catch (InterruptedException iex) {
+					break;
+				}
+			}
+		}
+	}
+}
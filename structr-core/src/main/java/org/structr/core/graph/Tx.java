@@ -78,7 +78,10 @@ public class Tx implements AutoCloseable {
 
 		if (success && guard.compareAndSet(false, true)) {
 
-			boolean retry  = true;
+			// notify listeners if desired, and allow this setting to be overriden locally AND remotely
+			final boolean notify = doCallbacks && modificationQueue != null && ((securityContext == null) ? doNotifications : doNotifications && securityContext.doTransactionNotifications());
+			boolean retry        = true;
+
 			while (retry) {
 
 				retry = false;
@@ -90,18 +93,18 @@ public class Tx implements AutoCloseable {
 
 						modificationQueue.doOuterCallbacks(securityContext);
 
-						// notify listeners if desired, and allow this setting to be overriden locally AND remotely
-						if ( (securityContext == null) ? doNotifications : doNotifications && securityContext.doTransactionNotifications() ) {
+						if (notify) {
 
 							final Collection<ModificationEvent> modificationEvents = modificationQueue.getModificationEvents();
+
 							for (final StructrTransactionListener listener : TransactionCommand.getTransactionListeners()) {
 
-								listener.afterCommit(securityContext, modificationEvents, cmd.getSource());
+								if (listener.isSynchronous()) {
+
+									listener.afterCommit(securityContext, modificationEvents, cmd.getSource());
+								}
 							}
 						}
-
-						modificationQueue.updateChangelog();
-						modificationQueue.clear();
 					}
 
 					tx.success();
@@ -111,6 +114,41 @@ public class Tx implements AutoCloseable {
 				}
 			}
 
+			// asynchronous listeners are notified once, after the outer callbacks were committed
+			if (notify) {
+
+				final TransactionEventDispatcher dispatcher = TransactionEventDispatcher.getInstance();
+				Collection<ModificationEvent> queuedEvents  = null;
+				SecurityContext queuedSecurityContext       = null;
+
+				for (final StructrTransactionListener listener : TransactionCommand.getTransactionListeners()) {
+
+					if (!listener.isSynchronous()) {
+
+						// the modification queue is cleared below, so asynchronous listeners get a snapshot
+						if (queuedEvents == null) {
+
+							queuedEvents          = TransactionEventDispatcher.detach(modificationQueue.getModificationEvents());
+							queuedSecurityContext = TransactionEventDispatcher.detach(securityContext);
+						}
+
+						dispatcher.dispatch(listener, queuedSecurityContext, queuedEvents, cmd.getSource());
+					}
+				}
+			}
+
+			// the changelog is written once, after the outer callbacks were committed
+			if (doCallbacks && modificationQueue != null) {
+
+				modificationQueue.updateChangelog();
+				modificationQueue.clear();
+
+			} else if (modificationQueue != null) {
+
+				// bulk operations run without callbacks, migrated changelogs are written nevertheless
+				modificationQueue.updateMigratedChangelogs();
+			}
+
 			guard.set(false);
 		}
 	}
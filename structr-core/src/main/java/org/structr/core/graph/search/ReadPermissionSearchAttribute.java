@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph.search;
+
+import java.util.Set;
+import org.structr.api.search.Occurrence;
+import org.structr.api.search.ReadPermissionQuery;
+import org.structr.core.GraphObject;
+
+/**
+ * Restricts a search to the nodes that are readable for the given
+ * principals, used in {@link SearchNodeCommand}.
+ */
+public class ReadPermissionSearchAttribute extends SearchAttribute<Set<Long>> implements ReadPermissionQuery {
+
+	public ReadPermissionSearchAttribute(final Set<Long> principalIds) {
+		super(Occurrence.REQUIRED, null, principalIds);
+	}
+
+	@Override
+	public String toString() {
+		return "ReadPermissionSearchAttribute(" + getValue() + ")";
+	}
+
+	@Override
+	public Class getQueryType() {
+		return ReadPermissionQuery.class;
+	}
+
+	@Override
+	public boolean isExactMatch() {
+		return true;
+	}
+
+	@Override
+	public boolean includeInResult(final GraphObject entity) {
+
+		// entities from other sources are checked when they are instantiated
+		return true;
+	}
+
+	// ----- interface ReadPermissionQuery -----
+	@Override
+	public Set<Long> getPrincipalIds() {
+		return getValue();
+	}
+}
@@ -22,11 +22,13 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 import org.structr.api.Predicate;
 import org.structr.api.search.Occurrence;
+import org.structr.api.search.QueryCursor;
 import org.structr.api.search.QueryPredicate;
 import org.structr.api.search.SortType;
 import org.structr.core.GraphObject;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.property.PropertyKey;
+import org.structr.schema.SchemaService;
 
 /**
  * Wrapper representing a part of a search query. All parts of a search query must have a search operator and a payload. The payload can be either a node attribute oder a group of serach attributes.
@@ -41,7 +43,11 @@ public abstract class SearchAttribute<T> extends NodeAttribute<T> implements Pre
  	private Set<GraphObject> result    = new LinkedHashSet<>();
 	private Occurrence occur           = null;
 	private PropertyKey sortKey        = null;
+	private QueryCursor cursor         = null;
 	private boolean sortDescending     = false;
+	private boolean streaming          = false;
+	private int offset                 = 0;
+	private int limit                  = -1;
 
 	public abstract boolean includeInResult(GraphObject entity);
 
@@ -89,6 +95,27 @@ public abstract class SearchAttribute<T> extends NodeAttribute<T> implements Pre
 		this.sortDescending = sortDescending;
 	}
 
+	public void setCursor(final QueryCursor cursor) {
+		this.cursor = cursor;
+	}
+
+	public void setStreaming(final boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Lets the database skip the given number of elements and return at
+	 * most limit elements.
+	 *
+	 * @param offset
+	 * @param limit
+	 */
+	public void setRange(final int offset, final int limit) {
+
+		this.offset = offset;
+		this.limit  = limit;
+	}
+
 	// ----- interface Predicate<GraphObject> -----
 	@Override
 	public boolean accept(final GraphObject obj) {
@@ -106,6 +133,19 @@ public abstract class SearchAttribute<T> extends NodeAttribute<T> implements Pre
 		return getKey().dbName();
 	}
 
+	@Override
+	public boolean isTrigramIndexed() {
+
+		final PropertyKey key = getKey();
+		if (key != null) {
+
+			// the index must not be used before all entries were created
+			return key.isTrigramIndexed() && SchemaService.isTrigramIndexComplete(key);
+		}
+
+		return false;
+	}
+
 	@Override
 	public Class getType() {
 
@@ -142,4 +182,24 @@ public abstract class SearchAttribute<T> extends NodeAttribute<T> implements Pre
 	public boolean sortDescending() {
 		return sortDescending;
 	}
+
+	@Override
+	public QueryCursor getCursor() {
+		return cursor;
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	@Override
+	public int getOffset() {
+		return offset;
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
 }
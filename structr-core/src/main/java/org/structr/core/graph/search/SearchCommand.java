@@ -26,15 +26,20 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.Predicate;
 import org.structr.api.QueryResult;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.index.Index;
 import org.structr.api.search.Occurrence;
+import org.structr.api.search.QueryCursor;
 import org.structr.common.GraphObjectComparator;
 import org.structr.common.PagingHelper;
+import org.structr.common.Permission;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.geo.GeoCodingResult;
@@ -44,6 +49,8 @@ import org.structr.core.Result;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.AbstractRelationship;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.SchemaRelationshipNode;
 import org.structr.core.graph.Factory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeServiceCommand;
@@ -64,8 +71,9 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	protected static final boolean INCLUDE_DELETED_AND_HIDDEN = true;
 	protected static final boolean PUBLIC_ONLY		  = false;
 
-	private static final Map<String, Set<String>> subtypeMapForType = new LinkedHashMap<>();
-	private static final Set<String> baseTypes                      = new LinkedHashSet<>();
+	private static final Map<String, Set<String>> subtypeMapForType     = new LinkedHashMap<>();
+	private static final Set<String> baseTypes                          = new LinkedHashSet<>();
+	private static final Map<Class, Boolean> customPermissionResolution = new ConcurrentHashMap<>();
 
 	public static final String LAT_LON_SEARCH_KEYWORD     = "latlon";
 	public static final String LOCATION_SEARCH_KEYWORD    = "location";
@@ -92,7 +100,9 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	private boolean includeDeletedAndHidden      = true;
 	private boolean sortDescending               = false;
 	private boolean doNotSort                    = false;
+	private boolean streaming                    = false;
 	private Class type                           = null;
+	private String cursor                        = null;
 	private int pageSize                         = Integer.MAX_VALUE;
 	private int page                             = 1;
 
@@ -107,9 +117,19 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			return Result.EMPTY_RESULT;
 		}
 
-		final Factory<S, T> factory  = getFactory(securityContext, includeDeletedAndHidden, publicOnly, pageSize, page);
-		boolean hasGraphSources      = false;
-		boolean hasSpatialSource     = false;
+		final QueryCursor queryCursor = parseCursor();
+
+		// a cursor replaces the page number, the result starts after the cursor
+		final int actualPage          = queryCursor != null ? 1 : page;
+		final Factory<S, T> factory   = getFactory(securityContext, includeDeletedAndHidden, publicOnly, pageSize, actualPage);
+		boolean hasGraphSources       = false;
+		boolean hasSpatialSource      = false;
+
+		if (queryCursor != null) {
+
+			// no need to count the elements after the current page
+			factory.ignoreResultCount();
+		}
 
 		if (securityContext.getUser(false) == null && !isRelationshipSearch()) {
 
@@ -128,6 +148,13 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			rootGroup.add(new PropertySearchAttribute(NodeInterface.deleted, true, Occurrence.FORBIDDEN, true));
 		}
 
+		// let the database filter the nodes that are not readable
+		final boolean readableOnly = addReadPermissionFilter();
+		if (readableOnly) {
+
+			factory.skipReadPermissionCheck();
+		}
+
 		// At this point, all search attributes are ready
 		final List<SourceSearchAttribute> sources    = new ArrayList<>();
 		boolean hasEmptySearchFields                 = false;
@@ -196,6 +223,22 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			}
 		}
 
+		if (queryCursor != null) {
+
+			// results that are filtered or sorted after the query cannot be continued with a cursor
+			if (hasEmptySearchFields || hasGraphSources || hasSpatialSource || hasRelationshipVisibilitySearch) {
+				throw new FrameworkException(400, "Paging with a cursor is not supported for this query");
+			}
+
+			rootGroup.setCursor(queryCursor);
+
+		} else if (streaming && !(hasEmptySearchFields || hasGraphSources || hasSpatialSource || hasRelationshipVisibilitySearch)) {
+
+			// the result is instantiated while it is serialized
+			factory.enableStreaming();
+			rootGroup.setStreaming(true);
+		}
+
 		// only do "normal" query if no other sources are present
 		// use filters to filter sources otherwise
 		if (!hasSpatialSource && !sources.isEmpty()) {
@@ -219,6 +262,15 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 					factory.disablePaging();
 				}
 
+				// the result contains readable nodes only, so the database can apply SKIP and LIMIT
+				if (readableOnly && !(hasEmptySearchFields || hasGraphSources || hasSpatialSource) && !rootGroup.isStreaming() && pageSize < Integer.MAX_VALUE && actualPage > 0) {
+
+					final Integer resultCount = securityContext.ignoreResultCount() || queryCursor != null ? null : (int)index.count(rootGroup);
+
+					rootGroup.setRange((actualPage - 1) * pageSize, pageSize);
+					factory.pagedByDatabase(resultCount);
+				}
+
 				// do query
 				final QueryResult hits = getIndex().query(rootGroup);
 				intermediateResult     = factory.instantiate(hits);
@@ -275,13 +327,182 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			Collections.sort(finalResult, new GraphObjectComparator(sortKey, sortDescending));
 
 			// return paged final result
-			return new Result(PagingHelper.subList(finalResult, pageSize, page), resultCount, true, false);
+			return new Result(PagingHelper.subList(finalResult, pageSize, actualPage), resultCount, true, false);
 
-		} else {
+		} else if (intermediateResult != null) {
 
 			// no filtering
-			return intermediateResult;
+			return addNextCursor(intermediateResult);
+		}
+
+		return intermediateResult;
+	}
+
+	/**
+	 * Restricts the query to the nodes that are readable in the current
+	 * security context, if the read permissions of all nodes of the
+	 * queried type can be resolved in the database. This is not the case
+	 * if permissions are propagated along domain relationships, if custom
+	 * permission queries are used or if a type overrides isGranted.
+	 *
+	 * @return whether the query result contains readable nodes only
+	 */
+	private boolean addReadPermissionFilter() {
+
+		if (isRelationshipSearch() || !Settings.QueryPermissions.getValue()) {
+			return false;
+		}
+
+		final Principal user = securityContext.getUser(false);
+		if (user == null) {
+
+			// the query is already restricted to public nodes
+			return true;
+		}
+
+		if (publicOnly) {
+
+			rootGroup.add(new PropertySearchAttribute(GraphObject.visibleToPublicUsers, true, Occurrence.REQUIRED, true));
+			return true;
+		}
+
+		if (securityContext.isSuperUser() || user.isAdmin()) {
+			return true;
+		}
+
+		if (!SchemaRelationshipNode.getPropagatingRelationshipTypes().isEmpty() || hasCustomPermissionResolution()) {
+			return false;
+		}
+
+		final Set<Long> principalIds = new LinkedHashSet<>();
+		if (collectPrincipalIds(user, principalIds)) {
+
+			rootGroup.add(new ReadPermissionSearchAttribute(principalIds));
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Collects the ids of the given principal and all of its parents.
+	 *
+	 * @return false if one of the principals uses a custom permission query
+	 */
+	private boolean collectPrincipalIds(final Principal principal, final Set<Long> principalIds) {
+
+		if (principalIds.add(principal.getId())) {
+
+			final PropertyKey<String> customPermissionQueryKey = StructrApp.getConfiguration().getPropertyKeyForJSONName(Principal.class, "customPermissionQueryRead");
+			if (StringUtils.isNotEmpty(principal.getProperty(customPermissionQueryKey))) {
+
+				return false;
+			}
+
+			for (final Principal parent : principal.getParents()) {
+
+				if (!collectPrincipalIds(parent, principalIds)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private boolean hasCustomPermissionResolution() {
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+
+		if (type != null) {
+
+			for (final String subtype : getAllSubtypesAsStringSet(type.getSimpleName())) {
+
+				final Class nodeType = config.getNodeEntityClass(subtype);
+				if (nodeType != null && hasCustomPermissionResolution(nodeType)) {
+
+					return true;
+				}
+			}
+
+		} else {
+
+			for (final Class nodeType : config.getNodeEntities().values()) {
+
+				if (hasCustomPermissionResolution(nodeType)) {
+
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean hasCustomPermissionResolution(final Class nodeType) {
+
+		if (nodeType.isInterface()) {
+			return false;
 		}
+
+		return customPermissionResolution.computeIfAbsent(nodeType, key -> {
+
+			try {
+
+				return !AbstractNode.class.equals(key.getMethod("isGranted", Permission.class, SecurityContext.class).getDeclaringClass());
+
+			} catch (NoSuchMethodException nsmex) {
+				return true;
+			}
+		});
+	}
+
+	private QueryCursor parseCursor() throws FrameworkException {
+
+		if (cursor != null) {
+
+			try {
+
+				return QueryCursor.decode(cursor);
+
+			} catch (IllegalArgumentException iex) {
+
+				throw new FrameworkException(400, iex.getMessage());
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Stores the position of the last element of a full result page in
+	 * the given result, so that the next page can be requested with a
+	 * cursor instead of a page number.
+	 */
+	private Result<T> addNextCursor(final Result<T> result) {
+
+		// the last element of a lazy result is not known yet
+		if (result.isLazy()) {
+			return result;
+		}
+
+		final List<T> results = result.getResults();
+
+		if (pageSize < Integer.MAX_VALUE && results != null && results.size() == pageSize) {
+
+			final T last                      = results.get(results.size() - 1);
+			final PropertyContainer container = last.getPropertyContainer();
+			final String key                  = rootGroup.getSortKey();
+
+			if (container != null) {
+
+				final Object value = container.hasProperty(key) ? container.getProperty(key) : null;
+
+				result.setNextCursor(new QueryCursor(container.getId(), value).encode());
+			}
+		}
+
+		return result;
 	}
 
 	private Set<GraphObject> mergeSources(List<SourceSearchAttribute> sources) {
@@ -410,6 +631,18 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		return this;
 	}
 
+	@Override
+	public org.structr.core.app.Query<T> cursor(final String cursor) {
+		this.cursor = cursor;
+		return this;
+	}
+
+	@Override
+	public org.structr.core.app.Query<T> streaming(final boolean streaming) {
+		this.streaming = streaming;
+		return this;
+	}
+
 	@Override
 	public org.structr.core.app.Query<T> publicOnly() {
 		this.publicOnly = true;
@@ -716,6 +949,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	// ----- static methods -----
 	public static synchronized void clearInheritanceMap() {
 		subtypeMapForType.clear();
+		customPermissionResolution.clear();
 	}
 
 	public static synchronized Set<String> getAllSubtypesAsStringSet(final String type) {
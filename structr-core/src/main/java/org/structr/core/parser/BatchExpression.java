@@ -36,10 +36,9 @@ public class BatchExpression extends Expression {
 
 	public static final String ERROR_MESSAGE_SLICE = "Usage: ${batch(statement, batchSize)}. Example: ${batch(delete(find('User')), 1000)}";
 
-	private Expression batchExpression = null;
-	private Expression sizeExpression  = null;
-	private boolean background         = false;
-	private int batchSize              = -1;
+	private final ThreadLocal<Integer> batchSize = new ThreadLocal<>();
+	private Expression batchExpression           = null;
+	private Expression sizeExpression            = null;
 
 	public BatchExpression() {
 		super("batch");
@@ -75,8 +74,7 @@ public class BatchExpression extends Expression {
 		final Object value = sizeExpression.evaluate(ctx, entity);
 		if (value != null && value instanceof Number) {
 
-			// store batch size for children to use
-			this.batchSize = ((Number)value).intValue();
+			final int size = ((Number)value).intValue();
 
 			// initialize holders to store results from worker thread (must be final)
 			final StaticValue<FrameworkException> exception = new StaticValue<>(null);
@@ -84,6 +82,10 @@ public class BatchExpression extends Expression {
 
 			final Thread workerThread = new Thread(() -> {
 
+				// store batch size for children to use, the children are evaluated in
+				// this thread, so concurrent evaluations of this expression don't interfere
+				batchSize.set(size);
+
 				try {
 					result.set(null, batchExpression.evaluate(ctx, entity));
 
@@ -122,6 +124,13 @@ public class BatchExpression extends Expression {
 
 	@Override
 	public int getBatchSize() {
-		return batchSize;
+
+		final Integer size = batchSize.get();
+		if (size != null) {
+
+			return size;
+		}
+
+		return -1;
 	}
 }
@@ -18,12 +18,11 @@
  */
 package org.structr.core.parser;
 
-import java.util.Random;
 import org.apache.commons.lang3.StringUtils;
+import org.structr.common.ValueCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.UnlicensedException;
 import org.structr.core.GraphObject;
-import org.structr.core.Services;
 import org.structr.schema.action.ActionContext;
 
 /**
@@ -103,55 +102,8 @@ public class CacheExpression extends Expression {
 
 		final long timeout = ((Number)timeoutValue).longValue();
 
-		// get or create new cached value
-		final Services services = Services.getInstance();
-		CachedValue cachedValue = (CachedValue)services.getAttribute(key);
-		if (cachedValue == null) {
-
-			cachedValue = new CachedValue(timeout);
-			services.setAttribute(key, cachedValue);
-
-		} else {
-
-			cachedValue.setTimeoutSeconds(timeout);
-		}
-
-		// refresh value from value expression (this is the only place the value expression is evaluated)
-		if (cachedValue.isExpired()) {
-			cachedValue.refresh(valueExpression.evaluate(ctx, entity));
-		}
-
-		return cachedValue.getValue();
-	}
-
-	private static final class CachedValue {
-
-		private Random random       = new Random(System.currentTimeMillis());
-		private Object value        = null;
-		private long timeoutSeconds = 0L;
-		private long timeout        = 0L;
-
-		public CachedValue(final long timeoutSeconds) {
-			setTimeoutSeconds(timeoutSeconds);
-		}
-
-		public final void setTimeoutSeconds(final long timeoutSeconds) {
-			this.timeoutSeconds = timeoutSeconds;
-		}
-
-		public final Object getValue() {
-			return value;
-		}
-
-		public final boolean isExpired() {
-			return System.currentTimeMillis() > timeout;
-		}
-
-		public final void refresh(final Object value) {
-
-			this.timeout = System.currentTimeMillis() + ((timeoutSeconds + random.nextInt(10)) * 1000);
-			this.value   = value;
-		}
+		// the value expression is only evaluated if the value is missing or expired
+		return ValueCache.getInstance().get(key, timeout, () -> valueExpression.evaluate(ctx, entity));
 	}
 
 	@Override
@@ -0,0 +1,387 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.property;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An insertion-ordered map of property keys to values that stores its
+ * entries in flat arrays. Small maps are searched linearly, larger maps
+ * use an open-addressing index of slot numbers, so no entry objects are
+ * allocated except for iteration over the entry set.
+ */
+public class CompactPropertyMap extends AbstractMap<PropertyKey, Object> {
+
+	private static final int INDEX_THRESHOLD = 8;
+
+	private PropertyKey[] keys = null;
+	private Object[] values    = null;
+	private int[] index        = null;
+	private int size           = 0;
+	private int modCount       = 0;
+
+	public CompactPropertyMap() {
+		this(4);
+	}
+
+	public CompactPropertyMap(final int initialCapacity) {
+
+		this.keys   = new PropertyKey[Math.max(1, initialCapacity)];
+		this.values = new Object[keys.length];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return slot(key) >= 0;
+	}
+
+	@Override
+	public Object get(final Object key) {
+
+		final int slot = slot(key);
+		if (slot >= 0) {
+
+			return values[slot];
+		}
+
+		return null;
+	}
+
+	@Override
+	public Object put(final PropertyKey key, final Object value) {
+
+		final int slot = slot(key);
+		if (slot >= 0) {
+
+			final Object previous = values[slot];
+			values[slot]          = value;
+
+			return previous;
+		}
+
+		if (size == keys.length) {
+
+			keys   = Arrays.copyOf(keys,   size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+
+		keys[size]   = key;
+		values[size] = value;
+
+		size++;
+		modCount++;
+
+		if (index != null && size * 2 <= index.length) {
+
+			insert(index, size - 1);
+
+		} else if (size > INDEX_THRESHOLD) {
+
+			rebuildIndex();
+		}
+
+		return null;
+	}
+
+	@Override
+	public Object remove(final Object key) {
+
+		final int slot = slot(key);
+		if (slot >= 0) {
+
+			final Object previous = values[slot];
+
+			removeSlot(slot);
+
+			return previous;
+		}
+
+		return null;
+	}
+
+	@Override
+	public void clear() {
+
+		Arrays.fill(keys,   0, size, null);
+		Arrays.fill(values, 0, size, null);
+
+		index = null;
+		size  = 0;
+
+		modCount++;
+	}
+
+	@Override
+	public Set<Entry<PropertyKey, Object>> entrySet() {
+		return new EntrySet();
+	}
+
+	// ----- private methods -----
+	private int slot(final Object key) {
+
+		final int hash = hash(key);
+
+		if (index != null) {
+
+			final int mask = index.length - 1;
+
+			for (int i = mix(hash) & mask; index[i] != 0; i = (i + 1) & mask) {
+
+				final int slot = index[i] - 1;
+
+				if (matches(keys[slot], hash, key)) {
+					return slot;
+				}
+			}
+
+			return -1;
+		}
+
+		for (int i=0; i<size; i++) {
+
+			if (matches(keys[i], hash, key)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private void removeSlot(final int slot) {
+
+		final int moved = size - slot - 1;
+		if (moved > 0) {
+
+			System.arraycopy(keys,   slot + 1, keys,   slot, moved);
+			System.arraycopy(values, slot + 1, values, slot, moved);
+		}
+
+		size--;
+		modCount++;
+
+		keys[size]   = null;
+		values[size] = null;
+
+		if (size > INDEX_THRESHOLD) {
+
+			rebuildIndex();
+
+		} else {
+
+			index = null;
+		}
+	}
+
+	private void rebuildIndex() {
+
+		int capacity = 16;
+		while (capacity < size * 4) {
+			capacity <<= 1;
+		}
+
+		final int[] newIndex = new int[capacity];
+
+		for (int i=0; i<size; i++) {
+			insert(newIndex, i);
+		}
+
+		index = newIndex;
+	}
+
+	private void insert(final int[] table, final int slot) {
+
+		final int mask = table.length - 1;
+		int i          = mix(hash(keys[slot])) & mask;
+
+		while (table[i] != 0) {
+			i = (i + 1) & mask;
+		}
+
+		table[i] = slot + 1;
+	}
+
+	private static boolean matches(final PropertyKey candidate, final int hash, final Object key) {
+		return candidate == key || (hash(candidate) == hash && Objects.equals(candidate, key));
+	}
+
+	private static int hash(final Object key) {
+		return key != null ? key.hashCode() : 0;
+	}
+
+	private static int mix(final int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	// ----- nested classes -----
+	private class EntrySet extends AbstractSet<Entry<PropertyKey, Object>> {
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void clear() {
+			CompactPropertyMap.this.clear();
+		}
+
+		@Override
+		public Iterator<Entry<PropertyKey, Object>> iterator() {
+
+			return new Iterator<Entry<PropertyKey, Object>>() {
+
+				private int expectedModCount = modCount;
+				private int next             = 0;
+				private int last             = -1;
+
+				@Override
+				public boolean hasNext() {
+					return next < size;
+				}
+
+				@Override
+				public Entry<PropertyKey, Object> next() {
+
+					checkModification();
+
+					if (next >= size) {
+						throw new NoSuchElementException();
+					}
+
+					last = next++;
+
+					return new SlotEntry(last);
+				}
+
+				@Override
+				public void remove() {
+
+					checkModification();
+
+					if (last < 0) {
+						throw new IllegalStateException();
+					}
+
+					removeSlot(last);
+
+					next             = last;
+					last             = -1;
+					expectedModCount = modCount;
+				}
+
+				private void checkModification() {
+
+					if (modCount != expectedModCount) {
+						throw new ConcurrentModificationException();
+					}
+				}
+			};
+		}
+	}
+
+	private class SlotEntry implements Map.Entry<PropertyKey, Object> {
+
+		private final PropertyKey key;
+		private int slot = 0;
+
+		public SlotEntry(final int slot) {
+
+			this.key  = keys[slot];
+			this.slot = slot;
+		}
+
+		@Override
+		public PropertyKey getKey() {
+			return key;
+		}
+
+		@Override
+		public Object getValue() {
+
+			return values[currentSlot()];
+		}
+
+		@Override
+		public Object setValue(final Object value) {
+
+			final int current     = currentSlot();
+			final Object previous = values[current];
+
+			values[current] = value;
+
+			return previous;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+
+			if (o instanceof Map.Entry) {
+
+				final Map.Entry other = (Map.Entry)o;
+
+				return Objects.equals(key, other.getKey()) && Objects.equals(getValue(), other.getValue());
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash(key) ^ hash(getValue());
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + getValue();
+		}
+
+		// ----- private methods -----
+		private int currentSlot() {
+
+			// entries stay valid when earlier entries are removed
+			if (slot >= size || keys[slot] != key) {
+
+				slot = slot(key);
+				if (slot < 0) {
+					throw new IllegalStateException("Entry was removed from map");
+				}
+			}
+
+			return slot;
+		}
+	}
+}
@@ -68,6 +68,7 @@ public abstract class Property<T> implements PropertyKey<T> {
 	protected boolean indexed                              = false;
 	protected boolean indexedPassively                     = false;
 	protected boolean indexedWhenEmpty                     = false;
+	protected boolean trigramIndexed                       = false;
 	protected boolean compound                             = false;
 	protected boolean unique                               = false;
 	protected boolean notNull                              = false;
@@ -209,6 +210,15 @@ public abstract class Property<T> implements PropertyKey<T> {
 		return this;
 	}
 
+	@Override
+	public Property<T> trigramIndexed() {
+
+		this.trigramIndexed = true;
+		this.indexed = true;
+
+		return this;
+	}
+
 	@Override
 	public Property<T> cmis() {
 
@@ -437,6 +447,11 @@ public abstract class Property<T> implements PropertyKey<T> {
 		return indexedWhenEmpty;
 	}
 
+	@Override
+	public boolean isTrigramIndexed() {
+		return trigramIndexed;
+	}
+
 	@Override
 	public boolean isCompound() {
 		return compound;
@@ -94,6 +94,15 @@ public interface PropertyKey<T> extends Comparable<PropertyKey> {
 
 	public Property<T> indexedWhenEmpty();
 
+	/**
+	 * Use this method to mark a string property for inexact search using
+	 * a trigram index. The property is indexed as well, and the trigram
+	 * index is used to narrow down the candidates of a CONTAINS search.
+	 *
+	 * @return the Property to satisfy the builder pattern
+	 */
+	public Property<T> trigramIndexed();
+
 	/**
 	 * Use this method to indicate that a property key is accessible via
 	 * CMIS.
@@ -237,6 +246,14 @@ public interface PropertyKey<T> extends Comparable<PropertyKey> {
 	 */
 	public boolean isIndexedWhenEmpty();
 
+	/**
+	 * Indicates whether this property has a trigram index for inexact
+	 * search.
+	 *
+	 * @return isTrigramIndexed
+	 */
+	public boolean isTrigramIndexed();
+
 	/**
 	 * Indicates whether this property represents a collection or a single
 	 * value in the JSON output.
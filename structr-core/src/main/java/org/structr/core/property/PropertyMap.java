@@ -59,19 +59,28 @@ public class PropertyMap {
 		CMIS_PROPERTY_MAPPING.put(PropertyIds.OBJECT_TYPE_ID, "type");
 	}
 
-	protected Map<PropertyKey, Object> properties = new LinkedHashMap<>();
+	protected Map<PropertyKey, Object> properties = null;
 
 	public PropertyMap() {
+		this.properties = new CompactPropertyMap();
+	}
+
+	public PropertyMap(final int initialCapacity) {
+		this.properties = new CompactPropertyMap(initialCapacity);
 	}
 
 	public PropertyMap(final PropertyMap source) {
 
+		this(source != null ? source.size() : 4);
+
 		putAll(source);
 
 	}
 
 	public <T> PropertyMap(final PropertyKey<T> key, final T value) {
 
+		this();
+
 		properties.put(key, value);
 
 	}
@@ -189,7 +198,7 @@ public class PropertyMap {
 	// ----- static methods -----
 	public static PropertyMap javaTypeToDatabaseType(SecurityContext securityContext, GraphObject wrapped, Map<String, Object> source) throws FrameworkException {
 
-		final PropertyMap resultMap = new PropertyMap();
+		final PropertyMap resultMap = new PropertyMap(source != null ? source.size() : 4);
 		final GraphObject entity    = unwrap(wrapped);
 
 		if (source != null) {
@@ -228,7 +237,7 @@ public class PropertyMap {
 
 	public static PropertyMap databaseTypeToJavaType(final SecurityContext securityContext, final GraphObject wrapped, final Map<String, Object> source) throws FrameworkException {
 
-		final PropertyMap resultMap = new PropertyMap();
+		final PropertyMap resultMap = new PropertyMap(source != null ? source.size() : 4);
 		final GraphObject entity    = unwrap(wrapped);
 		final Class entityType      = entity.getClass();
 
@@ -268,7 +277,7 @@ public class PropertyMap {
 
 	public static PropertyMap databaseTypeToJavaType(SecurityContext securityContext, Class<? extends GraphObject> entityType, Map<String, Object> source) throws FrameworkException {
 
-		PropertyMap resultMap = new PropertyMap();
+		PropertyMap resultMap = new PropertyMap(source != null ? source.size() : 4);
 
 		if (source != null) {
 
@@ -360,7 +369,7 @@ public class PropertyMap {
 			}
 		}
 
-		PropertyMap resultMap = new PropertyMap();
+		PropertyMap resultMap = new PropertyMap(source != null ? source.size() : 4);
 		if (source != null) {
 
 			// caution, source can be null when an empty nested property group is encountered!
@@ -198,6 +198,11 @@ public class Reference<T> implements PropertyKey<T> {
 		return propertyKey.isIndexedWhenEmpty();
 	}
 
+	@Override
+	public boolean isTrigramIndexed() {
+		return propertyKey.isTrigramIndexed();
+	}
+
 	@Override
 	public boolean isCollection() {
 		return propertyKey.isCollection();
@@ -281,6 +286,11 @@ public class Reference<T> implements PropertyKey<T> {
 		return propertyKey.indexedWhenEmpty();
 	}
 
+	@Override
+	public Property<T> trigramIndexed() {
+		return propertyKey.trigramIndexed();
+	}
+
 	@Override
 	public int getProcessingOrderPosition() {
 		return 0;
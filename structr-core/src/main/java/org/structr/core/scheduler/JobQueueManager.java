@@ -18,30 +18,72 @@
  */
 package org.structr.core.scheduler;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.common.error.FrameworkException;
 
+/**
+ * Runs scheduled jobs concurrently.
+ *
+ * The number of jobs that run at the same time is limited globally and
+ * per job type, queued jobs with a higher priority are started first.
+ * The number of transactions that all running jobs may have open at the
+ * same time is limited as well. There is no limit per job, because each
+ * job runs its transactions one after another.
+ */
 public class JobQueueManager {
 
+	private static final Logger logger               = LoggerFactory.getLogger(JobQueueManager.class.getName());
 	private static JobQueueManager singletonInstance = null;
 
+	private final Comparator<ScheduledJob> order      = Comparator.comparingInt((ScheduledJob job) -> -job.getPriority()).thenComparingLong(ScheduledJob::jobId);
 	private final Map<Long, ScheduledJob> queuedJobs  = new ConcurrentHashMap<>();
 	private final Map<Long, ScheduledJob> activeJobs  = new ConcurrentHashMap<>();
-	private final Queue<Long> jobIdQueue              = new ConcurrentLinkedDeque<>();
+	private final Map<String, Integer> workersPerType = new HashMap<>();
 	private final AtomicLong importJobIdCount         = new AtomicLong(0);
+	private Semaphore transactions                    = null;
+	private int workers                               = 1;
+
+	private JobQueueManager() {
+
+		this.workers = Math.max(1, Settings.JobWorkers.getValue());
+
+		final int maxTransactions = Settings.JobMaxTransactions.getValue();
+		if (maxTransactions > 0) {
+
+			this.transactions = new Semaphore(maxTransactions, true);
+		}
 
-	private JobQueueManager() { }
+		// format: TYPE:count[,TYPE:count...]
+		for (final String entry : Settings.JobWorkersPerType.getValue().split("[, ]+")) {
+
+			final String[] parts = entry.split(":");
+			if (parts.length == 2) {
+
+				try {
+					workersPerType.put(parts[0].trim(), Integer.valueOf(parts[1].trim()));
+
+				} catch (NumberFormatException nex) {
+					logger.warn("Invalid number of workers for job type {}: {}", parts[0], parts[1]);
+				}
+			}
+		}
+	}
 
 	/*
 	 * Public API
 	 */
-	public static JobQueueManager getInstance() {
+	public static synchronized JobQueueManager getInstance() {
 
 		if (singletonInstance == null) {
 			singletonInstance = new JobQueueManager();
@@ -57,37 +99,42 @@ public class JobQueueManager {
 			final Long jobId = importJobIdCount.incrementAndGet();
 			job.setJobId(jobId);
 
-			appendToQueueInternal(job);
-
-			if (!hasRunningJobs()) {
-
-				startNextJobInQueue();
+			// report before the job is visible to other threads that can start it
+			job.reportQueued();
 
-			} else {
+			queuedJobs.put(jobId, job);
 
-				job.reportQueued();
-
-			}
+			startQueuedJobs();
 		}
 	}
 
 	/**
-	 * Starts an import job if it exists. Returns true if it is started.
+	 * Starts an import job if it exists, regardless of the number of
+	 * running jobs. Returns true if it is started.
 	 *
 	 * @param jobId Job to start
 	 * @return boolean "job started"
 	 */
 	public boolean startJob(final Long jobId) {
 
-		final ScheduledJob job = removeFromQueueInternal(jobId);
+		final ScheduledJob job;
+
+		synchronized (this) {
+
+			job = queuedJobs.remove(jobId);
+			if (job != null) {
+
+				activeJobs.put(jobId, job);
+			}
+		}
 
 		if (job != null) {
-			activeJobs.put(jobId, job);
+
 			job.startJob();
 			return true;
-		} else {
-			return false;
 		}
+
+		return false;
 	}
 
 	public void pauseRunningJob(final Long jobId) {
@@ -103,7 +150,7 @@ public class JobQueueManager {
 	}
 
 	public void cancelQueuedJob(final Long jobId) {
-		removeFromQueueInternal(jobId);
+		queuedJobs.remove(jobId);
 	}
 
 	public List<Map<String, Object>> listJobs () {
@@ -114,79 +161,111 @@ public class JobQueueManager {
 			addJobToList(jobInfoList, job);
 		});
 
-		jobIdQueue.forEach((Long jobId) -> {
-			addJobToList(jobInfoList, queuedJobs.get(jobId));
+		getQueuedJobsInOrder().forEach((ScheduledJob job) -> {
+			addJobToList(jobInfoList, job);
 		});
 
 		return jobInfoList;
 	}
 
-	private void addJobToList (final List<Map<String, Object>> list, final ScheduledJob job) {
-		list.add(job.getJobInfo());
-	}
+	/**
+	 * Waits until the running jobs have less open transactions than the
+	 * configured maximum. Jobs must call this before they open a
+	 * transaction and call releaseTransaction() after it was closed.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void acquireTransaction() throws InterruptedException {
 
-	protected void jobFinished (final ScheduledJob job) {
+		if (transactions != null) {
+			transactions.acquire();
+		}
+	}
 
-		activeJobs.remove(job.jobId());
+	public void releaseTransaction() {
 
-		if (!hasRunningJobs()) {
-			startNextJobInQueue();
+		if (transactions != null) {
+			transactions.release();
 		}
+	}
+
+	private void addJobToList (final List<Map<String, Object>> list, final ScheduledJob job) {
+
+		final Map<String, Object> jobInfo = job.getJobInfo();
+
+		jobInfo.put("priority", job.getPriority());
 
+		list.add(jobInfo);
 	}
 
-	protected void jobAborted (final ScheduledJob job) {
+	protected void jobFinished (final ScheduledJob job) {
 
 		activeJobs.remove(job.jobId());
+		startQueuedJobs();
+	}
 
-		if (!hasRunningJobs()) {
-			startNextJobInQueue();
-		}
+	protected void jobAborted (final ScheduledJob job) {
 
+		activeJobs.remove(job.jobId());
+		startQueuedJobs();
 	}
 
 
 	//~--- private methods ----------------------------------------------------
 
-	private void appendToQueueInternal (final ScheduledJob job) {
-		jobIdQueue.add(job.jobId());
-		queuedJobs.put(job.jobId(), job);
-	}
+	private List<ScheduledJob> getQueuedJobsInOrder() {
+
+		final List<ScheduledJob> jobs = new ArrayList<>(queuedJobs.values());
 
-	private ScheduledJob removeFromQueueInternal (final Long jobId) {
-		jobIdQueue.remove(jobId);
-		return queuedJobs.remove(jobId);
+		jobs.sort(order);
+
+		return jobs;
 	}
 
-	private boolean hasRunningJobs() {
+	/**
+	 * Starts the queued jobs with the highest priority as long as there
+	 * are free workers for their type.
+	 *
+	 * @return the jobs that were started
+	 */
+	private List<ScheduledJob> startQueuedJobs() {
+
+		final List<ScheduledJob> started = new LinkedList<>();
 
-		// if any job is RUNNING or PAUSED, dont auto-start new tasks
-		return (!activeJobs.isEmpty());
+		synchronized (this) {
 
-//		// if any job is RUNNING, dont auto-start new tasks
-//		// this effectively means that if a user PAUSES a job, the queue is stopped BUT
-//		// if another job is queued or the last running job finishes, then the next queued job is started
-//		boolean hasRunningJob = false;
-//
-//		for (ImportJob job : activeJobs.values()) {
-//			if (job.getCurrentStatus().equals(ImportJob.JobStatus.RUNNING)) {
-//				hasRunningJob = true;
-//			}
-//		}
-//
-//		return hasRunningJob;
+			// if any job is RUNNING or PAUSED, it occupies a worker
+			final Map<String, Integer> running = new HashMap<>();
 
-	}
+			for (final ScheduledJob job : activeJobs.values()) {
+				running.merge(job.getJobType(), 1, Integer::sum);
+			}
+
+			for (final ScheduledJob job : getQueuedJobsInOrder()) {
 
-	private void startNextJobInQueue() {
-		final Long jobId = jobIdQueue.peek();
+				if (activeJobs.size() >= workers) {
+					break;
+				}
 
-		if (jobId != null) {
-			boolean didStart = startJob(jobId);
-			if (!didStart) {
-				startNextJobInQueue();
+				final String type = job.getJobType();
+				final int limit   = workersPerType.getOrDefault(type, workers);
+
+				if (running.getOrDefault(type, 0) < limit) {
+
+					queuedJobs.remove(job.jobId());
+					activeJobs.put(job.jobId(), job);
+					running.merge(type, 1, Integer::sum);
+
+					started.add(job);
+				}
 			}
 		}
+
+		// start jobs outside of the lock
+		for (final ScheduledJob job : started) {
+			job.startJob();
+		}
+
+		return started;
 	}
 }
-
@@ -125,6 +125,16 @@ public abstract class ScheduledJob {
 		this.jobId = jobId;
 	}
 
+	/**
+	 * Returns the priority of this job from the "priority" entry of its
+	 * configuration, queued jobs with a higher priority are started first.
+	 *
+	 * @return the priority, 0 by default
+	 */
+	public int getPriority() {
+		return parseInt(configuration != null ? configuration.get("priority") : null, 0);
+	}
+
 	public String getUsername () {
 		return username;
 	}
@@ -149,9 +159,24 @@ public abstract class ScheduledJob {
 		JobQueueManager.getInstance().jobAborted(this);
 	}
 
+	/**
+	 * Waits for a free transaction slot of all running jobs, see
+	 * JobQueueManager.acquireTransaction(). A job runs its transactions
+	 * one after another, so there is no limit per job.
+	 *
+	 * @throws InterruptedException
+	 */
+	protected void acquireTransaction() throws InterruptedException {
+		JobQueueManager.getInstance().acquireTransaction();
+	}
+
+	protected void releaseTransaction() {
+		JobQueueManager.getInstance().releaseTransaction();
+	}
+
 	protected void startNewThread(final Runnable runnable, final boolean wait) {
 
-		jobThread = new Thread(runnable);
+		jobThread = new Thread(runnable, "ScheduledJob-" + jobId);
 
 		jobThread.start();
 
@@ -58,7 +58,8 @@ public class BatchFunctionCall implements IdFunctionCall {
 		final boolean background  = toBoolean(args, 1);
 		final Thread workerThread = new Thread(() -> {
 
-			Scripting.setupJavascriptContext();
+			// the context of the calling thread must not be used here, it is pooled and may be in use
+			final Context workerContext = Scripting.setupJavascriptContext();
 
 			try {
 
@@ -71,7 +72,7 @@ public class BatchFunctionCall implements IdFunctionCall {
 
 					try (final Tx tx = StructrApp.getInstance(actionContext.getSecurityContext()).tx()) {
 
-						final Object result = mainCall.exec(cx, scope);
+						final Object result = mainCall.exec(workerContext, scope);
 
 						if (!Boolean.TRUE.equals(result)) {
 
@@ -19,6 +19,7 @@
 package org.structr.core.script;
 
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
@@ -35,12 +36,17 @@ import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.lang3.StringUtils;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.EvaluatorException;
 import org.mozilla.javascript.Script;
+import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.Undefined;
 import org.renjin.script.RenjinScriptEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.api.util.LoadingCache;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.UnlicensedException;
@@ -57,9 +63,12 @@ import org.structr.schema.parser.DatePropertyParser;
  */
 public class Scripting {
 
-	private static final Logger logger                       = LoggerFactory.getLogger(Scripting.class.getName());
-	private static final Pattern ScriptEngineExpression      = Pattern.compile("^\\$\\{(\\w+)\\{(.*)\\}\\}$", Pattern.DOTALL);
-	private static final Map<String, Script> compiledScripts = Collections.synchronizedMap(new LRUMap<>(10000));
+	private static final Logger logger                                            = LoggerFactory.getLogger(Scripting.class.getName());
+	private static final Pattern ScriptEngineExpression                           = Pattern.compile("^\\$\\{(\\w+)\\{(.*)\\}\\}$", Pattern.DOTALL);
+	private static final Map<String, Script> compiledScripts                      = Collections.synchronizedMap(new LRUMap<>(10000));
+	private static final LoadingCache<String, CompiledTemplate> compiledTemplates = new LoadingCache<>(Settings.ExpressionCacheSize.getValue());
+	private static final ThreadLocal<Context> pooledContexts                      = new ThreadLocal<>();
+	private static final ContextFactory contextFactory                            = new ContextFactory();
 
 	public static String replaceVariables(final ActionContext actionContext, final GraphObject entity, final Object rawValue) throws FrameworkException {
 
@@ -74,43 +83,9 @@ public class Scripting {
 
 			value = (String) rawValue;
 
-			if (!actionContext.returnRawValue()) {
+			if (!actionContext.returnRawValue() && value.indexOf('$') >= 0) {
 
-				final List<Tuple> replacements = new LinkedList<>();
-
-				for (final String expression : extractScripts(value)) {
-
-					try {
-
-						final Object extractedValue = evaluate(actionContext, entity, expression, "script source");
-						String partValue            = extractedValue != null ? formatToDefaultDateOrString(extractedValue) : "";
-
-						if (partValue != null) {
-
-							replacements.add(new Tuple(expression, partValue));
-
-						} else {
-
-							// If the whole expression should be replaced, and partValue is null
-							// replace it by null to make it possible for HTML attributes to not be rendered
-							// and avoid something like ... selected="" ... which is interpreted as selected==true by
-							// all browsers
-							if (!value.equals(expression)) {
-								replacements.add(new Tuple(expression, ""));
-							}
-						}
-
-					} catch (UnlicensedException ex) {
-						ex.log(logger);
-					}
-				}
-
-				// apply replacements
-				for (final Tuple tuple : replacements) {
-
-					// only replace a single occurrence at a time!
-					value = StringUtils.replaceOnce(value, tuple.key, tuple.value);
-				}
+				value = compiledTemplates.get(value, CompiledTemplate::new).render(actionContext, entity);
 			}
 
 		} else if (rawValue instanceof Boolean) {
@@ -131,7 +106,7 @@ public class Scripting {
 		} else {
 
 			// Replace ___NULL___ by empty string
-			value = StringUtils.replaceAll(value, Functions.NULL_STRING, "");
+			value = StringUtils.replace(value, Functions.NULL_STRING, "");
 		}
 
 		return value;
@@ -214,14 +189,8 @@ public class Scripting {
 
 		try {
 
-			// enable some optimizations..
-			scriptingContext.setLanguageVersion(Context.VERSION_1_2);
-			scriptingContext.setOptimizationLevel(9);
-			scriptingContext.setInstructionObserverThreshold(0);
-			scriptingContext.setGenerateObserverCount(false);
-			scriptingContext.setGeneratingDebug(true);
-
-			final Scriptable scope = scriptingContext.initStandardObjects();
+			// the standard objects are shared, this scope only holds the bindings of this evaluation
+			final Scriptable scope             = createScope(scriptingContext);
 			final StructrScriptable scriptable = new StructrScriptable(actionContext, entity, scriptingContext);
 
 			scriptable.setParentScope(scope);
@@ -269,6 +238,16 @@ public class Scripting {
 			// just throw the FrameworkException so we dont lose the information contained
 			throw fex;
 
+		} catch (final EvaluatorException eex) {
+
+			// the standard objects are shared between all scripts and sealed
+			if (isSealedObjectModification(eex)) {
+				throw new FrameworkException(422, "Built-in JavaScript objects and their prototypes are shared between all scripts and cannot be modified: " + eex.getMessage());
+			}
+
+			logger.warn("", eex);
+			throw new FrameworkException(422, eex.getMessage());
+
 		} catch (final Throwable t) {
 
 			// if any other kind of Throwable is encountered throw a new FrameworkException and be done with it
@@ -318,15 +297,30 @@ public class Scripting {
 
 	}
 
+	/**
+	 * Enters the JavaScript context of the current thread. The context is
+	 * configured once per thread and reused for subsequent evaluations.
+	 *
+	 * @return the context
+	 */
 	public static Context setupJavascriptContext() {
 
-		final Context scriptingContext = new ContextFactory().enterContext();
+		Context scriptingContext = pooledContexts.get();
+		if (scriptingContext != null) {
+
+			return contextFactory.enterContext(scriptingContext);
+		}
+
+		scriptingContext = contextFactory.enterContext();
 
 		// enable some optimizations..
 		scriptingContext.setLanguageVersion(Context.VERSION_1_2);
 		scriptingContext.setOptimizationLevel(9);
 		scriptingContext.setInstructionObserverThreshold(0);
 		scriptingContext.setGenerateObserverCount(false);
+		scriptingContext.setGeneratingDebug(true);
+
+		pooledContexts.set(scriptingContext);
 
 		return scriptingContext;
 	}
@@ -335,6 +329,30 @@ public class Scripting {
 		Context.exit();
 	}
 
+	/**
+	 * Creates a new top-level scope for a single evaluation that inherits
+	 * the standard objects from the shared, sealed scope.
+	 */
+	private static Scriptable createScope(final Context scriptingContext) {
+
+		final ScriptableObject sharedScope = SharedScope.getInstance();
+		final Scriptable scope             = scriptingContext.newObject(sharedScope);
+
+		scope.setPrototype(sharedScope);
+		scope.setParentScope(null);
+
+		return scope;
+	}
+
+	private static boolean isSealedObjectModification(final EvaluatorException eex) {
+
+		final String marker  = "\u0000";
+		final String message = ScriptRuntime.getMessage1("msg.modify.sealed", marker);
+		final String details = eex.details();
+
+		return details != null && details.startsWith(message.substring(0, message.indexOf(marker)));
+	}
+
 	private static String embedInFunction(final ActionContext actionContext, final String source) {
 
 		final StringBuilder buf = new StringBuilder();
@@ -366,7 +384,26 @@ public class Scripting {
 	public static List<String> extractScripts(final String source) {
 
 		final List<String> expressions = new LinkedList<>();
-		final int length               = source.length();
+
+		for (final int[] range : findScripts(source)) {
+			expressions.add(source.substring(range[0], range[1]));
+		}
+
+		return expressions;
+	}
+
+	public static void clearTemplateCache() {
+		compiledTemplates.clear();
+	}
+
+	/**
+	 * Returns the start and end positions of all scripting expressions
+	 * in the given source.
+	 */
+	private static List<int[]> findScripts(final String source) {
+
+		final List<int[]> expressions = new ArrayList<>();
+		final int length              = source.length();
 		boolean inComment              = false;
 		boolean inSingleQuotes         = false;
 		boolean inDoubleQuotes         = false;
@@ -432,7 +469,7 @@ public class Scripting {
 						inTemplate = false;
 						end = i+1;
 
-						expressions.add(source.substring(start, end));
+						expressions.add(new int[] { start, end });
 
 						level = 0;
 					}
@@ -485,14 +522,121 @@ public class Scripting {
 	}
 
 	// ----- nested classes -----
-	private static class Tuple {
+	/**
+	 * Holds the sealed scope with the JavaScript standard objects that
+	 * is shared by all evaluations. It is created on first use.
+	 */
+	private static class SharedScope {
+
+		private static final ScriptableObject instance = create();
+
+		public static ScriptableObject getInstance() {
+			return instance;
+		}
+
+		private static ScriptableObject create() {
+
+			final Context context = setupJavascriptContext();
+
+			try {
+
+				final ScriptableObject scope = context.initStandardObjects(null, true);
+
+				// initialize lazily loaded standard objects before the scope is shared between threads
+				for (final Object id : scope.getAllIds()) {
+
+					if (id instanceof String) {
+						ScriptableObject.getProperty(scope, (String)id);
+					}
+				}
+
+				scope.sealObject();
+
+				return scope;
+
+			} finally {
+
+				destroyJavascriptContext();
+			}
+		}
+	}
+
+	/**
+	 * A template string that is split into literal text and scripting
+	 * expressions once, so that it can be rendered in a single pass.
+	 */
+	private static class CompiledTemplate {
+
+		private String[] expressions = null;
+		private String[] literals    = null;
+		private String source        = null;
+
+		public CompiledTemplate(final String source) {
+
+			final List<int[]> ranges = findScripts(source);
+			final int count          = ranges.size();
+			int position             = 0;
+
+			this.expressions = new String[count];
+			this.literals    = new String[count + 1];
+			this.source      = source;
+
+			for (int i=0; i<count; i++) {
+
+				final int[] range = ranges.get(i);
+
+				literals[i]    = source.substring(position, range[0]);
+				expressions[i] = source.substring(range[0], range[1]);
+				position       = range[1];
+			}
+
+			literals[count] = source.substring(position);
+		}
+
+		public String render(final ActionContext actionContext, final GraphObject entity) throws FrameworkException {
+
+			if (expressions.length == 0) {
+				return source;
+			}
+
+			final StringBuilder buf = new StringBuilder(source.length());
+
+			for (int i=0; i<expressions.length; i++) {
+
+				final String expression = expressions[i];
+
+				buf.append(literals[i]);
+
+				try {
+
+					final Object extractedValue = evaluate(actionContext, entity, expression, "script source");
+					final String partValue      = extractedValue != null ? formatToDefaultDateOrString(extractedValue) : "";
+
+					if (partValue != null) {
+
+						buf.append(partValue);
+
+					} else if (source.equals(expression)) {
+
+						// If the whole expression should be replaced, and partValue is null
+						// replace it by null to make it possible for HTML attributes to not be rendered
+						// and avoid something like ... selected="" ... which is interpreted as selected==true by
+						// all browsers
+						buf.append(expression);
+					}
+
+				} catch (UnlicensedException ex) {
+
+					ex.log(logger);
+
+					// leave the expression unchanged
+					buf.append(expression);
+				}
+			}
 
-		public String key = null;
-		public String value = null;
+			buf.append(literals[expressions.length]);
 
-		public Tuple(final String key, final String value) {
-			this.key = key;
-			this.value = value;
+			return buf.toString();
 		}
 	}
 }
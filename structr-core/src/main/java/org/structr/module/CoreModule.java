@@ -83,6 +83,7 @@ import org.structr.core.function.IncomingFunction;
 import org.structr.core.function.IndexOfFunction;
 import org.structr.core.function.InheritingTypesFunction;
 import org.structr.core.function.InstantiateFunction;
+import org.structr.core.function.InvalidateCacheFunction;
 import org.structr.core.function.IntFunction;
 import org.structr.core.function.IntSumFunction;
 import org.structr.core.function.IsAllowedFunction;
@@ -305,6 +306,7 @@ public class CoreModule implements StructrModule {
 		Functions.put(true, LicenseManager.Community, "get_incoming_relationships", new GetIncomingRelationshipsFunction());
 		Functions.put(true, LicenseManager.Community, "retrieve", new RetrieveFunction());
 		Functions.put(true, LicenseManager.Community, "store", new StoreFunction());
+		Functions.put(true, LicenseManager.Community, "invalidate_cache", new InvalidateCacheFunction());
 		Functions.put(true, LicenseManager.Community, "print", new PrintFunction());
 		Functions.put(true, LicenseManager.Community, "log", new LogFunction());
 		Functions.put(true, LicenseManager.Community, "find", new FindFunction());
@@ -25,18 +25,21 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -101,6 +104,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	private final String classesDir                                                                = fileSep.concat("classes");
 
 	private final Map<String, Map<String, Set<PropertyKey>>> globalPropertyViewMap                 = new ConcurrentHashMap<>(2000);
+	private final Map<String, Map<String, Set<PropertyKey>>> viewLayoutMap                         = new ConcurrentHashMap<>(2000);
 	private final Map<String, Map<PropertyKey, Set<PropertyValidator>>> globalValidatorMap         = new ConcurrentHashMap<>(100);
 	private final Map<String, Map<String, PropertyKey>> globalClassDBNamePropertyMap               = new ConcurrentHashMap<>(2000);
 	private final Map<String, Map<String, PropertyKey>> globalClassJSNamePropertyMap               = new ConcurrentHashMap<>(2000);
@@ -504,6 +508,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 			relationshipPackages.remove(fqcn);
 
 			globalPropertyViewMap.remove(fqcn);
+			viewLayoutMap.remove(fqcn);
 			globalClassDBNamePropertyMap.remove(fqcn);
 			globalClassJSNamePropertyMap.remove(fqcn);
 
@@ -540,6 +545,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 			nodeEntityClassCache.put(simpleName, type);
 			nodeEntityPackages.add(fqcn.substring(0, fqcn.lastIndexOf(".")));
 			globalPropertyViewMap.remove(fqcn);
+			viewLayoutMap.remove(fqcn);
 		}
 
 		if (AbstractRelationship.class.isAssignableFrom(type)) {
@@ -547,6 +553,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 			relationshipEntityClassCache.put(simpleName, type);
 			relationshipPackages.add(fqcn.substring(0, fqcn.lastIndexOf(".")));
 			globalPropertyViewMap.remove(fqcn);
+			viewLayoutMap.remove(fqcn);
 		}
 
 		// interface that extends NodeInterface, must be stored
@@ -812,15 +819,29 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public Set<PropertyKey> getPropertySet(Class type, String propertyView) {
 
-		Map<String, Set<PropertyKey>> propertyViewMap = getPropertyViewMapForType(type);
-		Set<PropertyKey> properties = propertyViewMap.get(propertyView);
+		Map<String, Set<PropertyKey>> layouts = viewLayoutMap.get(type.getName());
+		if (layouts == null) {
 
-		if (properties == null) {
-			properties = new LinkedHashSet<>();
+			layouts = new ConcurrentHashMap<>();
+			viewLayoutMap.put(type.getName(), layouts);
 		}
 
-		// read-only
-		return Collections.unmodifiableSet(properties);
+		Set<PropertyKey> layout = layouts.get(propertyView);
+		if (layout == null) {
+
+			final Set<PropertyKey> properties = getPropertyViewMapForType(type).get(propertyView);
+			if (properties == null) {
+
+				return Collections.emptySet();
+			}
+
+			// read-only, ordered key array for serialization
+			layout = new ViewLayout(properties);
+
+			layouts.put(propertyView, layout);
+		}
+
+		return layout;
 	}
 
 	/**
@@ -860,6 +881,9 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 			properties.add(key);
 		}
+
+		// precomputed layouts of this type are outdated now
+		viewLayoutMap.remove(type.getName());
 	}
 
 	@Override
@@ -1504,4 +1528,61 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		System.out.println("" + dynamicViews.size());
 		System.out.println("###################################################");
 	}
+
+	// ----- nested classes -----
+	/**
+	 * An immutable snapshot of the property keys of a view, iterated
+	 * over a flat array in registration order.
+	 */
+	private static class ViewLayout extends AbstractSet<PropertyKey> {
+
+		private final Set<PropertyKey> lookup = new HashSet<>();
+		private PropertyKey[] keys            = null;
+
+		public ViewLayout(final Set<PropertyKey> properties) {
+
+			this.keys = properties.toArray(new PropertyKey[0]);
+
+			lookup.addAll(Arrays.asList(keys));
+		}
+
+		@Override
+		public int size() {
+			return keys.length;
+		}
+
+		@Override
+		public boolean contains(final Object o) {
+			return lookup.contains(o);
+		}
+
+		@Override
+		public Object[] toArray() {
+			return Arrays.copyOf(keys, keys.length, Object[].class);
+		}
+
+		@Override
+		public Iterator<PropertyKey> iterator() {
+
+			return new Iterator<PropertyKey>() {
+
+				private int next = 0;
+
+				@Override
+				public boolean hasNext() {
+					return next < keys.length;
+				}
+
+				@Override
+				public PropertyKey next() {
+
+					if (next >= keys.length) {
+						throw new NoSuchElementException();
+					}
+
+					return keys[next++];
+				}
+			};
+		}
+	}
 }
@@ -34,7 +34,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +46,8 @@ import org.structr.api.service.Command;
 import org.structr.api.service.Service;
 import org.structr.api.service.StructrServices;
 import org.structr.common.AccessPathCache;
+import org.structr.common.PermissionPropagation;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.ErrorToken;
 import org.structr.common.error.FrameworkException;
@@ -53,6 +58,8 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.SchemaNode;
 import org.structr.core.entity.SchemaRelationshipNode;
+import org.structr.core.graph.BulkRebuildIndexCommand;
+import org.structr.core.graph.CypherQueryCommand;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
 import org.structr.core.graph.search.SearchCommand;
@@ -76,6 +83,10 @@ public class SchemaService implements Service {
 	private static final JsonSchema dynamicSchema                 = StructrSchema.newInstance(DynamicSchemaRootURI);
 	private static final AtomicBoolean compiling                  = new AtomicBoolean(false);
 	private static final AtomicBoolean updating                   = new AtomicBoolean(false);
+	private static final AtomicLong schemaVersion                 = new AtomicLong(0L);
+	private static final AtomicLong trigramFailures               = new AtomicLong(0L);
+	private static final Set<String> completeTrigramIndexes       = ConcurrentHashMap.newKeySet();
+	private static final Pattern cypherSchema                     = Pattern.compile("^\\s*(CREATE|DROP)\\s+(INDEX|CONSTRAINT)\\b", Pattern.CASE_INSENSITIVE);
 
 	static {
 
@@ -96,6 +107,103 @@ public class SchemaService implements Service {
 		return dynamicSchema;
 	}
 
+	/**
+	 * Returns a counter that is incremented after each successful schema
+	 * reload, so that caches derived from the schema can detect changes.
+	 *
+	 * @return the current schema version
+	 */
+	public static long getSchemaVersion() {
+		return schemaVersion.get();
+	}
+
+	/**
+	 * Indicates whether the trigram index entries of the given key were
+	 * created for all existing nodes and have not been missed by a write
+	 * since. Searches must not rely on the trigram index otherwise.
+	 *
+	 * @param key the property key
+	 *
+	 * @return whether the trigram index of the given key is complete
+	 */
+	public static boolean isTrigramIndexComplete(final PropertyKey key) {
+
+		final Class type = key.getDeclaringClass();
+		if (type != null) {
+
+			return completeTrigramIndexes.contains(type.getSimpleName() + "." + key.dbName());
+		}
+
+		return false;
+	}
+
+	/**
+	 * Marks the trigram indexes of all keys with the given database name,
+	 * or of all keys if the name is null, as incomplete, so that searches
+	 * fall back to scanning and the index is rebuilt on the next schema
+	 * reload.
+	 *
+	 * @param dbName the database name of the property key, or null
+	 */
+	public static void invalidateTrigramIndex(final String dbName) {
+
+		trigramFailures.incrementAndGet();
+
+		for (final String name : completeTrigramIndexes) {
+
+			if (dbName == null || name.endsWith("." + dbName)) {
+
+				completeTrigramIndexes.remove(name);
+
+				try {
+
+					StructrApp.getInstance().setGlobalSetting("trigram." + name, null);
+
+				} catch (Throwable t) {
+					logger.warn("Unable to invalidate trigram index {}: {}", name, t.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks the trigram indexes that can be modified by the given Cypher
+	 * statement as incomplete. Cypher statements bypass the indexing of
+	 * the modified properties, so every writing statement that mentions
+	 * a trigram indexed key, or that passes property maps, invalidates
+	 * the index of the key.
+	 *
+	 * @param statement the Cypher statement
+	 * @param parameters the parameters of the statement
+	 */
+	public static void checkTrigramIndexes(final String statement, final Map<String, Object> parameters) {
+
+		if (completeTrigramIndexes.isEmpty() || !CypherQueryCommand.isWriteStatement(statement) || cypherSchema.matcher(statement).find()) {
+			return;
+		}
+
+		if (parameters != null) {
+
+			for (final Object value : parameters.values()) {
+
+				if (value instanceof Map) {
+
+					invalidateTrigramIndex(null);
+					return;
+				}
+			}
+		}
+
+		for (final String name : completeTrigramIndexes) {
+
+			final String dbName = StringUtils.substringAfter(name, ".");
+
+			if (Pattern.compile("\\b" + Pattern.quote(dbName) + "\\b").matcher(statement).find()) {
+				invalidateTrigramIndex(dbName);
+			}
+		}
+	}
+
 	public static boolean reloadSchema(final ErrorBuffer errorBuffer, final String initiatedBySessionId) {
 
 		final ConfigurationProvider config = StructrApp.getConfiguration();
@@ -138,6 +246,9 @@ public class SchemaService implements Service {
 						dynamicViews.addAll(schemaRelationship.getDynamicViews());
 					}
 
+					// remember permission propagation to invalidate only the affected permission results
+					final Map<String, String> propagation = getPropagationConfiguration();
+
 					// this is a very critical section :)
 					synchronized (SchemaService.class) {
 
@@ -179,12 +290,15 @@ public class SchemaService implements Service {
 						// clear relationship instance cache
 						AbstractNode.clearRelationshipTemplateInstanceCache();
 
-						// clear permission cache
-						AbstractNode.clearPermissionResolutionCache();
+						// invalidate permission results that depend on changed propagation
+						invalidatePermissionResolutionCache(propagation);
 
 						// inject views in configuration provider
 						config.registerDynamicViews(dynamicViews);
 
+						// invalidate caches that depend on the schema
+						schemaVersion.incrementAndGet();
+
 						if (Services.calculateHierarchy() || !Services.isTesting()) {
 
 							calculateHierarchy();
@@ -374,8 +488,9 @@ public class SchemaService implements Service {
 
 					try {
 
-						final Map<String, Object> params = new HashMap<>();
-						final App app                    = StructrApp.getInstance();
+						final Map<String, Set<String>> trigramKeys = new LinkedHashMap<>();
+						final Map<String, Object> params           = new HashMap<>();
+						final App app                              = StructrApp.getInstance();
 
 						// create indices for properties of existing classes
 						for (final Entry<String, Map<String, PropertyKey>> entry : StructrApp.getConfiguration().getTypeAndPropertyMapping().entrySet()) {
@@ -429,6 +544,29 @@ public class SchemaService implements Service {
 											app.setGlobalSetting(indexKey, null);
 										}
 
+										final String trigramName  = typeName + "." + key.dbName();
+										final boolean hasTrigrams = "true".equals(app.getGlobalSetting("trigram." + trigramName, null));
+
+										if (key.isTrigramIndexed() && !hasTrigrams) {
+
+											createTrigramIndexes(app, params);
+
+											// existing nodes need to be indexed first
+											completeTrigramIndexes.remove(trigramName);
+											trigramKeys.computeIfAbsent(typeName, k -> new LinkedHashSet<>()).add(key.dbName());
+
+										} else if (key.isTrigramIndexed()) {
+
+											completeTrigramIndexes.add(trigramName);
+
+										} else {
+
+											completeTrigramIndexes.remove(trigramName);
+
+											if (hasTrigrams) {
+												app.setGlobalSetting("trigram." + trigramName, null);
+											}
+										}
 									}
 
 									tx.success();
@@ -439,6 +577,48 @@ public class SchemaService implements Service {
 							}
 						}
 
+						// create trigram index entries for existing nodes, the index is
+						// only used when all nodes were indexed without an error
+						for (final Entry<String, Set<String>> entry : trigramKeys.entrySet()) {
+
+							final String typeName                = entry.getKey();
+							final Map<String, Object> attributes = new HashMap<>();
+							final long failures                  = trigramFailures.get();
+
+							attributes.put("mode", "nodesOnly");
+							attributes.put("type", typeName);
+
+							try {
+
+								final BulkRebuildIndexCommand command = app.command(BulkRebuildIndexCommand.class);
+
+								command.execute(attributes);
+
+								if (command.getFailureCount() == 0 && failures == trigramFailures.get()) {
+
+									try (final Tx tx = app.tx()) {
+
+										for (final String dbName : entry.getValue()) {
+											app.setGlobalSetting("trigram." + typeName + "." + dbName, "true");
+										}
+
+										tx.success();
+									}
+
+									for (final String dbName : entry.getValue()) {
+										completeTrigramIndexes.add(typeName + "." + dbName);
+									}
+
+								} else {
+
+									logger.warn("Trigram index of type {} is incomplete and will be rebuilt on the next schema reload", typeName);
+								}
+
+							} catch (Throwable t) {
+								logger.warn("", t);
+							}
+						}
+
 						// drop indices for all indexed properties of removed classes
 						for (final Entry<String, Map<String, PropertyKey>> entry : removedClasses.entrySet()) {
 
@@ -488,6 +668,79 @@ public class SchemaService implements Service {
 		indexUpdater.start();
 	}
 
+	private static void createTrigramIndexes(final App app, final Map<String, Object> params) throws FrameworkException {
+
+		final String indexKey = "index.TrigramIndexEntry";
+
+		if (!"true".equals(app.getGlobalSetting(indexKey, null))) {
+
+			try {
+
+				app.cypher("CREATE INDEX ON :TrigramIndexEntry(value)", params);
+				app.cypher("CREATE INDEX ON :TrigramIndexEntry(ref)", params);
+
+			} catch (Throwable t) {
+				logger.warn("", t);
+			}
+
+			app.setGlobalSetting(indexKey, "true");
+		}
+	}
+
+	private static Map<String, String> getPropagationConfiguration() {
+
+		final Map<String, String> configuration = new HashMap<>();
+
+		for (final Class type : SchemaRelationshipNode.getPropagatingRelationshipTypes()) {
+
+			final Object template = AbstractNode.getRelationshipForType(type);
+			if (template instanceof PermissionPropagation) {
+
+				final PermissionPropagation perm = (PermissionPropagation)template;
+
+				configuration.put(type.getSimpleName(), StringUtils.join(new Object[] {
+					perm.getPropagationDirection(),
+					perm.getReadPropagation(),
+					perm.getWritePropagation(),
+					perm.getDeletePropagation(),
+					perm.getAccessControlPropagation(),
+					perm.getDeltaProperties()
+				}, ","));
+			}
+		}
+
+		return configuration;
+	}
+
+	private static void invalidatePermissionResolutionCache(final Map<String, String> previousConfiguration) {
+
+		final PermissionResolutionCache cache      = AbstractNode.getPermissionResolutionCache();
+		final Map<String, String> configuration    = getPropagationConfiguration();
+		boolean denied                             = false;
+
+		// results that followed a removed or changed relationship type
+		for (final Entry<String, String> entry : previousConfiguration.entrySet()) {
+
+			if (!entry.getValue().equals(configuration.get(entry.getKey()))) {
+
+				cache.invalidateForRelType(entry.getKey());
+			}
+		}
+
+		// new or changed relationship types can grant permissions that were denied before
+		for (final Entry<String, String> entry : configuration.entrySet()) {
+
+			if (!entry.getValue().equals(previousConfiguration.get(entry.getKey()))) {
+
+				denied = true;
+			}
+		}
+
+		if (denied) {
+			cache.invalidateDenied();
+		}
+	}
+
 	private static Class getType(final String name) {
 
 		try { return Class.forName(name); } catch (ClassNotFoundException ignore) {}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.schema.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Stores the byte code of dynamic classes keyed by a hash of their source
+ * code, in memory and in the bytecode directory below the base path, so
+ * that unchanged classes do not need to be compiled again.
+ */
+public class BytecodeCache {
+
+	private static final Logger logger       = LoggerFactory.getLogger(BytecodeCache.class.getName());
+	private static final String SUFFIX       = ".bytecode";
+	private static final char[] HEX          = "0123456789abcdef".toCharArray();
+	private static String compilationContext = null;
+
+	private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the byte code of the given class and its nested classes if
+	 * it was compiled from source code with the given hash.
+	 *
+	 * @param className
+	 * @param hash
+	 *
+	 * @return a map of class names to byte code, or null
+	 */
+	public Map<String, byte[]> get(final String className, final String hash) {
+
+		final CacheEntry entry = entries.get(className);
+		if (entry != null && entry.hash.equals(hash)) {
+
+			return entry.classes;
+		}
+
+		final File file = getFile(className, hash);
+		if (file.exists()) {
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+
+				final Map<String, byte[]> classes = new LinkedHashMap<>();
+				final int count                   = in.readInt();
+
+				for (int i=0; i<count; i++) {
+
+					final String name  = in.readUTF();
+					final byte[] bytes = new byte[in.readInt()];
+
+					in.readFully(bytes);
+
+					classes.put(name, bytes);
+				}
+
+				entries.put(className, new CacheEntry(hash, classes));
+
+				return classes;
+
+			} catch (IOException ioex) {
+
+				logger.warn("Unable to read cached byte code of {}: {}", className, ioex.getMessage());
+			}
+		}
+
+		return null;
+	}
+
+	public void put(final String className, final String hash, final Map<String, byte[]> classes) {
+
+		entries.put(className, new CacheEntry(hash, classes));
+
+		final File file = getFile(className, hash);
+		final File tmp  = new File(file.getPath() + ".tmp");
+
+		file.getParentFile().mkdirs();
+
+		try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+
+			out.writeInt(classes.size());
+
+			for (final Map.Entry<String, byte[]> entry : classes.entrySet()) {
+
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue().length);
+				out.write(entry.getValue());
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to store byte code of {}: {}", className, ioex.getMessage());
+			tmp.delete();
+
+			return;
+		}
+
+		try {
+
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to store byte code of {}: {}", className, ioex.getMessage());
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * Removes all entries except the ones for the given classes and
+	 * hashes.
+	 *
+	 * @param hashes a map of class names to source code hashes
+	 */
+	public void retain(final Map<String, String> hashes) {
+
+		entries.entrySet().removeIf(e -> !e.getValue().hash.equals(hashes.get(e.getKey())));
+
+		final File[] files = getDirectory().listFiles();
+		if (files != null) {
+
+			for (final File file : files) {
+
+				final String name = file.getName();
+				final int pos     = name.lastIndexOf('-');
+
+				if (pos > 0 && name.endsWith(SUFFIX)) {
+
+					final String className = name.substring(0, pos);
+					final String hash      = name.substring(pos + 1, name.length() - SUFFIX.length());
+
+					if (!hash.equals(hashes.get(className))) {
+						file.delete();
+					}
+				}
+			}
+		}
+	}
+
+	public void clear() {
+
+		entries.clear();
+
+		final File[] files = getDirectory().listFiles();
+		if (files != null) {
+
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns a hex-encoded SHA-256 hash of the given strings and the
+	 * compilation context, i.e. the Java version and the class path
+	 * that the dynamic classes are compiled against.
+	 *
+	 * @param values
+	 *
+	 * @return the hash
+	 */
+	public static String hash(final Collection<String> values) {
+
+		try {
+
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+			digest.update(getCompilationContext().getBytes(StandardCharsets.UTF_8));
+
+			for (final String value : values) {
+
+				digest.update(value.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte)0);
+			}
+
+			final byte[] bytes  = digest.digest();
+			final char[] result   = new char[bytes.length * 2];
+
+			for (int i=0; i<bytes.length; i++) {
+
+				result[i * 2]     = HEX[(bytes[i] >> 4) & 0x0f];
+				result[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+			}
+
+			return new String(result);
+
+		} catch (NoSuchAlgorithmException nex) {
+			throw new IllegalStateException(nex);
+		}
+	}
+
+	// ----- private methods -----
+	private File getDirectory() {
+		return new File(Settings.getBasePath() + "bytecode");
+	}
+
+	private File getFile(final String className, final String hash) {
+		return new File(getDirectory(), className + "-" + hash + SUFFIX);
+	}
+
+	private static synchronized String getCompilationContext() {
+
+		if (compilationContext == null) {
+
+			final StringBuilder buf = new StringBuilder();
+
+			buf.append(System.getProperty("java.version"));
+
+			for (final String path : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+
+				final File file = new File(path);
+
+				buf.append(File.pathSeparator);
+				buf.append(path);
+				buf.append(":");
+				buf.append(file.length());
+				buf.append(":");
+				buf.append(file.lastModified());
+			}
+
+			compilationContext = buf.toString();
+		}
+
+		return compilationContext;
+	}
+
+	// ----- nested classes -----
+	private static class CacheEntry {
+
+		private Map<String, byte[]> classes = null;
+		private String hash                 = null;
+
+		public CacheEntry(final String hash, final Map<String, byte[]> classes) {
+
+			this.classes = classes;
+			this.hash    = hash;
+		}
+	}
+}
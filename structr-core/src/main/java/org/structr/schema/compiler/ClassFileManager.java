@@ -20,13 +20,19 @@ package org.structr.schema.compiler;
 
 import java.io.IOException;
 import java.security.SecureClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 import javax.tools.FileObject;
 import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.JavaFileObject.Kind;
 import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
 
 /**
  *
@@ -60,13 +66,16 @@ public class ClassFileManager extends ForwardingJavaFileManager {
 	 */
 	@Override
 	public ClassLoader getClassLoader(final Location location) {
-		
+
+		// the class loader must not see classes that are compiled later
+		final Map<String, JavaClassObject> classes = new HashMap<>(objects);
+
 		return new SecureClassLoader() {
 			
 			@Override
 			protected Class<?> findClass(String name) throws ClassNotFoundException {
 				
-				final JavaClassObject obj = objects.get(name);
+				final JavaClassObject obj = classes.get(name);
 				if (obj != null) {
 					
 					byte[] b = obj.getBytes();
@@ -97,4 +106,97 @@ public class ClassFileManager extends ForwardingJavaFileManager {
 		
 		return obj;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Lists the classes that were compiled or loaded from the byte code
+	 * cache earlier, so that the compiler can resolve them without their
+	 * source code.
+	 */
+	@Override
+	public Iterable<JavaFileObject> list(final Location location, final String packageName, final Set kinds, final boolean recurse) throws IOException {
+
+		final Iterable<JavaFileObject> files = super.list(location, packageName, kinds, recurse);
+
+		if (StandardLocation.CLASS_PATH.equals(location) && kinds.contains(Kind.CLASS)) {
+
+			final List<JavaFileObject> result = new ArrayList<>();
+
+			for (final JavaClassObject obj : objects.values()) {
+
+				final String name = obj.getBinaryName();
+				final int pos     = name.lastIndexOf('.');
+
+				if (pos > 0 && name.substring(0, pos).equals(packageName)) {
+					result.add(obj);
+				}
+			}
+
+			if (!result.isEmpty()) {
+
+				for (final JavaFileObject file : files) {
+					result.add(file);
+				}
+
+				return result;
+			}
+		}
+
+		return files;
+	}
+
+	@Override
+	public String inferBinaryName(final Location location, final JavaFileObject file) {
+
+		if (file instanceof JavaClassObject) {
+			return ((JavaClassObject)file).getBinaryName();
+		}
+
+		return super.inferBinaryName(location, file);
+	}
+
+	/**
+	 * Returns the byte code of the given class and its nested classes.
+	 *
+	 * @param fqcn
+	 *
+	 * @return a map of class names to byte code
+	 */
+	public Map<String, byte[]> getClassBytes(final String fqcn) {
+
+		final Map<String, byte[]> result = new LinkedHashMap<>();
+
+		for (final JavaClassObject obj : objects.values()) {
+
+			final String name = obj.getBinaryName();
+
+			if (name.equals(fqcn) || name.startsWith(fqcn + "$")) {
+				result.put(name, obj.getBytes());
+			}
+		}
+
+		return result;
+	}
+
+	public void putClassBytes(final Map<String, byte[]> classes) {
+
+		for (final Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			objects.put(entry.getKey(), new JavaClassObject(entry.getKey(), entry.getValue()));
+		}
+	}
+
+	/**
+	 * Removes the byte code of all classes whose top-level class is not
+	 * accepted by the given predicate.
+	 *
+	 * @param keep
+	 */
+	public void retainClasses(final Predicate<String> keep) {
+
+		objects.keySet().removeIf(name -> {
+
+			final int pos = name.indexOf('$');
+
+			return !keep.test(pos > 0 ? name.substring(0, pos) : name);
+		});
+	}
+}
@@ -19,16 +19,20 @@
 package org.structr.schema.compiler;
 
 import java.io.StringWriter;
-import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.tools.Diagnostic;
 import javax.tools.Diagnostic.Kind;
@@ -60,15 +64,19 @@ public class NodeExtender {
 	private static final JavaFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
 	private static final ClassLoader classLoader     = fileManager.getClassLoader(null);
 	private static final Map<String, Class> classes  = new TreeMap<>();
+	private static final BytecodeCache cache         = new BytecodeCache();
+	private static final Pattern identifierPattern   = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
 
-	private List<JavaFileObject> jfiles  = null;
-	private Set<String> fqcns            = null;
-	private String initiatedBySessionId  = null;
+	private Map<String, JavaFileObject> jfiles  = null;
+	private Map<String, String> sources         = null;
+	private Set<String> fqcns                   = null;
+	private String initiatedBySessionId         = null;
 
 	public NodeExtender(final String initiatedBySessionId) {
 
 		this.initiatedBySessionId = initiatedBySessionId;
-		this.jfiles               = new ArrayList<>();
+		this.jfiles               = new LinkedHashMap<>();
+		this.sources              = new LinkedHashMap<>();
 		this.fqcns                = new LinkedHashSet<>();
 	}
 
@@ -90,7 +98,8 @@ public class NodeExtender {
 
 			final String packageName = JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE;
 
-			jfiles.add(new CharSequenceJavaFileObject(className, content));
+			jfiles.put(className, new CharSequenceJavaFileObject(className, content));
+			sources.put(className, content);
 			fqcns.add(packageName.concat(".".concat(className)));
 
 			if (Settings.LogSchemaOutput.getValue()) {
@@ -108,17 +117,70 @@ public class NodeExtender {
 
 	public synchronized Map<String, Class> compile(final ErrorBuffer errorBuffer) throws ClassNotFoundException {
 
-		final Writer errorWriter     = new StringWriter();
 		final List<Class> newClasses = new LinkedList<>();
 
 		if (!jfiles.isEmpty()) {
 
-			logger.info("Compiling {} dynamic entities...", jfiles.size());
+			final ClassFileManager classFileManager = (ClassFileManager)fileManager;
+			final boolean useCache                  = Settings.SchemaBytecodeCache.getValue();
+			final Map<String, String> hashes        = useCache ? getSourceHashes() : Collections.emptyMap();
+			final List<JavaFileObject> toCompile    = new ArrayList<>();
+			final String packageName                = JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE.concat(".");
 
-			Boolean success = compiler.getTask(errorWriter, fileManager, new Listener(errorBuffer), null, null, jfiles).call();
+			// remove classes that do not exist any more
+			classFileManager.retainClasses(fqcns::contains);
+
+			for (final Entry<String, JavaFileObject> entry : jfiles.entrySet()) {
+
+				final String className      = entry.getKey();
+				final Map<String, byte[]> b = useCache ? cache.get(className, hashes.get(className)) : null;
+
+				if (b != null) {
+
+					classFileManager.putClassBytes(b);
+
+				} else {
+
+					toCompile.add(entry.getValue());
+				}
+			}
+
+			// the compiler must not see outdated versions of the classes it compiles
+			final Set<String> compiledFqcns = toCompile.stream().map(f -> packageName.concat(((CharSequenceJavaFileObject)f).getClassName())).collect(Collectors.toSet());
+			classFileManager.retainClasses(fqcn -> !compiledFqcns.contains(fqcn));
+
+			boolean success = compile(toCompile, errorBuffer);
+
+			if (!success && toCompile.size() < jfiles.size()) {
+
+				// should not happen, but make sure that the cache can never prevent a successful compilation
+				logger.warn("Compilation of changed dynamic entities failed, compiling all {} dynamic entities", jfiles.size());
+
+				cache.clear();
+				classFileManager.retainClasses(fqcn -> false);
+
+				toCompile.clear();
+				toCompile.addAll(jfiles.values());
+
+				errorBuffer.getErrorTokens().clear();
+
+				success = compile(toCompile, errorBuffer);
+			}
 
 			if (success) {
 
+				if (useCache) {
+
+					for (final JavaFileObject file : toCompile) {
+
+						final String className = ((CharSequenceJavaFileObject)file).getClassName();
+
+						cache.put(className, hashes.get(className), classFileManager.getClassBytes(packageName.concat(className)));
+					}
+
+					cache.retain(hashes);
+				}
+
 				final ClassLoader loader = fileManager.getClassLoader(null);
 
 				for (final String fqcn : fqcns) {
@@ -150,7 +212,13 @@ public class NodeExtender {
 						classes.put(newType.getName(), newType);
 					}
 
-					logger.info("Successfully compiled {} dynamic entities: {}", new Object[] { jfiles.size(), jfiles.stream().map(f -> f.getName().replaceFirst("/", "")).collect(Collectors.joining(", ")) });
+					if (!toCompile.isEmpty()) {
+						logger.info("Successfully compiled {} dynamic entities: {}", new Object[] { toCompile.size(), toCompile.stream().map(f -> f.getName().replaceFirst("/", "")).collect(Collectors.joining(", ")) });
+					}
+
+					if (toCompile.size() < jfiles.size()) {
+						logger.info("Loaded {} unchanged dynamic entities from bytecode cache", jfiles.size() - toCompile.size());
+					}
 
 					final Map<String, Object> data = new LinkedHashMap();
 					data.put("success", true);
@@ -175,6 +243,102 @@ public class NodeExtender {
 		this.initiatedBySessionId = initiatedBySessionId;
 	}
 
+	// ----- private methods -----
+	private boolean compile(final List<JavaFileObject> files, final ErrorBuffer errorBuffer) {
+
+		if (files.isEmpty()) {
+			return true;
+		}
+
+		logger.info("Compiling {} dynamic entities...", files.size());
+
+		return compiler.getTask(new StringWriter(), fileManager, new Listener(errorBuffer), null, null, files).call();
+	}
+
+	/**
+	 * Computes a hash for each class from its source code, the source code
+	 * of the dynamic classes it refers to and the hashes of its dynamic
+	 * supertypes, so that a class is compiled again when any of these
+	 * changes.
+	 */
+	private Map<String, String> getSourceHashes() {
+
+		final Map<String, Set<String>> references = new LinkedHashMap<>();
+		final Map<String, Set<String>> supertypes = new LinkedHashMap<>();
+		final Map<String, String> hashes          = new LinkedHashMap<>();
+
+		for (final Entry<String, String> entry : sources.entrySet()) {
+
+			final String className = entry.getKey();
+			final String source    = entry.getValue();
+
+			references.put(className, getReferencedClasses(className, source));
+
+			// supertypes are referenced in the class declaration
+			final Matcher matcher = Pattern.compile("(class|interface)\\s+" + Pattern.quote(className) + "\\b([^{]*)\\{").matcher(source);
+			if (matcher.find()) {
+
+				supertypes.put(className, getReferencedClasses(className, matcher.group(2)));
+
+			} else {
+
+				supertypes.put(className, Collections.emptySet());
+			}
+		}
+
+		for (final String className : sources.keySet()) {
+			getSourceHash(className, references, supertypes, hashes, new LinkedHashSet<>());
+		}
+
+		return hashes;
+	}
+
+	private String getSourceHash(final String className, final Map<String, Set<String>> references, final Map<String, Set<String>> supertypes, final Map<String, String> hashes, final Set<String> visited) {
+
+		String hash = hashes.get(className);
+		if (hash == null && visited.add(className)) {
+
+			final List<String> values = new ArrayList<>();
+
+			values.add(sources.get(className));
+
+			for (final String reference : references.get(className)) {
+
+				values.add(reference);
+				values.add(sources.get(reference));
+			}
+
+			for (final String supertype : supertypes.get(className)) {
+
+				values.add(supertype);
+				values.add(getSourceHash(supertype, references, supertypes, hashes, visited));
+			}
+
+			hash = BytecodeCache.hash(values);
+
+			hashes.put(className, hash);
+		}
+
+		return hash != null ? hash : "";
+	}
+
+	private Set<String> getReferencedClasses(final String className, final String source) {
+
+		final Set<String> result = new TreeSet<>();
+		final Matcher matcher    = identifierPattern.matcher(source);
+
+		while (matcher.find()) {
+
+			final String identifier = matcher.group();
+
+			if (!identifier.equals(className) && sources.containsKey(identifier)) {
+				result.add(identifier);
+			}
+		}
+
+		return result;
+	}
+
 	private static class Listener implements DiagnosticListener<JavaFileObject> {
 
 		private ErrorBuffer errorBuffer = null;
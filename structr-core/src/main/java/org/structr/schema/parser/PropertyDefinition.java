@@ -39,6 +39,7 @@ public interface PropertyDefinition {
 	boolean isCompound();
 	boolean isUnique();
 	boolean isIndexed();
+	boolean isTrigramIndexed();
 	boolean isReadOnly();
 	boolean isPartOfBuiltInSchema();
 	String getDefaultValue();
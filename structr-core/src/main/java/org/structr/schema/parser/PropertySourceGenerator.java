@@ -150,6 +150,7 @@ public abstract class PropertySourceGenerator {
 				new NodeAttribute<>(SchemaProperty.compound,              source.isCompound()),
 				new NodeAttribute<>(SchemaProperty.unique,                source.isUnique()),
 				new NodeAttribute<>(SchemaProperty.indexed,               source.isIndexed()),
+				new NodeAttribute<>(SchemaProperty.trigramIndexed,        source.isTrigramIndexed()),
 				new NodeAttribute<>(SchemaProperty.notNull,               source.isNotNull()),
 				new NodeAttribute<>(SchemaProperty.isPartOfBuiltInSchema, source.isPartOfBuiltInSchema()),
 				new NodeAttribute<>(SchemaProperty.readFunction,          source.getReadFunction()),
@@ -222,6 +223,11 @@ public abstract class PropertySourceGenerator {
 			}
 		}
 
+		if (source.isTrigramIndexed()) {
+
+			buf.append(".trigramIndexed()");
+		}
+
 		if (source.isReadOnly()) {
 
 			buf.append(".readOnly()");
@@ -174,6 +174,11 @@ public class StringBasedPropertyDefinition implements PropertyDefinition {
 		return indexed;
 	}
 
+	@Override
+	public boolean isTrigramIndexed() {
+		return false;
+	}
+
 	@Override
 	public boolean isReadOnly() {
 		return readOnly;
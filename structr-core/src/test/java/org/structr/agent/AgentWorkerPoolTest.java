@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.agent;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.structr.common.StructrTest;
+
+/**
+ *
+ */
+public class AgentWorkerPoolTest extends StructrTest {
+
+	private static final CountDownLatch started = new CountDownLatch(1);
+	private static final CountDownLatch release = new CountDownLatch(1);
+	private static final List<Object> processed = new LinkedList<>();
+
+	@Test
+	public void testDeduplicationOfQueuedTasks() throws InterruptedException {
+
+		final ScheduledExecutorService delayed = Executors.newSingleThreadScheduledExecutor();
+		final AgentWorkerPool pool             = new AgentWorkerPool(null, TestAgent.class, 1, new LinkedList<>(), delayed);
+
+		try {
+
+			// the first task blocks the only worker
+			pool.submit(new TestTask("block"));
+			assertTrue("Worker was not started", started.await(30, TimeUnit.SECONDS));
+
+			pool.submit(new TestTask("a"));
+			pool.submit(new TestTask("b"));
+			pool.submit(new TestTask("a"));
+			pool.submit(new TestTask("a"));
+
+			final Map<String, Object> queued = pool.getStatistics();
+
+			assertEquals(2,  queued.get("queueSize"));
+			assertEquals(2L, queued.get("deduplicated"));
+			assertEquals(2,  pool.getQueuedTasks().size());
+
+			release.countDown();
+
+			final long timeout = System.currentTimeMillis() + 30000;
+			while ((Long)pool.getStatistics().get("processed") < 3 && System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+
+			synchronized (processed) {
+				assertEquals("[block, a, b]", processed.toString());
+			}
+
+			// identical tasks are processed again once the first one has started
+			pool.submit(new TestTask("a"));
+
+			while ((Long)pool.getStatistics().get("processed") < 4 && System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+
+			assertEquals(4L, pool.getStatistics().get("processed"));
+
+		} finally {
+
+			release.countDown();
+			pool.shutdown();
+			delayed.shutdownNow();
+		}
+	}
+
+	// ----- nested classes -----
+	public static class TestTask extends AbstractTask<String> {
+
+		public TestTask(final String value) {
+			super("Test", null, value);
+		}
+	}
+
+	public static class TestAgent extends Agent<String> {
+
+		@Override
+		public ReturnValue processTask(final Task<String> task) throws Throwable {
+
+			final String value = task.getWorkObjects().get(0);
+
+			if ("block".equals(value)) {
+
+				started.countDown();
+				release.await(30, TimeUnit.SECONDS);
+			}
+
+			synchronized (processed) {
+				processed.add(value);
+			}
+
+			return ReturnValue.Success;
+		}
+
+		@Override
+		public Class getSupportedTaskType() {
+			return TestTask.class;
+		}
+
+		@Override
+		public boolean createEnclosingTransaction() {
+			return false;
+		}
+	}
+}
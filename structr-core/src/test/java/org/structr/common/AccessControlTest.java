@@ -18,6 +18,7 @@
  */
 package org.structr.common;
 
+import java.util.LinkedList;
 import java.util.List;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -28,6 +29,7 @@ import static org.junit.Assert.fail;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.Direction;
 import org.structr.api.graph.Relationship;
 import org.structr.api.util.Iterables;
@@ -410,6 +412,81 @@ public class AccessControlTest extends StructrTest {
 
 	}
 
+	@Test
+	public void test07ResultCountWithReadPermissionFilter() {
+
+		// remove auto-generated resource access objects
+		clearResourceAccess();
+
+		try {
+
+			final List<Principal> users = createTestNodes(Principal.class, 2);
+			final Principal user1       = users.get(0);
+			final Principal user2       = users.get(1);
+			final Class type            = TestOne.class;
+			final List<TestOne> nodes   = new LinkedList<>();
+
+			for (int i=0; i<10; i++) {
+				nodes.add(createTestNode(TestOne.class, user1));
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				int count = 0;
+
+				// add names to make sorting work...
+				for (final NodeInterface node : nodes) {
+					node.setProperty(AbstractNode.name, "node0" + count++);
+				}
+
+				final Group group = app.create(Group.class, "group");
+				group.addMember(user2);
+
+				nodes.get(1).grant(Permission.read, user2);
+				nodes.get(2).grant(Permission.write, user2);
+				nodes.get(4).grant(Permission.read, group);
+				nodes.get(6).setProperty(AbstractNode.visibleToAuthenticatedUsers, true);
+				nodes.get(8).setProperty(AbstractNode.visibleToPublicUsers, true);
+
+				tx.success();
+			}
+
+			final SecurityContext user2Context = SecurityContext.getInstance(user2, AccessMode.Backend);
+
+			for (final boolean filterInQuery : new boolean[] { true, false }) {
+
+				Settings.QueryPermissions.setValue(filterInQuery);
+
+				try (final Tx tx = app.tx()) {
+
+					final Result result = StructrApp.getInstance(user2Context).nodeQuery(type).sort(AbstractNode.name).page(2).pageSize(2).getResult();
+
+					assertEquals(2, result.size());
+					assertEquals(4, (int) result.getRawResultCount());
+
+					assertEquals(nodes.get(6).getUuid(), result.get(0).getUuid());
+					assertEquals(nodes.get(8).getUuid(), result.get(1).getUuid());
+
+					// the last page is incomplete, the count does not depend on the page
+					final Result lastPage = StructrApp.getInstance(user2Context).nodeQuery(type).sort(AbstractNode.name).page(2).pageSize(3).getResult();
+
+					assertEquals(1, lastPage.size());
+					assertEquals(4, (int) lastPage.getRawResultCount());
+					assertEquals(nodes.get(8).getUuid(), lastPage.get(0).getUuid());
+				}
+			}
+
+		} catch (FrameworkException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+
+		} finally {
+
+			Settings.QueryPermissions.setValue(true);
+		}
+	}
+
 	@Test
 	public void test08WriteAccess() {
 
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class PermissionResolutionCacheTest {
+
+	@Test
+	public void testGetAndPut() {
+
+		final PermissionResolutionCache cache = new PermissionResolutionCache(1000);
+
+		assertNull(cache.get(1L, 2L, Permission.read));
+
+		cache.put(1L, 2L, Permission.read, false);
+		cache.put(1L, 2L, Permission.write, true);
+
+		assertEquals(Boolean.FALSE, cache.get(1L, 2L, Permission.read));
+		assertEquals(Boolean.TRUE,  cache.get(1L, 2L, Permission.write));
+		assertNull(cache.get(1L, 2L, Permission.delete));
+		assertNull(cache.get(1L, 2L, Permission.accessControl));
+		assertNull(cache.get(2L, 1L, Permission.write));
+
+		// a positive result must not be overwritten by a negative one
+		cache.put(1L, 2L, Permission.write, false);
+		assertEquals(Boolean.TRUE, cache.get(1L, 2L, Permission.write));
+
+		cache.put(1L, 2L, Permission.read, true);
+		assertEquals(Boolean.TRUE, cache.get(1L, 2L, Permission.read));
+
+		assertEquals(1, cache.size());
+		assertEquals(4, cache.getHits());
+		assertEquals(4, cache.getMisses());
+
+		cache.clear();
+
+		assertEquals(0, cache.size());
+		assertNull(cache.get(1L, 2L, Permission.read));
+	}
+
+	@Test
+	public void testBoundedSize() {
+
+		final PermissionResolutionCache cache = new PermissionResolutionCache(1000);
+		final int capacity                    = cache.capacity();
+
+		for (long i=0; i<100000; i++) {
+			cache.put(i, 42L, Permission.read, true);
+		}
+
+		assertTrue("Cache must not grow beyond its capacity", cache.size() <= capacity);
+		assertTrue("Cache should have evicted entries", cache.getEvictions() > 0);
+
+		// the most recently stored entry must be present
+		assertEquals(Boolean.TRUE, cache.get(99999L, 42L, Permission.read));
+	}
+
+	@Test
+	public void testTargetedInvalidation() {
+
+		final PermissionResolutionCache cache = new PermissionResolutionCache(1000);
+
+		final PermissionResolutionCache.Resolution first = cache.begin();
+		first.addUuid("node1");
+		first.addRelType("FolderCONTAINSFile");
+		first.put(1L, 10L, Permission.read, true);
+		first.put(2L, 10L, Permission.read, true);
+		cache.commit(first);
+
+		final PermissionResolutionCache.Resolution second = cache.begin();
+		second.addUuid("node3");
+		second.put(3L, 10L, Permission.read, false);
+		cache.commit(second);
+
+		assertEquals(3, cache.size());
+
+		// invalidating an object removes only the results that depend on it
+		cache.invalidateForId("node3");
+
+		assertNull(cache.get(3L, 10L, Permission.read));
+		assertEquals(Boolean.TRUE, cache.get(1L, 10L, Permission.read));
+		assertEquals(2, cache.size());
+
+		cache.invalidateForRelType("FolderCONTAINSFile");
+
+		assertEquals(0, cache.size());
+		assertEquals(3, cache.getInvalidations());
+
+		// a resolution that started before an invalidation of one of its dependencies must be discarded
+		final PermissionResolutionCache.Resolution stale = cache.begin();
+		stale.addUuid("node1");
+		stale.put(1L, 10L, Permission.read, true);
+
+		cache.invalidateForId("node1");
+		cache.commit(stale);
+
+		assertNull(cache.get(1L, 10L, Permission.read));
+
+		// a resolution that used a cached result inherits its dependencies
+		final PermissionResolutionCache.Resolution base = cache.begin();
+		base.addUuid("node4");
+		base.put(4L, 10L, Permission.read, true);
+		cache.commit(base);
+
+		final PermissionResolutionCache.Resolution dependent = cache.begin();
+		dependent.addUuid("node5");
+		assertEquals(Boolean.TRUE, cache.get(4L, 10L, Permission.read, dependent));
+		dependent.put(5L, 10L, Permission.read, true);
+		cache.commit(dependent);
+
+		cache.invalidateForId("node4");
+
+		assertNull(cache.get(5L, 10L, Permission.read));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testInvalidateDenied() {
+
+		final PermissionResolutionCache cache                 = new PermissionResolutionCache(1000);
+		final PermissionResolutionCache.Resolution resolution = cache.begin();
+
+		resolution.put(1L, 10L, Permission.read, true);
+		resolution.put(1L, 10L, Permission.write, false);
+		resolution.put(2L, 10L, Permission.read, false);
+		cache.commit(resolution);
+
+		cache.invalidateDenied();
+
+		assertEquals(Boolean.TRUE, cache.get(1L, 10L, Permission.read));
+		assertNull(cache.get(1L, 10L, Permission.write));
+		assertNull(cache.get(2L, 10L, Permission.read));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+
+		final PermissionResolutionCache cache = new PermissionResolutionCache(100000);
+		final ExecutorService executor        = Executors.newFixedThreadPool(8);
+		final List<Future> futures            = new ArrayList<>();
+
+		for (int t=0; t<8; t++) {
+
+			final long principalId = t;
+
+			futures.add(executor.submit(() -> {
+
+				for (long i=0; i<20000; i++) {
+
+					cache.put(i % 1000, principalId, Permission.read, (i % 2) == 0);
+
+					final Boolean value = cache.get(i % 1000, principalId, Permission.read);
+					if (value == null) {
+						throw new IllegalStateException("Missing value for " + i);
+					}
+				}
+
+				return null;
+			}));
+		}
+
+		for (final Future future : futures) {
+			future.get();
+		}
+
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		assertEquals(8000, cache.size());
+		assertEquals(160000, cache.getHits());
+	}
+}
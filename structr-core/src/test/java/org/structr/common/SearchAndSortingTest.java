@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Random;
 import org.apache.commons.lang3.StringUtils;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Test;
@@ -45,6 +46,8 @@ import org.structr.core.entity.TestOne;
 import org.structr.core.entity.TestSeven;
 import org.structr.core.entity.TestSix;
 import org.structr.core.entity.Principal;
+import org.structr.core.entity.SchemaNode;
+import org.structr.core.entity.SchemaProperty;
 import org.structr.core.entity.relationship.NodeHasLocation;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
@@ -53,6 +56,7 @@ import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StringProperty;
+import org.structr.schema.SchemaService;
 
 /**
  */
@@ -1945,6 +1949,197 @@ public class SearchAndSortingTest extends StructrTest {
 
 	}
 
+	@Test
+	public void test09PagingLargeResultsWithQueryCache() {
+
+		final int number = 10050;
+
+		try {
+
+			// create nodes in batches
+			for (int batch = 0; batch < number; batch += 1000) {
+
+				try (final Tx tx = app.tx()) {
+
+					for (int i = batch; i < Math.min(batch + 1000, number); i++) {
+
+						app.create(TestOne.class, "test" + StringUtils.leftPad(Integer.toString(i), 5, "0"));
+					}
+
+					tx.success();
+				}
+			}
+
+			// results that exceed the cache limit must be complete, also when read twice
+			for (int i = 0; i < 2; i++) {
+
+				try (final Tx tx = app.tx()) {
+
+					assertEquals("Result of a large query should be complete", number, app.nodeQuery(TestOne.class).getAsList().size());
+					tx.success();
+				}
+			}
+
+			// paging with a cursor must continue after the cached results
+			final List<String> names = new LinkedList<>();
+			String cursor            = null;
+
+			do {
+
+				try (final Tx tx = app.tx()) {
+
+					final Result<TestOne> result = app.nodeQuery(TestOne.class).sort(AbstractNode.name).pageSize(4000).cursor(cursor).getResult();
+
+					for (final TestOne test : result.getResults()) {
+						names.add(test.getName());
+					}
+
+					cursor = result.getNextCursor();
+
+					tx.success();
+				}
+
+			} while (cursor != null);
+
+			assertEquals("Cursor paging should return all elements", number, names.size());
+			assertEquals("Cursor paging should return the elements in order", "test00000", names.get(0));
+			assertEquals("Cursor paging should return the elements in order", "test10049", names.get(number - 1));
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testTrigramIndexedSearch() {
+
+		try (final Tx tx = app.tx()) {
+
+			final SchemaNode article = app.create(SchemaNode.class, new NodeAttribute<>(AbstractNode.name, "Article"));
+
+			app.create(SchemaProperty.class,
+				new NodeAttribute<>(SchemaProperty.name, "headline"),
+				new NodeAttribute<>(SchemaProperty.propertyType, "String"),
+				new NodeAttribute<>(SchemaProperty.trigramIndexed, true),
+				new NodeAttribute<>(SchemaProperty.schemaNode, article)
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		final Class type                   = StructrApp.getConfiguration().getNodeEntityClass("Article");
+		final PropertyKey<String> headline = StructrApp.key(type, "headline");
+
+		assertTrue("Property should be trigram-indexed", headline.isTrigramIndexed());
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(type, new NodeAttribute<>(AbstractNode.name, "one"),   new NodeAttribute<>(headline, "The quick brown fox"));
+			app.create(type, new NodeAttribute<>(AbstractNode.name, "two"),   new NodeAttribute<>(headline, "A lazy dog"));
+			app.create(type, new NodeAttribute<>(AbstractNode.name, "three"), new NodeAttribute<>(headline, "Quick thinking"));
+			app.create(type, new NodeAttribute<>(AbstractNode.name, "four"),  new NodeAttribute<>(headline, "qu"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Invalid number of trigram-indexed nodes", 3, app.cypher("MATCH (t:TrigramIndexEntry) RETURN DISTINCT t.ref", null).size());
+			assertEquals("Invalid trigram search result", 2, app.nodeQuery(type).and(headline, "quick", false).getAsList().size());
+			assertEquals("Invalid trigram search result", 1, app.nodeQuery(type).and(headline, "UICK th", false).getAsList().size());
+			assertEquals("Invalid trigram search result", 0, app.nodeQuery(type).and(headline, "quick dog", false).getAsList().size());
+			assertEquals("Search values without trigrams should not use the index", 3, app.nodeQuery(type).and(headline, "qu", false).getAsList().size());
+
+			// modify a value
+			app.nodeQuery(type).andName("two").getFirst().setProperty(headline, "A quick dog");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Trigram index should be updated on modification", 1, app.nodeQuery(type).and(headline, "quick dog", false).getAsList().size());
+			assertEquals("Trigram index should be updated on modification", 0, app.nodeQuery(type).and(headline, "lazy", false).getAsList().size());
+
+			app.delete((NodeInterface)app.nodeQuery(type).andName("one").getFirst());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Invalid trigram search result after deletion", 2, app.nodeQuery(type).and(headline, "quick", false).getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final PropertyMap properties = new PropertyMap();
+
+			properties.put(headline, "Slow turtle");
+
+			// properties that are set in bulk are not indexed by their property key
+			app.nodeQuery(type).andName("three").getFirst().setProperties(securityContext, properties);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertTrue("Trigram index should stay complete after setProperties", SchemaService.isTrigramIndexComplete(headline));
+			assertEquals("Trigram index should be updated by setProperties", 1, app.nodeQuery(type).and(headline, "turtle", false).getAsList().size());
+			assertEquals("Trigram index should be updated by setProperties", 1, app.nodeQuery(type).and(headline, "quick", false).getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			// writes in Cypher bypass the trigram index
+			app.cypher("MATCH (n:Article) WHERE n.name = 'four' SET n.headline = 'Quick cypher'", null);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertFalse("Trigram index should be incomplete after a Cypher write", SchemaService.isTrigramIndexComplete(headline));
+			assertEquals("Search should fall back to scanning after a Cypher write", 2, app.nodeQuery(type).and(headline, "quick", false).getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+	}
+
 	// ----- private methods -----
 	private void testPaging(final Class type, final int pageSize, final int page, final int number, final int offset, final boolean includeDeletedAndHidden, final boolean publicOnly, final PropertyKey sortKey, final boolean sortDesc) throws FrameworkException {
 
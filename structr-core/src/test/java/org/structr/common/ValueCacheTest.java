@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.structr.common.error.FrameworkException;
+
+/**
+ *
+ */
+public class ValueCacheTest {
+
+	@Test
+	public void testGetAndInvalidate() throws FrameworkException {
+
+		final ValueCache cache    = new ValueCache("test", 100);
+		final AtomicInteger loads = new AtomicInteger();
+
+		assertEquals(1, cache.get("key", 60, () -> loads.incrementAndGet()));
+		assertEquals(1, cache.get("key", 60, () -> loads.incrementAndGet()));
+		assertEquals(1, loads.get());
+
+		cache.invalidate("key");
+
+		assertEquals(2, cache.get("key", 60, () -> loads.incrementAndGet()));
+		assertEquals(2, loads.get());
+
+		final Map<String, Object> statistics = cache.getStatistics();
+
+		assertEquals(1L, statistics.get("hits"));
+		assertEquals(2L, statistics.get("misses"));
+		assertEquals(2L, statistics.get("loads"));
+	}
+
+	@Test
+	public void testBoundedSize() throws FrameworkException {
+
+		final ValueCache cache = new ValueCache("test", 100);
+
+		for (int i=0; i<1000; i++) {
+
+			final int value = i;
+
+			cache.get("key" + i, 60, () -> value);
+		}
+
+		assertTrue("Cache must not grow beyond its maximum size", cache.size() <= 100);
+	}
+
+	@Test
+	public void testSingleFlightLoading() throws Exception {
+
+		final List<Future<Object>> results = new ArrayList<>();
+		final ExecutorService executor     = Executors.newFixedThreadPool(8);
+		final CountDownLatch start         = new CountDownLatch(1);
+		final AtomicInteger loads          = new AtomicInteger();
+		final ValueCache cache             = new ValueCache("test", 100);
+
+		for (int i=0; i<8; i++) {
+
+			results.add(executor.submit(() -> {
+
+				start.await();
+
+				return cache.get("key", 60, () -> {
+
+					loads.incrementAndGet();
+
+					try { Thread.sleep(200); } catch (InterruptedException iex) {}
+
+					return "value";
+				});
+			}));
+		}
+
+		start.countDown();
+
+		for (final Future<Object> result : results) {
+			assertEquals("value", result.get(10, TimeUnit.SECONDS));
+		}
+
+		executor.shutdown();
+
+		assertEquals("Value must be loaded only once", 1, loads.get());
+	}
+
+	@Test
+	public void testFailedLoadIsNotCached() throws FrameworkException {
+
+		final ValueCache cache = new ValueCache("test", 100);
+
+		try {
+
+			cache.get("key", 60, () -> { throw new FrameworkException(422, "failed"); });
+			fail("Loader exception should be propagated");
+
+		} catch (FrameworkException fex) {
+			assertEquals(422, fex.getStatus());
+		}
+
+		assertEquals("value", cache.get("key", 60, () -> "value"));
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class ChangelogStoreTest {
+
+	private File directory = null;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("structr-changelog").toFile();
+	}
+
+	@After
+	public void removeDirectory() {
+
+		final File[] files = directory.listFiles();
+		if (files != null) {
+
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+
+		directory.delete();
+	}
+
+	@Test
+	public void testAppendAndRead() {
+
+		final ChangelogStore store = new ChangelogStore(directory.getPath(), 1024 * 1024);
+
+		store.append("a", "{\"verb\":\"create\"}\n{\"verb\":\"change\"}\n");
+		store.append("b", "{\"verb\":\"create\"}\n");
+		store.append("a", "{\"verb\":\"link\",\"val\":\"äöü\"}\n");
+		store.append("c", "");
+
+		assertEquals(Arrays.asList("{\"verb\":\"create\"}", "{\"verb\":\"change\"}", "{\"verb\":\"link\",\"val\":\"äöü\"}"), store.read("a"));
+		assertEquals(Arrays.asList("{\"verb\":\"create\"}"), store.read("b"));
+		assertEquals(Collections.emptyList(), store.read("c"));
+
+		// entries appended before the given time are skipped
+		assertEquals(Collections.emptyList(), store.read("a", System.currentTimeMillis() + 1000));
+
+		store.close();
+
+		// the index is rebuilt from the segment files
+		final ChangelogStore reopened = new ChangelogStore(directory.getPath(), 1024 * 1024);
+
+		reopened.append("b", "{\"verb\":\"change\"}\n");
+
+		assertEquals(3, reopened.read("a").size());
+		assertEquals(Arrays.asList("{\"verb\":\"create\"}", "{\"verb\":\"change\"}"), reopened.read("b"));
+
+		reopened.close();
+	}
+
+	@Test
+	public void testInsertMigratedChangelog() {
+
+		final ChangelogStore store = new ChangelogStore(directory.getPath(), 1024 * 1024);
+		final String legacy        = "{\"verb\":\"create\",\"time\":1000}\n{\"verb\":\"change\",\"time\":2000}\n";
+
+		store.append("a", "{\"verb\":\"change\",\"time\":" + System.currentTimeMillis() + "}\n");
+
+		// migrated entries are read ahead of newer ones, and only inserted once
+		store.insert(Collections.singletonMap("a", legacy));
+		store.insert(Collections.singletonMap("a", legacy));
+
+		final List<String> entries = store.read("a");
+
+		assertEquals(3, entries.size());
+		assertEquals("{\"verb\":\"create\",\"time\":1000}", entries.get(0));
+		assertEquals("{\"verb\":\"change\",\"time\":2000}", entries.get(1));
+
+		store.close();
+
+		// the order does not depend on the order of the lines in the segment
+		assertEquals(entries, new ChangelogStore(directory.getPath(), 1024 * 1024).read("a"));
+	}
+
+	@Test
+	public void testSegmentsAndCompaction() {
+
+		final ChangelogStore store = new ChangelogStore(directory.getPath(), 256);
+
+		for (int i=0; i<100; i++) {
+
+			store.append("keep", "{\"verb\":\"change\",\"val\":" + i + "}\n");
+			store.append("drop", "{\"verb\":\"change\",\"val\":" + i + "}\n");
+		}
+
+		assertTrue("Changelog must be split into segments", directory.list().length > 1);
+
+		final long removed = store.compact(uuid -> "keep".equals(uuid));
+
+		store.append("keep", "{\"verb\":\"change\",\"val\":100}\n");
+
+		final List<String> entries = store.read("keep");
+
+		assertEquals(100L, removed);
+		assertEquals(101, entries.size());
+		assertEquals(0, store.read("drop").size());
+
+		for (int i=0; i<=100; i++) {
+			assertEquals("{\"verb\":\"change\",\"val\":" + i + "}", entries.get(i));
+		}
+
+		store.close();
+
+		assertEquals(101, new ChangelogStore(directory.getPath(), 256).read("keep").size());
+	}
+
+	@Test
+	public void testInterruptedCompaction() throws IOException {
+
+		final ChangelogStore store = new ChangelogStore(directory.getPath(), 1024 * 1024);
+
+		store.append("keep", "{\"verb\":\"create\"}\n");
+		store.append("drop", "{\"verb\":\"create\"}\n");
+		store.close();
+
+		final String segment = new String(Files.readAllBytes(new File(directory, "segment-0.log").toPath()), StandardCharsets.UTF_8);
+		final String kept    = segment.substring(0, segment.indexOf('\n') + 1);
+
+		// a compacted file without manifest is discarded
+		Files.write(new File(directory, "segment-0.compact").toPath(), kept.getBytes(StandardCharsets.UTF_8));
+
+		final ChangelogStore uncommitted = new ChangelogStore(directory.getPath(), 1024 * 1024);
+
+		assertEquals(1, uncommitted.read("drop").size());
+		assertFalse(new File(directory, "segment-0.compact").exists());
+
+		uncommitted.close();
+
+		// a compaction that was interrupted after its manifest was written is completed
+		Files.write(new File(directory, "segment-0.compact").toPath(), kept.getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(directory, "segment-1.log").toPath(), segment.getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(directory, "compaction.manifest").toPath(), "1\n".getBytes(StandardCharsets.UTF_8));
+
+		final ChangelogStore reopened = new ChangelogStore(directory.getPath(), 1024 * 1024);
+
+		assertEquals(1, reopened.read("keep").size());
+		assertEquals(0, reopened.read("drop").size());
+		assertFalse(new File(directory, "segment-1.log").exists());
+		assertFalse(new File(directory, "compaction.manifest").exists());
+
+		reopened.close();
+	}
+}
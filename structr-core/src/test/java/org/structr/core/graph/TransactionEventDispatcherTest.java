@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.structr.common.SecurityContext;
+import org.structr.common.StructrTest;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.TransactionSource;
+import org.structr.core.entity.TestOne;
+
+/**
+ *
+ */
+public class TransactionEventDispatcherTest extends StructrTest {
+
+	@Test
+	public void testAsynchronousListenerReceivesEventsInOrder() {
+
+		final List<String> created     = new ArrayList<>();
+		final List<String> received    = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch latch     = new CountDownLatch(10);
+		final List<Thread> threads     = Collections.synchronizedList(new ArrayList<>());
+
+		final StructrTransactionListener listener = new StructrTransactionListener() {
+
+			@Override
+			public boolean isSynchronous() {
+				return false;
+			}
+
+			@Override
+			public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) throws FrameworkException {
+			}
+
+			@Override
+			public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+				threads.add(Thread.currentThread());
+
+				for (final ModificationEvent event : modificationEvents) {
+
+					if (event.isNode() && event.isCreated()) {
+
+						// the graph object is loaded again in the transaction of the listener thread
+						received.add(event.getGraphObject().getUuid());
+						latch.countDown();
+					}
+				}
+			}
+		};
+
+		TransactionCommand.registerTransactionListener(listener);
+
+		try {
+
+			for (int i=0; i<10; i++) {
+
+				// one transaction per node
+				created.add(createTestNode(TestOne.class).getUuid());
+			}
+
+			assertTrue("Listener was not notified", latch.await(30, TimeUnit.SECONDS));
+			assertEquals("Listener must receive the events in commit order", created, received);
+
+			for (final Thread thread : threads) {
+				assertNotEquals("Listener must not be called on the committing thread", Thread.currentThread(), thread);
+			}
+
+		} catch (Throwable t) {
+
+			t.printStackTrace();
+			fail("Unexpected exception");
+
+		} finally {
+
+			TransactionCommand.removeTransactionListener(listener);
+		}
+	}
+
+	@Test
+	public void testDropPolicy() {
+
+		final TransactionEventDispatcher dispatcher = new TransactionEventDispatcher(2, "drop");
+		final CountDownLatch started                = new CountDownLatch(1);
+		final CountDownLatch release                = new CountDownLatch(1);
+
+		final StructrTransactionListener listener = new StructrTransactionListener() {
+
+			@Override
+			public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) throws FrameworkException {
+			}
+
+			@Override
+			public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+				started.countDown();
+
+				try { release.await(30, TimeUnit.SECONDS); } catch (InterruptedException iex) {}
+			}
+		};
+
+		try {
+
+			// the first batch blocks the listener thread
+			dispatcher.dispatch(listener, null, Collections.emptyList(), null);
+			assertTrue("Listener was not notified", started.await(30, TimeUnit.SECONDS));
+
+			// the next two batches fill the queue, the remaining three are dropped
+			for (int i=0; i<5; i++) {
+				dispatcher.dispatch(listener, null, Collections.emptyList(), null);
+			}
+
+			final Map<String, Object> statistics = (Map<String, Object>)dispatcher.getStatistics().values().iterator().next();
+
+			assertEquals(2,  statistics.get("queueSize"));
+			assertEquals(3L, statistics.get("dropped"));
+
+		} catch (Throwable t) {
+
+			t.printStackTrace();
+			fail("Unexpected exception");
+
+		} finally {
+
+			release.countDown();
+			dispatcher.remove(listener);
+		}
+	}
+}
@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -50,6 +51,7 @@ import org.structr.core.entity.TestTwo;
 import org.structr.core.graph.BulkCreateLabelsCommand;
 import org.structr.core.graph.BulkRebuildIndexCommand;
 import org.structr.core.graph.BulkSetNodePropertiesCommand;
+import org.structr.core.graph.BulkSetUuidCommand;
 import org.structr.core.graph.SyncCommand;
 import org.structr.core.graph.Tx;
 
@@ -381,6 +383,62 @@ public class MaintenanceTest extends StructrTest {
 		}
 	}
 
+	@Test
+	public void testBulkSetUuidCommandWithThreads() {
+
+		try {
+
+			final DatabaseService graphDb = app.getDatabaseService();
+
+			// create nodes without UUID in a raw transaction
+			try (Transaction tx = graphDb.beginTx()) {
+
+				for (int i=0; i<3500; i++) {
+
+					final Node test = graphDb.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+
+					test.setProperty("type", "TestOne");
+				}
+
+				tx.success();
+			}
+
+			final Map<String, Object> parameters = new LinkedHashMap<>();
+
+			parameters.put("type",    "TestOne");
+			parameters.put("threads", 4);
+
+			app.command(BulkSetUuidCommand.class).execute(parameters);
+			app.command(BulkCreateLabelsCommand.class).execute(parameters);
+
+			try (final Tx tx = app.tx()) {
+
+				// nodes should now be visible to Structr
+				assertEquals(3500, app.nodeQuery(TestOne.class).getResult().size());
+
+				final Set<Object> uuids = new HashSet<>();
+				int count               = 0;
+
+				for (final Node node : graphDb.getNodesByTypeProperty("TestOne")) {
+
+					uuids.add(node.getProperty("id"));
+					count++;
+				}
+
+				assertEquals(3500, count);
+				assertEquals("All nodes should have a distinct UUID", 3500, uuids.size());
+				assertTrue("All nodes should have a UUID", !uuids.contains(null));
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
 	@Test
 	public void testBulkSetNodePropertiesCommand() {
 
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.property;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Compares CompactPropertyMap with LinkedHashMap.
+ */
+public class CompactPropertyMapTest {
+
+	@Test
+	public void testInsertionOrderAndLookup() {
+
+		final Map<PropertyKey, Object> expected = new LinkedHashMap<>();
+		final CompactPropertyMap map            = new CompactPropertyMap(2);
+		final List<PropertyKey> keys            = new ArrayList<>();
+
+		for (int i=0; i<100; i++) {
+			keys.add(new StringProperty("key" + i));
+		}
+
+		for (int i=0; i<100; i++) {
+
+			assertEquals(expected.put(keys.get(i), i), map.put(keys.get(i), i));
+		}
+
+		// overwrite existing values with an equal key instance
+		for (int i=0; i<100; i+=3) {
+
+			assertEquals(expected.put(new StringProperty("key" + i), -i), map.put(new StringProperty("key" + i), -i));
+		}
+
+		// remove some keys
+		for (int i=0; i<100; i+=7) {
+
+			assertEquals(expected.remove(keys.get(i)), map.remove(keys.get(i)));
+		}
+
+		assertEquals(expected, map);
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+		assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+		assertEquals(expected.hashCode(), map.hashCode());
+
+		for (final PropertyKey key : keys) {
+
+			assertEquals(expected.containsKey(key), map.containsKey(key));
+			assertEquals(expected.get(key), map.get(key));
+		}
+
+		assertFalse(map.containsKey(new StringProperty("unknown")));
+		assertNull(map.get(new StringProperty("unknown")));
+	}
+
+	@Test
+	public void testIteratorRemoveAndSetValue() {
+
+		final CompactPropertyMap map = new CompactPropertyMap();
+
+		for (int i=0; i<20; i++) {
+			map.put(new IntProperty("key" + i), i);
+		}
+
+		for (final Iterator<Entry<PropertyKey, Object>> it = map.entrySet().iterator(); it.hasNext();) {
+
+			final Entry<PropertyKey, Object> entry = it.next();
+			final int value                        = (Integer)entry.getValue();
+
+			if (value % 2 == 0) {
+
+				it.remove();
+
+			} else {
+
+				entry.setValue(value * 10);
+			}
+		}
+
+		assertEquals(10, map.size());
+
+		int expected = 1;
+
+		for (final Entry<PropertyKey, Object> entry : map.entrySet()) {
+
+			assertEquals("key" + expected, entry.getKey().jsonName());
+			assertEquals(expected * 10, entry.getValue());
+
+			expected += 2;
+		}
+
+		map.put(new IntProperty("null"), null);
+
+		assertTrue(map.containsKey(new IntProperty("null")));
+		assertEquals(11, map.size());
+
+		map.clear();
+
+		assertTrue(map.isEmpty());
+		assertFalse(map.entrySet().iterator().hasNext());
+	}
+}
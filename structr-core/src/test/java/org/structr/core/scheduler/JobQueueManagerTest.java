@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.structr.api.config.Settings;
+import org.structr.common.StructrTest;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.Tx;
+
+/**
+ *
+ */
+public class JobQueueManagerTest extends StructrTest {
+
+	@Test
+	public void testConcurrentJobsAndPriorities() {
+
+		final JobQueueManager manager = JobQueueManager.getInstance();
+		final int workers             = Settings.JobWorkers.getValue();
+		final CountDownLatch running  = new CountDownLatch(workers);
+		final Semaphore release       = new Semaphore(0);
+		final CountDownLatch done     = new CountDownLatch(workers + 2);
+		final List<Integer> started   = Collections.synchronizedList(new ArrayList<>());
+
+		try {
+
+			Principal user = null;
+
+			try (final Tx tx = app.tx()) {
+
+				user = createTestNode(Principal.class, "tester");
+				tx.success();
+			}
+
+			// occupy all workers
+			for (int i=0; i<workers; i++) {
+				manager.addJob(new TestJob(user, 0, running, release, done, started));
+			}
+
+			assertTrue("Jobs must run concurrently", running.await(30, TimeUnit.SECONDS));
+
+			// these jobs are queued, the one with the higher priority must start first
+			manager.addJob(new TestJob(user, 1, null, release, done, started));
+			manager.addJob(new TestJob(user, 5, null, release, done, started));
+
+			assertEquals(workers + 2, manager.listJobs().size());
+
+			// finish one job after the other so that only one queued job can start at a time
+			release.release();
+
+			while (started.size() < workers + 1) {
+				Thread.sleep(10);
+			}
+
+			release.release(workers);
+
+			assertTrue("Jobs were not finished", done.await(30, TimeUnit.SECONDS));
+			assertEquals(Integer.valueOf(5), started.get(workers));
+			assertEquals(Integer.valueOf(1), started.get(workers + 1));
+
+		} catch (FrameworkException | InterruptedException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+
+		} finally {
+
+			release.release(workers);
+		}
+	}
+
+	// ----- nested classes -----
+	private static class TestJob extends ScheduledJob {
+
+		private CountDownLatch running = null;
+		private Semaphore release      = null;
+		private CountDownLatch done    = null;
+		private List<Integer> started  = null;
+		private int priority           = 0;
+
+		public TestJob(final Principal user, final int priority, final CountDownLatch running, final Semaphore release, final CountDownLatch done, final List<Integer> started) {
+
+			super("test", user, Collections.singletonMap("priority", priority));
+
+			this.priority = priority;
+			this.running  = running;
+			this.release  = release;
+			this.started  = started;
+			this.done     = done;
+		}
+
+		@Override
+		public boolean runInitialChecks() throws FrameworkException {
+			return true;
+		}
+
+		@Override
+		public Runnable getRunnable() {
+
+			return () -> {
+
+				try {
+
+					started.add(priority);
+
+					if (running != null) {
+
+						running.countDown();
+						release.tryAcquire(30, TimeUnit.SECONDS);
+					}
+
+				} catch (InterruptedException iex) {
+
+				} finally {
+
+					done.countDown();
+					jobFinished();
+				}
+			};
+		}
+
+		@Override
+		public String getJobType() {
+			return "TEST";
+		}
+
+		@Override
+		public String getJobStatusType() {
+			return "TEST_JOB_STATUS";
+		}
+
+		@Override
+		public String getJobExceptionMessageType() {
+			return "TEST_JOB_EXCEPTION";
+		}
+
+		@Override
+		public Map<String, Object> getStatusData(final JobStatusMessageSubtype subtype) {
+			return new LinkedHashMap<>();
+		}
+
+		@Override
+		public Map<String, Object> getJobInfo() {
+			return new LinkedHashMap<>();
+		}
+	}
+}
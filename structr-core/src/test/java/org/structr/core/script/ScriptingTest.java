@@ -2485,4 +2485,281 @@ public class ScriptingTest extends StructrTest {
 			fail("Unexpected exception.");
 		}
 	}
+
+	@Test
+	public void testCachedExpressionsWithConcurrentEvaluation() {
+
+		final List<TestOne> testOnes = new LinkedList<>();
+		final List<String> errors    = Collections.synchronizedList(new LinkedList<>());
+		final List<Thread> threads   = new LinkedList<>();
+
+		try (final Tx tx = app.tx()) {
+
+			for (int i=0; i<10; i++) {
+
+				testOnes.add(app.create(TestOne.class,
+					new NodeAttribute<>(TestOne.name,  "test" + i),
+					new NodeAttribute<>(TestOne.anInt, i)
+				));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+
+		// all threads evaluate the same expressions, so the parsed expressions are shared
+		for (int t=0; t<4; t++) {
+
+			final Thread thread = new Thread(() -> {
+
+				// each thread needs its own security context because filter() stores the data keyword in it
+				final SecurityContext threadContext = SecurityContext.getSuperUserInstance();
+
+				try (final Tx tx = app.tx()) {
+
+					for (int j=0; j<50; j++) {
+
+						for (final TestOne testOne : testOnes) {
+
+							final ActionContext ctx = new ActionContext(threadContext, null);
+							final String expected   = testOne.getName() + "-" + testOne.getProperty(TestOne.anInt);
+							final String actual     = Scripting.replaceVariables(ctx, testOne, "${concat(this.name, '-', this.anInt)}");
+
+							if (!expected.equals(actual)) {
+								errors.add("Expected " + expected + ", got " + actual);
+							}
+
+							final Object filtered = Scripting.evaluate(ctx, testOne, "${size(filter(find('TestOne'), equal(data.anInt, this.anInt)))}", "test");
+							if (!Integer.valueOf(1).equals(filtered)) {
+								errors.add("Expected 1, got " + filtered);
+							}
+						}
+					}
+
+					tx.success();
+
+				} catch (Throwable t1) {
+					errors.add(t1.getMessage());
+				}
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (final Thread thread : threads) {
+			try { thread.join(); } catch (InterruptedException iex) {}
+		}
+
+		assertTrue("Concurrent evaluation of cached expressions failed: " + errors, errors.isEmpty());
+
+		// invalid expressions must not be cached
+		try (final Tx tx = app.tx()) {
+
+			final ActionContext ctx = new ActionContext(securityContext, null);
+
+			for (int i=0; i<2; i++) {
+
+				try {
+
+					Scripting.evaluate(ctx, null, "${concat('a', 'b'))}", "test");
+					fail("Invalid expression should throw an exception.");
+
+				} catch (FrameworkException expected) {
+
+					assertEquals(422, expected.getStatus());
+				}
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testTemplateWithManyExpressions() {
+
+		try (final Tx tx = app.tx()) {
+
+			final TestOne testOne   = app.create(TestOne.class, new NodeAttribute<>(TestOne.name, "test"), new NodeAttribute<>(TestOne.anInt, 42));
+			final ActionContext ctx = new ActionContext(securityContext, null);
+			final StringBuilder src = new StringBuilder();
+			final StringBuilder exp = new StringBuilder();
+
+			for (int i=0; i<100; i++) {
+
+				src.append("<p>").append(i).append(": ${this.name}/${this.anInt}</p>");
+				exp.append("<p>").append(i).append(": test/42</p>");
+			}
+
+			// render twice to use the compiled template
+			assertEquals("Invalid template result", exp.toString(), Scripting.replaceVariables(ctx, testOne, src.toString()));
+			assertEquals("Invalid template result", exp.toString(), Scripting.replaceVariables(ctx, testOne, src.toString()));
+
+			// expressions are replaced at their position, even if a previous value contains the source of a later expression
+			assertEquals("Invalid template result", "${this.name} test", Scripting.replaceVariables(ctx, testOne, "${'${this.name}'} ${this.name}"));
+
+			assertEquals("Invalid template result", "no expressions", Scripting.replaceVariables(ctx, testOne, "no expressions"));
+			assertEquals("Invalid template result", "a  b", Scripting.replaceVariables(ctx, testOne, "a ${this.alwaysNull} b"));
+			assertNull("Invalid template result", Scripting.replaceVariables(ctx, testOne, "${null}"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testCacheAndInvalidateCache() {
+
+		try (final Tx tx = app.tx()) {
+
+			final ActionContext ctx = new ActionContext(securityContext, null);
+
+			assertEquals("Invalid cache() result", "first",  Scripting.replaceVariables(ctx, null, "${cache('testCacheKey', 60, 'first')}"));
+			assertEquals("Invalid cache() result", "first",  Scripting.replaceVariables(ctx, null, "${cache('testCacheKey', 60, 'second')}"));
+			assertEquals("Invalid cache() result", "first",  Scripting.replaceVariables(ctx, null, "${{ return Structr.cache('testCacheKey', 60, 'third'); }}"));
+
+			Scripting.replaceVariables(ctx, null, "${invalidate_cache('testCacheKey')}");
+
+			assertEquals("Invalid cache() result", "second", Scripting.replaceVariables(ctx, null, "${cache('testCacheKey', 60, 'second')}"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testChangelogStore() {
+
+		Settings.ChangelogEnabled.setValue(true);
+
+		try {
+
+			TestOne test = null;
+
+			try (final Tx tx = app.tx()) {
+
+				test = createTestNode(TestOne.class, "test");
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				test.setProperty(TestOne.aString, "changed");
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				final ActionContext ctx = new ActionContext(securityContext, null);
+
+				assertEquals("Invalid changelog() result", "2", Scripting.replaceVariables(ctx, test, "${size(changelog(this))}"));
+				assertEquals("Invalid changelog() result", "1", Scripting.replaceVariables(ctx, test, "${size(changelog(this, false, 'key', 'aString'))}"));
+				assertNull("Changelog must not be stored in the structrChangeLog property", test.getProperty(GraphObject.structrChangeLog));
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+
+		} finally {
+
+			Settings.ChangelogEnabled.setValue(false);
+		}
+	}
+
+	@Test
+	public void testGlobalsAreNotSharedBetweenEvaluations() {
+
+		try (final Tx tx = app.tx()) {
+
+			final ActionContext ctx = new ActionContext(securityContext, null);
+
+			// the JavaScript context is pooled per thread, but each evaluation has a scope of its own
+			Scripting.evaluate(ctx, null, "${{ var declared = 'first'; undeclared = 'first'; }}", "test");
+
+			assertEquals("Globals must not be visible to the next evaluation", "undefined,undefined", Scripting.evaluate(ctx, null, "${{ return typeof declared + ',' + typeof undeclared; }}", "test"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testNestedEvaluationInPooledContext() {
+
+		try (final Tx tx = app.tx()) {
+
+			final ActionContext ctx = new ActionContext(securityContext, null);
+			final TestOne test      = createTestNode(TestOne.class, "test");
+
+			// a script that evaluates another script re-enters the context of the current thread
+			assertEquals("Invalid nested evaluation result", "outer-inner", Scripting.evaluate(ctx, test, "${{ var value = 'outer'; return value + '-' + Structr.evaluate_script(Structr.this, \"{ var value = 'inner'; return value; }\"); }}", "test"));
+
+			// batch functions run in a thread of their own
+			assertEquals("Invalid batch evaluation result", "batch", Scripting.evaluate(ctx, test, "${{ Structr.batch(function() { var value = 'worker'; return false; }); return 'batch'; }}", "test"));
+
+			// the context must still be usable afterwards
+			assertEquals("Context must be usable after nested evaluation", "usable", Scripting.evaluate(ctx, test, "${{ return 'usable'; }}", "test"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testModificationOfBuiltinPrototype() {
+
+		try (final Tx tx = app.tx()) {
+
+			final ActionContext ctx = new ActionContext(securityContext, null);
+
+			try {
+
+				Scripting.evaluate(ctx, null, "${{ Array.prototype.shared = function() { return 'shared'; }; }}", "test");
+				fail("Modifying a built-in prototype should throw an exception.");
+
+			} catch (FrameworkException fex) {
+
+				assertEquals(422, fex.getStatus());
+				assertTrue("Invalid error message", fex.getMessage().startsWith("Built-in JavaScript objects and their prototypes are shared between all scripts and cannot be modified"));
+			}
+
+			assertEquals("Built-in prototypes must not be modified", "undefined", Scripting.evaluate(ctx, null, "${{ return typeof [].shared; }}", "test"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+	}
 }
@@ -20,8 +20,11 @@ package org.structr.schema;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -638,7 +641,80 @@ public class SchemaTest extends StructrTest {
 
 	}
 
+	@Test
+	public void testIncrementalCompilation() {
+
+		try (final Tx tx = app.tx()) {
+
+			final JsonSchema schema = StructrSchema.createFromDatabase(app);
+
+			schema.addType("Unchanged").addStringProperty("name1");
+			schema.addType("Changed").addStringProperty("name2");
+
+			StructrSchema.extendDatabaseSchema(app, schema);
+
+			tx.success();
+
+		} catch (Throwable fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final Set<String> before = getCachedClasses();
+
+		assertTrue("Byte code of new type was not cached", before.stream().anyMatch(f -> f.startsWith("Unchanged-")));
+		assertTrue("Byte code of new type was not cached", before.stream().anyMatch(f -> f.startsWith("Changed-")));
+
+		try (final Tx tx = app.tx()) {
+
+			final JsonSchema schema = StructrSchema.createFromDatabase(app);
+
+			schema.getType("Changed").addIntegerProperty("count");
+
+			StructrSchema.extendDatabaseSchema(app, schema);
+
+			tx.success();
+
+		} catch (Throwable fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final Set<String> after = getCachedClasses();
+
+		final String unchanged = before.stream().filter(f -> f.startsWith("Unchanged-")).findFirst().get();
+		final String changed   = before.stream().filter(f -> f.startsWith("Changed-")).findFirst().get();
+
+		assertTrue("Byte code of unchanged type was invalidated", after.contains(unchanged));
+		assertFalse("Byte code of changed type was not invalidated", after.contains(changed));
+		assertTrue("Byte code of changed type was not cached", after.stream().anyMatch(f -> f.startsWith("Changed-")));
+
+		try (final Tx tx = app.tx()) {
+
+			final Class unchangedType = StructrApp.getConfiguration().getNodeEntityClass("Unchanged");
+			final Class changedType   = StructrApp.getConfiguration().getNodeEntityClass("Changed");
+
+			app.create(unchangedType, new NodeAttribute<>(StructrApp.key(unchangedType, "name1"), "test"));
+			app.create(changedType, new NodeAttribute<>(StructrApp.key(changedType, "count"), 42));
+
+			tx.success();
+
+		} catch (Throwable fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
 	// ----- private methods -----
+	private Set<String> getCachedClasses() {
+
+		final String[] files = new File(basePath, "bytecode").list();
+
+		assertNotNull("Byte code cache directory does not exist", files);
+
+		return new HashSet<>(Arrays.asList(files));
+	}
+
 	private void checkSchemaString(final String source) {
 
 		System.out.println("########################################## checking");
@@ -20,6 +20,7 @@ package org.structr.schema;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
@@ -474,6 +475,78 @@ public class ValidationTest extends StructrTest {
 		executor.shutdownNow();
 	}
 
+	@Test
+	public void testConcurrentValidationWithDistinctValues() {
+
+		final int count = 100;
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(SchemaNode.class,
+				new NodeAttribute(SchemaNode.name, "Item"),
+				new NodeAttribute(new StringProperty("_name"), "+String!")
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		final Class type = StructrApp.getConfiguration().getNodeEntityClass("Item");
+		assertNotNull(type);
+
+		final ExecutorService executor = Executors.newCachedThreadPool();
+		final List<Future> futures     = new LinkedList<>();
+
+		// each thread creates items with its own names, so no validation may fail
+		for (int t=0; t<3; t++) {
+
+			final String prefix = "Item" + t + "-";
+
+			futures.add(executor.submit(() -> {
+
+				for (int i=0; i<count; i++) {
+
+					try (final Tx tx = app.tx()) {
+
+						app.create(type, prefix + i);
+
+						tx.success();
+
+					} catch (FrameworkException fex) {
+
+						logger.warn("", fex);
+					}
+				}
+			}));
+		}
+
+		try {
+
+			for (final Future future : futures) {
+				future.get();
+			}
+
+		} catch (Throwable ex) {}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Invalid concurrent validation result", count * 3, app.nodeQuery(type).getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		executor.shutdownNow();
+	}
+
 	@Test
 	public void testConcurrentValidationWithInheritance() {
 
@@ -56,6 +56,25 @@ public interface DatabaseService {
 	QueryResult<Relationship> getAllRelationships();
 	QueryResult<Relationship> getRelationshipsByType(final String type);
 
+	/**
+	 * Loads the relationships of the given types for all given nodes
+	 * at once, so that subsequent calls to getRelationships() on these
+	 * nodes can be answered without querying the database again.
+	 *
+	 * @param nodeIds the ids of the nodes
+	 * @param relationshipTypes the names of the relationship types
+	 */
+	void prefetchRelationships(final Iterable<Long> nodeIds, final Set<String> relationshipTypes);
+
+	/**
+	 * Removes all cached query results that depend on one of the given
+	 * type labels. Must be called after entities with these labels were
+	 * created, modified or deleted.
+	 *
+	 * @param typeLabels the type labels of the changed entities
+	 */
+	void invalidateQueryCache(final Set<String> typeLabels);
+
 	GraphProperties getGlobalProperties();
 
 	String getTenantIdentifier();
@@ -25,6 +25,7 @@ public interface Transaction extends AutoCloseable {
 
 	void failure();
 	void success();
+	void flush();
 
 	@Override
 	void close();
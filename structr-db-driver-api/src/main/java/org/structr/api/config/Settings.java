@@ -116,13 +116,22 @@ public class Settings {
 	public static final Setting<Integer> NodeCacheSize         = new IntegerSetting(databaseGroup, "Caching",             "database.cache.node.size",         100000);
 	public static final Setting<Integer> UuidCacheSize         = new IntegerSetting(databaseGroup, "Caching",             "database.cache.uuid.size",         100000);
 	public static final Setting<Integer> QueryCacheSize        = new IntegerSetting(databaseGroup, "Caching",             "database.cache.query.size",        1000);
+	public static final Setting<Integer> WriteBehindBufferSize = new IntegerSetting(databaseGroup, "Performance",         "database.writebehind.buffer.size", 1000);
 	public static final Setting<Boolean> CypherDebugLogging    = new BooleanSetting(databaseGroup, "Debugging",           "log.cypher.debug",                 false);
 	public static final Setting<Boolean> SyncDebugging         = new BooleanSetting(databaseGroup, "Sync debugging",      "sync.debug",                       false);
 
 	// application settings
 	public static final Setting<Integer> ResolutionDepth      = new IntegerSetting(applicationGroup, "Security",   "application.security.resolution.depth",       5);
 	public static final Setting<String> OwnerlessNodes        = new StringSetting(applicationGroup,  "Security",   "application.security.ownerless.nodes",        "read");
+	public static final Setting<Boolean> QueryPermissions     = new BooleanSetting(applicationGroup, "Security",   "application.security.query.permissions",      true);
+	public static final Setting<Integer> PermissionCacheSize  = new IntegerSetting(applicationGroup, "Security",   "application.security.permission.cache.size",  100000);
 	public static final Setting<Boolean> ChangelogEnabled     = new BooleanSetting(applicationGroup, "Changelog",  "application.changelog.enabled",               false);
+	public static final Setting<Integer> ChangelogSegmentSize = new IntegerSetting(applicationGroup, "Changelog",  "application.changelog.segment.size",          64);
+	public static final Setting<Integer> JobWorkers           = new IntegerSetting(applicationGroup, "Scheduler",  "application.scheduler.workers",               4);
+	public static final Setting<String> JobWorkersPerType     = new StringSetting(applicationGroup,  "Scheduler",  "application.scheduler.workers.pertype",       "", "Maximum number of concurrent jobs per job type, e.g. CSV:2,XML:1,SCRIPT:4");
+	public static final Setting<Integer> JobMaxTransactions   = new IntegerSetting(applicationGroup, "Scheduler",  "application.scheduler.transactions.max",      0);
+	public static final Setting<Integer> AgentWorkers         = new IntegerSetting(applicationGroup, "Agents",     "application.agents.workers",                  2);
+	public static final Setting<String> AgentWorkersPerAgent  = new StringSetting(applicationGroup,  "Agents",     "application.agents.workers.peragent",         "", "Number of worker threads per agent class, e.g. FulltextIndexingAgent:4,UpdateFeedAgent:1");
 	public static final Setting<Boolean> FilesystemEnabled    = new BooleanSetting(applicationGroup, "Filesystem", "application.filesystem.enabled",              false);
 	public static final Setting<Boolean> UniquePaths          = new BooleanSetting(applicationGroup, "Filesystem", "application.filesystem.unique.paths",         true);
 	public static final Setting<String> DefaultChecksums      = new StringSetting(applicationGroup,  "Filesystem", "application.filesystem.checksums.default",    "", "List of checksums to be calculated on file creation by default.");
@@ -136,6 +145,11 @@ public class Settings {
 	public static final Setting<String> HttpProxyUser         = new StringSetting(applicationGroup,  "Proxy",      "application.proxy.http.username",             "");
 	public static final Setting<String> HttpProxyPassword     = new StringSetting(applicationGroup,  "Proxy",      "application.proxy.http.password",             "");
 	public static final Setting<Boolean> SchemAutoMigration   = new BooleanSetting(applicationGroup, "Schema",     "application.schema.automigration",            false);
+	public static final Setting<Boolean> SchemaBytecodeCache  = new BooleanSetting(applicationGroup, "Schema",     "application.schema.bytecodecache",            true);
+	public static final Setting<Integer> ExpressionCacheSize  = new IntegerSetting(applicationGroup, "Scripting",  "application.scripting.cache.size",            10000);
+	public static final Setting<Integer> ValueCacheSize       = new IntegerSetting(applicationGroup, "Scripting",  "application.scripting.valuecache.size",       10000);
+	public static final Setting<Integer> ListenerQueueSize    = new IntegerSetting(applicationGroup, "Transactions", "application.transaction.listener.queue.size", 1000);
+	public static final Setting<String> ListenerOverflow      = new StringSetting(applicationGroup,  "Transactions", "application.transaction.listener.overflow",   "block", "What to do when the event queue of a transaction listener is full: block, drop or drop_oldest");
 
 	// mail settings
 	public static final Setting<String> SmtpHost              = new StringSetting(smtpGroup,  "SMTP Settings", "smtp.host",         "localhost");
@@ -172,6 +186,7 @@ public class Settings {
 	public static final Setting<String> RestUserClass         = new StringSetting(servletsGroup,  "JsonRestServlet", "JsonRestServlet.user.class",       "org.structr.dynamic.User");
 	public static final Setting<Boolean> RestUserAutologin    = new BooleanSetting(servletsGroup, "JsonRestServlet", "JsonRestServlet.user.autologin",   false);
 	public static final Setting<Boolean> RestUserAutocreate   = new BooleanSetting(servletsGroup, "JsonRestServlet", "JsonRestServlet.user.autocreate",  false);
+	public static final Setting<Integer> RestStreamPageSize   = new IntegerSetting(servletsGroup, "JsonRestServlet", "JsonRestServlet.stream.pagesize",  1000);
 
 	public static final Setting<String> HtmlServletPath           = new StringSetting(servletsGroup,  "HtmlServlet", "HtmlServlet.path",                  "/structr/html/*");
 	public static final Setting<String> HtmlServletClass          = new StringSetting(servletsGroup,  "HtmlServlet", "HtmlServlet.class",                 "org.structr.web.servlet.HtmlServlet");
@@ -31,5 +31,25 @@ public interface Index<T> {
 	void remove(final T t);
 	void remove(final T t, final String key);
 
+	/**
+	 * Replaces the trigram index entries of the given key for the given
+	 * entity with the trigrams of the given value, which must be a string
+	 * or a string array. A null value removes the entries.
+	 *
+	 * @param t the entity
+	 * @param key the property key
+	 * @param value the new value
+	 */
+	void updateTrigrams(final T t, final String key, final Object value);
+
 	QueryResult<T> query(final QueryPredicate predicate);
+
+	/**
+	 * Returns the number of distinct results of the given predicate,
+	 * ignoring its offset and limit.
+	 *
+	 * @param predicate
+	 * @return the number of results
+	 */
+	long count(final QueryPredicate predicate);
 }
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position of the last element of a result page, consisting of the
+ * database value of the sort key and the internal id of the element.
+ * A query that is given a cursor continues directly after that position
+ * instead of skipping the elements of all previous pages.
+ *
+ * The cursor can be encoded into an opaque, URL-safe string and back.
+ */
+public class QueryCursor {
+
+	private Object value = null;
+	private long id      = -1L;
+
+	public QueryCursor(final long id, final Object value) {
+
+		this.value = value;
+		this.id    = id;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	/**
+	 * Encodes this cursor into an URL-safe string.
+	 *
+	 * @return the encoded cursor
+	 */
+	public String encode() {
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(id);
+		buf.append(":");
+
+		if (value == null) {
+
+			buf.append("n:");
+
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+
+			buf.append("l:");
+			buf.append(((Number)value).longValue());
+
+		} else if (value instanceof Double || value instanceof Float) {
+
+			buf.append("d:");
+			buf.append(((Number)value).doubleValue());
+
+		} else if (value instanceof Boolean) {
+
+			buf.append("b:");
+			buf.append(value);
+
+		} else {
+
+			buf.append("s:");
+			buf.append(value);
+		}
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor that was encoded with {@link #encode()}.
+	 *
+	 * @param source the encoded cursor
+	 * @return the cursor
+	 *
+	 * @throws IllegalArgumentException if the given string is not a valid cursor
+	 */
+	public static QueryCursor decode(final String source) {
+
+		try {
+
+			final String decoded = new String(Base64.getUrlDecoder().decode(source), StandardCharsets.UTF_8);
+			final String[] parts = decoded.split(":", 3);
+
+			if (parts.length == 3) {
+
+				final long id      = Long.parseLong(parts[0]);
+				final String value = parts[2];
+
+				switch (parts[1]) {
+
+					case "n":
+						return new QueryCursor(id, null);
+
+					case "l":
+						return new QueryCursor(id, Long.valueOf(value));
+
+					case "d":
+						return new QueryCursor(id, Double.valueOf(value));
+
+					case "b":
+						return new QueryCursor(id, Boolean.valueOf(value));
+
+					case "s":
+						return new QueryCursor(id, value);
+				}
+			}
+
+		} catch (IllegalArgumentException iex) {
+			// NumberFormatException is an IllegalArgumentException
+		}
+
+		throw new IllegalArgumentException("Invalid cursor " + source);
+	}
+}
@@ -36,7 +36,47 @@ public interface QueryPredicate {
 	Occurrence getOccurrence();
 	boolean isExactMatch();
 
+	/**
+	 * Indicates whether the trigram index of the property can be used
+	 * to narrow down the candidates of an inexact search.
+	 *
+	 * @return whether the property has a trigram index
+	 */
+	boolean isTrigramIndexed();
+
 	String getSortKey();
 	SortType getSortType();
 	boolean sortDescending();
+
+	/**
+	 * The position after which the query should continue, or null if
+	 * the query should start with the first element.
+	 *
+	 * @return the cursor or null
+	 */
+	QueryCursor getCursor();
+
+	/**
+	 * Indicates whether the result of the query is read while it is
+	 * serialized, so that it must not be loaded into memory first.
+	 *
+	 * @return whether the result is streamed
+	 */
+	boolean isStreaming();
+
+	/**
+	 * The number of elements that the database should skip, if the
+	 * result is limited by {@link #getLimit()}.
+	 *
+	 * @return the offset of the first element
+	 */
+	int getOffset();
+
+	/**
+	 * The maximum number of elements that the database should return, or
+	 * -1 if the result is not limited.
+	 *
+	 * @return the limit or -1
+	 */
+	int getLimit();
 }
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.search;
+
+import java.util.Set;
+
+/**
+ * Restricts a query to the entities that are readable for a given set
+ * of principals, i.e. entities that are visible to public users, visible
+ * to authenticated users, owned by one of the principals or made
+ * readable for one of the principals by a security relationship.
+ */
+public interface ReadPermissionQuery extends QueryPredicate {
+
+	/**
+	 * The ids of the accessing user and all of its parent groups.
+	 *
+	 * @return the principal ids
+	 */
+	Set<Long> getPrincipalIds();
+}
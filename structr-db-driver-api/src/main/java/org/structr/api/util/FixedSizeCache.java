@@ -39,27 +39,27 @@ public class FixedSizeCache<K, V> {
 		this.cache   = Collections.synchronizedMap(new InvalidatingLRUMap<>(maxSize));
 	}
 
-	public synchronized void put(final K key, final V value) {
+	public void put(final K key, final V value) {
 		cache.put(key, value);
 	}
 
-	public synchronized V get(final K key) {
+	public V get(final K key) {
 		return cache.get(key);
 	}
 
-	public synchronized void remove(final K key) {
+	public void remove(final K key) {
 		cache.remove(key);
 	}
 
-	public synchronized void clear() {
+	public void clear() {
 		cache.clear();
 	}
 
-	public synchronized int size() {
+	public int size() {
 		return cache.size();
 	}
 
-	public synchronized boolean isEmpty() {
+	public boolean isEmpty() {
 		return cache.isEmpty();
 	}
 
@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A concurrent cache with a fixed maximum size that loads the value
+ * for a given key at most once, even if the key is requested by many
+ * threads at the same time. Threads that request a key which is being
+ * loaded wait for that key only, no lock is held while a value is
+ * loaded.
+ *
+ * When the cache exceeds its maximum size, the least recently used
+ * entries are removed. Values that implement {@link Cachable} are
+ * notified when they are removed due to size restrictions.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LoadingCache<K, V> {
+
+	private final ConcurrentHashMap<K, CacheEntry<V>> cache = new ConcurrentHashMap<>();
+	private final ReentrantLock evictionLock                = new ReentrantLock();
+	private int maxSize                                     = 0;
+
+	public LoadingCache(final int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the value for the given key, calling the given loader if
+	 * the key is not present in the cache. If the loader fails, the
+	 * exception is thrown to the caller, and threads that were waiting
+	 * for the value try to load it themselves.
+	 *
+	 * @param key
+	 * @param loader
+	 * @return the cached or loaded value
+	 */
+	public V get(final K key, final Function<K, V> loader) {
+
+		while (true) {
+
+			CacheEntry<V> entry = cache.get(key);
+			if (entry == null) {
+
+				final CacheEntry<V> newEntry = new CacheEntry<>();
+
+				entry = cache.putIfAbsent(key, newEntry);
+				if (entry == null) {
+
+					return load(key, newEntry, loader);
+				}
+			}
+
+			try {
+
+				final V value = entry.future.join();
+
+				entry.lastAccess = System.nanoTime();
+
+				return value;
+
+			} catch (CompletionException cex) {
+
+				// loading failed in another thread, try again
+				cache.remove(key, entry);
+			}
+		}
+	}
+
+	/**
+	 * Returns the value for the given key, or null if the key is not
+	 * present in the cache or is still being loaded.
+	 *
+	 * @param key
+	 * @return the cached value or null
+	 */
+	public V get(final K key) {
+
+		final CacheEntry<V> entry = cache.get(key);
+		if (entry != null && entry.future.isDone() && !entry.future.isCompletedExceptionally()) {
+
+			entry.lastAccess = System.nanoTime();
+
+			return entry.future.getNow(null);
+		}
+
+		return null;
+	}
+
+	public void put(final K key, final V value) {
+
+		final CacheEntry<V> entry = new CacheEntry<>();
+
+		entry.future.complete(value);
+		cache.put(key, entry);
+
+		evict();
+	}
+
+	public void remove(final K key) {
+		cache.remove(key);
+	}
+
+	public void clear() {
+		cache.clear();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	public boolean isEmpty() {
+		return cache.isEmpty();
+	}
+
+	// ----- private methods -----
+	private V load(final K key, final CacheEntry<V> entry, final Function<K, V> loader) {
+
+		try {
+
+			final V value = loader.apply(key);
+
+			entry.future.complete(value);
+
+			evict();
+
+			return value;
+
+		} catch (Throwable t) {
+
+			// remove failed entry so that the next caller can try again
+			cache.remove(key, entry);
+			entry.future.completeExceptionally(t);
+
+			throw t;
+		}
+	}
+
+	private void evict() {
+
+		// only one thread needs to evict, the others can continue
+		if (cache.size() <= maxSize || !evictionLock.tryLock()) {
+			return;
+		}
+
+		try {
+
+			final List<Candidate<K, V>> candidates = new ArrayList<>();
+
+			for (final Entry<K, CacheEntry<V>> entry : cache.entrySet()) {
+
+				final CacheEntry<V> value = entry.getValue();
+
+				// ignore entries that are still being loaded
+				if (value.future.isDone() && !value.future.isCompletedExceptionally()) {
+
+					candidates.add(new Candidate<>(entry.getKey(), value));
+				}
+			}
+
+			candidates.sort(Comparator.comparingLong(c -> c.lastAccess));
+
+			// remove a few more entries than necessary so that the
+			// next insertions don't trigger another eviction run
+			final int count = Math.min(candidates.size(), cache.size() - maxSize + (maxSize / 10));
+
+			for (int i=0; i<count; i++) {
+
+				final Candidate<K, V> candidate = candidates.get(i);
+
+				if (cache.remove(candidate.key, candidate.entry)) {
+
+					final V value = candidate.entry.future.getNow(null);
+					if (value != null && value instanceof Cachable) {
+
+						((Cachable)value).onRemoveFromCache();
+					}
+				}
+			}
+
+		} finally {
+
+			evictionLock.unlock();
+		}
+	}
+
+	// ----- nested classes -----
+	private static class CacheEntry<V> {
+
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+		private volatile long lastAccess          = System.nanoTime();
+	}
+
+	private static class Candidate<K, V> {
+
+		private CacheEntry<V> entry = null;
+		private long lastAccess     = 0L;
+		private K key               = null;
+
+		public Candidate(final K key, final CacheEntry<V> entry) {
+
+			// take a snapshot of the access time for sorting
+			this.lastAccess = entry.lastAccess;
+			this.entry      = entry;
+			this.key        = key;
+		}
+	}
+}
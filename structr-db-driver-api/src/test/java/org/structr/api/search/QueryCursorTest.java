@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class QueryCursorTest {
+
+	@Test
+	public void testEncodeDecode() {
+
+		testCursor(new QueryCursor(1L, null));
+		testCursor(new QueryCursor(2L, "test"));
+		testCursor(new QueryCursor(3L, "with:colons:and spaces ä"));
+		testCursor(new QueryCursor(4L, ""));
+		testCursor(new QueryCursor(5L, 1234567890123L));
+		testCursor(new QueryCursor(6L, 1.5));
+		testCursor(new QueryCursor(7L, true));
+
+		// integer values are stored as long values in the database
+		assertEquals("Invalid cursor value", 42L, QueryCursor.decode(new QueryCursor(8L, 42).encode()).getValue());
+	}
+
+	@Test
+	public void testInvalidCursors() {
+
+		testInvalidCursor("x");
+		testInvalidCursor("");
+		testInvalidCursor("%%%");
+		testInvalidCursor("YTpzOnRlc3Q");	// a:s:test
+		testInvalidCursor("MTp4OnRlc3Q");	// 1:x:test
+	}
+
+	// ----- private methods -----
+	private void testCursor(final QueryCursor cursor) {
+
+		final QueryCursor decoded = QueryCursor.decode(cursor.encode());
+
+		assertEquals("Invalid cursor id", cursor.getId(), decoded.getId());
+
+		if (cursor.getValue() == null) {
+
+			assertNull("Invalid cursor value", decoded.getValue());
+
+		} else {
+
+			assertEquals("Invalid cursor value", cursor.getValue(), decoded.getValue());
+		}
+	}
+
+	private void testInvalidCursor(final String source) {
+
+		try {
+			QueryCursor.decode(source);
+			fail("Invalid cursor should throw an exception.");
+
+		} catch (IllegalArgumentException iex) {
+			assertEquals("Invalid cursor error message", "Invalid cursor " + source, iex.getMessage());
+		}
+	}
+}
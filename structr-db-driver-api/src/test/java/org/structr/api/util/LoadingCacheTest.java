@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+
+/**
+ *
+ */
+public class LoadingCacheTest {
+
+	@org.junit.Test
+	public void testLoadOncePerKey() throws InterruptedException {
+
+		final LoadingCache<Long, Long> test = new LoadingCache<>(10);
+		final AtomicInteger loadCount       = new AtomicInteger(0);
+		final CountDownLatch start          = new CountDownLatch(1);
+		final List<Thread> threads          = new LinkedList<>();
+		final List<Long> results            = new LinkedList<>();
+
+		for (int i=0; i<20; i++) {
+
+			final Thread thread = new Thread(() -> {
+
+				try {
+
+					start.await();
+
+					final Long value = test.get(1L, key -> {
+
+						loadCount.incrementAndGet();
+
+						// simulate slow database access
+						try { Thread.sleep(100); } catch (InterruptedException ignore) {}
+
+						return key * 10;
+					});
+
+					synchronized (results) {
+						results.add(value);
+					}
+
+				} catch (InterruptedException ignore) {}
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		start.countDown();
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals("Invalid LoadingCache load count", 1, loadCount.get());
+		Assert.assertEquals("Invalid LoadingCache result count", 20, results.size());
+
+		for (final Long value : results) {
+			Assert.assertEquals("Invalid LoadingCache result", Long.valueOf(10L), value);
+		}
+	}
+
+	@org.junit.Test
+	public void testFailedLoad() {
+
+		final LoadingCache<Long, Long> test = new LoadingCache<>(10);
+
+		try {
+
+			test.get(1L, key -> { throw new IllegalStateException("Not found"); });
+			Assert.fail("LoadingCache should propagate loader exceptions");
+
+		} catch (IllegalStateException expected) {}
+
+		Assert.assertNull("Failed LoadingCache entry should not be cached", test.get(1L));
+		Assert.assertEquals("Invalid LoadingCache result", Long.valueOf(2L), test.get(1L, key -> 2L));
+	}
+
+	@org.junit.Test
+	public void testEviction() {
+
+		final LoadingCache<Long, Long> test = new LoadingCache<>(10);
+
+		for (int i=0; i<100; i++) {
+
+			test.get(Long.valueOf(i), key -> key);
+		}
+
+		Assert.assertTrue("Invalid LoadingCache size", test.size() <= 10);
+
+		// check that the most recently used entry is kept
+		Assert.assertEquals("Invalid LoadingCache contents", Long.valueOf(99L), test.get(99L));
+
+		// check that the eldest entries are removed
+		for (int i=0; i<80; i++) {
+
+			Assert.assertNull("Invalid LoadingCache contents", test.get(Long.valueOf(i)));
+		}
+	}
+}
@@ -186,7 +186,7 @@ public class FulltextIndexingAgent extends Agent<String> {
 							indexable.setProperty(StructrApp.key(File.class, "extractedContent"), trimToLength(tokenizer.getRawText(), maxStringLength));
 
 							// tokenize name
-							tokenizer.write(getName());
+							tokenizer.write(fileName);
 
 							// tokenize owner name
 							final Principal _owner = indexable.getOwnerNode();
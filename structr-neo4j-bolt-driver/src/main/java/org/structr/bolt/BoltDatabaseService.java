@@ -63,6 +63,7 @@ import org.structr.api.util.QueryUtils;
 import org.structr.bolt.index.CypherNodeIndex;
 import org.structr.bolt.index.CypherRelationshipIndex;
 import org.structr.bolt.index.NodeResultStream;
+import org.structr.bolt.index.QueryCache;
 import org.structr.bolt.index.RelationshipResultStream;
 import org.structr.bolt.index.SimpleCypherQuery;
 import org.structr.bolt.mapper.NodeNodeMapper;
@@ -82,6 +83,7 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 	private Properties globalGraphProperties                          = null;
 	private CypherRelationshipIndex relationshipIndex                 = null;
 	private CypherNodeIndex nodeIndex                                 = null;
+	private QueryCache queryCache                                     = null;
 	private GraphDatabaseService graphDb                              = null;
 	private boolean needsIndexRebuild                                 = false;
 	private String databaseUrl                                        = null;
@@ -158,6 +160,13 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			RelationshipWrapper.initialize(relCacheSize);
 			logger.info("Relationship cache size set to {}", relCacheSize);
 
+			final int queryCacheSize = Settings.QueryCacheSize.getValue();
+			if (queryCacheSize > 0) {
+
+				queryCache = new QueryCache(queryCacheSize);
+				logger.info("Query cache size set to {}", queryCacheSize);
+			}
+
 			// drop :NodeInterface index and create uniqueness constraint
 			// disabled, planned for Structr 2.4
 			//createUUIDConstraint();
@@ -179,6 +188,10 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		RelationshipWrapper.clearCache();
 		NodeWrapper.clearCache();
 
+		if (queryCache != null) {
+			queryCache.clear();
+		}
+
 		driver.close();
 		graphDb.shutdown();
 	}
@@ -243,7 +256,13 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		// make properties available to Cypher statement
 		map.put("properties", properties);
 
-		return NodeWrapper.newInstance(this, getCurrentTransaction().getNode(buf.toString(), map));
+		final SessionTransaction tx = getCurrentTransaction();
+		final NodeWrapper node      = NodeWrapper.newInstance(this, tx.getNode(buf.toString(), map));
+
+		// new nodes are write-locked by the creating transaction
+		tx.locked(node);
+
+		return node;
 	}
 
 	@Override
@@ -294,7 +313,10 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			buf.append(tenantId);
 		}
 
-		buf.append(") RETURN n");
+		// trigram index entries are not part of the data
+		buf.append(") WHERE NOT n:");
+		buf.append(CypherNodeIndex.TRIGRAM_LABEL);
+		buf.append(" RETURN n");
 
 		return QueryUtils.map(new NodeNodeMapper(this), new NodeResultStream(this, new SimpleCypherQuery(buf.toString())));
 	}
@@ -372,6 +394,19 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		return QueryUtils.map(new RelationshipRelationshipMapper(this), new RelationshipResultStream(this, new SimpleCypherQuery(buf.toString())));
 	}
 
+	@Override
+	public void prefetchRelationships(final Iterable<Long> nodeIds, final Set<String> relationshipTypes) {
+		NodeWrapper.prefetchRelationships(this, nodeIds, relationshipTypes);
+	}
+
+	@Override
+	public void invalidateQueryCache(final Set<String> typeLabels) {
+
+		if (queryCache != null) {
+			queryCache.invalidate(typeLabels);
+		}
+	}
+
 	@Override
 	public QueryResult<Relationship> getRelationshipsByType(final String type) {
 
@@ -448,6 +483,10 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		return tx;
 	}
 
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+
 	public boolean logQueries() {
 		return Settings.CypherDebugLogging.getValue();
 	}
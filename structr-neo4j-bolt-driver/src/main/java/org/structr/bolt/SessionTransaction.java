@@ -19,9 +19,14 @@
 package org.structr.bolt;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import org.apache.commons.lang.StringUtils;
 import org.neo4j.driver.v1.Record;
@@ -45,6 +50,7 @@ import org.structr.api.NetworkException;
 import org.structr.api.NotFoundException;
 import org.structr.api.QueryResult;
 import org.structr.api.RetryException;
+import org.structr.api.config.Settings;
 import org.structr.api.util.QueryUtils;
 import org.structr.bolt.mapper.RecordLongMapper;
 import org.structr.bolt.mapper.RecordNodeMapper;
@@ -57,18 +63,22 @@ import org.structr.bolt.wrapper.StatementResultWrapper;
  */
 public class SessionTransaction implements org.structr.api.Transaction {
 
-	private final Set<EntityWrapper> modifiedEntities = new HashSet<>();
-	private BoltDatabaseService db                    = null;
-	private Session session                           = null;
-	private Transaction tx                            = null;
-	private boolean closed                            = false;
-	private boolean success                           = false;
+	private final Map<EntityWrapper, Map<String, Object>> pendingChanges = new LinkedHashMap<>();
+	private final Set<EntityWrapper> modifiedEntities                     = new HashSet<>();
+	private final Set<EntityWrapper> lockedEntities                       = new HashSet<>();
+	private BoltDatabaseService db                                        = null;
+	private Session session                                               = null;
+	private Transaction tx                                                = null;
+	private boolean closed                                                = false;
+	private boolean success                                               = false;
+	private int writeBehindBufferSize                                     = 0;
 
 	public SessionTransaction(final BoltDatabaseService db, final Session session) {
 
-		this.session = session;
-		this.tx      = session.beginTransaction();
-		this.db      = db;
+		this.writeBehindBufferSize = Settings.WriteBehindBufferSize.getValue();
+		this.session               = session;
+		this.tx                    = session.beginTransaction();
+		this.db                    = db;
 	}
 
 	@Override
@@ -79,6 +89,10 @@ public class SessionTransaction implements org.structr.api.Transaction {
 	@Override
 	public void success() {
 
+		// pending property changes must be written before the
+		// transaction can be committed
+		flush();
+
 		tx.success();
 
 		// transaction must be marked successfull explicitely
@@ -90,6 +104,9 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		if (!success) {
 
+			// discard property changes that were not written yet
+			pendingChanges.clear();
+
 			// We need to invalidate all existing references because we cannot
 			// be sure that they contain the correct values after a rollback.
 			for (final EntityWrapper entity : modifiedEntities) {
@@ -111,6 +128,25 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			// write property changes that were made after success()
+			if (success && !pendingChanges.isEmpty()) {
+
+				try {
+
+					flush();
+
+				} catch (RuntimeException rex) {
+
+					// the transaction will be rolled back
+					for (final EntityWrapper entity : modifiedEntities) {
+						entity.stale();
+					}
+
+					tx.failure();
+					throw rex;
+				}
+			}
+
 			tx.close();
 			session.close();
 
@@ -168,7 +204,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			return tx.run(statement, map).next().get(0).asBoolean();
+			return runStatement(statement, map).next().get(0).asBoolean();
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -208,7 +244,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			return tx.run(statement, map).next().get(0).asLong();
+			return runStatement(statement, map).next().get(0).asLong();
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -228,7 +264,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			final StatementResult result = tx.run(statement, map);
+			final StatementResult result = runStatement(statement, map);
 			if (result.hasNext()) {
 
 				return result.next().get(0).asObject();
@@ -254,7 +290,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			return tx.run(statement, map).next().get(0).asEntity();
+			return runStatement(statement, map).next().get(0).asEntity();
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -274,7 +310,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			return tx.run(statement, map).next().get(0).asNode();
+			return runStatement(statement, map).next().get(0).asNode();
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -294,7 +330,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			return tx.run(statement, map).next().get(0).asRelationship();
+			return runStatement(statement, map).next().get(0).asRelationship();
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -314,7 +350,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			return QueryUtils.map(new RecordNodeMapper(), new StatementIterable(tx.run(statement, map)));
+			return QueryUtils.map(new RecordNodeMapper(), new StatementIterable(runStatement(statement, map)));
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -334,7 +370,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			return QueryUtils.map(new RecordRelationshipMapper(), new StatementIterable(tx.run(statement, map)));
+			return QueryUtils.map(new RecordRelationshipMapper(), new StatementIterable(runStatement(statement, map)));
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -354,7 +390,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			return QueryUtils.map(new RecordLongMapper(), new StatementIterable(tx.run(statement, map)));
+			return QueryUtils.map(new RecordLongMapper(), new StatementIterable(runStatement(statement, map)));
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -374,7 +410,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			final StatementResult result = tx.run(statement, map);
+			final StatementResult result = runStatement(statement, map);
 			final Record record = result.next();
 			final Value value = record.get(0);
 
@@ -409,7 +445,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			return new StatementResultWrapper(db, tx.run(statement, map));
+			return new StatementResultWrapper(db, runStatement(statement, map));
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -433,7 +469,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
-			tx.run(statement, map).consume();
+			runStatement(statement, map).consume();
 
 		} catch (TransientException tex) {
 			closed = true;
@@ -451,6 +487,115 @@ public class SessionTransaction implements org.structr.api.Transaction {
 		}
 	}
 
+	/**
+	 * Registers the given property values for the given entity. The values
+	 * are not written immediately but collected until the next statement is
+	 * executed in this transaction, or until the transaction is committed.
+	 * All changes collected up to that point are written using a single
+	 * statement per entity type.
+	 *
+	 * The first change of an entity that was not created or written in this
+	 * transaction is written immediately so that the write lock is acquired
+	 * before the change becomes visible in the shared entity wrapper.
+	 *
+	 * A <code>null</code> value removes the property.
+	 *
+	 * @param wrapper the entity to modify
+	 * @param values the property values to set
+	 */
+	public void setProperties(final EntityWrapper wrapper, final Map<String, Object> values) {
+
+		Map<String, Object> changes = pendingChanges.get(wrapper);
+		if (changes == null) {
+
+			changes = new LinkedHashMap<>();
+			pendingChanges.put(wrapper, changes);
+		}
+
+		changes.putAll(values);
+
+		if (!lockedEntities.contains(wrapper) || pendingChanges.size() >= writeBehindBufferSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Registers the given entity as write-locked by this transaction, i.e.
+	 * it was created or modified in this transaction.
+	 *
+	 * @param wrapper the entity
+	 */
+	public void locked(final EntityWrapper wrapper) {
+		lockedEntities.add(wrapper);
+	}
+
+	/**
+	 * Writes all pending property changes to the database.
+	 */
+	@Override
+	public void flush() {
+
+		if (pendingChanges.isEmpty()) {
+			return;
+		}
+
+		final Map<String, List<Map<String, Object>>> updates = new LinkedHashMap<>();
+
+		for (final Entry<EntityWrapper, Map<String, Object>> entry : pendingChanges.entrySet()) {
+
+			final Map<String, Object> update = new HashMap<>();
+			final EntityWrapper wrapper      = entry.getKey();
+			final String prefix              = wrapper.getQueryPrefix();
+			List<Map<String, Object>> list   = updates.get(prefix);
+
+			if (list == null) {
+
+				list = new LinkedList<>();
+				updates.put(prefix, list);
+			}
+
+			update.put("id",         wrapper.getId());
+			update.put("properties", entry.getValue());
+
+			list.add(update);
+
+			// the entity is write-locked once the statement is executed
+			lockedEntities.add(wrapper);
+		}
+
+		// clear buffer before the statements are executed so that
+		// a failed flush is not repeated on the next statement
+		pendingChanges.clear();
+
+		for (final Entry<String, List<Map<String, Object>>> entry : updates.entrySet()) {
+
+			final Map<String, Object> map = new HashMap<>();
+			final String statement        = "UNWIND {updates} AS u " + entry.getKey() + " WHERE ID(n) = u.id SET n += u.properties";
+			final long t0                 = System.currentTimeMillis();
+
+			map.put("updates", entry.getValue());
+
+			try {
+
+				tx.run(statement, map).consume();
+
+			} catch (TransientException tex) {
+				closed = true;
+				throw new RetryException(tex);
+			} catch (NoSuchRecordException nex) {
+				throw new NotFoundException(nex);
+			} catch (ServiceUnavailableException ex) {
+				throw new NetworkException(ex.getMessage(), ex);
+			} catch (DatabaseException dex) {
+				throw SessionTransaction.translateDatabaseException(dex);
+			} catch (ClientException cex) {
+				throw SessionTransaction.translateClientException(cex);
+			} finally {
+				logQuery(statement, map, t0);
+			}
+		}
+	}
+
 	public void logQuery(final String statement, final long t0) {
 		logQuery(statement, null, t0);
 	}
@@ -482,6 +627,25 @@ public class SessionTransaction implements org.structr.api.Transaction {
 		modifiedEntities.add(wrapper);
 	}
 
+	/**
+	 * Indicates whether entities were created, modified or deleted
+	 * in this transaction.
+	 *
+	 * @return whether this transaction contains changes
+	 */
+	public boolean hasChanges() {
+		return !modifiedEntities.isEmpty() || !lockedEntities.isEmpty() || !pendingChanges.isEmpty();
+	}
+
+	// ----- private methods -----
+	private StatementResult runStatement(final String statement, final Map<String, Object> map) {
+
+		// statements can depend on pending property changes
+		flush();
+
+		return tx.run(statement, map);
+	}
+
 	// ----- public static methods -----
 	public static RuntimeException translateClientException(final ClientException cex) {
 
@@ -18,16 +18,20 @@
  */
 package org.structr.bolt.index;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.NotFoundException;
 import org.structr.api.QueryResult;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.index.Index;
@@ -37,8 +41,10 @@ import org.structr.api.search.ExactQuery;
 import org.structr.api.search.FulltextQuery;
 import org.structr.api.search.GroupQuery;
 import org.structr.api.search.NotEmptyQuery;
+import org.structr.api.search.QueryCursor;
 import org.structr.api.search.QueryPredicate;
 import org.structr.api.search.RangeQuery;
+import org.structr.api.search.ReadPermissionQuery;
 import org.structr.api.search.RelationshipQuery;
 import org.structr.api.search.SpatialQuery;
 import org.structr.api.search.TypeConverter;
@@ -62,6 +68,7 @@ import org.structr.bolt.index.factory.KeywordQueryFactory;
 import org.structr.bolt.index.factory.NotEmptyQueryFactory;
 import org.structr.bolt.index.factory.QueryFactory;
 import org.structr.bolt.index.factory.RangeQueryFactory;
+import org.structr.bolt.index.factory.ReadPermissionQueryFactory;
 import org.structr.bolt.index.factory.RelationshipQueryFactory;
 import org.structr.bolt.index.factory.SpatialQueryFactory;
 import org.structr.bolt.index.factory.TypeQueryFactory;
@@ -76,6 +83,7 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 	public static final TypeConverter DEFAULT_CONVERTER      = new StringTypeConverter();
 	public static final Map<Class, TypeConverter> CONVERTERS = new HashMap<>();
 	public static final Map<Class, QueryFactory> FACTORIES   = new HashMap<>();
+	private static final int MAX_CACHED_RESULT_SIZE          = 10000;
 
 	public static final Set<Class> INDEXABLE = new HashSet<>(Arrays.asList(new Class[] {
 		String.class,   Boolean.class,   Short.class,   Integer.class,   Long.class,   Character.class,   Float.class,   Double.class,   byte.class,
@@ -84,17 +92,18 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 
 	static {
 
-		FACTORIES.put(NotEmptyQuery.class,     new NotEmptyQueryFactory());
-		FACTORIES.put(FulltextQuery.class,     new KeywordQueryFactory());
-		FACTORIES.put(SpatialQuery.class,      new SpatialQueryFactory());
-		FACTORIES.put(GroupQuery.class,        new GroupQueryFactory());
-		FACTORIES.put(RangeQuery.class,        new RangeQueryFactory());
-		FACTORIES.put(ExactQuery.class,        new KeywordQueryFactory());
-		FACTORIES.put(ArrayQuery.class,        new ArrayQueryFactory());
-		FACTORIES.put(EmptyQuery.class,        new EmptyQueryFactory());
-		FACTORIES.put(TypeQuery.class,         new TypeQueryFactory());
-		FACTORIES.put(UuidQuery.class,         new UuidQueryFactory());
-		FACTORIES.put(RelationshipQuery.class, new RelationshipQueryFactory());
+		FACTORIES.put(NotEmptyQuery.class,       new NotEmptyQueryFactory());
+		FACTORIES.put(FulltextQuery.class,       new KeywordQueryFactory());
+		FACTORIES.put(SpatialQuery.class,        new SpatialQueryFactory());
+		FACTORIES.put(GroupQuery.class,          new GroupQueryFactory());
+		FACTORIES.put(RangeQuery.class,          new RangeQueryFactory());
+		FACTORIES.put(ExactQuery.class,          new KeywordQueryFactory());
+		FACTORIES.put(ArrayQuery.class,          new ArrayQueryFactory());
+		FACTORIES.put(EmptyQuery.class,          new EmptyQueryFactory());
+		FACTORIES.put(TypeQuery.class,           new TypeQueryFactory());
+		FACTORIES.put(UuidQuery.class,           new UuidQueryFactory());
+		FACTORIES.put(RelationshipQuery.class,   new RelationshipQueryFactory());
+		FACTORIES.put(ReadPermissionQuery.class, new ReadPermissionQueryFactory());
 
 		CONVERTERS.put(Boolean.class, new BooleanTypeConverter());
 		CONVERTERS.put(String.class,  new StringTypeConverter());
@@ -114,6 +123,7 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 	}
 
 	public abstract QueryResult<T> getResult(final PageableQuery query);
+	public abstract T getById(final long id);
 	public abstract String getQueryPrefix(final String mainType, final String sourceTypeLabel, final String targetTypeLabel);
 	public abstract String getQuerySuffix();
 
@@ -145,6 +155,69 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 	public void remove(final PropertyContainer t, final String key) {
 	}
 
+	@Override
+	public void updateTrigrams(final T t, final String key, final Object value) {
+	}
+
+	/**
+	 * Returns the ids of all entities whose trigram index entries for
+	 * the given key contain all trigrams of the given value and that have
+	 * one of the given labels, or null if the candidates cannot be narrowed
+	 * down using the trigram index.
+	 *
+	 * @param key the property key
+	 * @param value the search value
+	 * @param labels the type labels of the query, or an empty list
+	 * @return the candidate ids or null
+	 */
+	public List<Long> getTrigramCandidates(final String key, final Object value, final List<String> labels) {
+		return null;
+	}
+
+	/**
+	 * Indicates whether this index contains trigram index entries.
+	 *
+	 * @return whether trigram index entries exist
+	 */
+	public boolean hasTrigrams() {
+		return false;
+	}
+
+	/**
+	 * Returns the distinct lower-case trigrams of the given value, which
+	 * can be a string, a string array or a collection of strings.
+	 *
+	 * @param value the value
+	 * @return the trigrams
+	 */
+	public static Set<String> getTrigrams(final Object value) {
+
+		final Set<String> trigrams = new LinkedHashSet<>();
+
+		if (value instanceof String) {
+
+			final String lowerCase = ((String)value).toLowerCase();
+
+			for (int i = 0; i + 3 <= lowerCase.length(); i++) {
+				trigrams.add(lowerCase.substring(i, i + 3));
+			}
+
+		} else if (value instanceof Object[]) {
+
+			for (final Object element : (Object[])value) {
+				trigrams.addAll(getTrigrams(element));
+			}
+
+		} else if (value instanceof Collection) {
+
+			for (final Object element : (Collection)value) {
+				trigrams.addAll(getTrigrams(element));
+			}
+		}
+
+		return trigrams;
+	}
+
 	@Override
 	public QueryResult<T> query(final QueryPredicate predicate) {
 
@@ -158,9 +231,51 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 			query.sort(predicate.getSortType(), sortKey, predicate.sortDescending());
 		}
 
+		final QueryCursor cursor = predicate.getCursor();
+		if (cursor != null) {
+
+			query.seek(cursor);
+		}
+
+		if (predicate.getLimit() >= 0) {
+
+			query.range(predicate.getOffset(), predicate.getLimit());
+		}
+
+		// cursor and streaming queries must read from the live result
+		final QueryCache cache = getQueryCache();
+		if (cache != null && cursor == null && !predicate.isStreaming() && query.isCacheable() && !db.getCurrentTransaction().hasChanges()) {
+
+			// results of transactions with uncommitted changes must not be cached
+			return getCachedResult(cache, query);
+		}
+
 		return getResult(query);
 	}
 
+	@Override
+	public long count(final QueryPredicate predicate) {
+
+		final AdvancedCypherQuery query = new AdvancedCypherQuery(this);
+
+		createQuery(this, predicate, query, true);
+
+		// the statement must be created first because it can add parameters
+		final String statement = query.getCountStatement();
+
+		return db.getCurrentTransaction().getLong(statement, query.getParameters());
+	}
+
+	/**
+	 * Returns the cache for the results of this index, or null
+	 * if the results of this index are not cached.
+	 *
+	 * @return the query cache or null
+	 */
+	public QueryCache getQueryCache() {
+		return null;
+	}
+
 	// ----- interface QueryFactory -----
 	@Override
 	public boolean createQuery(final QueryFactory parent, final QueryPredicate predicate, final AdvancedCypherQuery query, final boolean isFirst) {
@@ -182,6 +297,61 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 		return false;
 	}
 
+	// ----- private methods -----
+	private QueryResult<T> getCachedResult(final QueryCache cache, final AdvancedCypherQuery query) {
+
+		final String key = query.getCacheKey();
+		final long[] ids = cache.get(key);
+
+		if (ids != null) {
+
+			final List<T> result = new ArrayList<>(ids.length);
+
+			for (final long id : ids) {
+
+				try {
+
+					result.add(getById(id));
+
+				} catch (NotFoundException nfex) {
+					// entity was deleted after the result was cached
+				}
+			}
+
+			return new CachedQueryResult(result);
+		}
+
+		// the generation must be read before the query is run
+		final long generation       = cache.getGeneration();
+		final List<T> result        = new ArrayList<>();
+		final QueryResult<T> source = getResult(query);
+		final Iterator<T> iterator  = source.iterator();
+
+		while (iterator.hasNext()) {
+
+			if (result.size() == MAX_CACHED_RESULT_SIZE) {
+
+				// too large to be cached, continue with the live result
+				return new ContinuedQueryResult(source, result, iterator);
+			}
+
+			result.add(iterator.next());
+		}
+
+		source.close();
+
+		final long[] resultIds = new long[result.size()];
+		int index              = 0;
+
+		for (final T entity : result) {
+			resultIds[index++] = entity.getId();
+		}
+
+		cache.put(key, query.getTypeLabels(), resultIds, generation);
+
+		return new CachedQueryResult(result);
+	}
+
 	// ----- nested classes -----
 	protected class CachedQueryResult implements QueryResult<T> {
 
@@ -213,4 +383,51 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 			return result.isEmpty();
 		}
 	}
+
+	/**
+	 * A query result that returns the elements that were already read
+	 * and then continues with the remaining elements of the source.
+	 */
+	protected class ContinuedQueryResult implements QueryResult<T> {
+
+		private QueryResult<T> source = null;
+		private List<T> head          = null;
+		private Iterator<T> tail      = null;
+
+		public ContinuedQueryResult(final QueryResult<T> source, final List<T> head, final Iterator<T> tail) {
+
+			this.source = source;
+			this.head   = head;
+			this.tail   = tail;
+		}
+
+		@Override
+		public void close() {
+			source.close();
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+
+			final Iterator<T> headIterator = head.iterator();
+
+			return new Iterator<T>() {
+
+				@Override
+				public boolean hasNext() {
+					return headIterator.hasNext() || tail.hasNext();
+				}
+
+				@Override
+				public T next() {
+
+					if (headIterator.hasNext()) {
+						return headIterator.next();
+					}
+
+					return tail.next();
+				}
+			};
+		}
+	}
 }
@@ -18,12 +18,17 @@
  */
 package org.structr.bolt.index;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
+import org.structr.api.search.QueryCursor;
 import org.structr.api.search.SortType;
 
 /**
@@ -32,16 +37,21 @@ import org.structr.api.search.SortType;
 public class AdvancedCypherQuery implements PageableQuery {
 
 	private final Map<String, Object> parameters = new HashMap<>();
+	private final Map<String, Object[]> trigrams = new HashMap<>();
 	private final List<String> typeLabels        = new LinkedList<>();
 	private final StringBuilder buffer           = new StringBuilder();
 	private String sourceTypeLabel               = null;
 	private String targetTypeLabel               = null;
 	private AbstractCypherIndex<?> index         = null;
+	private QueryCursor cursor                   = null;
 	private boolean sortDescending               = false;
+	private boolean cacheable                    = true;
 	private SortType sortType                    = null;
 	private String sortKey                       = null;
 	private int page                             = 0;
 	private int pageSize                         = 0;
+	private int offset                           = 0;
+	private int limit                            = -1;
 	private int count                            = 0;
 
 	public AdvancedCypherQuery(final AbstractCypherIndex<?> index) {
@@ -73,6 +83,68 @@ public class AdvancedCypherQuery implements PageableQuery {
 		return hashCode;
 	}
 
+	/**
+	 * Returns a key that identifies the statement and the parameters of
+	 * this query, independent of the current page.
+	 *
+	 * @return the cache key
+	 */
+	public String getCacheKey() {
+
+		final int currentPage   = page;
+		final StringBuilder buf = new StringBuilder();
+
+		page = 0;
+
+		// the statement must be created first because it can add parameters
+		buf.append(getStatement());
+
+		page = currentPage;
+
+		for (final Entry<String, Object[]> entry : new TreeMap<>(trigrams).entrySet()) {
+
+			// the candidates are identified by the search value
+			buf.append("|");
+			buf.append(entry.getKey());
+			buf.append("=trigrams:");
+			buf.append(Arrays.toString(entry.getValue()));
+		}
+
+		for (final Entry<String, Object> entry : new TreeMap<>(parameters).entrySet()) {
+
+			if (trigrams.containsKey(entry.getKey())) {
+				continue;
+			}
+
+			final Object value = entry.getValue();
+
+			buf.append("|");
+			buf.append(entry.getKey());
+			buf.append("=");
+
+			if (value != null) {
+
+				buf.append(value.getClass().getSimpleName());
+				buf.append(":");
+
+				if (value instanceof Object[]) {
+
+					buf.append(Arrays.deepToString((Object[])value));
+
+				} else {
+
+					buf.append(value);
+				}
+			}
+		}
+
+		return buf.toString();
+	}
+
+	public List<String> getTypeLabels() {
+		return new ArrayList<>(typeLabels);
+	}
+
 	@Override
 	public void nextPage() {
 		page++;
@@ -95,10 +167,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 				buf.append(index.getQueryPrefix(null, sourceTypeLabel, targetTypeLabel));
 
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
+				appendWhereClause(buf);
 
 				buf.append(index.getQuerySuffix());
 				break;
@@ -107,10 +176,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 				buf.append(index.getQueryPrefix(typeLabels.get(0), sourceTypeLabel, targetTypeLabel));
 
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
+				appendWhereClause(buf);
 
 				buf.append(index.getQuerySuffix());
 				break;
@@ -122,10 +188,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 					buf.append(index.getQueryPrefix(it.next(), sourceTypeLabel, targetTypeLabel));
 
-					if (buffer.length() > 0) {
-						buf.append(" WHERE ");
-						buf.append(buffer);
-					}
+					appendWhereClause(buf);
 
 					buf.append(index.getQuerySuffix());
 
@@ -138,46 +201,106 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 		if (sortKey != null) {
 
-			switch (sortType) {
-
-				case Default:
-					// default is "String"
-					// no COALESCE needed => much faster
-					buf.append(" ORDER BY n.`");
-					buf.append(sortKey);
-					buf.append("` ");
-					
-					break;
-
-				default:
-					// other types are numeric
-					buf.append(" ORDER BY COALESCE(n.`");
-					buf.append(sortKey);
-					buf.append("`, ");
-					
-					// COALESCE needs a correctly typed minimum value,
-					// so we need to supply a value based on the sort
-					// type.
-					
-					buf.append("-1");
-					buf.append(")");
+			buf.append(" ORDER BY ");
+			buf.append(getSortExpression());
+
+			if (sortDescending) {
+				buf.append(" DESC");
 			}
 
+			// the internal id makes the sort order unique, which
+			// is required for paging with a cursor
+			buf.append(", ID(n)");
+
 			if (sortDescending) {
 				buf.append(" DESC");
 			}
+
+		} else if (cursor != null) {
+
+			buf.append(" ORDER BY ID(n)");
 		}
 
 		buf.append(" SKIP ");
-		buf.append(page * pageSize);
+		buf.append(offset + page * pageSize);
 		buf.append(" LIMIT ");
-		buf.append(pageSize);
+
+		if (limit >= 0) {
+
+			// an empty last page ends the result stream
+			buf.append(Math.max(0, Math.min(pageSize, limit - page * pageSize)));
+
+		} else {
+
+			buf.append(pageSize);
+		}
+
+		return buf.toString();
+	}
+
+	/**
+	 * Returns a statement that counts the distinct results of this query,
+	 * without sorting and paging. A UNION cannot be counted as a whole, so
+	 * the type labels of a node query with several types are combined in
+	 * the WHERE clause instead.
+	 *
+	 * @return the count statement
+	 */
+	public String getCountStatement() {
+
+		final StringBuilder buf = new StringBuilder();
+
+		if (typeLabels.size() > 1) {
+
+			buf.append(index.getQueryPrefix(null, sourceTypeLabel, targetTypeLabel));
+			buf.append(" WHERE (");
+
+			for (final Iterator<String> it = typeLabels.iterator(); it.hasNext();) {
+
+				buf.append("n:");
+				buf.append(it.next());
+
+				if (it.hasNext()) {
+					buf.append(" OR ");
+				}
+			}
+
+			buf.append(")");
+
+			if (buffer.length() > 0) {
+
+				buf.append(" AND (");
+				buf.append(buffer);
+				buf.append(")");
+			}
+
+		} else {
+
+			buf.append(index.getQueryPrefix(typeLabels.isEmpty() ? null : typeLabels.get(0), sourceTypeLabel, targetTypeLabel));
+
+			appendWhereClause(buf);
+		}
+
+		buf.append(" RETURN count(DISTINCT n)");
 
 		return buf.toString();
 	}
 
 	@Override
 	public Map<String, Object> getParameters() {
+
+		// resolve trigram candidates when the query is executed
+		for (final Entry<String, Object[]> entry : trigrams.entrySet()) {
+
+			final String paramKey = entry.getKey();
+			if (!parameters.containsKey(paramKey)) {
+
+				final Object[] trigram = entry.getValue();
+
+				parameters.put(paramKey, index.getTrigramCandidates((String)trigram[0], trigram[1], typeLabels));
+			}
+		}
+
 		return parameters;
 	}
 
@@ -275,6 +398,65 @@ public class AdvancedCypherQuery implements PageableQuery {
 		}
 	}
 
+	/**
+	 * Indicates whether the candidates for an inexact search for the
+	 * given value can be narrowed down using the trigram index.
+	 *
+	 * @param value the search value
+	 * @return whether the trigram index can be used
+	 */
+	public boolean canUseTrigrams(final Object value) {
+		return !AbstractCypherIndex.getTrigrams(value).isEmpty() && index.hasTrigrams();
+	}
+
+	/**
+	 * Restricts this query to the entities whose trigram index entries
+	 * for the given key contain all trigrams of the given value. The
+	 * candidates are a superset of the actual matches, so this must be
+	 * combined with the actual search predicate.
+	 *
+	 * @param key the property key
+	 * @param value the search value
+	 */
+	public void addTrigramParameter(final String key, final Object value) {
+
+		final String paramKey = "param" + count++;
+
+		buffer.append("ID(n) IN {");
+		buffer.append(paramKey);
+		buffer.append("}");
+
+		trigrams.put(paramKey, new Object[] { key, value });
+	}
+
+	/**
+	 * Restricts this query to the nodes that are visible to public or
+	 * authenticated users, or that are one of the given principals, owned
+	 * by one of them or readable for one of them via a security
+	 * relationship. The result of such a query depends on relationships,
+	 * so it must not be cached.
+	 *
+	 * @param principalIds the ids of the accessing user and its groups
+	 */
+	public void addReadPermissionParameter(final Collection<Long> principalIds) {
+
+		final String paramKey = "param" + count++;
+
+		buffer.append("(n.visibleToPublicUsers = true OR n.visibleToAuthenticatedUsers = true OR ID(n) IN {");
+		buffer.append(paramKey);
+		buffer.append("} OR size([(p)-[r:OWNS|SECURITY]->(n) WHERE ID(p) IN {");
+		buffer.append(paramKey);
+		buffer.append("} AND (type(r) = 'OWNS' OR 'read' IN r.allowed) | r]) > 0)");
+
+		parameters.put(paramKey, new ArrayList<>(principalIds));
+
+		cacheable = false;
+	}
+
+	public boolean isCacheable() {
+		return cacheable;
+	}
+
 	public void addListParameter(final String key, final String operator, final Object value) {
 
 		if (value != null) {
@@ -333,6 +515,30 @@ public class AdvancedCypherQuery implements PageableQuery {
 		this.sortKey        = sortKey;
 	}
 
+	/**
+	 * Makes this query continue after the position of the given cursor,
+	 * using a predicate on the sort key and the internal id instead of
+	 * skipping all previous elements.
+	 *
+	 * @param cursor
+	 */
+	public void seek(final QueryCursor cursor) {
+		this.cursor = cursor;
+	}
+
+	/**
+	 * Makes this query skip the given number of elements and return at
+	 * most limit elements, in pages of the usual size.
+	 *
+	 * @param offset
+	 * @param limit
+	 */
+	public void range(final int offset, final int limit) {
+
+		this.offset = offset;
+		this.limit  = limit;
+	}
+
 	public void setSourceType(final String sourceTypeLabel) {
 		this.sourceTypeLabel = sourceTypeLabel;
 	}
@@ -341,6 +547,110 @@ public class AdvancedCypherQuery implements PageableQuery {
 		this.targetTypeLabel = targetTypeLabel;
 	}
 
+	// ----- private methods -----
+	private void appendWhereClause(final StringBuilder buf) {
+
+		final boolean hasPredicates = buffer.length() > 0;
+
+		if (hasPredicates || cursor != null) {
+
+			buf.append(" WHERE ");
+		}
+
+		if (hasPredicates && cursor != null) {
+
+			buf.append("(");
+			buf.append(buffer);
+			buf.append(") AND ");
+
+		} else if (hasPredicates) {
+
+			buf.append(buffer);
+		}
+
+		if (cursor != null) {
+
+			appendSeekPredicate(buf);
+		}
+	}
+
+	private void appendSeekPredicate(final StringBuilder buf) {
+
+		final String comparison = sortDescending ? "<" : ">";
+
+		parameters.put("seekId", cursor.getId());
+
+		if (sortKey == null) {
+
+			buf.append("ID(n) > {seekId}");
+			return;
+		}
+
+		final String expression = getSortExpression();
+		Object value            = cursor.getValue();
+
+		if (value == null && !SortType.Default.equals(sortType)) {
+
+			// numeric sort expressions use COALESCE(.., -1)
+			value = -1L;
+		}
+
+		if (value != null) {
+
+			parameters.put("seekValue", value);
+
+			buf.append("(");
+			buf.append(expression);
+			buf.append(" ");
+			buf.append(comparison);
+			buf.append(" {seekValue} OR (");
+			buf.append(expression);
+			buf.append(" = {seekValue} AND ID(n) ");
+			buf.append(comparison);
+			buf.append(" {seekId})");
+
+			// null values are sorted last in ascending order
+			if (!sortDescending && SortType.Default.equals(sortType)) {
+
+				buf.append(" OR ");
+				buf.append(expression);
+				buf.append(" IS NULL");
+			}
+
+			buf.append(")");
+
+		} else if (sortDescending) {
+
+			// null values are sorted first in descending order
+			buf.append("(");
+			buf.append(expression);
+			buf.append(" IS NOT NULL OR ID(n) < {seekId})");
+
+		} else {
+
+			buf.append("(");
+			buf.append(expression);
+			buf.append(" IS NULL AND ID(n) > {seekId})");
+		}
+	}
+
+	private String getSortExpression() {
+
+		switch (sortType) {
+
+			case Default:
+				// default is "String"
+				// no COALESCE needed => much faster
+				return "n.`" + sortKey + "`";
+
+			default:
+				// other types are numeric, COALESCE needs a correctly
+				// typed minimum value, so we need to supply a value
+				// based on the sort type.
+				return "COALESCE(n.`" + sortKey + "`, -1)";
+		}
+	}
+
 	private int deepHashCode(final Map<String, Object> map) {
 
 		final StringBuilder buf = new StringBuilder();
@@ -18,10 +18,17 @@
  */
 package org.structr.bolt.index;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.structr.api.QueryResult;
 import org.structr.api.graph.Node;
+import org.structr.api.graph.PropertyContainer;
 import org.structr.api.util.QueryUtils;
 import org.structr.bolt.BoltDatabaseService;
+import org.structr.bolt.SessionTransaction;
 import org.structr.bolt.mapper.NodeNodeMapper;
 
 /**
@@ -29,6 +36,9 @@ import org.structr.bolt.mapper.NodeNodeMapper;
  */
 public class CypherNodeIndex extends AbstractCypherIndex<Node> {
 
+	public static final String TRIGRAM_LABEL = "TrigramIndexEntry";
+
+	private Boolean hasTrigrams     = null;
 	private String tenantIdentifier = null;
 
 	public CypherNodeIndex(final BoltDatabaseService db) {
@@ -73,4 +83,115 @@ public class CypherNodeIndex extends AbstractCypherIndex<Node> {
 	public QueryResult<Node> getResult(final PageableQuery query) {
 		return QueryUtils.map(new NodeNodeMapper(db), new NodeResultStream(db, query));
 	}
+
+	@Override
+	public void remove(final PropertyContainer t) {
+
+		if (hasTrigrams()) {
+
+			final Map<String, Object> map = new HashMap<>();
+
+			map.put("ref", t.getId());
+
+			db.getCurrentTransaction().set("MATCH (t:" + getTrigramLabels() + ") WHERE t.ref = {ref} DELETE t", map);
+		}
+	}
+
+	@Override
+	public void updateTrigrams(final Node node, final String key, final Object value) {
+
+		final SessionTransaction tx   = db.getCurrentTransaction();
+		final Map<String, Object> map = new HashMap<>();
+		final Set<String> trigrams    = getTrigrams(value);
+		final String labels           = getTrigramLabels();
+
+		map.put("ref",      node.getId());
+		map.put("key",      key);
+		map.put("trigrams", new ArrayList<>(trigrams));
+
+		// only the trigrams that were removed or added are written
+		if (hasTrigrams()) {
+			tx.set("MATCH (t:" + labels + ") WHERE t.ref = {ref} AND t.key = {key} AND NOT t.value IN {trigrams} DELETE t", map);
+		}
+
+		if (!trigrams.isEmpty()) {
+
+			tx.set("UNWIND {trigrams} AS trigram MERGE (t:" + labels + " { ref: {ref}, key: {key}, value: trigram })", map);
+
+			hasTrigrams = true;
+		}
+	}
+
+	@Override
+	public List<Long> getTrigramCandidates(final String key, final Object value, final List<String> labels) {
+
+		final Set<String> trigrams = getTrigrams(value);
+
+		// search values with less than three characters have no trigrams
+		if (trigrams.isEmpty() || !hasTrigrams()) {
+			return null;
+		}
+
+		final List<Long> candidates   = new ArrayList<>();
+		final Map<String, Object> map = new HashMap<>();
+		final StringBuilder buf       = new StringBuilder();
+
+		buf.append("MATCH (t:");
+		buf.append(getTrigramLabels());
+		buf.append(") WHERE t.value IN {trigrams} AND t.key = {key} WITH t.ref AS ref, count(*) AS c WHERE c = {count}");
+
+		// other types with the same key must not inflate the candidates
+		if (!labels.isEmpty()) {
+
+			buf.append(" MATCH (n) WHERE ID(n) = ref AND any(label IN labels(n) WHERE label IN {labels})");
+			map.put("labels", labels);
+		}
+
+		buf.append(" RETURN ref");
+
+		map.put("trigrams", new ArrayList<>(trigrams));
+		map.put("count",    trigrams.size());
+		map.put("key",      key);
+
+		try (final QueryResult<Long> result = db.getCurrentTransaction().getIds(buf.toString(), map)) {
+
+			for (final Long id : result) {
+				candidates.add(id);
+			}
+		}
+
+		return candidates;
+	}
+
+	@Override
+	public boolean hasTrigrams() {
+
+		if (hasTrigrams == null) {
+
+			// trigram entries are only removed if there are any
+			hasTrigrams = db.getCurrentTransaction().getBoolean("MATCH (t:" + TRIGRAM_LABEL + ") RETURN count(t) > 0");
+		}
+
+		return hasTrigrams;
+	}
+
+	@Override
+	public Node getById(final long id) {
+		return db.getNodeById(id);
+	}
+
+	@Override
+	public QueryCache getQueryCache() {
+		return db.getQueryCache();
+	}
+
+	// ----- private methods -----
+	private String getTrigramLabels() {
+
+		if (tenantIdentifier != null) {
+			return TRIGRAM_LABEL + ":" + tenantIdentifier;
+		}
+
+		return TRIGRAM_LABEL;
+	}
 }
@@ -84,4 +84,9 @@ public class CypherRelationshipIndex extends AbstractCypherIndex<Relationship> {
 	public QueryResult<Relationship> getResult(final PageableQuery query) {
 		return QueryUtils.map(new RelationshipRelationshipMapper(db), new RelationshipResultStream(db, query));
 	}
+
+	@Override
+	public Relationship getById(final long id) {
+		return db.getRelationshipById(id);
+	}
 }
@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.collections4.map.LRUMap;
+
+/**
+ * A cache for the ids of query results, keyed by statement and
+ * parameters. Every entry is registered under the type labels of
+ * its query so that it can be invalidated when an entity with one
+ * of these labels is created, modified or deleted. Entries of
+ * queries without a type label are invalidated on every change.
+ *
+ * A result is only stored if no invalidation happened while the
+ * query was running, see {@link #getGeneration()}.
+ */
+public class QueryCache {
+
+	private final Map<String, Set<String>> keysByLabel = new HashMap<>();
+	private final Set<String> unlabeledKeys            = new HashSet<>();
+	private LRUMap<String, CacheEntry> entries         = null;
+	private long generation                            = 0L;
+
+	public QueryCache(final int maxSize) {
+		this.entries = new InvalidatingLRUMap(maxSize);
+	}
+
+	/**
+	 * Returns the current generation of this cache. The generation
+	 * changes with every invalidation, a result must be stored with
+	 * the generation that was current before the query was run.
+	 *
+	 * @return the current generation
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	public synchronized long[] get(final String key) {
+
+		final CacheEntry entry = entries.get(key);
+		if (entry != null) {
+
+			return entry.ids;
+		}
+
+		return null;
+	}
+
+	public synchronized void put(final String key, final Collection<String> labels, final long[] ids, final long generation) {
+
+		// the result may already be outdated
+		if (generation != this.generation) {
+			return;
+		}
+
+		remove(key);
+
+		entries.put(key, new CacheEntry(key, labels, ids));
+
+		if (labels.isEmpty()) {
+
+			unlabeledKeys.add(key);
+
+		} else {
+
+			for (final String label : labels) {
+
+				keysByLabel.computeIfAbsent(label, k -> new HashSet<>()).add(key);
+			}
+		}
+	}
+
+	public synchronized void invalidate(final Collection<String> labels) {
+
+		generation++;
+
+		final Set<String> keys = new LinkedHashSet<>(unlabeledKeys);
+
+		for (final String label : labels) {
+
+			final Set<String> labelKeys = keysByLabel.get(label);
+			if (labelKeys != null) {
+
+				keys.addAll(labelKeys);
+			}
+		}
+
+		for (final String key : keys) {
+			remove(key);
+		}
+	}
+
+	public synchronized void clear() {
+
+		generation++;
+
+		entries.clear();
+		keysByLabel.clear();
+		unlabeledKeys.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	// ----- private methods -----
+	private void remove(final String key) {
+
+		final CacheEntry entry = entries.remove(key);
+		if (entry != null) {
+
+			unregister(entry);
+		}
+	}
+
+	private void unregister(final CacheEntry entry) {
+
+		if (entry.labels.isEmpty()) {
+
+			unlabeledKeys.remove(entry.key);
+
+		} else {
+
+			for (final String label : entry.labels) {
+
+				final Set<String> labelKeys = keysByLabel.get(label);
+				if (labelKeys != null) {
+
+					labelKeys.remove(entry.key);
+
+					if (labelKeys.isEmpty()) {
+						keysByLabel.remove(label);
+					}
+				}
+			}
+		}
+	}
+
+	// ----- nested classes -----
+	private static class CacheEntry {
+
+		private Collection<String> labels = null;
+		private String key                = null;
+		private long[] ids                = null;
+
+		public CacheEntry(final String key, final Collection<String> labels, final long[] ids) {
+
+			this.labels = labels;
+			this.key    = key;
+			this.ids    = ids;
+		}
+	}
+
+	private class InvalidatingLRUMap extends LRUMap<String, CacheEntry> {
+
+		public InvalidatingLRUMap(final int maxSize) {
+			super(maxSize, true);
+		}
+
+		@Override
+		protected boolean removeLRU(final LinkEntry<String, CacheEntry> entry) {
+
+			final CacheEntry value = entry.getValue();
+			if (value != null) {
+
+				unregister(value);
+			}
+
+			return true;
+		}
+	}
+}
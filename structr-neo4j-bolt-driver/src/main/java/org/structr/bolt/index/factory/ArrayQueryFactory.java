@@ -43,7 +43,23 @@ public class ArrayQueryFactory extends KeywordQueryFactory {
 
 			} else {
 
+				// wildcards are not supported by the trigram index
+				final boolean hasWildcards = value.toString().indexOf('*') >= 0 || value.toString().indexOf('?') >= 0;
+				final boolean useTrigrams  = predicate.isTrigramIndexed() && !hasWildcards && query.canUseTrigrams(value);
+
+				if (useTrigrams) {
+
+					// narrow down the candidates before the regex check
+					query.beginGroup();
+					query.addTrigramParameter(name, value);
+					query.and();
+				}
+
 				query.addListParameter(name, "=~", "(?i).*" + escape(value) + ".*");
+
+				if (useTrigrams) {
+					query.endGroup();
+				}
 			}
 		}
 
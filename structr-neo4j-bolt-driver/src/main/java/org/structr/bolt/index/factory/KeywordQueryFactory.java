@@ -81,8 +81,21 @@ public class KeywordQueryFactory extends AbstractQueryFactory {
 				//query.addSimpleParameter(name, "=~", "(?i).*" + escape(value) + ".*");    // doesn't support multi-line values properly
 				//query.addSimpleParameter(name, "=~", "(?ims).*" + escape(value) + ".*");  // works but slow
 				//query.addSimpleParameter(name, "CONTAINS", escape(value), true, true);            // works and takes half the time
+				final boolean useTrigrams = predicate.isTrigramIndexed() && query.canUseTrigrams(value);
+				if (useTrigrams) {
+
+					// narrow down the candidates before the CONTAINS check
+					query.beginGroup();
+					query.addTrigramParameter(name, value);
+					query.and();
+				}
+
 				query.addSimpleParameter(name, "CONTAINS", value, true, true);            // works and takes half the time
 
+				if (useTrigrams) {
+					query.endGroup();
+				}
+
 			} else {
 
 				query.beginGroup();
@@ -42,7 +42,7 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 	protected final Map<String, Object> data = new ConcurrentHashMap<>();
 	protected BoltDatabaseService db         = null;
-	protected boolean stale                  = false;
+	protected volatile boolean stale         = false;
 	protected long id                        = -1L;
 
 	public EntityWrapper(final BoltDatabaseService db, final T entity) {
@@ -52,7 +52,7 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		this.db   = db;
 	}
 
-	protected abstract String getQueryPrefix();
+	public abstract String getQueryPrefix();
 	public abstract void clearCaches();
 	public abstract void onClose();
 
@@ -130,13 +130,11 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		if (differentValue(key, value)) {
 
 			final Map<String, Object> map = new HashMap<>();
-			final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n.`" + key + "` = {value}";
 
-			map.put("id", id);
-			map.put("value", value);
+			map.put(key, value);
 
-			// update entity handle
-			tx.set(query, map);
+			// update entity handle (written on the next statement or on commit)
+			tx.setProperties(this, map);
 
 			// update data
 			update(key, value);
@@ -151,16 +149,10 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		assertNotStale();
 
-		final Map<String, Object> map = new HashMap<>();
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n += {properties}";
-
-		// overwrite a potential "id" property
-		map.put("id", id);
-		map.put("properties", values);
+		final SessionTransaction tx = db.getCurrentTransaction();
 
-		// execute query
-		tx.set(query, map);
+		// update entity handle (written on the next statement or on commit)
+		tx.setProperties(this, values);
 
 		// update data
 		update(values);
@@ -175,12 +167,12 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		final SessionTransaction tx   = db.getCurrentTransaction();
 		final Map<String, Object> map = new HashMap<>();
-		final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n.`" + key + "` = Null";
 
-		map.put("id", id);
+		// a null value removes the property
+		map.put(key, null);
 
-		// execute query
-		tx.set(query, map);
+		// update entity handle (written on the next statement or on commit)
+		tx.setProperties(this, map);
 
 		// remove key from data
 		data.remove(key);
@@ -226,7 +218,23 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 	}
 
 	// ----- protected methods -----
-	protected synchronized void assertNotStale() {
+	protected void assertNotStale() {
+
+		if (stale) {
+
+			final SessionTransaction tx = db.getCurrentTransaction();
+
+			// Write pending changes of the current transaction before entering the
+			// synchronized section, a write can block on a database lock that is
+			// held by another thread that waits to enter the synchronized section.
+			tx.flush();
+
+			refresh(tx);
+		}
+	}
+
+	// ----- private methods -----
+	private synchronized void refresh(final SessionTransaction tx) {
 
 		if (stale) {
 
@@ -236,7 +244,6 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 			// if a node/rel was deleted in a previous transaction but the caller keeps a
 			// reference to this entity, we need to make sure that the reference is fresh.
 
-			final SessionTransaction tx   = db.getCurrentTransaction();
 			final Map<String, Object> map = new HashMap<>();
 
 			map.put("id", id);
@@ -255,7 +262,6 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		}
 	}
 
-	// ----- private methods -----
 	private void update(final Map<String, Object> values) {
 
 		for (final Entry<String, Object> entry : values.entrySet()) {
@@ -25,14 +25,16 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import org.apache.commons.lang.StringUtils;
 import org.structr.api.graph.Direction;
 import org.structr.api.graph.Label;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
-import org.structr.api.util.FixedSizeCache;
 import org.structr.api.util.Iterables;
+import org.structr.api.util.LoadingCache;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.SessionTransaction;
 import org.structr.bolt.mapper.RelationshipRelationshipMapper;
@@ -43,7 +45,7 @@ import org.structr.bolt.mapper.RelationshipRelationshipMapper;
 public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> implements Node {
 
 	private final Map<String, Map<String, List<Relationship>>> relationshipCache = new HashMap<>();
-	private static FixedSizeCache<Long, NodeWrapper> nodeCache                   = null;
+	private static LoadingCache<Long, NodeWrapper> nodeCache                     = null;
 	private boolean dontUseCache                                                 = false;
 
 	private NodeWrapper(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Node node) {
@@ -51,11 +53,11 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 	}
 
 	public static void initialize(final int cacheSize) {
-		nodeCache = new FixedSizeCache<>(cacheSize);
+		nodeCache = new LoadingCache<>(cacheSize);
 	}
 
 	@Override
-	protected String getQueryPrefix() {
+	public String getQueryPrefix() {
 
 		final String tenantIdentifier = db.getTenantIdentifier();
 		if (tenantIdentifier != null) {
@@ -136,7 +138,12 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		((NodeWrapper)endNode).relationshipCache.clear();
 		relationshipCache.clear();
 
-		return RelationshipWrapper.newInstance(db, rel);
+		final RelationshipWrapper relationship = RelationshipWrapper.newInstance(db, rel);
+
+		// new relationships are write-locked by the creating transaction
+		tx.locked(relationship);
+
+		return relationship;
 	}
 
 	@Override
@@ -365,42 +372,137 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 
 	// ----- public static methods -----
 	public static NodeWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Node node) {
+		return nodeCache.get(node.id(), id -> new NodeWrapper(db, node));
+	}
+
+	public static NodeWrapper newInstance(final BoltDatabaseService db, final long id) {
+
+		return nodeCache.get(id, key -> {
+
+			final SessionTransaction tx   = db.getCurrentTransaction();
+			final Map<String, Object> map = new HashMap<>();
+			final String tenantIdentifier = db.getTenantIdentifier();
+
+			map.put("id", key);
+
+			return new NodeWrapper(db, tx.getNode("MATCH (n" + (tenantIdentifier != null ? ":" + tenantIdentifier : "") + ") WHERE ID(n) = {id} RETURN n", map));
+		});
+	}
+
+	/**
+	 * Loads the relationships of the given types for all given nodes with
+	 * a single query and stores them in the relationship cache of each node,
+	 * so that subsequent calls to getRelationships() for these types don't
+	 * need to query the database. Nodes that are not in the node cache or
+	 * whose relationships are already cached are ignored.
+	 *
+	 * @param db the database service
+	 * @param nodeIds the ids of the nodes
+	 * @param relationshipTypes the names of the relationship types to load
+	 */
+	public static void prefetchRelationships(final BoltDatabaseService db, final Iterable<Long> nodeIds, final Set<String> relationshipTypes) {
 
-		synchronized (nodeCache) {
+		final Map<Long, NodeWrapper> nodes = new LinkedHashMap<>();
 
-			NodeWrapper wrapper = nodeCache.get(node.id());
-			if (wrapper == null) {
+		if (relationshipTypes.isEmpty()) {
+			return;
+		}
 
-				wrapper = new NodeWrapper(db, node);
-				nodeCache.put(node.id(), wrapper);
+		for (final Long id : nodeIds) {
+
+			final NodeWrapper node = nodeCache.get(id);
+			if (node != null && !node.stale && !node.dontUseCache && !node.hasCachedRelationships(relationshipTypes)) {
+
+				nodes.put(id, node);
 			}
+		}
 
-			return wrapper;
+		if (nodes.isEmpty()) {
+			return;
 		}
-	}
 
-	public static NodeWrapper newInstance(final BoltDatabaseService db, final long id) {
+		final Map<NodeWrapper, Map<String, Map<String, List<Relationship>>>> lists = new LinkedHashMap<>();
+		final SessionTransaction tx                                                  = db.getCurrentTransaction();
+		final Map<String, Object> map                                                = new HashMap<>();
+		final String tenantIdentifier                                                = db.getTenantIdentifier();
+		final String types                                                           = StringUtils.join(relationshipTypes, "|");
 
-		synchronized (nodeCache) {
+		// initialize empty lists for all nodes so that nodes without
+		// relationships of the given types don't cause another query
+		for (final NodeWrapper node : nodes.values()) {
 
-			NodeWrapper wrapper = nodeCache.get(id);
-			if (wrapper == null) {
+			final Map<String, Map<String, List<Relationship>>> directions = new HashMap<>();
 
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final Map<String, Object> map = new HashMap<>();
-				final String tenantIdentifier = db.getTenantIdentifier();
+			for (final Direction direction : Direction.values()) {
 
-				map.put("id", id);
+				final Map<String, List<Relationship>> typeMap = new HashMap<>();
 
-				wrapper = new NodeWrapper(db, tx.getNode("MATCH (n" + (tenantIdentifier != null ? ":" + tenantIdentifier : "") + ") WHERE ID(n) = {id} RETURN n", map));
-				nodeCache.put(id, wrapper);
+				for (final String type : relationshipTypes) {
+					typeMap.put(type, node.new AssociationList());
+				}
+
+				directions.put(direction.name(), typeMap);
 			}
 
-			return wrapper;
+			lists.put(node, directions);
+		}
+
+		map.put("ids", new LinkedList<>(nodes.keySet()));
+
+		for (final org.neo4j.driver.v1.types.Relationship relationship : tx.getRelationships("MATCH (n" + (tenantIdentifier != null ? ":" + tenantIdentifier : "") + ")-[r:" + types + "]-() WHERE ID(n) IN {ids} RETURN DISTINCT r", map)) {
+
+			final RelationshipWrapper wrapper = RelationshipWrapper.newInstance(db, relationship);
+			final NodeWrapper startNode       = nodes.get(relationship.startNodeId());
+			final NodeWrapper endNode         = nodes.get(relationship.endNodeId());
+			final String type                 = relationship.type();
+
+			if (startNode != null) {
+
+				lists.get(startNode).get(Direction.OUTGOING.name()).get(type).add(wrapper);
+				lists.get(startNode).get(Direction.BOTH.name()).get(type).add(wrapper);
+			}
+
+			if (endNode != null) {
+
+				lists.get(endNode).get(Direction.INCOMING.name()).get(type).add(wrapper);
+
+				// self-referencing relationships appear only once
+				if (endNode != startNode) {
+					lists.get(endNode).get(Direction.BOTH.name()).get(type).add(wrapper);
+				}
+			}
+		}
+
+		// store complete lists only, other threads may read the caches
+		for (final Entry<NodeWrapper, Map<String, Map<String, List<Relationship>>>> entry : lists.entrySet()) {
+
+			final NodeWrapper node = entry.getKey();
+
+			for (final Entry<String, Map<String, List<Relationship>>> direction : entry.getValue().entrySet()) {
+
+				node.getCache(Direction.valueOf(direction.getKey())).putAll(direction.getValue());
+			}
 		}
 	}
 
 	// ----- private methods -----
+	private boolean hasCachedRelationships(final Set<String> relationshipTypes) {
+
+		for (final Direction direction : Direction.values()) {
+
+			final Map<String, List<Relationship>> cache = getCache(direction);
+
+			for (final String type : relationshipTypes) {
+
+				if (!cache.containsKey(type)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
 	private Map<String, List<Relationship>> getCache(final Direction direction) {
 
 		final String key                      = direction != null ? direction.name() : "*";
@@ -24,7 +24,7 @@ import org.structr.api.NotFoundException;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
-import org.structr.api.util.FixedSizeCache;
+import org.structr.api.util.LoadingCache;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.SessionTransaction;
 
@@ -33,7 +33,7 @@ import org.structr.bolt.SessionTransaction;
  */
 public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Relationship> implements Relationship {
 
-	private static FixedSizeCache<Long, RelationshipWrapper> relationshipCache = null;
+	private static LoadingCache<Long, RelationshipWrapper> relationshipCache = null;
 
 	private long sourceNodeId = -1L;
 	private long targetNodeId = -1L;
@@ -49,11 +49,11 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	}
 
 	public static void initialize(final int cacheSize) {
-		relationshipCache = new FixedSizeCache<>(cacheSize);
+		relationshipCache = new LoadingCache<>(cacheSize);
 	}
 
 	@Override
-	protected String getQueryPrefix() {
+	public String getQueryPrefix() {
 
 		final String tenantIdentifier = db.getTenantIdentifier();
 		if (tenantIdentifier != null) {
@@ -158,55 +158,37 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 
 	// ----- public static methods -----
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Relationship relationship) {
-
-		synchronized (relationshipCache) {
-
-			RelationshipWrapper wrapper = relationshipCache.get(relationship.id());
-			if (wrapper == null) {
-
-				wrapper = new RelationshipWrapper(db, relationship);
-				relationshipCache.put(relationship.id(), wrapper);
-			}
-
-			return wrapper;
-		}
+		return relationshipCache.get(relationship.id(), id -> new RelationshipWrapper(db, relationship));
 	}
 
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final long id) {
 
-		synchronized (relationshipCache) {
+		return relationshipCache.get(id, key -> {
 
-			RelationshipWrapper wrapper = relationshipCache.get(id);
-			if (wrapper == null) {
+			final SessionTransaction tx   = db.getCurrentTransaction();
+			final Map<String, Object> map = new HashMap<>();
+			final StringBuilder buf       = new StringBuilder();
+			final String tenantIdentifier = db.getTenantIdentifier();
 
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final Map<String, Object> map = new HashMap<>();
-				final StringBuilder buf       = new StringBuilder();
-				final String tenantIdentifier = db.getTenantIdentifier();
+			map.put("id", key);
 
-				map.put("id", id);
+			buf.append("MATCH (");
 
-				buf.append("MATCH (");
-
-				if (tenantIdentifier != null) {
-					buf.append(":");
-					buf.append(tenantIdentifier);
-				}
-
-				buf.append(")-[n]-(");
-
-				if (tenantIdentifier != null) {
-					buf.append(":");
-					buf.append(tenantIdentifier);
-				}
+			if (tenantIdentifier != null) {
+				buf.append(":");
+				buf.append(tenantIdentifier);
+			}
 
-				buf.append(") WHERE ID(n) = {id} RETURN n");
+			buf.append(")-[n]-(");
 
-				wrapper = new RelationshipWrapper(db, tx.getRelationship(buf.toString(), map));
-				relationshipCache.put(id, wrapper);
+			if (tenantIdentifier != null) {
+				buf.append(":");
+				buf.append(tenantIdentifier);
 			}
 
-			return wrapper;
-		}
+			buf.append(") WHERE ID(n) = {id} RETURN n");
+
+			return new RelationshipWrapper(db, tx.getRelationship(buf.toString(), map));
+		});
 	}
 }
@@ -20,15 +20,21 @@ package org.structr.bolt;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import org.junit.Assert;
 import static org.junit.Assert.fail;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.NativeResult;
 import org.structr.api.Transaction;
 import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
@@ -168,4 +174,158 @@ public class NodeWrapperTest {
 		s.shutdown();
 	}
 
+	@Test
+	public void testWriteBehindPropertyChanges() {
+
+		try {
+
+			Settings.DatabasePath.setValue(Files.createTempDirectory("structr-test").toFile().getAbsolutePath());
+			Settings.ConnectionUrl.setValue(Settings.TestingConnectionUrl.getValue());
+
+		} catch (IOException ioex) {
+			logger.warn("", ioex);
+		}
+
+		final BoltDatabaseService s = new BoltDatabaseService();
+		s.initialize();
+
+		long id1 = 0L;
+		long id2 = 0L;
+
+		// create nodes and relationship, set properties
+		try (final Transaction tx = s.beginTx()) {
+
+			final Node node1 = s.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+			final Node node2 = s.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+			final Relationship rel = node1.createRelationshipTo(node2, s.forName(RelationshipType.class, "TEST"));
+
+			node1.setProperty("name", "node1");
+			node1.setProperty("count", 1);
+			node1.setProperty("tags", new String[] { "one", "two" });
+			node1.setProperty("removed", "value");
+			node1.removeProperty("removed");
+			node2.setProperty("name", "node2");
+			rel.setProperty("name", "rel");
+
+			// pending changes must be visible to subsequent statements
+			try (final NativeResult result = s.execute("MATCH (n)-[r]->(m) WHERE ID(n) = {id} RETURN n.name AS n, n.count AS c, n.removed AS x, m.name AS m, r.name AS r", Collections.singletonMap("id", node1.getId()))) {
+
+				Assert.assertTrue("Pending property changes were not written before read", result.hasNext());
+
+				final Map<String, Object> row = result.next();
+
+				Assert.assertEquals("Pending property changes were not written before read", "node1", row.get("n"));
+				Assert.assertEquals("Pending property changes were not written before read", 1L,      row.get("c"));
+				Assert.assertEquals("Pending property changes were not written before read", "node2", row.get("m"));
+				Assert.assertEquals("Pending property changes were not written before read", "rel",   row.get("r"));
+				Assert.assertNull("Pending property removal was not written before read", row.get("x"));
+			}
+
+			node1.setProperty("name", "changed");
+
+			id1 = node1.getId();
+			id2 = node2.getId();
+
+			tx.success();
+		}
+
+		// set property and don't commit transaction
+		try (final Transaction tx = s.beginTx()) {
+
+			s.getNodeById(id2).setProperty("name", "Fail");
+		}
+
+		// check that pending changes were written on commit only
+		try (final Transaction tx = s.beginTx()) {
+
+			final Map<String, Object> params = new HashMap<>();
+
+			params.put("id1", id1);
+			params.put("id2", id2);
+
+			try (final NativeResult result = s.execute("MATCH (n), (m) WHERE ID(n) = {id1} AND ID(m) = {id2} RETURN n.name AS n, n.tags AS t, m.name AS m", params)) {
+
+				final Map<String, Object> row = result.next();
+
+				Assert.assertEquals("Pending property changes were not written on commit", "changed", row.get("n"));
+				Assert.assertEquals("Pending property changes were not written on commit", "node2",   row.get("m"));
+				Assert.assertEquals("Array property was not written correctly", Arrays.asList("one", "two"), row.get("t"));
+			}
+
+			tx.success();
+		}
+
+		s.shutdown();
+	}
+
+	@Test
+	public void testRelationshipPrefetch() {
+
+		try {
+
+			Settings.DatabasePath.setValue(Files.createTempDirectory("structr-test").toFile().getAbsolutePath());
+			Settings.ConnectionUrl.setValue(Settings.TestingConnectionUrl.getValue());
+
+		} catch (IOException ioex) {
+			logger.warn("", ioex);
+		}
+
+		final BoltDatabaseService s = new BoltDatabaseService();
+		s.initialize();
+
+		final RelationshipType test  = s.forName(RelationshipType.class, "TEST");
+		final RelationshipType other = s.forName(RelationshipType.class, "OTHER");
+		long id1                     = 0L;
+		long id2                     = 0L;
+		long id3                     = 0L;
+
+		try (final Transaction tx = s.beginTx()) {
+
+			final Node node1 = s.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+			final Node node2 = s.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+			final Node node3 = s.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+
+			node1.createRelationshipTo(node2, test);
+			node1.createRelationshipTo(node3, test);
+			node2.createRelationshipTo(node3, other);
+			node3.createRelationshipTo(node3, test);
+
+			id1 = node1.getId();
+			id2 = node2.getId();
+			id3 = node3.getId();
+
+			tx.success();
+		}
+
+		try (final Transaction tx = s.beginTx()) {
+
+			final Node node1 = s.getNodeById(id1);
+			final Node node2 = s.getNodeById(id2);
+			final Node node3 = s.getNodeById(id3);
+
+			s.prefetchRelationships(Arrays.asList(id1, id2, id3), new HashSet<>(Arrays.asList("TEST", "OTHER")));
+
+			// remove all relationships without updating the caches, so the
+			// following checks can only succeed if the prefetched lists are used
+			s.execute("MATCH ()-[r]->() DELETE r");
+
+			Assert.assertEquals("Invalid prefetch result", 2, Iterables.count(node1.getRelationships(Direction.OUTGOING, test)));
+			Assert.assertEquals("Invalid prefetch result", 0, Iterables.count(node1.getRelationships(Direction.INCOMING, test)));
+			Assert.assertEquals("Invalid prefetch result", 2, Iterables.count(node1.getRelationships(Direction.BOTH, test)));
+			Assert.assertEquals("Invalid prefetch result", 0, Iterables.count(node1.getRelationships(Direction.BOTH, other)));
+
+			Assert.assertEquals("Invalid prefetch result", 1, Iterables.count(node2.getRelationships(Direction.INCOMING, test)));
+			Assert.assertEquals("Invalid prefetch result", 1, Iterables.count(node2.getRelationships(Direction.OUTGOING, other)));
+			Assert.assertEquals("Invalid prefetch result", 1, Iterables.count(node2.getRelationships(Direction.BOTH, test)));
+
+			Assert.assertEquals("Invalid prefetch result", 2, Iterables.count(node3.getRelationships(Direction.INCOMING, test)));
+			Assert.assertEquals("Invalid prefetch result", 1, Iterables.count(node3.getRelationships(Direction.OUTGOING, test)));
+			Assert.assertEquals("Invalid prefetch result", 2, Iterables.count(node3.getRelationships(Direction.BOTH, test)));
+			Assert.assertEquals("Invalid prefetch result", 1, Iterables.count(node3.getRelationships(Direction.INCOMING, other)));
+
+			// roll back
+		}
+
+		s.shutdown();
+	}
 }
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class QueryCacheTest {
+
+	@Test
+	public void testInvalidationByLabel() {
+
+		final QueryCache cache = new QueryCache(10);
+		final long generation  = cache.getGeneration();
+
+		cache.put("one",  Arrays.asList("TestOne"),             new long[] { 1L, 2L }, generation);
+		cache.put("two",  Arrays.asList("TestTwo", "TestOne"),  new long[] { 3L },     generation);
+		cache.put("all",  Collections.emptyList(),              new long[] { 4L },     generation);
+
+		assertArrayEquals("Invalid cached result", new long[] { 1L, 2L }, cache.get("one"));
+		assertEquals("Invalid cache size", 3, cache.size());
+
+		cache.invalidate(Arrays.asList("TestTwo"));
+
+		assertArrayEquals("Cached result should not be invalidated", new long[] { 1L, 2L }, cache.get("one"));
+		assertNull("Cached result should be invalidated", cache.get("two"));
+		assertNull("Cached result without labels should be invalidated", cache.get("all"));
+
+		cache.invalidate(Arrays.asList("TestOne"));
+
+		assertNull("Cached result should be invalidated", cache.get("one"));
+		assertEquals("Invalid cache size", 0, cache.size());
+	}
+
+	@Test
+	public void testOutdatedResultIsNotStored() {
+
+		final QueryCache cache = new QueryCache(10);
+		final long generation  = cache.getGeneration();
+
+		// an invalidation happens while the query is running
+		cache.invalidate(Arrays.asList("TestThree"));
+
+		cache.put("one", Arrays.asList("TestOne"), new long[] { 1L }, generation);
+
+		assertNull("Outdated result should not be stored", cache.get("one"));
+	}
+
+	@Test
+	public void testEviction() {
+
+		final QueryCache cache = new QueryCache(2);
+		final long generation  = cache.getGeneration();
+
+		cache.put("one",   Arrays.asList("TestOne"), new long[] { 1L }, generation);
+		cache.put("two",   Arrays.asList("TestOne"), new long[] { 2L }, generation);
+		cache.put("three", Arrays.asList("TestOne"), new long[] { 3L }, generation);
+
+		assertEquals("Invalid cache size", 2, cache.size());
+		assertNull("Least recently used entry should be evicted", cache.get("one"));
+
+		cache.invalidate(Arrays.asList("TestOne"));
+
+		assertEquals("Invalid cache size", 0, cache.size());
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+import java.util.Arrays;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TrigramTest {
+
+	@Test
+	public void testStringTrigrams() {
+
+		final Set<String> trigrams = AbstractCypherIndex.getTrigrams("Abcabcd");
+
+		assertEquals("Invalid number of trigrams", 4, trigrams.size());
+		assertEquals("Invalid trigrams", "[abc, bca, cab, bcd]", trigrams.toString());
+	}
+
+	@Test
+	public void testShortValuesHaveNoTrigrams() {
+
+		assertTrue("Values with less than three characters should not have trigrams", AbstractCypherIndex.getTrigrams("ab").isEmpty());
+		assertTrue("Null values should not have trigrams", AbstractCypherIndex.getTrigrams(null).isEmpty());
+		assertTrue("Numbers should not have trigrams", AbstractCypherIndex.getTrigrams(12345).isEmpty());
+	}
+
+	@Test
+	public void testArrayTrigrams() {
+
+		assertEquals("Invalid array trigrams",      "[one, two, wot]", AbstractCypherIndex.getTrigrams(new String[] { "one", "two", "TWOT" }).toString());
+		assertEquals("Invalid collection trigrams", "[one, two]",      AbstractCypherIndex.getTrigrams(Arrays.asList("one", "two", "on")).toString());
+	}
+}
@@ -21,6 +21,7 @@ package org.structr.rest.resource;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
+import org.structr.agent.AgentStatisticsCommand;
 import org.structr.agent.Task;
 import org.structr.api.service.Command;
 import org.structr.common.SecurityContext;
@@ -35,9 +36,12 @@ import org.structr.core.graph.BulkRebuildIndexCommand;
 import org.structr.core.graph.BulkSetNodePropertiesCommand;
 import org.structr.core.graph.BulkSetRelationshipPropertiesCommand;
 import org.structr.core.graph.BulkSetUuidCommand;
+import org.structr.core.graph.CacheStatisticsCommand;
+import org.structr.core.graph.ChangelogCommand;
 import org.structr.core.graph.ClearDatabase;
 import org.structr.core.graph.FlushCachesCommand;
 import org.structr.core.graph.SyncCommand;
+import org.structr.core.graph.TransactionListenerStatisticsCommand;
 import org.structr.core.property.PropertyKey;
 import org.structr.rest.RestMethodResult;
 import org.structr.rest.exception.NotAllowedException;
@@ -72,6 +76,10 @@ public class MaintenanceParameterResource extends Resource {
 		maintenanceCommandMap.put("sync", SyncCommand.class);
 		maintenanceCommandMap.put("snapshot", SnapshotCommand.class);
 		maintenanceCommandMap.put("flushCaches", FlushCachesCommand.class);
+		maintenanceCommandMap.put("cacheStatistics", CacheStatisticsCommand.class);
+		maintenanceCommandMap.put("transactionListenerStatistics", TransactionListenerStatisticsCommand.class);
+		maintenanceCommandMap.put("changelog", ChangelogCommand.class);
+		maintenanceCommandMap.put("agentStatistics", AgentStatisticsCommand.class);
 
 	}
 
@@ -119,6 +119,13 @@ public class MaintenanceResource extends Resource {
 							result.addHeader(headerName, headerValue);
 						});
 						cmd.getCustomHeaders().clear();
+
+						final Object commandResult = cmd.getCommandResult();
+						if (commandResult != null) {
+
+							result.setNonGraphObjectResult(commandResult);
+						}
+
 						return result;
 
 					} else {
@@ -52,6 +52,7 @@ import org.structr.core.property.PropertyMap;
 import org.structr.rest.RestMethodResult;
 import org.structr.rest.exception.IllegalPathException;
 import org.structr.rest.exception.NotFoundException;
+import org.structr.rest.servlet.JsonRestServlet;
 import org.structr.schema.SchemaHelper;
 
 //~--- classes ----------------------------------------------------------------
@@ -179,6 +180,8 @@ public class TypeResource extends SortableResource {
 					.order(actualSortOrder)
 					.pageSize(pageSize)
 					.page(page)
+					.cursor(request != null ? request.getParameter(JsonRestServlet.REQUEST_PARAMETER_CURSOR) : null)
+					.streaming(securityContext.streamResults())
 					.getResult();
 			}
 
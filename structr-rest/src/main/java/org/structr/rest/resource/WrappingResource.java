@@ -53,6 +53,10 @@ public abstract class WrappingResource extends Resource {
 		this.wrappedResource = wrappedResource;
 	}
 
+	public Resource getWrappedResource() {
+		return wrappedResource;
+	}
+
 	@Override
 	public Resource tryCombineWith(Resource next) throws FrameworkException {
 
@@ -0,0 +1,230 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.serialization;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.structr.common.Fieldset;
+import org.structr.common.SecurityContext;
+import org.structr.common.View;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.property.FunctionProperty;
+import org.structr.core.property.GenericProperty;
+import org.structr.core.property.IntProperty;
+import org.structr.core.property.LongProperty;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.StringProperty;
+import org.structr.schema.SchemaService;
+
+/**
+ * Precomputed serialization layout of a type in a given view: the keys to
+ * read, their JSON names and whether their values can be written without
+ * running the input converter. Plans are shared between all writers and
+ * discarded when the schema is reloaded.
+ */
+public class SerializationPlan {
+
+	private static final Map<String, SerializationPlan> plans  = new ConcurrentHashMap<>();
+	private static final Map<Class, Boolean> passThroughTypes = new ConcurrentHashMap<>();
+	private static volatile long schemaVersion                = -1L;
+
+	private Set<PropertyKey> source = null;
+	private PropertyKey[] keys      = null;
+	private String[] names          = null;
+	private boolean[] passThrough   = null;
+
+	private SerializationPlan(final Class type, final String view, final Set<PropertyKey> source) {
+
+		final int size = source.size();
+		int index      = 0;
+
+		this.source      = source;
+		this.keys        = new PropertyKey[size];
+		this.names       = new String[size];
+		this.passThrough = new boolean[size];
+
+		for (final PropertyKey key : source) {
+
+			PropertyKey localKey = key;
+
+			// special handling for the internal _graph view: replace name with
+			// the name property from the ui view, in case it was overwritten
+			if (type != null && View.INTERNAL_GRAPH_VIEW.equals(view) && AbstractNode.name.equals(key)) {
+
+				localKey = StructrApp.key(type, AbstractNode.name.jsonName());
+			}
+
+			keys[index]        = localKey;
+			names[index]       = key.jsonName();
+			passThrough[index] = hasPassThroughConverter(localKey);
+
+			index++;
+		}
+	}
+
+	/**
+	 * Returns the plan for the given type and view. Key sets that are not
+	 * the shared view layout of the configuration provider (e.g. custom
+	 * views) get a plan that is not cached.
+	 *
+	 * @param type
+	 * @param view
+	 * @param keys the property keys of the object to serialize
+	 * @return the serialization plan
+	 */
+	public static SerializationPlan getPlan(final Class type, final String view, final Set<PropertyKey> keys) {
+
+		final String cacheKey  = type.getName().concat(".").concat(String.valueOf(view));
+		SerializationPlan plan = plans.get(cacheKey);
+
+		if (plan == null || !plan.isFor(keys)) {
+
+			plan = new SerializationPlan(type, view, keys);
+
+			if (keys == StructrApp.getConfiguration().getPropertySet(type, view)) {
+				plans.put(cacheKey, plan);
+			}
+		}
+
+		return plan;
+	}
+
+	/**
+	 * Creates an uncached plan for a fixed set of keys.
+	 *
+	 * @param keys
+	 * @return the serialization plan
+	 */
+	public static SerializationPlan forKeys(final Set<PropertyKey> keys) {
+		return new SerializationPlan(null, null, keys);
+	}
+
+	/**
+	 * Creates an uncached plan for the keys of the given view that are
+	 * contained in the given sparse fieldset. Callers that cache the plan
+	 * must check isFor() before reusing it.
+	 *
+	 * @param type
+	 * @param view
+	 * @param keys the property keys of the object to serialize
+	 * @param fieldset
+	 * @return the serialization plan
+	 */
+	public static SerializationPlan forFieldset(final Class type, final String view, final Set<PropertyKey> keys, final Fieldset fieldset) {
+
+		final Set<PropertyKey> fieldsetKeys = new LinkedHashSet<>();
+
+		for (final PropertyKey key : keys) {
+
+			if (fieldset.contains(key.jsonName())) {
+				fieldsetKeys.add(key);
+			}
+		}
+
+		final SerializationPlan plan = new SerializationPlan(type, view, fieldsetKeys);
+
+		// the plan is only valid for the key set it was derived from
+		plan.source = keys;
+
+		return plan;
+	}
+
+	/**
+	 * Indicates whether this plan was created for the given key set.
+	 *
+	 * @param keys the property keys of the object to serialize
+	 * @return whether the plan can be used for the given keys
+	 */
+	public boolean isFor(final Set<PropertyKey> keys) {
+		return source == keys;
+	}
+
+	/**
+	 * Clears all plans if the schema was reloaded since the last call.
+	 *
+	 * @return whether the plans were cleared
+	 */
+	public static boolean checkSchemaVersion() {
+
+		final long version = SchemaService.getSchemaVersion();
+		if (version != schemaVersion) {
+
+			plans.clear();
+			schemaVersion = version;
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Indicates whether the input converter of the given key returns its
+	 * input unchanged (or does not exist), so that it can be skipped.
+	 *
+	 * @param key
+	 * @return whether the input converter can be skipped
+	 */
+	public static boolean hasPassThroughConverter(final PropertyKey key) {
+
+		final Class type = key.getClass();
+		Boolean result   = passThroughTypes.get(type);
+
+		if (result == null) {
+
+			try {
+
+				final Class declaringClass = type.getMethod("inputConverter", SecurityContext.class).getDeclaringClass();
+
+				result = StringProperty.class.equals(declaringClass)
+					|| IntProperty.class.equals(declaringClass)
+					|| LongProperty.class.equals(declaringClass)
+					|| GenericProperty.class.equals(declaringClass)
+					|| FunctionProperty.class.equals(declaringClass);
+
+			} catch (NoSuchMethodException nsmex) {
+
+				result = false;
+			}
+
+			passThroughTypes.put(type, result);
+		}
+
+		return result;
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	public PropertyKey getKey(final int index) {
+		return keys[index];
+	}
+
+	public String getName(final int index) {
+		return names[index];
+	}
+
+	public boolean isPassThrough(final int index) {
+		return passThrough[index];
+	}
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -34,10 +35,10 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.config.Settings;
+import org.structr.common.Fieldset;
 import org.structr.common.PropertyView;
 import org.structr.common.QueryRange;
 import org.structr.common.SecurityContext;
-import org.structr.common.View;
 import org.structr.core.GraphObject;
 import org.structr.core.Result;
 import org.structr.core.Value;
@@ -56,29 +57,38 @@ public abstract class StreamingWriter {
 
 	private static final Logger logger                   = LoggerFactory.getLogger(StreamingWriter.class.getName());
 	private static final long MAX_SERIALIZATION_TIME     = TimeUnit.SECONDS.toMillis(300);
+	private static final int FLUSH_INTERVAL              = 1000;
+	private static final String NO_SERIALIZER            = "";
 	private static final Set<PropertyKey> idTypeNameOnly = new LinkedHashSet<>();
+	private static final Map<Class, String> typeCache    = new ConcurrentHashMap<>();
+	private static final SerializationPlan idTypeNamePlan;
 
 	static {
 
 		idTypeNameOnly.add(GraphObject.id);
 		idTypeNameOnly.add(AbstractNode.type);
 		idTypeNameOnly.add(AbstractNode.name);
+
+		idTypeNamePlan = SerializationPlan.forKeys(idTypeNameOnly);
 	}
 
-	private final Map<String, Serializer> serializerCache = new LinkedHashMap<>();
-	private final Map<String, Serializer> serializers     = new LinkedHashMap<>();
-	private final Serializer<GraphObject> root            = new RootSerializer();
-	private final Set<String> nonSerializerClasses        = new LinkedHashSet<>();
-	private final Set<Integer> visitedObjects             = ConcurrentHashMap.newKeySet();
-	private final DecimalFormat decimalFormat             = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
-	private String resultKeyName                          = "result";
-	private boolean renderSerializationTime               = true;
-	private boolean renderResultCount                     = true;
-	private boolean reduceRedundancy                      = false;
-	private int outputNestingDepth                        = 3;
-	private Value<String> propertyView                    = null;
-	protected boolean indent                              = true;
-	protected boolean compactNestedProperties             = true;
+	private final Map<PropertyKey, PropertyConverter> converterCache          = new IdentityHashMap<>();
+	private final Map<Fieldset, Map<String, SerializationPlan>> fieldsetPlans = new IdentityHashMap<>();
+	private final Map<String, Serializer> serializers                         = new LinkedHashMap<>();
+	private final Serializer<GraphObject> root                                = new RootSerializer();
+	private final Set<String> nonSerializerClasses                            = new LinkedHashSet<>();
+	private final Set<Integer> visitedObjects                                 = ConcurrentHashMap.newKeySet();
+	private final DecimalFormat decimalFormat                                 = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+	private String resultKeyName                                              = "result";
+	private boolean renderSerializationTime                                   = true;
+	private boolean renderResultCount                                         = true;
+	private boolean reduceRedundancy                                          = false;
+	private int outputNestingDepth                                            = 3;
+	private Value<String> propertyView                                        = null;
+	private SecurityContext converterContext                                  = null;
+	private Fieldset fieldset                                                 = null;
+	protected boolean indent                                                  = true;
+	protected boolean compactNestedProperties                                 = true;
 
 	public abstract RestWriter getRestWriter(final SecurityContext securityContext, final Writer writer);
 
@@ -115,6 +125,9 @@ public abstract class StreamingWriter {
 		final RestWriter writer = getRestWriter(securityContext, output);
 		final String view       = propertyView.get(securityContext);
 
+		checkSchemaVersion();
+		initializeFieldset(securityContext);
+
 		if (indent) {
 			writer.setIndent("	");
 		}
@@ -131,12 +144,17 @@ public abstract class StreamingWriter {
 
 		RestWriter writer = getRestWriter(securityContext, output);
 
+		checkSchemaVersion();
+		initializeFieldset(securityContext);
+
 		if (indent) {
 			writer.setIndent("	");
 		}
 
-		// result fields in alphabetical order
-		List<? extends GraphObject> results = result.getResults();
+		// result fields in alphabetical order, lazy results are not loaded into memory
+		final boolean lazy                  = result.isLazy();
+		List<? extends GraphObject> results = lazy ? null : result.getResults();
+		String nextCursor                   = result.getNextCursor();
 		Integer outputNestingDepth          = result.getOutputNestingDepth();
 		Integer page                        = result.getPage();
 		Integer pageCount                   = result.getPageCount();
@@ -153,6 +171,10 @@ public abstract class StreamingWriter {
 		// open result set
 		writer.beginObject();
 
+		if (nextCursor != null) {
+			writer.name("next_cursor").value(nextCursor);
+		}
+
 		if (outputNestingDepth != null) {
 			writer.name("output_nesting_depth").value(outputNestingDepth);
 		}
@@ -161,7 +183,7 @@ public abstract class StreamingWriter {
 			writer.name("page").value(page);
 		}
 
-		if (pageCount != null) {
+		if (pageCount != null && !lazy) {
 			writer.name("page_count").value(pageCount);
 		}
 
@@ -173,11 +195,51 @@ public abstract class StreamingWriter {
 			writer.name("query_time").value(queryTime);
 		}
 
-		if (resultCount != null && renderResultCount) {
+		if (resultCount != null && renderResultCount && !lazy) {
 			writer.name("result_count").value(resultCount);
 		}
 
-		if (results != null) {
+		if (lazy) {
+
+			// keep track of serialization time
+			final long startTime           = System.currentTimeMillis();
+			final String localPropertyView = propertyView.get(null);
+			int count                      = 0;
+
+			writer.name(resultKeyName).beginArray();
+
+			for (final Object object : result.getIterable()) {
+
+				root.serialize(writer, (GraphObject)object, localPropertyView, 0);
+
+				// send the data written so far to the client
+				if (++count % FLUSH_INTERVAL == 0) {
+					output.flush();
+				}
+
+				// check for timeout
+				if (System.currentTimeMillis() > startTime + MAX_SERIALIZATION_TIME) {
+
+					logger.error("JSON serialization of {} with more than {} results took more than {} ms, aborted. Please review output view size or adjust timeout.", new Object[] { securityContext.getCompoundRequestURI(), count, MAX_SERIALIZATION_TIME } );
+					break;
+				}
+			}
+
+			writer.endArray();
+
+			// the overall count is known after the result was read completely
+			final Integer lazyPageCount   = result.getPageCount();
+			final Integer lazyResultCount = result.getRawResultCount();
+
+			if (lazyPageCount != null) {
+				writer.name("page_count").value(lazyPageCount);
+			}
+
+			if (lazyResultCount != null && renderResultCount) {
+				writer.name("result_count").value(lazyResultCount);
+			}
+
+		} else if (results != null) {
 
 			if (results.isEmpty() && result.isPrimitiveArray()) {
 
@@ -321,43 +383,105 @@ public abstract class StreamingWriter {
 		this.renderResultCount = doRender;
 	}
 
+	private static void checkSchemaVersion() {
+
+		// type resolution and plans refer to the classes of the previous schema
+		if (SerializationPlan.checkSchemaVersion()) {
+			typeCache.clear();
+		}
+	}
+
+	private void initializeFieldset(final SecurityContext securityContext) {
+
+		fieldset = securityContext != null ? securityContext.getFieldset() : null;
+		fieldsetPlans.clear();
+	}
+
+	private SerializationPlan getFieldsetPlan(final Class type, final String view, final Set<PropertyKey> keys) {
+
+		Map<String, SerializationPlan> plans = fieldsetPlans.get(fieldset);
+		if (plans == null) {
+
+			plans = new LinkedHashMap<>();
+			fieldsetPlans.put(fieldset, plans);
+		}
+
+		final String cacheKey  = type.getName().concat(".").concat(String.valueOf(view));
+		SerializationPlan plan = plans.get(cacheKey);
+
+		if (plan == null || !plan.isFor(keys)) {
+
+			plan = SerializationPlan.forFieldset(type, view, keys, fieldset);
+
+			// objects like GraphObjectMaps have key sets of their own, only the view layout is cached
+			if (keys == StructrApp.getConfiguration().getPropertySet(type, view)) {
+				plans.put(cacheKey, plan);
+			}
+		}
+
+		return plan;
+	}
+
 	private Serializer getSerializerForType(Class type) {
 
-		Class localType       = type;
-		Serializer serializer = serializerCache.get(type.getName());
+		String serializerType = typeCache.get(type);
+		if (serializerType == null) {
 
-		if (serializer == null && !nonSerializerClasses.contains(type.getName())) {
+			serializerType = NO_SERIALIZER;
 
-			do {
-				serializer = serializers.get(localType.getName());
+			if (!nonSerializerClasses.contains(type.getName())) {
 
-				if (serializer == null) {
+				Class localType = type;
 
-					Set<Class> interfaces = new LinkedHashSet<>();
-					collectAllInterfaces(localType, interfaces);
+				do {
+					if (serializers.containsKey(localType.getName())) {
 
-					for (Class interfaceType : interfaces) {
+						serializerType = localType.getName();
 
-						serializer = serializers.get(interfaceType.getName());
+					} else {
 
-						if (serializer != null) {
-							break;
+						Set<Class> interfaces = new LinkedHashSet<>();
+						collectAllInterfaces(localType, interfaces);
+
+						for (Class interfaceType : interfaces) {
+
+							if (serializers.containsKey(interfaceType.getName())) {
+
+								serializerType = interfaceType.getName();
+								break;
+							}
 						}
 					}
-				}
 
-				localType = localType.getSuperclass();
+					localType = localType.getSuperclass();
+
+				} while (NO_SERIALIZER.equals(serializerType) && !localType.equals(Object.class));
+			}
+
+			// cache resolved serializer type for all writers
+			typeCache.put(type, serializerType);
+		}
 
-			} while (serializer == null && !localType.equals(Object.class));
+		return serializers.get(serializerType);
+	}
 
+	private PropertyConverter getInputConverter(final SecurityContext securityContext, final PropertyKey key) {
 
-			// cache found serializer
-			if (serializer != null) {
-				serializerCache.put(type.getName(), serializer);
-			}
+		// converters are bound to the security context of the writer
+		if (securityContext != converterContext) {
+
+			converterCache.clear();
+			converterContext = securityContext;
 		}
 
-		return serializer;
+		PropertyConverter converter = converterCache.get(key);
+		if (converter == null && !converterCache.containsKey(key)) {
+
+			converter = key.inputConverter(securityContext);
+			converterCache.put(key, converter);
+		}
+
+		return converter;
 	}
 
 	private void collectAllInterfaces(Class type, Set<Class> interfaces) {
@@ -402,6 +526,13 @@ public abstract class StreamingWriter {
 
 		public void serializeRoot(RestWriter writer, Object value, String localPropertyView, int depth) throws IOException {
 
+			// write primitive values directly
+			if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+
+				serializePrimitive(writer, value);
+				return;
+			}
+
 			if (value != null) {
 
 				Serializer serializer = getSerializerForType(value.getClass());
@@ -417,11 +548,15 @@ public abstract class StreamingWriter {
 		}
 
 		public void serializeProperty(RestWriter writer, PropertyKey key, Object value, String localPropertyView, int depth) {
+			serializeProperty(writer, key, SerializationPlan.hasPassThroughConverter(key), value, localPropertyView, depth);
+		}
+
+		public void serializeProperty(RestWriter writer, PropertyKey key, boolean passThrough, Object value, String localPropertyView, int depth) {
 
 			final SecurityContext securityContext = writer.getSecurityContext();
 
 			try {
-				final PropertyConverter converter = key.inputConverter(securityContext);
+				final PropertyConverter converter = passThrough ? null : getInputConverter(securityContext, key);
 				if (converter != null) {
 
 					Object convertedValue = null;
@@ -469,48 +604,61 @@ public abstract class StreamingWriter {
 				if (depth <= outputNestingDepth) {
 
 					// property keys
-					Iterable<PropertyKey> keys = source.getPropertyKeys(localPropertyView);
+					final Set<PropertyKey> keys = source.getPropertyKeys(localPropertyView);
 					if (keys != null) {
 
+						final SerializationPlan plan;
+
+						// sparse fieldset: limit rendering to the requested properties
+						if (fieldset != null) {
+
+							plan = getFieldsetPlan(source.getClass(), localPropertyView, keys);
+
 						// speciality for the Ui view: limit recursive rendering to (id, name)
-						if (compactNestedProperties && depth > 0 && PropertyView.Ui.equals(localPropertyView)) {
-							keys = idTypeNameOnly;
+						} else if (compactNestedProperties && depth > 0 && PropertyView.Ui.equals(localPropertyView)) {
+
+							plan = idTypeNamePlan;
+
+						} else {
+
+							plan = SerializationPlan.getPlan(source.getClass(), localPropertyView, keys);
 						}
 
-						for (final PropertyKey key : keys) {
+						final SecurityContext securityContext = writer.getSecurityContext();
+						final int size                        = plan.size();
 
-							final QueryRange range = writer.getSecurityContext().getRange(key.jsonName());
+						for (int i=0; i<size; i++) {
+
+							final PropertyKey key = plan.getKey(i);
+							final String name     = plan.getName(i);
+
+							final QueryRange range = securityContext.getRange(name);
 							if (range != null) {
 								// Reset count for each key
 								range.resetCount();
 							}
 
-							// special handling for the internal _graph view: replace name with
-							// the name property from the ui view, in case it was overwritten
-							PropertyKey localKey = key;
-
-							if (View.INTERNAL_GRAPH_VIEW.equals(localPropertyView)) {
-
-								if (AbstractNode.name.equals(localKey)) {
+							final Object value = source.getProperty(key, range);
+							if (value != null) {
 
-									// replace key
-									localKey = StructrApp.key(source.getClass(), AbstractNode.name.jsonName());
-								}
-							}
+								if (!(reduceRedundancy && visitedObjects.contains(value.hashCode()))) {
 
+									final Fieldset parent = fieldset;
 
-							final Object value = source.getProperty(localKey, range);
-							if (value != null) {
+									// nested objects are limited by the fields below this property
+									if (parent != null) {
+										fieldset = parent.get(name);
+									}
 
-								if (!(reduceRedundancy && visitedObjects.contains(value.hashCode()))) {
+									writer.name(name);
+									serializeProperty(writer, key, plan.isPassThrough(i), value, localPropertyView, depth+1);
 
-									writer.name(key.jsonName());
-									serializeProperty(writer, localKey, value, localPropertyView, depth+1);
+									fieldset = parent;
 								}
 
 							} else {
 
-								writer.name(localKey.jsonName()).nullValue();
+								writer.name(name).nullValue();
 							}
 						}
 					}
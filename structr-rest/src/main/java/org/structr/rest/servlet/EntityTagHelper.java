@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.servlet;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.structr.common.SecurityContext;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.ModificationQueue;
+import org.structr.core.property.CypherQueryProperty;
+import org.structr.core.property.FunctionProperty;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.TypeProperty;
+import org.structr.rest.resource.Resource;
+import org.structr.rest.resource.TypeResource;
+import org.structr.rest.resource.TypedIdResource;
+import org.structr.rest.resource.ViewFilterResource;
+import org.structr.schema.ConfigurationProvider;
+import org.structr.schema.SchemaService;
+
+//~--- classes ----------------------------------------------------------------
+
+/**
+ * Helper class for conditional GET requests. The entity tag of a result
+ * is derived from the change counters of all types that can appear in
+ * the result and the signature of the request, so that it can be
+ * computed (and compared) before the query is executed.
+ *
+ */
+public class EntityTagHelper {
+
+	private static final Set<String> NOT_TAGGABLE            = Collections.emptySet();
+	private static final Map<String, Set<String>> typeLabels = new ConcurrentHashMap<>();
+	private static volatile long schemaVersion               = -1L;
+
+	/**
+	 * Returns a weak entity tag for the result of the given resource, or
+	 * null if the result can contain data that is not covered by the
+	 * change counters.
+	 *
+	 * @param securityContext
+	 * @param request
+	 * @param resource
+	 * @param view
+	 * @return the entity tag or null
+	 */
+	public static String getEntityTag(final SecurityContext securityContext, final HttpServletRequest request, final Resource resource, final String view) {
+
+		Resource baseResource = resource;
+
+		// views don't change the source of the result
+		while (baseResource instanceof ViewFilterResource) {
+			baseResource = ((ViewFilterResource)baseResource).getWrappedResource();
+		}
+
+		// only type and id resources read their results from the graph alone
+		if (!(baseResource instanceof TypeResource || baseResource instanceof TypedIdResource)) {
+			return null;
+		}
+
+		final Class type = baseResource.getEntityClass();
+		if (type == null) {
+			return null;
+		}
+
+		final Set<String> labels = getTypeLabels(type, view);
+		if (labels == NOT_TAGGABLE) {
+			return null;
+		}
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(ModificationQueue.getChangeCounterEpoch());
+		buf.append(";");
+		buf.append(SchemaService.getSchemaVersion());
+		buf.append(";");
+		buf.append(ModificationQueue.getUntrackedChangeCounter());
+		buf.append(";");
+		buf.append(ModificationQueue.getSecurityChangeCounter());
+
+		for (final String label : labels) {
+
+			buf.append(";");
+			buf.append(label);
+			buf.append("=");
+			buf.append(ModificationQueue.getChangeCounter(label));
+		}
+
+		// request signature
+		buf.append(";");
+		buf.append(request.getRequestURI());
+		buf.append("?");
+		buf.append(request.getQueryString());
+		buf.append(";");
+		buf.append(request.getHeader("Accept"));
+		buf.append(";");
+		buf.append(request.getHeader("Range"));
+		buf.append(";");
+		buf.append(view);
+		buf.append(";");
+		buf.append(getUserId(securityContext));
+
+		return "W/\"".concat(DigestUtils.md5Hex(buf.toString())).concat("\"");
+	}
+
+	/**
+	 * Indicates whether the If-None-Match header of the given request
+	 * contains the given entity tag, using the weak comparison function.
+	 *
+	 * @param request
+	 * @param entityTag
+	 * @return whether the client has a current version of the result
+	 */
+	public static boolean notModified(final HttpServletRequest request, final String entityTag) {
+
+		final String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+
+			final String opaqueTag = stripWeakIndicator(entityTag);
+
+			for (final String part : ifNoneMatch.split("[,]+")) {
+
+				final String tag = part.trim();
+
+				if ("*".equals(tag) || opaqueTag.equals(stripWeakIndicator(tag))) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	// ----- private methods -----
+	private static String getUserId(final SecurityContext securityContext) {
+
+		if (securityContext != null) {
+
+			final Principal user = securityContext.getCachedUser();
+			if (user != null) {
+
+				return user.getUuid();
+			}
+		}
+
+		return null;
+	}
+
+	private static String stripWeakIndicator(final String tag) {
+
+		if (tag.startsWith("W/")) {
+			return tag.substring(2);
+		}
+
+		return tag;
+	}
+
+	private static Set<String> getTypeLabels(final Class type, final String view) {
+
+		// the types that can appear in a view depend on the schema
+		final long version = SchemaService.getSchemaVersion();
+		if (version != schemaVersion) {
+
+			typeLabels.clear();
+			schemaVersion = version;
+		}
+
+		final String cacheKey = type.getName().concat(".").concat(String.valueOf(view));
+		Set<String> labels    = typeLabels.get(cacheKey);
+
+		if (labels == null) {
+
+			final Set<Class> types = new LinkedHashSet<>();
+
+			labels = new LinkedHashSet<>();
+
+			// type resources return instances of the subtypes as well
+			if (!collectTypesAndSubtypes(StructrApp.getConfiguration(), type, view, types)) {
+
+				labels = NOT_TAGGABLE;
+
+			} else {
+
+				for (final Class resultType : types) {
+
+					final String label = resultType.getSimpleName();
+
+					// types that have no label don't have a change counter
+					if (!TypeProperty.getLabelsForType(resultType).contains(label)) {
+
+						labels = NOT_TAGGABLE;
+						break;
+					}
+
+					labels.add(label);
+				}
+			}
+
+			typeLabels.put(cacheKey, labels);
+		}
+
+		return labels;
+	}
+
+	private static boolean collectTypes(final ConfigurationProvider config, final Class type, final String view, final Set<Class> types) {
+
+		if (types.add(type)) {
+
+			for (final PropertyKey key : config.getPropertySet(type, view)) {
+
+				// computed values can depend on any data
+				if (key instanceof FunctionProperty || key instanceof CypherQueryProperty) {
+					return false;
+				}
+
+				final Class relatedType = key.relatedType();
+				if (relatedType != null && !collectTypesAndSubtypes(config, relatedType, view, types)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean collectTypesAndSubtypes(final ConfigurationProvider config, final Class type, final String view, final Set<Class> types) {
+
+		if (!collectTypes(config, type, view, types)) {
+			return false;
+		}
+
+		// nested objects are rendered in the view of their own type
+		for (final Class subtype : config.getNodeEntities().values()) {
+
+			if (type.isAssignableFrom(subtype) && !collectTypes(config, subtype, view, types)) {
+				return false;
+			}
+		}
+
+		for (final Class subtype : config.getRelationshipEntities().values()) {
+
+			if (type.isAssignableFrom(subtype) && !collectTypes(config, subtype, view, types)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
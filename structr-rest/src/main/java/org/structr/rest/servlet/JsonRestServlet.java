@@ -18,18 +18,29 @@
  */
 package org.structr.rest.servlet;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.regex.Pattern;
 import javax.servlet.ServletException;
@@ -58,6 +69,7 @@ import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.Tx;
 import org.structr.core.graph.search.SearchCommand;
+import org.structr.core.rest.JsonInputGSONAdapter;
 import org.structr.core.property.PropertyKey;
 import org.structr.rest.ResourceProvider;
 import org.structr.rest.RestMethodResult;
@@ -85,9 +97,13 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 	public static final String REQUEST_PARAMETER_PAGE_SIZE              = "pageSize";
 	public static final String REQUEST_PARAMETER_SORT_KEY               = "sort";
 	public static final String REQUEST_PARAMETER_SORT_ORDER             = "order";
+	public static final String REQUEST_PARAMETER_CURSOR                 = "_cursor";
+	public static final String REQUEST_PARAMETER_FIELDS                 = "_fields";
 	public static final String REQUEST_PARAMTER_OUTPUT_DEPTH            = "outputNestingDepth";
+	public static final String HEADER_BATCH_SIZE                        = "Structr-Batch-Size";
 	public static final Set<String> commonRequestParameters             = new LinkedHashSet<>();
 	private static final Logger logger                                  = LoggerFactory.getLogger(JsonRestServlet.class.getName());
+	private static final int SC_MULTI_STATUS                            = 207;
 
 	static {
 
@@ -96,6 +112,8 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 		commonRequestParameters.add(REQUEST_PARAMETER_PAGE_SIZE);
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_KEY);
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_ORDER);
+		commonRequestParameters.add(REQUEST_PARAMETER_CURSOR);
+		commonRequestParameters.add(REQUEST_PARAMETER_FIELDS);
 		commonRequestParameters.add(REQUEST_PARAMTER_OUTPUT_DEPTH);
 		commonRequestParameters.add("debugLoggingEnabled");
 		commonRequestParameters.add("ignoreResultCount");
@@ -403,8 +421,11 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			response.setCharacterEncoding("UTF-8");
 			response.setContentType("application/json; charset=utf-8");
 
-			// get reader before initalizing security context
-			final String input = IOUtils.toString(request.getReader());
+			// get reader before initalizing security context, bulk
+			// uploads with a batch size are read after authentication
+			final BufferedReader reader = request.getReader();
+			final int batchSize         = getBatchSize(request);
+			final String input          = batchSize > 0 ? null : IOUtils.toString(reader);
 
 			// isolate request authentication in a transaction
 			try (final Tx tx = StructrApp.getInstance().tx()) {
@@ -413,8 +434,8 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				tx.success();
 			}
 
-			final App app              = StructrApp.getInstance(securityContext);
-			final IJsonInput jsonInput = cleanAndParseJsonString(app, input);
+			final App app        = StructrApp.getInstance(securityContext);
+			IJsonInput jsonInput = input != null ? cleanAndParseJsonString(app, input) : null;
 
 			if (securityContext != null) {
 
@@ -426,6 +447,18 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 					tx.success();
 				}
 
+				if (jsonInput == null) {
+
+					if (resource.createPostTransaction()) {
+
+						doStreamingPost(app, resource, reader, batchSize, response);
+						return;
+					}
+
+					// resource manages its own transactions, no batching possible
+					jsonInput = cleanAndParseJsonString(app, IOUtils.toString(reader));
+				}
+
 				// isolate doPost
 				boolean retry = true;
 				while (retry) {
@@ -714,6 +747,198 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 
 	// <editor-fold defaultstate="collapsed" desc="private methods">
 
+	/**
+	 * Reads the JSON array from the given reader element by element and
+	 * creates the objects in transactions of batchSize objects each. The
+	 * response contains the result of every batch, i.e. the ids of the
+	 * created objects and whether the batch was committed. Processing
+	 * stops at the first batch that fails, batches before the failed one
+	 * stay committed. If some batches were committed before a batch
+	 * failed, the status code is 207 (Multi-Status).
+	 */
+	private void doStreamingPost(final App app, final Resource resource, final Reader input, final int batchSize, final HttpServletResponse response) throws IOException {
+
+		final JsonReader reader              = new JsonReader(input);
+		final JsonParser parser              = new JsonParser();
+		final JsonArray batches              = new JsonArray();
+		final List<JsonInput> batch          = new ArrayList<>(Math.min(batchSize, 1000));
+		final List<RestMethodResult> results = new ArrayList<>(Math.min(batchSize, 1000));
+		RestMethodResult firstResult         = null;
+		int status                           = HttpServletResponse.SC_CREATED;
+		boolean done                         = false;
+		int committedBatches                 = 0;
+		int batchNumber                      = 0;
+		int resultCount                      = 0;
+
+		reader.setLenient(Settings.JsonLenient.getValue());
+
+		while (!done) {
+
+			final JsonObject batchResult = new JsonObject();
+
+			try {
+
+				batch.clear();
+
+				final JsonToken token = batchNumber == 0 ? peek(reader) : JsonToken.BEGIN_ARRAY;
+				if (token != JsonToken.BEGIN_ARRAY) {
+
+					// single object, or empty input which is treated like {}
+					batch.add(token == JsonToken.END_DOCUMENT ? new JsonInput() : JsonInputGSONAdapter.deserialize(parser.parse(reader), null));
+					done = true;
+
+				} else {
+
+					if (batchNumber == 0) {
+						reader.beginArray();
+					}
+
+					while (batch.size() < batchSize && reader.hasNext()) {
+						batch.add(JsonInputGSONAdapter.deserialize(parser.parse(reader), null));
+					}
+
+					if (!reader.hasNext()) {
+
+						reader.endArray();
+						done = true;
+					}
+				}
+
+				if (batch.isEmpty()) {
+					break;
+				}
+
+				boolean retry = true;
+				while (retry) {
+
+					results.clear();
+
+					try (final Tx tx = app.tx()) {
+
+						for (final JsonInput propertySet : batch) {
+							results.add(resource.doPost(convertPropertySetToMap(propertySet)));
+						}
+
+						tx.success();
+						retry = false;
+
+					} catch (RetryException ddex) {
+						retry = true;
+					}
+				}
+
+				final JsonArray ids = new JsonArray();
+
+				for (final RestMethodResult result : results) {
+
+					if (result != null && result.getContent() != null) {
+
+						for (final GraphObject obj : result.getContent()) {
+							ids.add(obj.getUuid());
+						}
+					}
+				}
+
+				if (firstResult == null && !results.isEmpty()) {
+					firstResult = results.get(0);
+				}
+
+				resultCount += batch.size();
+				committedBatches++;
+
+				batchResult.addProperty("code", HttpServletResponse.SC_CREATED);
+				batchResult.addProperty("committed", true);
+				batchResult.addProperty("result_count", batch.size());
+				batchResult.add("result", ids);
+
+			} catch (FrameworkException fex) {
+
+				for (final Entry<String, JsonElement> entry : fex.toJSON().getAsJsonObject().entrySet()) {
+					batchResult.add(entry.getKey(), entry.getValue());
+				}
+
+				batchResult.addProperty("committed", false);
+
+				status = fex.getStatus();
+				done   = true;
+
+			} catch (JsonParseException | IllegalStateException | IOException ex) {
+
+				logger.warn("POST: Invalid JSON in batch {}: {}", batchNumber, ex.getMessage());
+
+				batchResult.addProperty("code", HttpServletResponse.SC_BAD_REQUEST);
+				batchResult.addProperty("committed", false);
+				batchResult.addProperty("message", ex.getMessage());
+
+				status = HttpServletResponse.SC_BAD_REQUEST;
+				done   = true;
+			}
+
+			batchResult.addProperty("batch", batchNumber++);
+			batches.add(batchResult);
+		}
+
+		// a failed batch must not look like a failure of the whole request
+		if (status != HttpServletResponse.SC_CREATED && committedBatches > 0) {
+			status = SC_MULTI_STATUS;
+		}
+
+		// the Location header may only contain a single URL
+		if (resultCount == 1 && firstResult != null) {
+
+			final String location = firstResult.getHeaders().get("Location");
+			if (location != null) {
+
+				response.setHeader("Location", location);
+			}
+		}
+
+		final JsonObject result = new JsonObject();
+
+		result.addProperty("code", status);
+		result.addProperty("result_count", resultCount);
+		result.addProperty("committed_batches", committedBatches);
+		result.add("batches", batches);
+
+		response.setStatus(status);
+		gson.get().toJson(result, response.getWriter());
+		response.getWriter().println();
+	}
+
+	private JsonToken peek(final JsonReader reader) throws IOException {
+
+		try {
+
+			return reader.peek();
+
+		} catch (EOFException eof) {
+
+			// empty input
+			return JsonToken.END_DOCUMENT;
+		}
+	}
+
+	private int getBatchSize(final HttpServletRequest request) throws FrameworkException {
+
+		final String value = request.getHeader(HEADER_BATCH_SIZE);
+		if (value != null) {
+
+			try {
+
+				final int batchSize = Integer.parseInt(value.trim());
+				if (batchSize > 0) {
+
+					return batchSize;
+				}
+
+			} catch (NumberFormatException nex) {}
+
+			throw new FrameworkException(400, "Invalid value for header " + HEADER_BATCH_SIZE + ", expected a positive number");
+		}
+
+		return 0;
+	}
+
 	private IJsonInput cleanAndParseJsonString(final App app, final String input) throws FrameworkException {
 
 		IJsonInput jsonInput = null;
@@ -785,15 +1010,32 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 
 			// evaluate constraints and measure query time
 			double queryTimeStart    = System.nanoTime();
+			String entityTag         = null;
 
 			// isolate resource authentication
 			try (final Tx tx = app.tx()) {
 
 				resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
 				authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
+				entityTag = EntityTagHelper.getEntityTag(securityContext, request, resource, propertyView.get(securityContext));
 				tx.success();
 			}
 
+			// answer conditional requests before the query is executed
+			if (entityTag != null) {
+
+				response.setHeader("ETag", entityTag);
+
+				if (EntityTagHelper.notModified(request, entityTag)) {
+
+					response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+					return;
+				}
+			}
+
+			// limit output to the requested fields
+			ResourceHelper.applyFieldset(securityContext, request);
+
 			// add sorting & paging
 			String pageSizeParameter = request.getParameter(REQUEST_PARAMETER_PAGE_SIZE);
 			String pageParameter     = request.getParameter(REQUEST_PARAMETER_PAGE_NUMBER);
@@ -821,92 +1063,109 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				sortKey = StructrApp.getConfiguration().getPropertyKeyForDatabaseName(type, sortKeyName, false);
 			}
 
-			// isolate doGet
-			boolean retry = true;
-			while (retry) {
+			// large JSON results that were requested with an explicit page size are serialized while they are read from the database
+			final String acceptHeader = request.getHeader("Accept");
+			final boolean stream      = returnContent && pageSizeParameter != null && pageSize >= Settings.RestStreamPageSize.getValue() && (acceptHeader == null || !acceptHeader.contains("text/html"));
 
-				try (final Tx tx = app.tx()) {
-					result = resource.doGet(sortKey, sortDescending, pageSize, page);
-					tx.success();
-					retry = false;
+			if (securityContext != null) {
 
-				} catch (RetryException ddex) {
-					retry = true;
-				}
+				securityContext.streamResults(stream);
 			}
 
-			if (result == null) {
+			// a streamed result is read lazily, so the query and the serialization share one transaction
+			try (final Tx streamTx = stream ? app.tx() : null) {
 
-				throw new FrameworkException(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Unable to retrieve result, check database connection");
-			}
+				// isolate doGet
+				boolean retry = true;
+				while (retry) {
 
-			if (returnContent) {
+					try (final Tx tx = app.tx()) {
+						result = resource.doGet(sortKey, sortDescending, pageSize, page);
+						tx.success();
+						retry = false;
 
-				if (!(resource instanceof StaticRelationshipResource) && !result.isPrimitiveArray() && !result.isEmpty()) {
+					} catch (RetryException ddex) {
+						retry = true;
+					}
+				}
 
-					result.setIsCollection(resource.isCollectionResource());
-					result.setIsPrimitiveArray(resource.isPrimitiveArray());
+				if (result == null) {
 
+					throw new FrameworkException(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Unable to retrieve result, check database connection");
 				}
 
-				PagingHelper.addPagingParameter(result, pageSize, page);
+				if (returnContent) {
 
-				// timing..
-				double queryTimeEnd = System.nanoTime();
+					if (!(resource instanceof StaticRelationshipResource) && !result.isPrimitiveArray() && (result.isLazy() || !result.isEmpty())) {
 
-				// store property view that will be used to render the results
-				result.setPropertyView(propertyView.get(securityContext));
+						result.setIsCollection(resource.isCollectionResource());
+						result.setIsPrimitiveArray(resource.isPrimitiveArray());
 
-				// allow resource to modify result set
-				resource.postProcessResultSet(result);
+					}
 
-				DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
-				result.setQueryTime(decimalFormat.format((queryTimeEnd - queryTimeStart) / 1000000000.0));
+					PagingHelper.addPagingParameter(result, pageSize, page);
 
-				if (outputDepth != null) {
+					// timing..
+					double queryTimeEnd = System.nanoTime();
 
-					result.setOutputNestingDepth(depth);
+					// store property view that will be used to render the results
+					result.setPropertyView(propertyView.get(securityContext));
 
-				}
+					// allow resource to modify result set
+					resource.postProcessResultSet(result);
 
-				String accept = request.getHeader("Accept");
+					DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+					result.setQueryTime(decimalFormat.format((queryTimeEnd - queryTimeStart) / 1000000000.0));
 
-				if (accept != null && accept.contains("text/html")) {
+					if (outputDepth != null) {
 
-					final StreamingHtmlWriter htmlStreamer = new StreamingHtmlWriter(this.propertyView, indentJson, depth);
+						result.setOutputNestingDepth(depth);
 
-					// isolate write output
-					try (final Tx tx = app.tx()) {
+					}
 
-						// no trailing semicolon so we dont trip MimeTypes.getContentTypeWithoutCharset
-						response.setContentType("text/html; charset=utf-8");
+					String accept = request.getHeader("Accept");
 
-						final Writer writer = response.getWriter();
+					if (accept != null && accept.contains("text/html")) {
 
-						htmlStreamer.stream(securityContext, writer, result, baseUrl);
-						writer.append("\n");    // useful newline
+						final StreamingHtmlWriter htmlStreamer = new StreamingHtmlWriter(this.propertyView, indentJson, depth);
 
-						tx.success();
-					}
+						// isolate write output
+						try (final Tx tx = app.tx()) {
 
-				} else {
+							// no trailing semicolon so we dont trip MimeTypes.getContentTypeWithoutCharset
+							response.setContentType("text/html; charset=utf-8");
 
-					final StreamingJsonWriter jsonStreamer = new StreamingJsonWriter(this.propertyView, indentJson, depth);
+							final Writer writer = response.getWriter();
 
-					// isolate write output
-					try (final Tx tx = app.tx()) {
+							htmlStreamer.stream(securityContext, writer, result, baseUrl);
+							writer.append("\n");    // useful newline
 
-						// no trailing semicolon so we dont trip MimeTypes.getContentTypeWithoutCharset
-						response.setContentType("application/json; charset=utf-8");
+							tx.success();
+						}
 
-						final Writer writer = response.getWriter();
+					} else {
 
-						jsonStreamer.stream(securityContext, writer, result, baseUrl);
-						writer.append("\n");    // useful newline
+						final StreamingJsonWriter jsonStreamer = new StreamingJsonWriter(this.propertyView, indentJson, depth);
+
+						// isolate write output
+						try (final Tx tx = app.tx()) {
+
+							// no trailing semicolon so we dont trip MimeTypes.getContentTypeWithoutCharset
+							response.setContentType("application/json; charset=utf-8");
+
+							final Writer writer = response.getWriter();
+
+							jsonStreamer.stream(securityContext, writer, result, baseUrl);
+							writer.append("\n");    // useful newline
+
+							tx.success();
+						}
 
-						tx.success();
 					}
+				}
 
+				if (streamTx != null) {
+					streamTx.success();
 				}
 			}
 
@@ -979,7 +1238,13 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 
 		@Override
 		public void set(SecurityContext securityContext, String value) {
+
 			set(value);
+
+			// make view available to result factories
+			if (securityContext != null) {
+				securityContext.setPropertyView(value);
+			}
 		}
 
 		@Override
@@ -30,6 +30,7 @@ import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.common.Fieldset;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Services;
@@ -288,4 +289,18 @@ public class ResourceHelper {
 		return transformedResource;
 	}
 
+	/**
+	 * Configure the sparse fieldset of the given security context from
+	 * the _fields request parameter, if any
+	 *
+	 * @param securityContext
+	 * @param request
+	 */
+	public static void applyFieldset(final SecurityContext securityContext, final HttpServletRequest request) {
+
+		if (securityContext != null) {
+
+			securityContext.setFieldset(Fieldset.parse(request.getParameter(JsonRestServlet.REQUEST_PARAMETER_FIELDS)));
+		}
+	}
 }
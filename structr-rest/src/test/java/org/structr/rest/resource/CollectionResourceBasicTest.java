@@ -159,4 +159,165 @@ public class CollectionResourceBasicTest extends StructrRestTest {
 
 	}
 
+	/**
+	 * Test the creation of multiple entities in batches with the
+	 * Structr-Batch-Size header.
+	 */
+	@Test
+	public void test030CreateTestObjectsInBatches() {
+
+		final StringBuilder body = new StringBuilder("[");
+
+		for (int i=0; i<25; i++) {
+
+			if (i > 0) {
+				body.append(",");
+			}
+
+			body.append("{ \"name\": \"test").append(i).append("\" }");
+		}
+
+		body.append("]");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("Structr-Batch-Size", "10")
+				.body(body.toString())
+			.expect()
+				.statusCode(201)
+				.body("result_count",             equalTo(25))
+				.body("committed_batches",        equalTo(3))
+				.body("batches.size()",           equalTo(3))
+				.body("batches[0].result_count",  equalTo(10))
+				.body("batches[0].result.size()", equalTo(10))
+				.body("batches[2].result_count",  equalTo(5))
+				.body("batches[2].result.size()", equalTo(5))
+			.when()
+				.post("/test_objects");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result_count",       equalTo(25))
+			.when()
+				.get("/test_objects");
+	}
+
+	/**
+	 * Test that batches before a failed batch stay committed and are
+	 * reported with the status code 207.
+	 */
+	@Test
+	public void test031CreateTestObjectsInBatchesWithInvalidInput() {
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("Structr-Batch-Size", "2")
+				.body("[ { \"name\": \"a\" }, { \"name\": \"b\" }, { \"name\": \"c\" }, { \"name\": ] ")
+			.expect()
+				.statusCode(207)
+				.body("result_count",          equalTo(2))
+				.body("committed_batches",     equalTo(1))
+				.body("batches[0].code",       equalTo(201))
+				.body("batches[0].committed",  equalTo(true))
+				.body("batches[1].code",       equalTo(400))
+				.body("batches[1].committed",  equalTo(false))
+			.when()
+				.post("/test_objects");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result_count",       equalTo(2))
+			.when()
+				.get("/test_objects");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("Structr-Batch-Size", "none")
+				.body("[]")
+			.expect()
+				.statusCode(400)
+			.when()
+				.post("/test_objects");
+	}
+
+	/**
+	 * Test that unmodified collections are answered with 304 Not Modified
+	 * and that modifications of nested objects change the entity tag.
+	 */
+	@Test
+	public void test040ConditionalGetWithEntityTag() {
+
+		final String testTwo = createEntity("/test_twos", "{ name: TestTwo }");
+		final String testOne = createEntity("/test_twos/" + testTwo + "/test_ones", "{ name: TestOne }");
+
+		final String entityTag = RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.header("ETag",             notNullValue())
+				.body("result_count",       equalTo(1))
+			.when()
+				.get("/test_twos").getHeader("ETag");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("If-None-Match", entityTag)
+			.expect()
+				.statusCode(304)
+				.header("ETag",             equalTo(entityTag))
+			.when()
+				.get("/test_twos");
+
+		// the result depends on the request
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("If-None-Match", entityTag)
+			.expect()
+				.statusCode(200)
+			.when()
+				.get("/test_twos?sort=name");
+
+		// modify a nested object
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.body("{ name: Modified }")
+			.expect()
+				.statusCode(200)
+			.when()
+				.put("/test_ones/" + testOne);
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("If-None-Match", entityTag)
+			.expect()
+				.statusCode(200)
+				.header("ETag",             not(equalTo(entityTag)))
+				.body("result[0].test_ones[0].name", equalTo("Modified"))
+			.when()
+				.get("/test_twos");
+	}
 }
@@ -927,4 +927,29 @@ public class SchemaResourceTest extends StructrRestTest {
 			.when()
 				.post("/Test/test");
 	}
+
+	@Test
+	public void testSchemaOverviewWithFieldset() {
+
+		// the entries of the schema overview have different keys, e.g. only node types with relationships have relatedTo
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(400))
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(404))
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(422))
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+
+			.expect()
+				.statusCode(200)
+
+				.body("result.find { it.name == 'TestTwo' }.relatedTo",         not(empty()))
+				.body("result.find { it.name == 'TestTwo' }",                   not(hasKey("url")))
+				.body("result.find { it.name == 'TwoOneOneToMany' }",           not(hasKey("url")))
+				.body("result.find { it.name == 'TwoOneOneToMany' }.relatedTo", nullValue())
+
+			.when()
+				.get("/_schema?_fields=name,relatedTo");
+	}
 }
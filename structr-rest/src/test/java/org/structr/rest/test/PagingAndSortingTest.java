@@ -28,6 +28,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
+import org.structr.api.config.Settings;
 import org.structr.common.AccessMode;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
@@ -372,6 +373,175 @@ public class PagingAndSortingTest extends StructrRestTest {
 
 	}
 
+	@Test
+	public void test04CursorPaging() {
+
+		final String resource = "/test_one";
+
+		try (final Tx tx = app.tx()) {
+
+			// two objects with the same anInt value to test the tie-breaker
+			app.create(TestOne.class, new NodeAttribute<>(TestOne.name, "TestOne-0"), new NodeAttribute<>(TestOne.anInt, 3));
+			app.create(TestOne.class, new NodeAttribute<>(TestOne.name, "TestOne-1"), new NodeAttribute<>(TestOne.anInt, 1));
+			app.create(TestOne.class, new NodeAttribute<>(TestOne.name, "TestOne-2"), new NodeAttribute<>(TestOne.anInt, 2));
+			app.create(TestOne.class, new NodeAttribute<>(TestOne.name, "TestOne-3"), new NodeAttribute<>(TestOne.anInt, 2));
+			app.create(TestOne.class, new NodeAttribute<>(TestOne.name, "TestOne-4"), new NodeAttribute<>(TestOne.anInt, 0));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+		}
+
+		final String cursor1 = RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(2))
+				.body("result[0].name",		equalTo("TestOne-0"))
+				.body("result[1].name",		equalTo("TestOne-1"))
+			.when()
+				.get(resource + "?sort=name&pageSize=2")
+			.jsonPath().getString("next_cursor");
+
+		assertNotNull("Full result page should contain a cursor", cursor1);
+
+		final String cursor2 = RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(2))
+				.body("result[0].name",		equalTo("TestOne-2"))
+				.body("result[1].name",		equalTo("TestOne-3"))
+			.when()
+				.get(resource + "?sort=name&pageSize=2&_cursor=" + cursor1)
+			.jsonPath().getString("next_cursor");
+
+		assertNotNull("Full result page should contain a cursor", cursor2);
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(1))
+				.body("result[0].name",		equalTo("TestOne-4"))
+				.body("next_cursor",		equalTo(null))
+			.when()
+				.get(resource + "?sort=name&pageSize=2&_cursor=" + cursor2);
+
+		// numeric sort key with duplicate values in descending order
+		final String cursor3 = RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(2))
+				.body("result[0].anInt",	equalTo(3))
+				.body("result[1].anInt",	equalTo(2))
+			.when()
+				.get(resource + "?sort=anInt&order=desc&pageSize=2")
+			.jsonPath().getString("next_cursor");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(2))
+				.body("result[0].anInt",	equalTo(2))
+				.body("result[1].anInt",	equalTo(1))
+			.when()
+				.get(resource + "?sort=anInt&order=desc&pageSize=2&_cursor=" + cursor3);
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(400)
+			.when()
+				.get(resource + "?sort=name&pageSize=2&_cursor=invalid");
+	}
+
+	@Test
+	public void test05StreamedPaging() {
+
+		final String resource = "/test_one";
+
+		try (final Tx tx = app.tx()) {
+
+			for (int i=0; i<5; i++) {
+				app.create(TestOne.class, new NodeAttribute<>(TestOne.name, "TestOne-" + i));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+		}
+
+		final int streamPageSize = Settings.RestStreamPageSize.getValue();
+
+		try {
+
+			// stream all results with a page size of at least 2
+			Settings.RestStreamPageSize.setValue(2);
+
+			RestAssured
+
+				.given()
+					.contentType("application/json; charset=UTF-8")
+				.expect()
+					.statusCode(200)
+					.body("result",			hasSize(2))
+					.body("result[0].name",		equalTo("TestOne-2"))
+					.body("result[1].name",		equalTo("TestOne-3"))
+					.body("result_count",		equalTo(5))
+					.body("page_count",		equalTo(3))
+					.body("page_size",		equalTo(2))
+					.body("page",			equalTo(2))
+				.when()
+					.get(resource + "?sort=name&pageSize=2&page=2");
+
+			RestAssured
+
+				.given()
+					.contentType("application/json; charset=UTF-8")
+				.expect()
+					.statusCode(200)
+					.body("result",			hasSize(2))
+					.body("result[0].name",		equalTo("TestOne-0"))
+					.body("result_count",		equalTo(null))
+				.when()
+					.get(resource + "?sort=name&pageSize=2&ignoreResultCount=1");
+
+			// requests without an explicit page size are not streamed
+			RestAssured
+
+				.given()
+					.contentType("application/json; charset=UTF-8")
+				.expect()
+					.statusCode(200)
+					.body("result",			hasSize(5))
+					.body("result[4].name",		equalTo("TestOne-4"))
+					.body("result_count",		equalTo(5))
+				.when()
+					.get(resource + "?sort=name");
+
+		} finally {
+
+			Settings.RestStreamPageSize.setValue(streamPageSize);
+		}
+	}
+
 	@Test
 	public void testRelationshipResourcePagingOnCollectionResource() {
 
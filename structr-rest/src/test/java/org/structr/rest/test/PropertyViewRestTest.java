@@ -35,7 +35,9 @@ import java.util.Map;
 import org.apache.commons.io.FileUtils;
 import org.hamcrest.Matcher;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import org.junit.After;
@@ -419,6 +421,186 @@ public class PropertyViewRestTest {
 
 	}
 
+	@Test
+	public void testViewChangeAfterSchemaReload() {
+
+		SchemaNode schemaNode = null;
+
+		try (final Tx tx = app.tx()) {
+
+			schemaNode = app.create(SchemaNode.class,
+				new NodeAttribute<>(AbstractNode.name, "PlanTest"),
+				new NodeAttribute<>(new StringProperty("_foo"), "String"),
+				new NodeAttribute<>(new StringProperty("_bar"), "String"),
+				new NodeAttribute<>(new StringProperty("__public"), "name, foo")
+			);
+
+			tx.success();
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			fail("Unexpected exception.");
+		}
+
+		final String resource = "/PlanTest";
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.body(" { 'name' : 'PlanTest1', 'foo' : 'foo1', 'bar' : 'bar1' } ")
+
+			.expect()
+				.statusCode(201)
+
+			.when()
+				.post(resource);
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("Accept", "application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(200))
+
+			.expect()
+				.statusCode(200)
+				.body("result",          hasSize(1))
+				.body("result[0].name",  equalTo("PlanTest1"))
+				.body("result[0].foo",   equalTo("foo1"))
+				.body("result[0]",       not(hasKey("bar")))
+
+			.when()
+				.get(resource);
+
+		// change the public view, serialization must follow the new schema
+		try (final Tx tx = app.tx()) {
+
+			schemaNode.setProperty(new StringProperty("__public"), "name, bar");
+			tx.success();
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			fail("Unexpected exception.");
+		}
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("Accept", "application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(200))
+
+			.expect()
+				.statusCode(200)
+				.body("result",          hasSize(1))
+				.body("result[0].name",  equalTo("PlanTest1"))
+				.body("result[0].bar",   equalTo("bar1"))
+				.body("result[0]",       not(hasKey("foo")))
+
+			.when()
+				.get(resource);
+	}
+
+	@Test
+	public void testSparseFieldsets() {
+
+		try (final Tx tx = app.tx()) {
+
+			final SchemaNode node = app.create(SchemaNode.class,
+				new NodeAttribute<>(AbstractNode.name, "FieldsTest"),
+				new NodeAttribute<>(new StringProperty("_foo"), "String"),
+				new NodeAttribute<>(new StringProperty("_bar"), "String"),
+				new NodeAttribute<>(new StringProperty("__public"), "name, foo, bar, children, parents")
+			);
+
+			app.create(SchemaRelationshipNode.class,
+				new NodeAttribute<>(SchemaRelationshipNode.sourceNode, node),
+				new NodeAttribute<>(SchemaRelationshipNode.targetNode, node),
+				new NodeAttribute<>(SchemaRelationshipNode.relationshipType, "test"),
+				new NodeAttribute<>(SchemaRelationshipNode.sourceJsonName, "parents"),
+				new NodeAttribute<>(SchemaRelationshipNode.targetJsonName, "children")
+			);
+
+			tx.success();
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			fail("Unexpected exception.");
+		}
+
+		final String resource = "/FieldsTest";
+
+		final String uuid = getUuidFromLocation(RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.body(" { 'name' : 'FieldsTest1', 'foo' : 'foo1', 'bar' : 'bar1' } ")
+
+			.expect()
+				.statusCode(201)
+
+			.when()
+				.post(resource).getHeader("Location")
+		);
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.body(" { 'name' : 'FieldsTest2', 'foo' : 'foo2', 'bar' : 'bar2', 'parents': [{ 'id': '" + uuid + "' }] } ")
+
+			.expect()
+				.statusCode(201)
+
+			.when()
+				.post(resource);
+
+		// only the requested fields are rendered, nested objects are limited by dotted paths
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("Accept", "application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(200))
+
+			.expect()
+				.statusCode(200)
+				.body("result",                             hasSize(2))
+				.body("result[0].name",                     equalTo("FieldsTest1"))
+				.body("result[0].foo",                      equalTo("foo1"))
+				.body("result[0]",                          not(hasKey("bar")))
+				.body("result[0]",                          not(hasKey("parents")))
+				.body("result[0].children",                 hasSize(1))
+				.body("result[0].children[0].name",         equalTo("FieldsTest2"))
+				.body("result[0].children[0]",              not(hasKey("foo")))
+				.body("result[0].children[0]",              not(hasKey("parents")))
+				.body("result[1].name",                     equalTo("FieldsTest2"))
+				.body("result[1].foo",                      equalTo("foo2"))
+				.body("result[1]",                          not(hasKey("bar")))
+
+			.when()
+				.get(resource.concat("?sort=name&_fields=name,foo,children.name"));
+
+		// a plain name renders nested objects in the view
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("Accept", "application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(200))
+
+			.expect()
+				.statusCode(200)
+				.body("result.name",                        equalTo("FieldsTest1"))
+				.body("result",                             not(hasKey("foo")))
+				.body("result.children[0].name",            equalTo("FieldsTest2"))
+				.body("result.children[0].bar",             equalTo("bar2"))
+
+			.when()
+				.get(resource.concat("/").concat(uuid).concat("?_fields=name,children"));
+	}
+
 	@AfterClass
 	public static void stop() throws Exception {
 
@@ -127,6 +127,8 @@ public class CSVFileImportJob extends FileImportJob {
 
 					int count = 0;
 
+					acquireTransaction();
+
 					try (final Tx tx = app.tx()) {
 
 						final long chunkStartTime = System.currentTimeMillis();
@@ -148,6 +150,9 @@ public class CSVFileImportJob extends FileImportJob {
 
 						chunkFinished(chunkStartTime, chunks, commitInterval, overallCount);
 
+					} finally {
+
+						releaseTransaction();
 					}
 
 					// do this outside of the transaction!
@@ -160,7 +165,7 @@ public class CSVFileImportJob extends FileImportJob {
 
 				importFinished(startTime, overallCount);
 
-			} catch (IOException | FrameworkException fex) {
+			} catch (IOException | FrameworkException | InterruptedException fex) {
 
 				reportException(fex);
 
@@ -65,18 +65,28 @@ public class ScriptJob extends ScheduledJob {
 
 				reportBegin();
 
-				// called from JavaScript?
-				if (script instanceof Script) {
+				// the transactions of the script count towards the limit of all running jobs
+				acquireTransaction();
 
-					Scripting.evaluateJavascript(actionContext, null, new Snippet((Script)script));
+				try {
 
-				} else if (script instanceof String) {
+					// called from JavaScript?
+					if (script instanceof Script) {
 
-					Scripting.evaluate(actionContext, null, (String)script, jobName);
+						Scripting.evaluateJavascript(actionContext, null, new Snippet((Script)script));
 
-				} else if (script != null) {
+					} else if (script instanceof String) {
 
-					logger.warn("Unable to schedule script of type {}, ignoring", script.getClass().getName());
+						Scripting.evaluate(actionContext, null, (String)script, jobName);
+
+					} else if (script != null) {
+
+						logger.warn("Unable to schedule script of type {}, ignoring", script.getClass().getName());
+					}
+
+				} finally {
+
+					releaseTransaction();
 				}
 
 				reportFinished();
@@ -115,22 +115,31 @@ public class XMLFileImportJob extends FileImportJob {
 
 						int count = 0;
 
-						// test: open transaction
-						Tx tx = app.tx();
+						acquireTransaction();
 
-						// make transaction available in context
-						threadContext.setAttribute("currentTransaction", tx);
+						try {
 
-						while (iterator.hasNext() && ++count <= batchSize) {
+							// test: open transaction
+							Tx tx = app.tx();
 
-							app.create(AbstractNode.class, PropertyMap.inputTypeToJavaType(threadContext, iterator.next()));
-							overallCount++;
-						}
+							// make transaction available in context
+							threadContext.setAttribute("currentTransaction", tx);
+
+							while (iterator.hasNext() && ++count <= batchSize) {
+
+								app.create(AbstractNode.class, PropertyMap.inputTypeToJavaType(threadContext, iterator.next()));
+								overallCount++;
+							}
 
-						// tx might have changed, reload from context
-						tx = (Tx)threadContext.getAttribute("currentTransaction");
-						tx.success();
-						tx.close();
+							// tx might have changed, reload from context
+							tx = (Tx)threadContext.getAttribute("currentTransaction");
+							tx.success();
+							tx.close();
+
+						} finally {
+
+							releaseTransaction();
+						}
 
 						chunks++;
 
@@ -146,7 +155,7 @@ public class XMLFileImportJob extends FileImportJob {
 
 					importFinished(startTime, overallCount);
 
-				} catch (XMLStreamException | FrameworkException ex) {
+				} catch (XMLStreamException | FrameworkException | InterruptedException ex) {
 					reportException(ex);
 				}
 
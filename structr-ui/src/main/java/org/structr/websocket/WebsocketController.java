@@ -213,6 +213,13 @@ public class WebsocketController implements StructrTransactionListener {
 		}
 	}
 
+	@Override
+	public boolean isSynchronous() {
+
+		// broadcasting only reads the detached events, so it does not need to block the committing thread
+		return false;
+	}
+
 	@Override
 	public void simpleBroadcast(final String commandName, final Map<String, Object> data, final String exemptedSessionId) {
 